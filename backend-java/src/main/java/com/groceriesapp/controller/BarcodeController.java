@@ -1,11 +1,20 @@
 package com.groceriesapp.controller;
 
+import com.groceriesapp.service.BarcodeBatchService;
+import com.groceriesapp.service.BarcodeBatchService.BatchItem;
 import com.groceriesapp.service.BarcodeService;
+import com.groceriesapp.service.event.ItemsScannedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GraphQL controller for barcode scanning operations.
@@ -14,13 +23,53 @@ import java.util.Map;
 public class BarcodeController {
     
     private final BarcodeService barcodeService;
+    private final BarcodeBatchService barcodeBatchService;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public BarcodeController(BarcodeService barcodeService) {
+    public BarcodeController(BarcodeService barcodeService, BarcodeBatchService barcodeBatchService,
+                             ApplicationEventPublisher eventPublisher) {
         this.barcodeService = barcodeService;
+        this.barcodeBatchService = barcodeBatchService;
+        this.eventPublisher = eventPublisher;
     }
     
+    // Asynchronous, so the request thread is not held while the product is looked up.
+    // Products found count towards the scanning user's achievements.
     @MutationMapping
-    public Map<String, Object> scanBarcode(@Argument String barcode) {
-        return barcodeService.scanBarcode(barcode);
+    public CompletableFuture<Map<String, Object>> scanBarcode(@Argument String barcode, @Argument Long userId) {
+        return barcodeService.scanBarcodeAsync(barcode).thenApply(result -> {
+            if (userId != null && Boolean.TRUE.equals(result.get("success"))) {
+                publishScans(userId, 1);
+            }
+            return result;
+        });
+    }
+    
+    @MutationMapping
+    public Mono<List<BatchItem>> scanBarcodes(@Argument List<String> barcodes, @Argument Long userId) {
+        return barcodeBatchService.scanBarcodesInOrder(barcodes).doOnNext(items -> {
+            if (userId != null) {
+                publishScans(userId, (int) items.stream()
+                    .filter(item -> item.getStatus() == BarcodeBatchService.Status.FOUND)
+                    .count());
+            }
+        });
+    }
+    
+    @SubscriptionMapping
+    public Flux<BatchItem> barcodesScanned(@Argument List<String> barcodes) {
+        return barcodeBatchService.scanBarcodes(barcodes);
+    }
+    
+    private void publishScans(Long userId, int count) {
+        if (count == 0) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new ItemsScannedEvent(userId, count));
+        } catch (Exception e) {
+            // The scan itself succeeded
+            System.err.println("Failed to record scans for user " + userId + ": " + e.getMessage());
+        }
     }
 }
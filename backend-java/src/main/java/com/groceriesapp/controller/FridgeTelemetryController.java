@@ -0,0 +1,100 @@
+package com.groceriesapp.controller;
+
+import com.groceriesapp.service.FridgePollingService;
+import com.groceriesapp.service.FridgePollingService.PollerStats;
+import com.groceriesapp.service.FridgeTelemetryService;
+import com.groceriesapp.service.FridgeTelemetryService.Aggregate;
+import com.groceriesapp.service.FridgeTelemetryService.EventType;
+import com.groceriesapp.service.FridgeTelemetryService.Resolution;
+import com.groceriesapp.service.TemperatureExcursionService;
+import com.groceriesapp.service.TemperatureExcursionService.ExcursionStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Telemetry pushed by smart fridges and their bridges, and the stored aggregates.
+ */
+@RestController
+@RequestMapping("/api/fridge/telemetry")
+@RequiredArgsConstructor
+public class FridgeTelemetryController {
+
+    private final FridgeTelemetryService fridgeTelemetryService;
+    private final FridgePollingService fridgePollingService;
+    private final TemperatureExcursionService temperatureExcursionService;
+
+    /**
+     * Queue a batch of events; events without a timestamp are stamped on arrival. Events
+     * from fridges neither polled nor linked to a household are dropped.
+     */
+    @PostMapping
+    public Map<String, Object> ingest(@RequestBody List<TelemetryEvent> events) {
+        long now = System.currentTimeMillis();
+        int accepted = 0;
+        for (TelemetryEvent event : events) {
+            long timestamp = event.getTimestamp() != null ? event.getTimestamp() : now;
+            if (event.getDeviceId() != null && event.getType() != null && fridgeTelemetryService.record(event.getDeviceId(), event.getType(), event.getValue(), timestamp)) {
+                accepted++;
+            }
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("accepted", accepted);
+        result.put("dropped", events.size() - accepted);
+        return result;
+    }
+
+    @GetMapping("/{deviceId}")
+    public List<Aggregate> aggregates(@PathVariable String deviceId,
+                                      @RequestParam(defaultValue = "HOUR") Resolution resolution,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return fridgeTelemetryService.getAggregates(deviceId, resolution, from, to);
+    }
+
+    /**
+     * Polls per second and how long ago devices were last polled successfully
+     */
+    @GetMapping("/poller")
+    public PollerStats pollerStats() {
+        return fridgePollingService.getStats();
+    }
+
+    /**
+     * Excursions detected, items re-predicted and how far detection lags the readings
+     */
+    @GetMapping("/excursions")
+    public ExcursionStats excursionStats() {
+        return temperatureExcursionService.getStats();
+    }
+
+    public static class TelemetryEvent {
+        private String deviceId;
+        private EventType type;
+        private double value;
+        private Long timestamp;
+
+        public String getDeviceId() { return deviceId; }
+        public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+        public EventType getType() { return type; }
+        public void setType(EventType type) { this.type = type; }
+
+        public double getValue() { return value; }
+        public void setValue(double value) { this.value = value; }
+
+        public Long getTimestamp() { return timestamp; }
+        public void setTimestamp(Long timestamp) { this.timestamp = timestamp; }
+    }
+}
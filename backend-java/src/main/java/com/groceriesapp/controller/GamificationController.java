@@ -1,6 +1,7 @@
 package com.groceriesapp.controller;
 
 import com.groceriesapp.service.GamificationService;
+import com.groceriesapp.service.LeaderboardService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -22,8 +23,17 @@ public class GamificationController {
     }
     
     @QueryMapping
-    public List<Map<String, Object>> leaderboard(@Argument Integer limit) {
-        return gamificationService.getLeaderboard(limit);
+    public List<Map<String, Object>> leaderboard(@Argument Integer limit, @Argument LeaderboardService.Period period,
+                                                 @Argument Long householdId) {
+        return gamificationService.getLeaderboard(limit, period != null ? period : LeaderboardService.Period.ALL_TIME,
+            householdId);
+    }
+    
+    @QueryMapping
+    public Map<String, Object> leaderboardPosition(@Argument Long userId, @Argument LeaderboardService.Period period,
+                                                   @Argument Long householdId, @Argument Integer neighbours) {
+        return gamificationService.getLeaderboardPosition(userId,
+            period != null ? period : LeaderboardService.Period.ALL_TIME, householdId, neighbours);
     }
     
     @MutationMapping
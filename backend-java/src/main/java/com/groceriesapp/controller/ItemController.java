@@ -43,6 +43,7 @@ public class ItemController {
     public Item createItem(@Argument Map<String, Object> input) {
         String name = (String) input.get("name");
         Integer quantity = (Integer) input.get("quantity");
+        Integer weightGrams = (Integer) input.get("weightGrams");
         String expirationDateStr = (String) input.get("expirationDate");
         String storageLocation = (String) input.get("storageLocation");
         Long householdId = Long.parseLong(input.get("householdId").toString());
@@ -56,7 +57,7 @@ public class ItemController {
         User addedBy = userRepository.findById(1L)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
-        return itemService.createItem(name, quantity, expirationDate, storageLocation, household, addedBy);
+        return itemService.createItem(name, quantity, weightGrams, expirationDate, storageLocation, household, addedBy);
     }
     
     @MutationMapping
@@ -1,10 +1,15 @@
 package com.groceriesapp.controller;
 
-import com.groceriesapp.service.OCRService;
+import com.groceriesapp.service.OCRJobService;
+import com.groceriesapp.service.OCRJobService.OCRJob;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
@@ -12,10 +17,35 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class OCRController {
     
-    private final OCRService ocrService;
+    private final OCRJobService ocrJobService;
     
     @MutationMapping
     public Map<String, Object> processImageForOCR(@Argument String imageBase64) {
-        return ocrService.processImage(imageBase64);
+        return ocrJobService.processImage(imageBase64);
+    }
+    
+    @MutationMapping
+    public OCRJob submitOCRJob(@Argument String imageBase64) {
+        return ocrJobService.submit(imageBase64);
+    }
+    
+    @QueryMapping
+    public OCRJob ocrJob(@Argument String id) {
+        return ocrJobService.getJob(id);
+    }
+    
+    @SubscriptionMapping
+    public Mono<OCRJob> ocrJobCompleted(@Argument String id) {
+        return ocrJobService.awaitCompletion(id);
+    }
+    
+    @SchemaMapping(typeName = "OCRJob", field = "submittedAt")
+    public String getSubmittedAt(OCRJob job) {
+        return job.getSubmittedAt().toString();
+    }
+    
+    @SchemaMapping(typeName = "OCRJob", field = "completedAt")
+    public String getCompletedAt(OCRJob job) {
+        return job.getCompletedAt() != null ? job.getCompletedAt().toString() : null;
     }
 }
@@ -0,0 +1,129 @@
+package com.groceriesapp.controller;
+
+import com.groceriesapp.model.User;
+import com.groceriesapp.service.ContentCache;
+import com.groceriesapp.service.EnhancedAIService;
+import com.groceriesapp.service.ImageBufferPool;
+import com.groceriesapp.service.ImageUpload;
+import com.groceriesapp.service.OCRJobService;
+import com.groceriesapp.service.OCRJobService.OCRJob;
+import com.groceriesapp.service.ScanCacheService;
+import com.groceriesapp.service.nutrition.NutritionService;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary image uploads for scans, as an alternative to base64 strings in GraphQL.
+ *
+ * Each endpoint accepts either a raw body (Content-Type image/* or
+ * application/octet-stream) or multipart/form-data with an "image" part. The body is
+ * streamed into a pooled direct buffer and decoded from there, so the only copy of
+ * the encoded image in memory is the pooled one.
+ */
+@RestController
+@RequestMapping("/api/scans")
+@RequiredArgsConstructor
+public class ScanUploadController {
+
+    private final ImageBufferPool imageBufferPool;
+    private final OCRJobService ocrJobService;
+    private final EnhancedAIService enhancedAIService;
+    private final NutritionService nutritionService;
+    private final ScanCacheService scanCacheService;
+
+    /**
+     * OCR an item photo and wait for name, quantity and expiration date
+     */
+    @PostMapping("/ocr")
+    public Map<String, Object> scanItem(HttpServletRequest request) throws IOException {
+        return ocrJobService.processImage(readImage(request));
+    }
+
+    /**
+     * Queue an item photo for OCR; poll the ocrJob query or subscribe to ocrJobCompleted
+     */
+    @PostMapping("/ocr/jobs")
+    public ResponseEntity<OCRJob> submitItemScan(HttpServletRequest request) throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ocrJobService.submit(readImage(request)));
+    }
+
+    @PostMapping("/freshness")
+    public Map<String, Object> scanFreshness(@RequestParam String itemName, HttpServletRequest request)
+            throws IOException {
+        try (ImageUpload image = readImage(request)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("itemName", itemName);
+            result.put("freshnessScore", enhancedAIService.analyzeFreshness(itemName, image.data()));
+            return result;
+        }
+    }
+
+    /**
+     * OCR a nutrition label photo and record it against the item, as scanNutritionLabel does for OCR text
+     */
+    @PostMapping("/label")
+    public Map<String, Object> scanLabel(@AuthenticationPrincipal User user,
+                                         @RequestParam Long itemId,
+                                         HttpServletRequest request) throws IOException {
+        String ocrText = ocrJobService.extractText(readImage(request));
+        return nutritionService.scanNutritionLabel(user, itemId, ocrText);
+    }
+
+    /**
+     * Hit rate and CPU time saved by the OCR text and parsed label caches
+     */
+    @GetMapping("/cache/stats")
+    public List<ContentCache.Stats> cacheStats() {
+        return scanCacheService.getStats();
+    }
+
+    @ExceptionHandler(ImageBufferPool.UploadTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> handleTooLarge(ImageBufferPool.UploadTooLargeException e) {
+        return error(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+    }
+
+    @ExceptionHandler(ImageBufferPool.PoolExhaustedException.class)
+    public ResponseEntity<Map<String, Object>> handlePoolExhausted(ImageBufferPool.PoolExhaustedException e) {
+        return error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+    }
+
+    private ImageUpload readImage(HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith("multipart/")) {
+            Part part;
+            try {
+                part = request.getPart("image");
+            } catch (ServletException e) {
+                throw new RuntimeException("Invalid multipart request: " + e.getMessage());
+            }
+            if (part == null) {
+                throw new RuntimeException("Multipart request has no 'image' part");
+            }
+            return imageBufferPool.read(part.getInputStream(), part.getSize());
+        }
+        return imageBufferPool.read(request.getInputStream(), request.getContentLengthLong());
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
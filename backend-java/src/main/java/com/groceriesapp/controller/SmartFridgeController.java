@@ -0,0 +1,31 @@
+package com.groceriesapp.controller;
+
+import com.groceriesapp.model.User;
+import com.groceriesapp.service.SmartFridgeIntegrationService;
+import com.groceriesapp.service.SmartFridgeIntegrationService.SyncResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.stereotype.Controller;
+
+@Controller
+@RequiredArgsConstructor
+public class SmartFridgeController {
+    
+    private final SmartFridgeIntegrationService smartFridgeIntegrationService;
+    
+    /**
+     * Pull a fridge's inventory into the signed-in user's household, writing only what
+     * changed since its last sync
+     */
+    @MutationMapping
+    public SyncResult syncFridgeInventory(@AuthenticationPrincipal User user,
+                                          @Argument String brand,
+                                          @Argument String deviceId) {
+        if (user.getHousehold() == null) {
+            throw new RuntimeException("User has no household");
+        }
+        return smartFridgeIntegrationService.syncFridgeItems(brand, deviceId, user.getHousehold(), user);
+    }
+}
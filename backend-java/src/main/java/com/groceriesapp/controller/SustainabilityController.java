@@ -1,8 +1,8 @@
 package com.groceriesapp.controller;
 
-import com.groceriesapp.model.User;
-import com.groceriesapp.repository.UserRepository;
+import com.groceriesapp.service.SustainabilityService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 
@@ -13,15 +13,17 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class SustainabilityController {
     
-    private final UserRepository userRepository;
+    private final SustainabilityService sustainabilityService;
     
     @QueryMapping
-    public Map<String, Object> sustainabilityMetrics() {
-        // For demo, get the first user's metrics
-        User user = userRepository.findById(1L).orElse(null);
-        
+    public Map<String, Object> sustainabilityMetrics(@Argument Long userId, @Argument Long householdId) {
+        // For demo, default to the first user's metrics
         Map<String, Object> metrics = new HashMap<>();
-        metrics.put("totalCo2SavedKg", user != null ? user.getTotalCo2SavedKg() : 0.0);
+        metrics.put("totalCo2SavedKg", sustainabilityService.getUserCo2SavedKg(userId != null ? userId : 1L));
+        if (householdId != null) {
+            metrics.put("householdCo2SavedKg", sustainabilityService.getHouseholdCo2SavedKg(householdId));
+        }
+        metrics.put("globalCo2SavedKg", sustainabilityService.getGlobalCo2SavedKg());
         
         return metrics;
     }
@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 
@@ -26,6 +27,8 @@ import java.util.stream.Collectors;
 @Controller
 public class NutritionGraphQLController {
     
+    private static final int RECENT_CONSUMPTION_DAYS = 30;
+    
     @Autowired
     private NutritionInfoRepository nutritionInfoRepository;
     
@@ -162,7 +165,7 @@ public class NutritionGraphQLController {
         return consumptionLogRepository.findByUserIdAndDateRange(
             user.getId(), 
             today.atStartOfDay(), 
-            today.atTime(23, 59, 59)
+            today.plusDays(1).atStartOfDay()
         );
     }
     
@@ -175,7 +178,7 @@ public class NutritionGraphQLController {
         return consumptionLogRepository.findByUserIdAndDateRange(
             user.getId(), 
             localDate.atStartOfDay(), 
-            localDate.atTime(23, 59, 59)
+            localDate.plusDays(1).atStartOfDay()
         );
     }
     
@@ -187,12 +190,14 @@ public class NutritionGraphQLController {
     ) {
         LocalDate start = LocalDate.parse(startDate);
         LocalDate end = LocalDate.parse(endDate);
-        return consumptionLogRepository.findByUserIdAndDateRange(user.getId(), start.atStartOfDay(), end.atTime(23, 59, 59));
+        return consumptionLogRepository.findByUserIdAndDateRange(user.getId(), start.atStartOfDay(), end.plusDays(1).atStartOfDay());
     }
     
     @QueryMapping
     public List<ConsumptionLog> getRecentConsumption(@AuthenticationPrincipal User user) {
-        return consumptionLogRepository.findRecentLogs(user.getId());
+        // Bounded so the lookup only touches the latest monthly partitions
+        LocalDateTime since = LocalDate.now().minusDays(RECENT_CONSUMPTION_DAYS).atStartOfDay();
+        return consumptionLogRepository.findRecentLogs(user.getId(), since);
     }
     
     // ========================================================================
@@ -243,7 +248,7 @@ public class NutritionGraphQLController {
     // ========================================================================
     
     @QueryMapping
-    public Map<String, Object> getNutritionInsights(
+    public NutritionInsights getNutritionInsights(
         @AuthenticationPrincipal User user,
         @Argument String startDate,
         @Argument String endDate
@@ -254,19 +259,125 @@ public class NutritionGraphQLController {
     }
     
     @QueryMapping
-    public Map<String, Object> getWeeklyInsights(@AuthenticationPrincipal User user) {
+    public NutritionInsights getWeeklyInsights(@AuthenticationPrincipal User user) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(7);
         return nutritionService.getNutritionInsights(user.getId(), startDate, endDate);
     }
     
     @QueryMapping
-    public Map<String, Object> getMonthlyInsights(@AuthenticationPrincipal User user) {
+    public NutritionInsights getMonthlyInsights(@AuthenticationPrincipal User user) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(30);
         return nutritionService.getNutritionInsights(user.getId(), startDate, endDate);
     }
     
+    @QueryMapping
+    public List<NutritionRollup> getNutritionTrend(
+        @AuthenticationPrincipal User user,
+        @Argument RollupPeriod period,
+        @Argument String startDate,
+        @Argument String endDate
+    ) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        return nutritionService.getNutritionTrend(user.getId(), period, start, end);
+    }
+    
+    // ========================================================================
+    // FIELDS - Fixed-point totals (grams, sodium in milligrams)
+    // ========================================================================
+    
+    @SchemaMapping(typeName = "ConsumptionLog", field = "totalProtein")
+    public BigDecimal logTotalProtein(ConsumptionLog log) {
+        return Milligrams.toGrams(log.getTotalProteinMg());
+    }
+    
+    @SchemaMapping(typeName = "ConsumptionLog", field = "totalCarbs")
+    public BigDecimal logTotalCarbs(ConsumptionLog log) {
+        return Milligrams.toGrams(log.getTotalCarbsMg());
+    }
+    
+    @SchemaMapping(typeName = "ConsumptionLog", field = "totalFat")
+    public BigDecimal logTotalFat(ConsumptionLog log) {
+        return Milligrams.toGrams(log.getTotalFatMg());
+    }
+    
+    @SchemaMapping(typeName = "ConsumptionLog", field = "totalFiber")
+    public BigDecimal logTotalFiber(ConsumptionLog log) {
+        return Milligrams.toGrams(log.getTotalFiberMg());
+    }
+    
+    @SchemaMapping(typeName = "ConsumptionLog", field = "totalSugar")
+    public BigDecimal logTotalSugar(ConsumptionLog log) {
+        return Milligrams.toGrams(log.getTotalSugarMg());
+    }
+    
+    @SchemaMapping(typeName = "ConsumptionLog", field = "totalSodium")
+    public BigDecimal logTotalSodium(ConsumptionLog log) {
+        return Milligrams.toMilligrams(log.getTotalSodiumMg());
+    }
+    
+    @SchemaMapping(typeName = "DailyNutritionSummary", field = "totalProtein")
+    public BigDecimal summaryTotalProtein(DailyNutritionSummary summary) {
+        return Milligrams.toGrams(summary.getTotalProteinMg());
+    }
+    
+    @SchemaMapping(typeName = "DailyNutritionSummary", field = "totalCarbs")
+    public BigDecimal summaryTotalCarbs(DailyNutritionSummary summary) {
+        return Milligrams.toGrams(summary.getTotalCarbsMg());
+    }
+    
+    @SchemaMapping(typeName = "DailyNutritionSummary", field = "totalFat")
+    public BigDecimal summaryTotalFat(DailyNutritionSummary summary) {
+        return Milligrams.toGrams(summary.getTotalFatMg());
+    }
+    
+    @SchemaMapping(typeName = "DailyNutritionSummary", field = "totalFiber")
+    public BigDecimal summaryTotalFiber(DailyNutritionSummary summary) {
+        return Milligrams.toGrams(summary.getTotalFiberMg());
+    }
+    
+    @SchemaMapping(typeName = "DailyNutritionSummary", field = "totalSugar")
+    public BigDecimal summaryTotalSugar(DailyNutritionSummary summary) {
+        return Milligrams.toGrams(summary.getTotalSugarMg());
+    }
+    
+    @SchemaMapping(typeName = "DailyNutritionSummary", field = "totalSodium")
+    public BigDecimal summaryTotalSodium(DailyNutritionSummary summary) {
+        return Milligrams.toMilligrams(summary.getTotalSodiumMg());
+    }
+    
+    @SchemaMapping(typeName = "NutritionRollup", field = "totalProtein")
+    public BigDecimal rollupTotalProtein(NutritionRollup rollup) {
+        return Milligrams.toGrams(rollup.getTotalProteinMg());
+    }
+    
+    @SchemaMapping(typeName = "NutritionRollup", field = "totalCarbs")
+    public BigDecimal rollupTotalCarbs(NutritionRollup rollup) {
+        return Milligrams.toGrams(rollup.getTotalCarbsMg());
+    }
+    
+    @SchemaMapping(typeName = "NutritionRollup", field = "totalFat")
+    public BigDecimal rollupTotalFat(NutritionRollup rollup) {
+        return Milligrams.toGrams(rollup.getTotalFatMg());
+    }
+    
+    @SchemaMapping(typeName = "NutritionRollup", field = "totalFiber")
+    public BigDecimal rollupTotalFiber(NutritionRollup rollup) {
+        return Milligrams.toGrams(rollup.getTotalFiberMg());
+    }
+    
+    @SchemaMapping(typeName = "NutritionRollup", field = "totalSugar")
+    public BigDecimal rollupTotalSugar(NutritionRollup rollup) {
+        return Milligrams.toGrams(rollup.getTotalSugarMg());
+    }
+    
+    @SchemaMapping(typeName = "NutritionRollup", field = "totalSodium")
+    public BigDecimal rollupTotalSodium(NutritionRollup rollup) {
+        return Milligrams.toMilligrams(rollup.getTotalSodiumMg());
+    }
+    
     // ========================================================================
     // MUTATIONS - Nutrition Info
     // ========================================================================
@@ -432,7 +543,7 @@ public class NutritionGraphQLController {
             prefs.setDailyFatGoal(new BigDecimal(input.get("dailyFatGoal").toString()));
         }
         
-        return userDietaryPreferencesRepository.save(prefs);
+        return nutritionService.saveDietaryPreferences(prefs);
     }
     
     // ========================================================================
@@ -453,7 +564,7 @@ public class NutritionGraphQLController {
             input.get("mealType").toString()
         );
         
-        ConsumptionLog log = nutritionService.logConsumption(user.getId(), item.getId(), servings, mealType);
+        ConsumptionLog log = nutritionService.logConsumption(user.getId(), item, servings, mealType);
         
         if (input.containsKey("notes")) {
             log.setNotes(input.get("notes").toString());
@@ -509,56 +620,7 @@ public class NutritionGraphQLController {
         @Argument Long itemId,
         @Argument String ocrText
     ) {
-        Map<String, Object> result = new HashMap<>();
-        
-        try {
-            Item item = itemRepository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Item not found"));
-            
-            // Parse nutrition label
-            NutritionInfo nutritionInfo = enhancedOCRService.parseNutritionLabel(ocrText);
-            if (nutritionInfo != null) {
-                nutritionInfo.setItemId(item.getId());
-                nutritionInfo = nutritionInfoRepository.save(nutritionInfo);
-                result.put("nutritionInfo", nutritionInfo);
-            }
-            
-            // Parse ingredients
-            List<Ingredient> ingredients = enhancedOCRService.parseIngredientsList(ocrText);
-            result.put("ingredients", ingredients);
-            
-            // Save item ingredients
-            int position = 1;
-            for (Ingredient ingredient : ingredients) {
-                ItemIngredient itemIngredient = new ItemIngredient();
-                itemIngredient.setItemId(item.getId());
-                itemIngredient.setIngredientId(ingredient.getId());
-                itemIngredient.setPosition(position++);
-                itemIngredientRepository.save(itemIngredient);
-            }
-            
-            // Check for allergens
-            List<Long> ingredientIds = ingredients.stream().map(Ingredient::getId).collect(Collectors.toList());
-            List<AllergenAlert> alerts = nutritionService.checkForAllergens(user.getId(), item.getId(), ingredientIds);
-            result.put("allergenAlerts", alerts);
-            
-            // Check dietary violations
-            Map<String, Boolean> violations = nutritionService.checkDietaryRestrictions(user.getId(), ingredientIds);
-            List<String> violationList = violations.entrySet().stream()
-                .filter(Map.Entry::getValue)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-            result.put("dietaryViolations", violationList);
-            
-            result.put("success", true);
-            result.put("message", "Nutrition label scanned successfully");
-            
-        } catch (Exception e) {
-            result.put("success", false);
-            result.put("message", "Error scanning nutrition label: " + e.getMessage());
-        }
-        
-        return result;
+        return nutritionService.scanNutritionLabel(user, itemId, ocrText);
     }
     
     @MutationMapping
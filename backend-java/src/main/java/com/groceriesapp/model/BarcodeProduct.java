@@ -0,0 +1,60 @@
+package com.groceriesapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Local copy of an Open Food Facts lookup. Barcodes the upstream does not know are
+ * stored too (found = false), so repeated scans of them do not go upstream either.
+ */
+@Entity
+@Table(name = "barcode_products")
+@Data
+@NoArgsConstructor
+public class BarcodeProduct {
+    
+    @Id
+    @Column(length = 32)
+    private String barcode;
+    
+    @Column(nullable = false)
+    private boolean found;
+    
+    @Column(name = "product_name")
+    private String productName;
+    
+    private String brand;
+    
+    @Column(length = 1024)
+    private String category;
+    
+    @Column(name = "image_url", length = 512)
+    private String imageUrl;
+    
+    // Per 100g; null when the upstream has no nutriments for the product
+    @Column(name = "calories_100g")
+    private Double calories;
+    
+    @Column(name = "protein_100g")
+    private Double protein;
+    
+    @Column(name = "carbs_100g")
+    private Double carbs;
+    
+    @Column(name = "fat_100g")
+    private Double fat;
+    
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+    
+    public static BarcodeProduct notFound(String barcode) {
+        BarcodeProduct product = new BarcodeProduct();
+        product.setBarcode(barcode);
+        product.setFound(false);
+        product.setFetchedAt(LocalDateTime.now());
+        return product;
+    }
+}
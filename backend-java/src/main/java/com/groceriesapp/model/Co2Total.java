@@ -0,0 +1,35 @@
+package com.groceriesapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Grams of CO2 saved across a household (scope HOUSEHOLD, scopeId the household) or
+ * everyone (scope GLOBAL, scopeId 0). Kept as running totals so dashboards never sum users.
+ */
+@Entity
+@Table(
+    name = "co2_totals",
+    uniqueConstraints = @UniqueConstraint(name = "uk_co2_totals_scope", columnNames = {"scope", "scope_id"})
+)
+@Data
+public class Co2Total {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 16)
+    private String scope;
+    
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+    
+    @Column(nullable = false)
+    private Long grams = 0L;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
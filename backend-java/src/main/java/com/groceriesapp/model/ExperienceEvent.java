@@ -0,0 +1,39 @@
+package com.groceriesapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One XP award. The ledger is append-only; users.experience_points is its running total.
+ */
+@Entity
+@Table(name = "experience_events")
+@Data
+@NoArgsConstructor
+public class ExperienceEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private Integer xp;
+    
+    private String reason;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public ExperienceEvent(Long userId, Integer xp, String reason) {
+        this.userId = userId;
+        this.xp = xp;
+        this.reason = reason;
+        this.createdAt = LocalDateTime.now();
+    }
+}
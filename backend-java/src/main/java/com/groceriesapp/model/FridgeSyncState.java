@@ -0,0 +1,34 @@
+package com.groceriesapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fingerprint of the inventory a smart fridge reported at its last applied sync, so a
+ * sync of an unchanged fridge can be recognised without reading its items.
+ */
+@Entity
+@Table(name = "fridge_sync_state")
+@Data
+@NoArgsConstructor
+public class FridgeSyncState {
+    
+    @Id
+    @Column(name = "device_id", length = 100)
+    private String deviceId;
+    
+    @Column(name = "household_id", nullable = false)
+    private Long householdId;
+    
+    @Column(name = "inventory_hash", nullable = false)
+    private long inventoryHash;
+    
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+    
+    @Column(name = "synced_at", nullable = false)
+    private LocalDateTime syncedAt;
+}
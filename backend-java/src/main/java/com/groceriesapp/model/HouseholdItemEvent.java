@@ -0,0 +1,73 @@
+package com.groceriesapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A household buying, opening or using up an item. The ledger is append-only; shopping
+ * suggestions learn how often each household restocks each item from it.
+ */
+@Entity
+@Table(
+    name = "household_item_events",
+    indexes = {
+        @Index(name = "idx_household_item_events_household_date", columnList = "household_id, event_date"),
+        @Index(name = "idx_household_item_events_item", columnList = "item_id, source")
+    }
+)
+@Data
+@NoArgsConstructor
+public class HouseholdItemEvent {
+    
+    public enum Source {
+        // Ticked off on the shopping list
+        PURCHASED,
+        // Marked as used
+        USED,
+        // First consumption logged for an item
+        OPENED
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "household_id", nullable = false)
+    private Long householdId;
+    
+    // The name normalised, so "Milk 2L" and "milk" are the same item
+    @Column(name = "item_key", nullable = false, length = 100)
+    private String itemKey;
+    
+    @Column(nullable = false)
+    private String name;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Source source;
+    
+    // The item or shopping list item, so one item opened twice counts once
+    @Column(name = "item_id")
+    private Long itemId;
+    
+    @Column(name = "event_date", nullable = false)
+    private LocalDate eventDate;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public HouseholdItemEvent(Long householdId, String itemKey, String name, Source source, Long itemId,
+                              LocalDate eventDate) {
+        this.householdId = householdId;
+        this.itemKey = itemKey;
+        this.name = name;
+        this.source = source;
+        this.itemId = itemId;
+        this.eventDate = eventDate;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -25,6 +25,10 @@ public class Item {
     @Column(nullable = false)
     private Integer quantity;
     
+    // Total weight of all units, when known; otherwise CO2 estimates assume a typical weight per unit
+    @Column(name = "weight_grams")
+    private Integer weightGrams;
+    
     @Column(name = "expiration_date", nullable = false)
     private LocalDate expirationDate;
     
@@ -37,6 +41,10 @@ public class Item {
     @Column(name = "barcode")
     private String barcode;
     
+    // Smart fridge whose inventory sync manages this item; null for items added by hand
+    @Column(name = "fridge_device_id", length = 100)
+    private String fridgeDeviceId;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "household_id", nullable = false)
     private Household household;
@@ -4,11 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
+// Only changed columns are written, so saving a user never writes back a stale XP total
 @Entity
 @Table(name = "users")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -55,6 +58,14 @@ public class User {
     @Column(name = "last_active_date")
     private java.time.LocalDate lastActiveDate;
     
+    // The active day before lastActiveDate, so the nightly streak job still sees yesterday after today's activity is written
+    @Column(name = "previous_active_date")
+    private java.time.LocalDate previousActiveDate;
+    
+    // The day the streak counts up to, as of the last nightly streak job
+    @Column(name = "streak_date")
+    private java.time.LocalDate streakDate;
+    
     // Push notification fields
     @Column(name = "fcm_token")
     private String fcmToken;
@@ -7,7 +7,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_achievements")
+@Table(
+    name = "user_achievements",
+    uniqueConstraints = @UniqueConstraint(name = "uk_user_achievements_user_achievement",
+        columnNames = {"user_id", "achievement_id"})
+)
 @Data
 public class UserAchievement {
     
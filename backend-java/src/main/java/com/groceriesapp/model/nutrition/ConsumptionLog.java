@@ -5,7 +5,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "consumption_log")
+@Table(
+    name = "consumption_log",
+    indexes = @Index(name = "idx_user_consumed", columnList = "user_id, consumed_at")
+)
 public class ConsumptionLog {
     
     @Id
@@ -16,7 +19,7 @@ public class ConsumptionLog {
     
     private Long userId;
     
-    @Column(name = "user_id", nullable = false)
+    @Column(name = "item_id", nullable = false)
     private Long itemId;
     
     @Column(name = "consumed_at", nullable = false)
@@ -25,27 +28,27 @@ public class ConsumptionLog {
     @Column(name = "servings_consumed", precision = 10, scale = 2)
     private BigDecimal servingsConsumed = BigDecimal.ONE;
     
-    // Nutritional totals (calculated from nutrition_info * servings)
+    // Nutritional totals in milligrams (calculated from nutrition_info * servings)
     @Column(name = "total_calories")
     private Integer totalCalories;
     
-    @Column(name = "total_protein", precision = 10, scale = 2)
-    private BigDecimal totalProtein;
+    @Column(name = "total_protein_mg")
+    private Long totalProteinMg;
     
-    @Column(name = "total_carbs", precision = 10, scale = 2)
-    private BigDecimal totalCarbs;
+    @Column(name = "total_carbs_mg")
+    private Long totalCarbsMg;
     
-    @Column(name = "total_fat", precision = 10, scale = 2)
-    private BigDecimal totalFat;
+    @Column(name = "total_fat_mg")
+    private Long totalFatMg;
     
-    @Column(name = "total_fiber", precision = 10, scale = 2)
-    private BigDecimal totalFiber;
+    @Column(name = "total_fiber_mg")
+    private Long totalFiberMg;
     
-    @Column(name = "total_sugar", precision = 10, scale = 2)
-    private BigDecimal totalSugar;
+    @Column(name = "total_sugar_mg")
+    private Long totalSugarMg;
     
-    @Column(name = "total_sodium", precision = 10, scale = 2)
-    private BigDecimal totalSodium;
+    @Column(name = "total_sodium_mg")
+    private Long totalSodiumMg;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "meal_type")
@@ -114,52 +117,52 @@ public class ConsumptionLog {
         this.totalCalories = totalCalories;
     }
     
-    public BigDecimal getTotalProtein() {
-        return totalProtein;
+    public Long getTotalProteinMg() {
+        return totalProteinMg;
     }
     
-    public void setTotalProtein(BigDecimal totalProtein) {
-        this.totalProtein = totalProtein;
+    public void setTotalProteinMg(Long totalProteinMg) {
+        this.totalProteinMg = totalProteinMg;
     }
     
-    public BigDecimal getTotalCarbs() {
-        return totalCarbs;
+    public Long getTotalCarbsMg() {
+        return totalCarbsMg;
     }
     
-    public void setTotalCarbs(BigDecimal totalCarbs) {
-        this.totalCarbs = totalCarbs;
+    public void setTotalCarbsMg(Long totalCarbsMg) {
+        this.totalCarbsMg = totalCarbsMg;
     }
     
-    public BigDecimal getTotalFat() {
-        return totalFat;
+    public Long getTotalFatMg() {
+        return totalFatMg;
     }
     
-    public void setTotalFat(BigDecimal totalFat) {
-        this.totalFat = totalFat;
+    public void setTotalFatMg(Long totalFatMg) {
+        this.totalFatMg = totalFatMg;
     }
     
-    public BigDecimal getTotalFiber() {
-        return totalFiber;
+    public Long getTotalFiberMg() {
+        return totalFiberMg;
     }
     
-    public void setTotalFiber(BigDecimal totalFiber) {
-        this.totalFiber = totalFiber;
+    public void setTotalFiberMg(Long totalFiberMg) {
+        this.totalFiberMg = totalFiberMg;
     }
     
-    public BigDecimal getTotalSugar() {
-        return totalSugar;
+    public Long getTotalSugarMg() {
+        return totalSugarMg;
     }
     
-    public void setTotalSugar(BigDecimal totalSugar) {
-        this.totalSugar = totalSugar;
+    public void setTotalSugarMg(Long totalSugarMg) {
+        this.totalSugarMg = totalSugarMg;
     }
     
-    public BigDecimal getTotalSodium() {
-        return totalSodium;
+    public Long getTotalSodiumMg() {
+        return totalSodiumMg;
     }
     
-    public void setTotalSodium(BigDecimal totalSodium) {
-        this.totalSodium = totalSodium;
+    public void setTotalSodiumMg(Long totalSodiumMg) {
+        this.totalSodiumMg = totalSodiumMg;
     }
     
     public MealType getMealType() {
@@ -1,12 +1,14 @@
 package com.groceriesapp.model.nutrition;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "daily_nutrition_summary")
+@Table(
+    name = "daily_nutrition_summary",
+    uniqueConstraints = @UniqueConstraint(name = "unique_user_date", columnNames = {"user_id", "date"})
+)
 public class DailyNutritionSummary {
     
     @Id
@@ -20,27 +22,27 @@ public class DailyNutritionSummary {
     @Column(name = "date", nullable = false)
     private LocalDate date;
     
-    // Daily totals
+    // Daily totals (nutrients in milligrams)
     @Column(name = "total_calories")
     private Integer totalCalories = 0;
     
-    @Column(name = "total_protein", precision = 10, scale = 2)
-    private BigDecimal totalProtein = BigDecimal.ZERO;
+    @Column(name = "total_protein_mg", nullable = false)
+    private Long totalProteinMg = 0L;
     
-    @Column(name = "total_carbs", precision = 10, scale = 2)
-    private BigDecimal totalCarbs = BigDecimal.ZERO;
+    @Column(name = "total_carbs_mg", nullable = false)
+    private Long totalCarbsMg = 0L;
     
-    @Column(name = "total_fat", precision = 10, scale = 2)
-    private BigDecimal totalFat = BigDecimal.ZERO;
+    @Column(name = "total_fat_mg", nullable = false)
+    private Long totalFatMg = 0L;
     
-    @Column(name = "total_fiber", precision = 10, scale = 2)
-    private BigDecimal totalFiber = BigDecimal.ZERO;
+    @Column(name = "total_fiber_mg", nullable = false)
+    private Long totalFiberMg = 0L;
     
-    @Column(name = "total_sugar", precision = 10, scale = 2)
-    private BigDecimal totalSugar = BigDecimal.ZERO;
+    @Column(name = "total_sugar_mg", nullable = false)
+    private Long totalSugarMg = 0L;
     
-    @Column(name = "total_sodium", precision = 10, scale = 2)
-    private BigDecimal totalSodium = BigDecimal.ZERO;
+    @Column(name = "total_sodium_mg", nullable = false)
+    private Long totalSodiumMg = 0L;
     
     // Meal breakdown
     @Column(name = "breakfast_calories")
@@ -55,6 +57,9 @@ public class DailyNutritionSummary {
     @Column(name = "snack_calories")
     private Integer snackCalories = 0;
     
+    @Column(name = "log_count", nullable = false)
+    private Integer logCount = 0;
+    
     // Goals met
     @Column(name = "calorie_goal_met")
     private Boolean calorieGoalMet = false;
@@ -118,52 +123,52 @@ public class DailyNutritionSummary {
         this.totalCalories = totalCalories;
     }
     
-    public BigDecimal getTotalProtein() {
-        return totalProtein;
+    public Long getTotalProteinMg() {
+        return totalProteinMg;
     }
     
-    public void setTotalProtein(BigDecimal totalProtein) {
-        this.totalProtein = totalProtein;
+    public void setTotalProteinMg(Long totalProteinMg) {
+        this.totalProteinMg = totalProteinMg;
     }
     
-    public BigDecimal getTotalCarbs() {
-        return totalCarbs;
+    public Long getTotalCarbsMg() {
+        return totalCarbsMg;
     }
     
-    public void setTotalCarbs(BigDecimal totalCarbs) {
-        this.totalCarbs = totalCarbs;
+    public void setTotalCarbsMg(Long totalCarbsMg) {
+        this.totalCarbsMg = totalCarbsMg;
     }
     
-    public BigDecimal getTotalFat() {
-        return totalFat;
+    public Long getTotalFatMg() {
+        return totalFatMg;
     }
     
-    public void setTotalFat(BigDecimal totalFat) {
-        this.totalFat = totalFat;
+    public void setTotalFatMg(Long totalFatMg) {
+        this.totalFatMg = totalFatMg;
     }
     
-    public BigDecimal getTotalFiber() {
-        return totalFiber;
+    public Long getTotalFiberMg() {
+        return totalFiberMg;
     }
     
-    public void setTotalFiber(BigDecimal totalFiber) {
-        this.totalFiber = totalFiber;
+    public void setTotalFiberMg(Long totalFiberMg) {
+        this.totalFiberMg = totalFiberMg;
     }
     
-    public BigDecimal getTotalSugar() {
-        return totalSugar;
+    public Long getTotalSugarMg() {
+        return totalSugarMg;
     }
     
-    public void setTotalSugar(BigDecimal totalSugar) {
-        this.totalSugar = totalSugar;
+    public void setTotalSugarMg(Long totalSugarMg) {
+        this.totalSugarMg = totalSugarMg;
     }
     
-    public BigDecimal getTotalSodium() {
-        return totalSodium;
+    public Long getTotalSodiumMg() {
+        return totalSodiumMg;
     }
     
-    public void setTotalSodium(BigDecimal totalSodium) {
-        this.totalSodium = totalSodium;
+    public void setTotalSodiumMg(Long totalSodiumMg) {
+        this.totalSodiumMg = totalSodiumMg;
     }
     
     public Integer getBreakfastCalories() {
@@ -198,6 +203,14 @@ public class DailyNutritionSummary {
         this.snackCalories = snackCalories;
     }
     
+    public Integer getLogCount() {
+        return logCount;
+    }
+    
+    public void setLogCount(Integer logCount) {
+        this.logCount = logCount;
+    }
+    
     public Boolean getCalorieGoalMet() {
         return calorieGoalMet;
     }
@@ -0,0 +1,74 @@
+package com.groceriesapp.model.nutrition;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point helpers for nutrient amounts held as whole milligrams.
+ *
+ * Consumption logs and daily summaries keep their totals in this form so that
+ * logging and insights run on plain long arithmetic. BigDecimal only appears
+ * where amounts come in (NutritionInfo, servings) or go out (GraphQL).
+ */
+public final class Milligrams {
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L};
+
+    private Milligrams() {
+    }
+
+    /**
+     * Convert grams (macronutrients on NutritionInfo) to milligrams
+     */
+    public static long fromGrams(BigDecimal grams) {
+        return shift(grams, 3);
+    }
+
+    /**
+     * Convert an amount already in milligrams (sodium, cholesterol) to a whole number
+     */
+    public static long fromMilligrams(BigDecimal milligrams) {
+        return shift(milligrams, 0);
+    }
+
+    /**
+     * Servings as hundredths, matching the DECIMAL(10,2) servings column
+     */
+    public static long servingsToHundredths(BigDecimal servings) {
+        return shift(servings, 2);
+    }
+
+    /**
+     * Scale a per-serving amount by servings given in hundredths, rounding half up
+     */
+    public static long perServings(long perServing, long servingsHundredths) {
+        return Math.floorDiv(perServing * servingsHundredths + 50, 100);
+    }
+
+    /**
+     * Milligrams back to grams, for the GraphQL boundary
+     */
+    public static BigDecimal toGrams(Long milligrams) {
+        return milligrams != null ? BigDecimal.valueOf(milligrams, 3) : null;
+    }
+
+    /**
+     * Milligrams as a BigDecimal, for the GraphQL boundary
+     */
+    public static BigDecimal toMilligrams(Long milligrams) {
+        return milligrams != null ? BigDecimal.valueOf(milligrams) : null;
+    }
+
+    /**
+     * value * 10^places as a long, rounding half up. Column values are
+     * DECIMAL(10,2), so the exact fast path covers everything read from the
+     * database; other scales fall back to BigDecimal rounding.
+     */
+    private static long shift(BigDecimal value, int places) {
+        int scale = value.scale();
+        if (scale >= 0 && scale <= places && value.precision() <= 15) {
+            return value.unscaledValue().longValue() * POWERS_OF_TEN[places - scale];
+        }
+        return value.movePointRight(places).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
@@ -0,0 +1,64 @@
+package com.groceriesapp.model.nutrition;
+
+/**
+ * Average daily intake over a date range, as returned by the insights queries.
+ * Averages are per logged day; nutrients are in grams.
+ */
+public class NutritionInsights {
+    
+    private double avgCalories;
+    private double avgProtein;
+    private double avgCarbs;
+    private double avgFat;
+    private Double goalAchievementRate; // null when the user has no calorie goal
+    private int totalDays;
+    
+    // Getters and Setters
+    public double getAvgCalories() {
+        return avgCalories;
+    }
+    
+    public void setAvgCalories(double avgCalories) {
+        this.avgCalories = avgCalories;
+    }
+    
+    public double getAvgProtein() {
+        return avgProtein;
+    }
+    
+    public void setAvgProtein(double avgProtein) {
+        this.avgProtein = avgProtein;
+    }
+    
+    public double getAvgCarbs() {
+        return avgCarbs;
+    }
+    
+    public void setAvgCarbs(double avgCarbs) {
+        this.avgCarbs = avgCarbs;
+    }
+    
+    public double getAvgFat() {
+        return avgFat;
+    }
+    
+    public void setAvgFat(double avgFat) {
+        this.avgFat = avgFat;
+    }
+    
+    public Double getGoalAchievementRate() {
+        return goalAchievementRate;
+    }
+    
+    public void setGoalAchievementRate(Double goalAchievementRate) {
+        this.goalAchievementRate = goalAchievementRate;
+    }
+    
+    public int getTotalDays() {
+        return totalDays;
+    }
+    
+    public void setTotalDays(int totalDays) {
+        this.totalDays = totalDays;
+    }
+}
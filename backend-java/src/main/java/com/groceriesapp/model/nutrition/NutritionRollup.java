@@ -0,0 +1,187 @@
+package com.groceriesapp.model.nutrition;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Weekly or monthly totals per user, materialized from daily_nutrition_summary
+ * so that long-range insights and trends read one row per period.
+ */
+@Entity
+@Table(
+    name = "nutrition_rollup",
+    uniqueConstraints = @UniqueConstraint(name = "unique_user_period", columnNames = {"user_id", "period", "period_start"})
+)
+public class NutritionRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period", nullable = false, length = 10)
+    private RollupPeriod period;
+    
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+    
+    @Column(name = "days_logged", nullable = false)
+    private Integer daysLogged = 0;
+    
+    // Period totals (nutrients in milligrams)
+    @Column(name = "total_calories", nullable = false)
+    private Long totalCalories = 0L;
+    
+    @Column(name = "total_protein_mg", nullable = false)
+    private Long totalProteinMg = 0L;
+    
+    @Column(name = "total_carbs_mg", nullable = false)
+    private Long totalCarbsMg = 0L;
+    
+    @Column(name = "total_fat_mg", nullable = false)
+    private Long totalFatMg = 0L;
+    
+    @Column(name = "total_fiber_mg", nullable = false)
+    private Long totalFiberMg = 0L;
+    
+    @Column(name = "total_sugar_mg", nullable = false)
+    private Long totalSugarMg = 0L;
+    
+    @Column(name = "total_sodium_mg", nullable = false)
+    private Long totalSodiumMg = 0L;
+    
+    // Number of days in the period on which each goal was met
+    @Column(name = "calorie_goal_days", nullable = false)
+    private Integer calorieGoalDays = 0;
+    
+    @Column(name = "protein_goal_days", nullable = false)
+    private Integer proteinGoalDays = 0;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public RollupPeriod getPeriod() {
+        return period;
+    }
+    
+    public void setPeriod(RollupPeriod period) {
+        this.period = period;
+    }
+    
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+    
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+    
+    public Integer getDaysLogged() {
+        return daysLogged;
+    }
+    
+    public void setDaysLogged(Integer daysLogged) {
+        this.daysLogged = daysLogged;
+    }
+    
+    public Long getTotalCalories() {
+        return totalCalories;
+    }
+    
+    public void setTotalCalories(Long totalCalories) {
+        this.totalCalories = totalCalories;
+    }
+    
+    public Long getTotalProteinMg() {
+        return totalProteinMg;
+    }
+    
+    public void setTotalProteinMg(Long totalProteinMg) {
+        this.totalProteinMg = totalProteinMg;
+    }
+    
+    public Long getTotalCarbsMg() {
+        return totalCarbsMg;
+    }
+    
+    public void setTotalCarbsMg(Long totalCarbsMg) {
+        this.totalCarbsMg = totalCarbsMg;
+    }
+    
+    public Long getTotalFatMg() {
+        return totalFatMg;
+    }
+    
+    public void setTotalFatMg(Long totalFatMg) {
+        this.totalFatMg = totalFatMg;
+    }
+    
+    public Long getTotalFiberMg() {
+        return totalFiberMg;
+    }
+    
+    public void setTotalFiberMg(Long totalFiberMg) {
+        this.totalFiberMg = totalFiberMg;
+    }
+    
+    public Long getTotalSugarMg() {
+        return totalSugarMg;
+    }
+    
+    public void setTotalSugarMg(Long totalSugarMg) {
+        this.totalSugarMg = totalSugarMg;
+    }
+    
+    public Long getTotalSodiumMg() {
+        return totalSodiumMg;
+    }
+    
+    public void setTotalSodiumMg(Long totalSodiumMg) {
+        this.totalSodiumMg = totalSodiumMg;
+    }
+    
+    public Integer getCalorieGoalDays() {
+        return calorieGoalDays;
+    }
+    
+    public void setCalorieGoalDays(Integer calorieGoalDays) {
+        this.calorieGoalDays = calorieGoalDays;
+    }
+    
+    public Integer getProteinGoalDays() {
+        return proteinGoalDays;
+    }
+    
+    public void setProteinGoalDays(Integer proteinGoalDays) {
+        this.proteinGoalDays = proteinGoalDays;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,9 @@
+package com.groceriesapp.model.nutrition;
+
+/**
+ * Enum representing the period covered by a nutrition rollup row.
+ */
+public enum RollupPeriod {
+    WEEK,   // Monday-based calendar week
+    MONTH   // Calendar month
+}
@@ -0,0 +1,21 @@
+package com.groceriesapp.repository;
+
+import com.groceriesapp.model.BarcodeProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BarcodeProductRepository extends JpaRepository<BarcodeProduct, String> {
+    
+    // Unknown barcodes fetched before the cutoff; a scan would look them up again anyway
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BarcodeProduct p WHERE p.found = false AND p.fetchedAt < :cutoff")
+    int deleteNotFoundFetchedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
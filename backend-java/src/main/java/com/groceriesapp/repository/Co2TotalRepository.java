@@ -0,0 +1,14 @@
+package com.groceriesapp.repository;
+
+import com.groceriesapp.model.Co2Total;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface Co2TotalRepository extends JpaRepository<Co2Total, Long> {
+    
+    @Query("SELECT t.grams FROM Co2Total t WHERE t.scope = :scope AND t.scopeId = :scopeId")
+    Long findGrams(@Param("scope") String scope, @Param("scopeId") Long scopeId);
+}
@@ -0,0 +1,19 @@
+package com.groceriesapp.repository;
+
+import com.groceriesapp.model.ExperienceEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ExperienceEventRepository extends JpaRepository<ExperienceEvent, Long> {
+    List<ExperienceEvent> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    // [userId, total XP] awarded since a moment, for the weekly leaderboard
+    @Query("SELECT e.userId, SUM(e.xp) FROM ExperienceEvent e WHERE e.createdAt >= :since GROUP BY e.userId")
+    List<Object[]> sumXpByUserSince(@Param("since") LocalDateTime since);
+}
@@ -0,0 +1,9 @@
+package com.groceriesapp.repository;
+
+import com.groceriesapp.model.FridgeSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FridgeSyncStateRepository extends JpaRepository<FridgeSyncState, String> {
+}
@@ -0,0 +1,22 @@
+package com.groceriesapp.repository;
+
+import com.groceriesapp.model.HouseholdItemEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface HouseholdItemEventRepository extends JpaRepository<HouseholdItemEvent, Long> {
+    
+    // A household's events since a day, oldest first, down idx_household_item_events_household_date
+    @Query("SELECT e FROM HouseholdItemEvent e WHERE e.householdId = :householdId AND e.eventDate >= :since"
+        + " ORDER BY e.eventDate, e.id")
+    List<HouseholdItemEvent> findHistory(@Param("householdId") Long householdId, @Param("since") LocalDate since);
+    
+    // Whether an item was ever recorded from a source, down idx_household_item_events_item
+    boolean existsByHouseholdIdAndItemIdAndSource(Long householdId, Long itemId, HouseholdItemEvent.Source source);
+}
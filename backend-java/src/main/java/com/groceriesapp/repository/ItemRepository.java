@@ -2,6 +2,9 @@ package com.groceriesapp.repository;
 
 import com.groceriesapp.model.Item;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -12,4 +15,16 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findByHouseholdId(Long householdId);
     List<Item> findByExpirationDateBefore(LocalDate date);
     List<Item> findByHouseholdIdAndExpirationDateBefore(Long householdId, LocalDate date);
+    List<Item> findByHouseholdIdAndFridgeDeviceId(Long householdId, String fridgeDeviceId);
+    
+    // Items a fridge's sync manages plus the household's hand-added items stored in a fridge
+    @Query("SELECT i FROM Item i WHERE i.household.id = :householdId AND (i.fridgeDeviceId = :deviceId"
+        + " OR (i.fridgeDeviceId IS NULL AND (LOWER(i.storageLocation) LIKE '%fridge%'"
+        + " OR LOWER(i.storageLocation) LIKE '%refrigerat%')))")
+    List<Item> findRefrigeratedItems(@Param("householdId") Long householdId, @Param("deviceId") String deviceId);
+    
+    // Items a fridge's sync added to a household, down idx_items_household_fridge
+    @Modifying
+    @Query("DELETE FROM Item i WHERE i.household.id = :householdId AND i.fridgeDeviceId = :deviceId")
+    int deleteFridgeItems(@Param("householdId") Long householdId, @Param("deviceId") String deviceId);
 }
@@ -3,6 +3,8 @@ package com.groceriesapp.repository;
 import com.groceriesapp.model.User;
 import com.groceriesapp.model.UserAchievement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +18,8 @@ public interface UserAchievementRepository extends JpaRepository<UserAchievement
     List<UserAchievement> findByUserAndIsUnlockedTrue(User user);
     
     Optional<UserAchievement> findByUserAndAchievement_Type(User user, String achievementType);
+    
+    // Achievement engine snapshot: [achievementId, progress, isUnlocked] for each of a user's rows
+    @Query("SELECT ua.achievement.id, ua.progress, ua.isUnlocked FROM UserAchievement ua WHERE ua.user.id = :userId")
+    List<Object[]> findProgressByUserId(@Param("userId") Long userId);
 }
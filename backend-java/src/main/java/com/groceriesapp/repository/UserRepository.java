@@ -1,12 +1,53 @@
 package com.groceriesapp.repository;
 
 import com.groceriesapp.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+    
+    // Increment in place; the row stays locked until the transaction ends
+    @Modifying
+    @Query("UPDATE User u SET u.experiencePoints = u.experiencePoints + :xp WHERE u.id = :userId")
+    int addExperiencePoints(@Param("userId") Long userId, @Param("xp") int xp);
+    
+    @Query("SELECT u.experiencePoints FROM User u WHERE u.id = :userId")
+    Integer findExperiencePointsById(@Param("userId") Long userId);
+    
+    // Achievement counters, incremented in place like XP
+    @Modifying
+    @Query("UPDATE User u SET u.itemsSaved = u.itemsSaved + :count WHERE u.id = :userId")
+    int addItemsSaved(@Param("userId") Long userId, @Param("count") int count);
+    
+    @Modifying
+    @Query("UPDATE User u SET u.itemsScanned = u.itemsScanned + :count WHERE u.id = :userId")
+    int addItemsScanned(@Param("userId") Long userId, @Param("count") int count);
+    
+    @Query("SELECT u.itemsSaved FROM User u WHERE u.id = :userId")
+    Integer findItemsSavedById(@Param("userId") Long userId);
+    
+    @Query("SELECT u.itemsScanned FROM User u WHERE u.id = :userId")
+    Integer findItemsScannedById(@Param("userId") Long userId);
+    
+    @Query("SELECT u.totalCo2SavedKg FROM User u WHERE u.id = :userId")
+    Double findTotalCo2SavedKgById(@Param("userId") Long userId);
+    
+    // Leaderboard rebuild: [id, experiencePoints, householdId] by XP, keyset-paged down idx_users_leaderboard
+    @Query("SELECT u.id, u.experiencePoints, h.id FROM User u LEFT JOIN u.household h"
+        + " WHERE u.experiencePoints > 0 ORDER BY u.experiencePoints DESC, u.id")
+    List<Object[]> findLeaderboardPage(Pageable page);
+    
+    @Query("SELECT u.id, u.experiencePoints, h.id FROM User u LEFT JOIN u.household h"
+        + " WHERE u.experiencePoints > 0 AND (u.experiencePoints < :xp OR (u.experiencePoints = :xp AND u.id > :id))"
+        + " ORDER BY u.experiencePoints DESC, u.id")
+    List<Object[]> findLeaderboardPageAfter(@Param("xp") int xp, @Param("id") long id, Pageable page);
 }
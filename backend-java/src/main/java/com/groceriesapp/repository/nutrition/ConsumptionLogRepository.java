@@ -21,9 +21,12 @@ public interface ConsumptionLogRepository extends JpaRepository<ConsumptionLog,
     List<ConsumptionLog> findByUserIdOrderByConsumedAtDesc(Long userId);
     
     /**
-     * Find consumption logs for a user in a date range
+     * Find consumption logs for a user in [startDate, endDate).
+     * consumption_log is range-partitioned by month on consumed_at, so every
+     * time-bounded query below carries explicit bounds on consumed_at to let
+     * MySQL prune to the partitions that overlap the range.
      */
-    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = :userId AND c.consumedAt BETWEEN :startDate AND :endDate ORDER BY c.consumedAt DESC")
+    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = :userId AND c.consumedAt >= :startDate AND c.consumedAt < :endDate ORDER BY c.consumedAt DESC")
     List<ConsumptionLog> findByUserIdAndDateRange(
         @Param("userId") Long userId,
         @Param("startDate") LocalDateTime startDate,
@@ -36,20 +39,20 @@ public interface ConsumptionLogRepository extends JpaRepository<ConsumptionLog,
     List<ConsumptionLog> findByUserIdAndMealType(Long userId, String mealType);
     
     /**
-     * Find recent consumption logs for a user (last 20)
+     * Find recent consumption logs for a user (last 20 since a cutoff)
      */
-    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = ?1 ORDER BY c.consumedAt DESC LIMIT 20")
-    List<ConsumptionLog> findRecentLogs(Long userId);
+    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = ?1 AND c.consumedAt >= ?2 ORDER BY c.consumedAt DESC LIMIT 20")
+    List<ConsumptionLog> findRecentLogs(Long userId, LocalDateTime since);
     
     /**
      * Find consumption logs for current week
      */
-    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = ?1 AND c.consumedAt >= ?2 ORDER BY c.consumedAt DESC")
-    List<ConsumptionLog> findCurrentWeek(Long userId, LocalDateTime weekStart);
+    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = ?1 AND c.consumedAt >= ?2 AND c.consumedAt < ?3 ORDER BY c.consumedAt DESC")
+    List<ConsumptionLog> findCurrentWeek(Long userId, LocalDateTime weekStart, LocalDateTime weekEnd);
     
     /**
      * Find consumption logs for current month
      */
-    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = ?1 AND c.consumedAt >= ?2 ORDER BY c.consumedAt DESC")
-    List<ConsumptionLog> findCurrentMonth(Long userId, LocalDateTime monthStart);
+    @Query("SELECT c FROM ConsumptionLog c WHERE c.userId = ?1 AND c.consumedAt >= ?2 AND c.consumedAt < ?3 ORDER BY c.consumedAt DESC")
+    List<ConsumptionLog> findCurrentMonth(Long userId, LocalDateTime monthStart, LocalDateTime monthEnd);
 }
@@ -2,6 +2,9 @@ package com.groceriesapp.repository.nutrition;
 
 import com.groceriesapp.model.nutrition.DailyNutritionSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -43,4 +46,91 @@ public interface DailyNutritionSummaryRepository extends JpaRepository<DailyNutr
     ) {
         return findByUserIdAndDateBetweenOrderByDateDesc(userId, startDate, endDate);
     }
+    
+    /**
+     * Create the user's summary row for a date if it is missing, and lock it
+     * either way. Only this row's key is locked, never the gap next to it, so
+     * loggers on neighbouring days do not block each other.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_nutrition_summary (user_id, date, created_at, updated_at) " +
+            "VALUES (:userId, :date, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id",
+            nativeQuery = true)
+    int ensureDailyRow(@Param("userId") Long userId, @Param("date") LocalDate date);
+    
+    /**
+     * Read the current state of a summary row under its lock. Call after
+     * {@link #ensureDailyRow}, so the row exists and no gap lock is taken.
+     */
+    @Query(value = "SELECT d.log_count AS logCount, d.calorie_goal_met AS calorieGoalMet, " +
+            "d.protein_goal_met AS proteinGoalMet " +
+            "FROM daily_nutrition_summary d WHERE d.user_id = :userId AND d.date = :date FOR UPDATE",
+            nativeQuery = true)
+    DayState lockDailyRow(@Param("userId") Long userId, @Param("date") LocalDate date);
+    
+    /**
+     * Atomically add one consumption to the user's summary for a date,
+     * creating the row on first use. Relies on the unique (user_id, date) key.
+     * MySQL evaluates ON DUPLICATE KEY UPDATE assignments left to right, so the
+     * goal flags at the end see the freshly incremented totals. A null goal
+     * leaves the corresponding flag untouched.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_nutrition_summary (" +
+            "user_id, date, total_calories, total_protein_mg, total_carbs_mg, total_fat_mg, " +
+            "total_fiber_mg, total_sugar_mg, total_sodium_mg, " +
+            "breakfast_calories, lunch_calories, dinner_calories, snack_calories, log_count, " +
+            "calorie_goal_met, protein_goal_met, carb_goal_met, fat_goal_met, created_at, updated_at) " +
+            "VALUES (:userId, :date, :calories, :proteinMg, :carbsMg, :fatMg, :fiberMg, :sugarMg, :sodiumMg, " +
+            ":breakfastCalories, :lunchCalories, :dinnerCalories, :snackCalories, 1, " +
+            "CASE WHEN :calorieGoal IS NULL THEN FALSE " +
+            "ELSE :calories BETWEEN :calorieGoal * 0.9 AND :calorieGoal * 1.1 END, " +
+            "CASE WHEN :proteinGoalMg IS NULL THEN FALSE ELSE :proteinMg >= :proteinGoalMg END, " +
+            "FALSE, FALSE, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "total_calories = total_calories + :calories, " +
+            "total_protein_mg = total_protein_mg + :proteinMg, " +
+            "total_carbs_mg = total_carbs_mg + :carbsMg, " +
+            "total_fat_mg = total_fat_mg + :fatMg, " +
+            "total_fiber_mg = total_fiber_mg + :fiberMg, " +
+            "total_sugar_mg = total_sugar_mg + :sugarMg, " +
+            "total_sodium_mg = total_sodium_mg + :sodiumMg, " +
+            "breakfast_calories = breakfast_calories + :breakfastCalories, " +
+            "lunch_calories = lunch_calories + :lunchCalories, " +
+            "dinner_calories = dinner_calories + :dinnerCalories, " +
+            "snack_calories = snack_calories + :snackCalories, " +
+            "log_count = log_count + 1, " +
+            "calorie_goal_met = CASE WHEN :calorieGoal IS NULL THEN calorie_goal_met " +
+            "ELSE total_calories BETWEEN :calorieGoal * 0.9 AND :calorieGoal * 1.1 END, " +
+            "protein_goal_met = CASE WHEN :proteinGoalMg IS NULL THEN protein_goal_met " +
+            "ELSE total_protein_mg >= :proteinGoalMg END, " +
+            "updated_at = NOW()",
+            nativeQuery = true)
+    int incrementDailyTotals(
+        @Param("userId") Long userId,
+        @Param("date") LocalDate date,
+        @Param("calories") int calories,
+        @Param("proteinMg") long proteinMg,
+        @Param("carbsMg") long carbsMg,
+        @Param("fatMg") long fatMg,
+        @Param("fiberMg") long fiberMg,
+        @Param("sugarMg") long sugarMg,
+        @Param("sodiumMg") long sodiumMg,
+        @Param("breakfastCalories") int breakfastCalories,
+        @Param("lunchCalories") int lunchCalories,
+        @Param("dinnerCalories") int dinnerCalories,
+        @Param("snackCalories") int snackCalories,
+        @Param("calorieGoal") Integer calorieGoal,
+        @Param("proteinGoalMg") Long proteinGoalMg
+    );
+    
+    /**
+     * How many consumptions a day holds and which goals it meets
+     */
+    interface DayState {
+        Integer getLogCount();
+        Boolean getCalorieGoalMet();
+        Boolean getProteinGoalMet();
+    }
 }
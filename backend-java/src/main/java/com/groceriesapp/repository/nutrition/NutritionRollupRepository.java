@@ -0,0 +1,121 @@
+package com.groceriesapp.repository.nutrition;
+
+import com.groceriesapp.model.nutrition.NutritionRollup;
+import com.groceriesapp.model.nutrition.RollupPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for NutritionRollup entities
+ */
+@Repository
+public interface NutritionRollupRepository extends JpaRepository<NutritionRollup, Long> {
+
+    /**
+     * Find rollups for a user in a period range, oldest first
+     */
+    List<NutritionRollup> findByUserIdAndPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(
+        Long userId,
+        RollupPeriod period,
+        LocalDate startDate,
+        LocalDate endDate
+    );
+
+    /**
+     * Add one consumption's deltas to a rollup row, creating it on first use.
+     * Touches only this row, so loggers on other days of the same week or
+     * month do not lock each other's daily summaries.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO nutrition_rollup (" +
+            "user_id, period, period_start, days_logged, total_calories, " +
+            "total_protein_mg, total_carbs_mg, total_fat_mg, total_fiber_mg, total_sugar_mg, total_sodium_mg, " +
+            "calorie_goal_days, protein_goal_days, updated_at) " +
+            "VALUES (:userId, :period, :periodStart, :days, :calories, " +
+            ":proteinMg, :carbsMg, :fatMg, :fiberMg, :sugarMg, :sodiumMg, " +
+            ":calorieGoalDays, :proteinGoalDays, NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "days_logged = days_logged + :days, " +
+            "total_calories = total_calories + :calories, " +
+            "total_protein_mg = total_protein_mg + :proteinMg, " +
+            "total_carbs_mg = total_carbs_mg + :carbsMg, " +
+            "total_fat_mg = total_fat_mg + :fatMg, " +
+            "total_fiber_mg = total_fiber_mg + :fiberMg, " +
+            "total_sugar_mg = total_sugar_mg + :sugarMg, " +
+            "total_sodium_mg = total_sodium_mg + :sodiumMg, " +
+            "calorie_goal_days = calorie_goal_days + :calorieGoalDays, " +
+            "protein_goal_days = protein_goal_days + :proteinGoalDays, " +
+            "updated_at = NOW()",
+            nativeQuery = true)
+    int incrementRollup(
+        @Param("userId") Long userId,
+        @Param("period") String period,
+        @Param("periodStart") LocalDate periodStart,
+        @Param("days") int days,
+        @Param("calories") int calories,
+        @Param("proteinMg") long proteinMg,
+        @Param("carbsMg") long carbsMg,
+        @Param("fatMg") long fatMg,
+        @Param("fiberMg") long fiberMg,
+        @Param("sugarMg") long sugarMg,
+        @Param("sodiumMg") long sodiumMg,
+        @Param("calorieGoalDays") int calorieGoalDays,
+        @Param("proteinGoalDays") int proteinGoalDays
+    );
+
+    /**
+     * Aggregate a user's intake over [startDate, endDate] in one query. Whole
+     * months in [monthsStart, monthsEnd) are read from monthly rollups and only
+     * the partial months at either end from daily summaries, so a multi-year
+     * range touches a few dozen rows. Pass monthsStart == monthsEnd to read
+     * daily summaries only.
+     */
+    @Query(value = "SELECT " +
+            "CAST(COALESCE(SUM(t.days), 0) AS SIGNED) AS days, " +
+            "CAST(COALESCE(SUM(t.calories), 0) AS SIGNED) AS totalCalories, " +
+            "CAST(COALESCE(SUM(t.protein_mg), 0) AS SIGNED) AS totalProteinMg, " +
+            "CAST(COALESCE(SUM(t.carbs_mg), 0) AS SIGNED) AS totalCarbsMg, " +
+            "CAST(COALESCE(SUM(t.fat_mg), 0) AS SIGNED) AS totalFatMg, " +
+            "CAST(COALESCE(SUM(t.calorie_goal_days), 0) AS SIGNED) AS calorieGoalDays " +
+            "FROM (" +
+            "SELECT COUNT(*) AS days, SUM(d.total_calories) AS calories, " +
+            "SUM(d.total_protein_mg) AS protein_mg, SUM(d.total_carbs_mg) AS carbs_mg, " +
+            "SUM(d.total_fat_mg) AS fat_mg, SUM(d.calorie_goal_met) AS calorie_goal_days " +
+            "FROM daily_nutrition_summary d " +
+            "WHERE d.user_id = :userId AND d.date BETWEEN :startDate AND :endDate " +
+            "AND (d.date < :monthsStart OR d.date >= :monthsEnd) " +
+            "UNION ALL " +
+            "SELECT SUM(r.days_logged), SUM(r.total_calories), " +
+            "SUM(r.total_protein_mg), SUM(r.total_carbs_mg), " +
+            "SUM(r.total_fat_mg), SUM(r.calorie_goal_days) " +
+            "FROM nutrition_rollup r " +
+            "WHERE r.user_id = :userId AND r.period = 'MONTH' " +
+            "AND r.period_start >= :monthsStart AND r.period_start < :monthsEnd" +
+            ") t",
+            nativeQuery = true)
+    RangeTotals sumRange(
+        @Param("userId") Long userId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("monthsStart") LocalDate monthsStart,
+        @Param("monthsEnd") LocalDate monthsEnd
+    );
+
+    /**
+     * Totals over a date range, nutrients in milligrams
+     */
+    interface RangeTotals {
+        Long getDays();
+        Long getTotalCalories();
+        Long getTotalProteinMg();
+        Long getTotalCarbsMg();
+        Long getTotalFatMg();
+        Long getCalorieGoalDays();
+    }
+}
@@ -0,0 +1,332 @@
+package com.groceriesapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groceriesapp.model.Achievement;
+import com.groceriesapp.repository.AchievementRepository;
+import com.groceriesapp.repository.UserAchievementRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which achievements a user unlocks as their progress grows.
+ *
+ * Active achievements are held by type, sorted by the points they need, and each user's
+ * progress and unlocks are kept in a snapshot, so evaluating progress reads nothing from
+ * the database. Progress that does not beat the user's best for the type writes nothing.
+ * Otherwise the rows for the tiers it unlocks and for the next tier up are queued once
+ * the transaction commits, and written together as upserts on a schedule; a rollback
+ * drops the user's snapshot instead. Progress kept is the best reached, since a streak
+ * can restart.
+ */
+@Service
+public class AchievementEngine {
+
+    private static final String UPSERT = "INSERT INTO user_achievements"
+        + " (user_id, achievement_id, progress, is_unlocked, unlocked_at, created_at) VALUES (?, ?, ?, ?, ?, NOW())"
+        + " ON DUPLICATE KEY UPDATE progress = GREATEST(progress, VALUES(progress)),"
+        + " is_unlocked = is_unlocked OR VALUES(is_unlocked), unlocked_at = COALESCE(unlocked_at, VALUES(unlocked_at))";
+
+    private final AchievementRepository achievementRepository;
+    private final UserAchievementRepository userAchievementRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, UserProgress> snapshots;
+
+    private volatile Definitions definitions;
+
+    // Changes by user and achievement, waiting for the next flush and being written by it
+    private final Map<Long, Map<Long, Change>> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Change>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong unlocks = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public AchievementEngine(AchievementRepository achievementRepository,
+                             UserAchievementRepository userAchievementRepository,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${achievements.snapshot-cache-size:100000}") long snapshotCacheSize,
+                             @Value("${achievements.snapshot-ttl-minutes:60}") long snapshotTtlMinutes) {
+        this.achievementRepository = achievementRepository;
+        this.userAchievementRepository = userAchievementRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshots = Caffeine.newBuilder()
+            .maximumSize(snapshotCacheSize)
+            .expireAfterAccess(Duration.ofMinutes(snapshotTtlMinutes))
+            .build();
+    }
+
+    /**
+     * Reload the active achievements, after they are added or changed.
+     */
+    public void reload() {
+        List<Achievement> active = achievementRepository.findByIsActiveTrue();
+        Map<String, List<Achievement>> grouped = new HashMap<>();
+        Map<Long, String> typeById = new HashMap<>();
+        for (Achievement achievement : active) {
+            grouped.computeIfAbsent(achievement.getType(), type -> new ArrayList<>()).add(achievement);
+            typeById.put(achievement.getId(), achievement.getType());
+        }
+        Map<String, Achievement[]> byType = new HashMap<>();
+        grouped.forEach((type, tiers) -> {
+            Achievement[] sorted = tiers.toArray(new Achievement[0]);
+            Arrays.sort(sorted, Comparator.comparing(Achievement::getPointsRequired));
+            byType.put(type, sorted);
+        });
+        definitions = new Definitions(byType, typeById);
+        // Snapshots are keyed on the old ids and bests
+        snapshots.invalidateAll();
+    }
+
+    /**
+     * Record a user's progress for an achievement type
+     *
+     * @return the achievements it unlocks, lowest tier first
+     */
+    public List<Achievement> evaluate(Long userId, String type, int progress) {
+        evaluations.incrementAndGet();
+        Definitions current = definitions();
+        Achievement[] tiers = current.byType.get(type);
+        if (tiers == null) {
+            return List.of();
+        }
+
+        UserProgress user = snapshots.get(userId, id -> load(id, current));
+        List<Achievement> unlocked = new ArrayList<>();
+        Map<Long, Change> changes = new HashMap<>();
+        synchronized (user) {
+            if (progress <= user.best.getOrDefault(type, 0)) {
+                return List.of();
+            }
+            user.best.put(type, progress);
+            LocalDateTime now = LocalDateTime.now();
+            for (Achievement achievement : tiers) {
+                if (user.unlocked.contains(achievement.getId())) {
+                    continue;
+                }
+                if (progress < achievement.getPointsRequired()) {
+                    // Only the next tier up tracks progress
+                    changes.put(achievement.getId(), new Change(progress, false, null));
+                    break;
+                }
+                user.unlocked.add(achievement.getId());
+                unlocked.add(achievement);
+                changes.put(achievement.getId(), new Change(progress, true, now));
+            }
+        }
+        unlocks.addAndGet(unlocked.size());
+        if (!changes.isEmpty()) {
+            submit(userId, changes);
+        }
+        return unlocked;
+    }
+
+    /**
+     * Points required by each tier of a type, ascending
+     */
+    public int[] thresholds(String type) {
+        Achievement[] tiers = definitions().byType.get(type);
+        if (tiers == null) {
+            return new int[0];
+        }
+        int[] thresholds = new int[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            thresholds[i] = tiers[i].getPointsRequired();
+        }
+        return thresholds;
+    }
+
+    /**
+     * Write queued changes, one batch for all users.
+     *
+     * @return the rows written
+     */
+    @Scheduled(fixedDelayString = "${achievements.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Long userId : new ArrayList<>(pending.keySet())) {
+            Map<Long, Change> changes = pending.get(userId);
+            // In flight before it leaves pending, so a snapshot loaded meanwhile still sees it
+            inFlight.put(userId, changes);
+            pending.remove(userId, changes);
+            changes.forEach((achievementId, change) -> rows.add(new Object[] {userId, achievementId,
+                change.progress, change.unlocked,
+                change.unlockedAt != null ? Timestamp.valueOf(change.unlockedAt) : null}));
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+            rowsWritten.addAndGet(rows.size());
+            batches.incrementAndGet();
+            return rows.size();
+        } catch (Exception e) {
+            System.err.println("Failed to write " + rows.size() + " achievement rows, will retry: " + e.getMessage());
+            inFlight.forEach((userId, changes) -> pending.merge(userId, changes, AchievementEngine::merge));
+            return 0;
+        } finally {
+            inFlight.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public EngineStats getStats() {
+        return new EngineStats(evaluations.get(), unlocks.get(), rowsWritten.get(), batches.get(),
+            pending.size(), snapshots.estimatedSize());
+    }
+
+    private void submit(Long userId, Map<Long, Change> changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.merge(userId, changes, AchievementEngine::merge);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    pending.merge(userId, changes, AchievementEngine::merge);
+                } else {
+                    // The snapshot already counts what was rolled back
+                    snapshots.invalidate(userId);
+                }
+            }
+        });
+    }
+
+    private UserProgress load(Long userId, Definitions current) {
+        // Queued changes are taken first: any that leave the queues meanwhile are in the rows read next
+        List<Map<Long, Change>> queued = new ArrayList<>(2);
+        Map<Long, Change> writing = inFlight.get(userId);
+        Map<Long, Change> waiting = pending.get(userId);
+        if (writing != null) {
+            queued.add(writing);
+        }
+        if (waiting != null) {
+            queued.add(waiting);
+        }
+
+        UserProgress user = new UserProgress();
+        for (Object[] row : userAchievementRepository.findProgressByUserId(userId)) {
+            user.record(current, (Long) row[0], (Integer) row[1], Boolean.TRUE.equals(row[2]));
+        }
+        for (Map<Long, Change> changes : queued) {
+            changes.forEach((achievementId, change) ->
+                user.record(current, achievementId, change.progress, change.unlocked));
+        }
+        return user;
+    }
+
+    private Definitions definitions() {
+        Definitions current = definitions;
+        if (current == null) {
+            synchronized (this) {
+                if (definitions == null) {
+                    reload();
+                }
+                current = definitions;
+            }
+        }
+        return current;
+    }
+
+    private static Map<Long, Change> merge(Map<Long, Change> older, Map<Long, Change> newer) {
+        Map<Long, Change> merged = new HashMap<>(older);
+        newer.forEach((achievementId, change) -> merged.merge(achievementId, change, Change::merge));
+        return merged;
+    }
+
+    private static final class Definitions {
+        final Map<String, Achievement[]> byType;
+        final Map<Long, String> typeById;
+
+        Definitions(Map<String, Achievement[]> byType, Map<Long, String> typeById) {
+            this.byType = byType;
+            this.typeById = typeById;
+        }
+    }
+
+    // A user's best progress by type and unlocked achievement ids; guarded by its own lock
+    private static final class UserProgress {
+        final Map<String, Integer> best = new HashMap<>(4);
+        final Set<Long> unlocked = new HashSet<>();
+
+        void record(Definitions definitions, Long achievementId, int progress, boolean isUnlocked) {
+            if (isUnlocked) {
+                unlocked.add(achievementId);
+            }
+            String type = definitions.typeById.get(achievementId);
+            if (type != null) {
+                best.merge(type, progress, Math::max);
+            }
+        }
+    }
+
+    // One row's new values; rows only move forward, so changes combine by taking the furthest
+    private static final class Change {
+        final int progress;
+        final boolean unlocked;
+        final LocalDateTime unlockedAt;
+
+        Change(int progress, boolean unlocked, LocalDateTime unlockedAt) {
+            this.progress = progress;
+            this.unlocked = unlocked;
+            this.unlockedAt = unlockedAt;
+        }
+
+        Change merge(Change newer) {
+            return new Change(Math.max(progress, newer.progress), unlocked || newer.unlocked,
+                unlockedAt != null ? unlockedAt : newer.unlockedAt);
+        }
+    }
+
+    public static class EngineStats {
+        private final long evaluations;
+        private final long unlocks;
+        private final long rowsWritten;
+        private final long batches;
+        private final int usersPending;
+        private final long snapshots;
+
+        public EngineStats(long evaluations, long unlocks, long rowsWritten, long batches, int usersPending,
+                           long snapshots) {
+            this.evaluations = evaluations;
+            this.unlocks = unlocks;
+            this.rowsWritten = rowsWritten;
+            this.batches = batches;
+            this.usersPending = usersPending;
+            this.snapshots = snapshots;
+        }
+
+        public long getEvaluations() { return evaluations; }
+        public long getUnlocks() { return unlocks; }
+        public long getRowsWritten() { return rowsWritten; }
+        public long getBatches() { return batches; }
+        public int getUsersPending() { return usersPending; }
+        public long getSnapshots() { return snapshots; }
+    }
+}
@@ -0,0 +1,115 @@
+package com.groceriesapp.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One bit per user id, set when the user is active, and which of those are written yet.
+ *
+ * Ids are dense auto-increment ids, so the bits live in chunks of 65,536 ids allocated
+ * as ids appear: 10 million users take about 1.2 MB, and as much again to track which
+ * are written. Setting a bit is a single CAS and takes no lock; what is written is only
+ * touched by the flushing thread.
+ */
+final class ActivityBitmap {
+
+    static final long MAX_ID = Integer.MAX_VALUE;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int WORDS_PER_CHUNK = 1 << (CHUNK_SHIFT - 6);
+
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[16];
+    private long[][] written = new long[16][];
+
+    /**
+     * Set a user's bit
+     *
+     * @return whether it was clear
+     */
+    boolean set(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Id out of range: " + id);
+        }
+        AtomicLongArray chunk = chunk((int) (id >>> CHUNK_SHIFT));
+        int word = (int) (id >>> 6) & (WORDS_PER_CHUNK - 1);
+        long bit = 1L << id;
+        long current = chunk.get(word);
+        while ((current & bit) == 0) {
+            long witness = chunk.compareAndExchange(word, current, current | bit);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    boolean contains(long id) {
+        AtomicLongArray[] current = chunks;
+        int index = (int) (id >>> CHUNK_SHIFT);
+        if (id < 0 || id > MAX_ID || index >= current.length || current[index] == null) {
+            return false;
+        }
+        return (current[index].get((int) (id >>> 6) & (WORDS_PER_CHUNK - 1)) & (1L << id)) != 0;
+    }
+
+    /**
+     * Ids set but not yet marked written, in ascending order. Only the flushing thread calls
+     * this and {@link #markWritten}.
+     */
+    long[] unwritten() {
+        long[] ids = new long[64];
+        int count = 0;
+        AtomicLongArray[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            AtomicLongArray chunk = current[c];
+            if (chunk == null) {
+                continue;
+            }
+            long[] done = c < written.length ? written[c] : null;
+            for (int w = 0; w < WORDS_PER_CHUNK; w++) {
+                long bits = chunk.get(w) & ~(done != null ? done[w] : 0);
+                while (bits != 0) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = ((long) c << CHUNK_SHIFT) + ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    void markWritten(long[] ids, int from, int to) {
+        for (int i = from; i < to; i++) {
+            long id = ids[i];
+            int c = (int) (id >>> CHUNK_SHIFT);
+            if (c >= written.length) {
+                written = Arrays.copyOf(written, Math.max(c + 1, written.length * 2));
+            }
+            if (written[c] == null) {
+                written[c] = new long[WORDS_PER_CHUNK];
+            }
+            written[c][(int) (id >>> 6) & (WORDS_PER_CHUNK - 1)] |= 1L << id;
+        }
+    }
+
+    private AtomicLongArray chunk(int index) {
+        AtomicLongArray[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            }
+            if (current[index] == null) {
+                current[index] = new AtomicLongArray(WORDS_PER_CHUNK);
+            }
+            chunks = current;
+            return current[index];
+        }
+    }
+}
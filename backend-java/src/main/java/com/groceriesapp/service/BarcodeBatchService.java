@@ -0,0 +1,132 @@
+package com.groceriesapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch barcode scans, for receipt and smart-fridge imports that would otherwise scan
+ * one item per request.
+ *
+ * Each distinct barcode is looked up once however often it appears. Malformed barcodes
+ * are answered as invalid without a lookup, the same check a single scan makes. Barcodes already in
+ * BarcodeService's memory are answered first; the rest are looked up in parallel, a
+ * bounded number at a time so one large import does not crowd out everyone else's
+ * scans.
+ */
+@Service
+public class BarcodeBatchService {
+
+    private final BarcodeService barcodeService;
+    private final int maxConcurrency;
+    private final int maxBatchSize;
+
+    public BarcodeBatchService(BarcodeService barcodeService,
+                               @Value("${barcode.batch.max-concurrency:16}") int maxConcurrency,
+                               @Value("${barcode.batch.max-size:500}") int maxBatchSize) {
+        this.barcodeService = barcodeService;
+        this.maxConcurrency = maxConcurrency;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Scan a batch and emit one item per input barcode as its lookup finishes:
+     * invalid barcodes and cache hits first, then lookups in completion order
+     */
+    public Flux<BatchItem> scanBarcodes(List<String> barcodes) {
+        if (barcodes.size() > maxBatchSize) {
+            return Flux.error(new RuntimeException("At most " + maxBatchSize + " barcodes per batch"));
+        }
+
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < barcodes.size(); i++) {
+            positions.computeIfAbsent(barcodes.get(i).trim(), barcode -> new ArrayList<>()).add(i);
+        }
+        List<BatchItem> invalid = new ArrayList<>();
+        List<String> cached = new ArrayList<>();
+        List<String> uncached = new ArrayList<>();
+        for (String barcode : positions.keySet()) {
+            if (!BarcodeService.isValidBarcode(barcode)) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", false);
+                result.put("message", barcode.isEmpty() ? "Barcode is empty" : BarcodeService.INVALID_MESSAGE);
+                invalid.addAll(items(barcode, positions.get(barcode), Status.INVALID, false, result));
+            } else if (barcodeService.isCached(barcode)) {
+                cached.add(barcode);
+            } else {
+                uncached.add(barcode);
+            }
+        }
+
+        Flux<BatchItem> hits = Flux.fromIterable(cached)
+            .concatMap(barcode -> scan(barcode, positions.get(barcode), true));
+        Flux<BatchItem> lookups = Flux.fromIterable(uncached)
+            .flatMap(barcode -> scan(barcode, positions.get(barcode), false), maxConcurrency);
+        return Flux.concat(Flux.fromIterable(invalid), hits, lookups);
+    }
+
+    /**
+     * Scan a batch and return all its items in input order
+     */
+    public Mono<List<BatchItem>> scanBarcodesInOrder(List<String> barcodes) {
+        return scanBarcodes(barcodes).collectSortedList(Comparator.comparingInt(BatchItem::getIndex));
+    }
+
+    private Flux<BatchItem> scan(String barcode, List<Integer> indexes, boolean cached) {
+        return Mono.fromFuture(() -> barcodeService.scanBarcodeAsync(barcode))
+            .flatMapIterable(result -> items(barcode, indexes, status(result), cached, result));
+    }
+
+    private static Status status(Map<String, Object> result) {
+        if (Boolean.TRUE.equals(result.get("success"))) {
+            return Status.FOUND;
+        }
+        return BarcodeService.NOT_FOUND_MESSAGE.equals(result.get("message")) ? Status.NOT_FOUND : Status.FAILED;
+    }
+
+    private static List<BatchItem> items(String barcode, List<Integer> indexes, Status status, boolean cached,
+                                         Map<String, Object> result) {
+        List<BatchItem> items = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            items.add(new BatchItem(index, barcode, status, cached, result));
+        }
+        return items;
+    }
+
+    public enum Status {
+        FOUND, NOT_FOUND, FAILED, INVALID
+    }
+
+    /**
+     * Result for one barcode of a batch; index is its position in the submitted list
+     */
+    public static class BatchItem {
+        private final int index;
+        private final String barcode;
+        private final Status status;
+        private final boolean cached;
+        private final Map<String, Object> result;
+
+        public BatchItem(int index, String barcode, Status status, boolean cached, Map<String, Object> result) {
+            this.index = index;
+            this.barcode = barcode;
+            this.status = status;
+            this.cached = cached;
+            this.result = result;
+        }
+
+        public int getIndex() { return index; }
+        public String getBarcode() { return barcode; }
+        public Status getStatus() { return status; }
+        public boolean isCached() { return cached; }
+        public Map<String, Object> getResult() { return result; }
+    }
+}
@@ -1,12 +1,47 @@
 package com.groceriesapp.service;
 
+import com.groceriesapp.model.BarcodeProduct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class BarcodeExpansionService {
     
+    private final ProductCatalogue productCatalogue;
+    private final OpenFoodFactsClient openFoodFactsClient;
+    private final UpcItemDbClient upcItemDbClient;
+    private final BarcodeLookupEngine lookupEngine;
+    
+    public BarcodeExpansionService(ProductCatalogue productCatalogue,
+                                   OpenFoodFactsClient openFoodFactsClient,
+                                   UpcItemDbClient upcItemDbClient,
+                                   @Value("${barcode.expansion.sources:OPEN_FOOD_FACTS,UPC_DATABASE}") String[] sources,
+                                   @Value("${barcode.open-food-facts.timeout-ms:3000}") long openFoodFactsTimeoutMillis,
+                                   @Value("${barcode.upcitemdb.timeout-ms:3000}") long upcItemDbTimeoutMillis,
+                                   @Value("${barcode.expansion.breaker-failures:5}") int breakerFailures,
+                                   @Value("${barcode.expansion.breaker-open-seconds:30}") long breakerOpenSeconds) {
+        this.productCatalogue = productCatalogue;
+        this.openFoodFactsClient = openFoodFactsClient;
+        this.upcItemDbClient = upcItemDbClient;
+        this.lookupEngine = new BarcodeLookupEngine(breakerFailures, Duration.ofSeconds(breakerOpenSeconds));
+        
+        // Registration order is merge priority, whatever order the sources are listed in
+        Set<String> enabled = new HashSet<>();
+        for (String source : sources) {
+            enabled.add(source.trim());
+        }
+        if (enabled.contains(BarcodeAPI.OPEN_FOOD_FACTS.name())) {
+            lookupEngine.register(BarcodeAPI.OPEN_FOOD_FACTS, this::lookupOpenFoodFacts, Duration.ofMillis(openFoodFactsTimeoutMillis));
+        }
+        if (enabled.contains(BarcodeAPI.UPC_DATABASE.name())) {
+            lookupEngine.register(BarcodeAPI.UPC_DATABASE, this::lookupUPCDatabase, Duration.ofMillis(upcItemDbTimeoutMillis));
+        }
+    }
+    
     /**
      * Supported barcode database APIs
      */
@@ -33,63 +68,65 @@ public class BarcodeExpansionService {
     }
     
     /**
-     * Lookup product by barcode across multiple databases
+     * Lookup product by barcode across multiple databases, queried in parallel.
+     * Returns the first complete answer, or the partial answers merged with
+     * Open Food Facts taking precedence.
+     */
+    public CompletableFuture<ProductLookupResult> lookupBarcodeAsync(String barcode) {
+        return lookupEngine.lookupAsync(barcode);
+    }
+    
+    /**
+     * Blocking form of lookupBarcodeAsync
      */
     public ProductLookupResult lookupBarcode(String barcode) {
-        ProductLookupResult result = new ProductLookupResult();
-        result.setBarcode(barcode);
-        
-        // Try Open Food Facts first (free, no auth required)
-        ProductInfo product = lookupOpenFoodFacts(barcode);
-        
-        if (product != null) {
-            result.setSuccess(true);
-            result.setProduct(product);
-            result.setSource(BarcodeAPI.OPEN_FOOD_FACTS.getName());
-            return result;
-        }
-        
-        // Try UPC Database as fallback
-        product = lookupUPCDatabase(barcode);
-        
-        if (product != null) {
-            result.setSuccess(true);
-            result.setProduct(product);
-            result.setSource(BarcodeAPI.UPC_DATABASE.getName());
-            return result;
-        }
-        
-        // Product not found in any database
-        result.setSuccess(false);
-        result.setMessage("Product not found in barcode databases");
-        
-        return result;
+        return lookupEngine.lookup(barcode);
     }
     
     /**
-     * Lookup product in Open Food Facts
+     * Per-source breaker state and latency percentiles
      */
-    private ProductInfo lookupOpenFoodFacts(String barcode) {
-        // In production, this would make actual HTTP request to Open Food Facts API
-        // For now, return null (framework ready for integration)
-        
-        // Example API call:
-        // GET https://world.openfoodfacts.org/api/v0/product/{barcode}.json
-        
-        return null;
+    public List<BarcodeLookupEngine.SourceStats> getSourceStatistics() {
+        return lookupEngine.getStats();
+    }
+    
+    /**
+     * Lookup product in the local copy of Open Food Facts, then its API
+     */
+    private CompletableFuture<ProductInfo> lookupOpenFoodFacts(String barcode) {
+        ProductInfo catalogued = productCatalogue.getProductInfo(barcode);
+        if (catalogued != null) {
+            return CompletableFuture.completedFuture(catalogued);
+        }
+        return openFoodFactsClient.fetchAsync(barcode).thenApply(fetched -> toProductInfo(barcode, fetched));
+    }
+    
+    private static ProductInfo toProductInfo(String barcode, BarcodeProduct fetched) {
+        if (!fetched.isFound()) {
+            return null;
+        }
+        ProductInfo product = new ProductInfo();
+        product.setBarcode(barcode);
+        product.setProductName(fetched.getProductName());
+        product.setBrand(fetched.getBrand());
+        product.setCategory(fetched.getCategory());
+        product.setImageUrl(fetched.getImageUrl());
+        if (fetched.getCalories() != null) {
+            NutritionInfo nutrition = new NutritionInfo();
+            nutrition.setCalories((int) Math.round(fetched.getCalories()));
+            nutrition.setProtein(fetched.getProtein());
+            nutrition.setCarbs(fetched.getCarbs());
+            nutrition.setFat(fetched.getFat());
+            product.setNutrition(nutrition);
+        }
+        return product;
     }
     
     /**
      * Lookup product in UPC Database
      */
-    private ProductInfo lookupUPCDatabase(String barcode) {
-        // In production, this would make actual HTTP request to UPC Database API
-        // For now, return null (framework ready for integration)
-        
-        // Example API call:
-        // GET https://api.upcitemdb.com/prod/trial/lookup?upc={barcode}
-        
-        return null;
+    private CompletableFuture<ProductInfo> lookupUPCDatabase(String barcode) {
+        return upcItemDbClient.fetchAsync(barcode);
     }
     
     /**
@@ -0,0 +1,392 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.BarcodeExpansionService.BarcodeAPI;
+import com.groceriesapp.service.BarcodeExpansionService.ProductInfo;
+import com.groceriesapp.service.BarcodeExpansionService.ProductLookupResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Looks a barcode up in all registered sources at once, so a lookup takes as long as
+ * the fastest useful source instead of the sum of every source's timeout.
+ *
+ * The first complete answer (name, brand, category and nutrition) is returned as soon
+ * as it arrives. Otherwise the engine waits for the rest, up to each source's timeout,
+ * and merges what it got: fields come from the first source, in registration order,
+ * that has them. Each source has a circuit breaker that skips it for a while after
+ * consecutive failures or timeouts, and a latency histogram.
+ */
+public class BarcodeLookupEngine {
+
+    private final int breakerFailures;
+    private final long breakerOpenNanos;
+    private final List<Source> sources = new ArrayList<>();
+
+    public BarcodeLookupEngine(int breakerFailures, Duration breakerOpen) {
+        this.breakerFailures = breakerFailures;
+        this.breakerOpenNanos = breakerOpen.toNanos();
+    }
+
+    /**
+     * Add a source. Sources registered first win when answers are merged.
+     *
+     * @param lookup completes with the product, with null if the source does not know
+     *               the barcode, or exceptionally if the source failed
+     */
+    public void register(BarcodeAPI api, Function<String, CompletableFuture<ProductInfo>> lookup, Duration timeout) {
+        sources.add(new Source(api, lookup, timeout.toNanos(), new CircuitBreaker(breakerFailures, breakerOpenNanos)));
+    }
+
+    /**
+     * Look a barcode up in every source whose breaker lets it through. No thread waits
+     * on the sources; the result completes when the last needed answer arrives.
+     */
+    public CompletableFuture<ProductLookupResult> lookupAsync(String barcode) {
+        Lookup lookup = new Lookup(barcode, System.nanoTime());
+        List<CompletableFuture<ProductInfo>> calls = new ArrayList<>();
+        int[] sourceIndexes = new int[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            if (!source.breaker.tryAcquire(lookup.start)) {
+                source.rejected.increment();
+                continue;
+            }
+            CompletableFuture<ProductInfo> call;
+            try {
+                call = source.lookup.apply(barcode);
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            sourceIndexes[calls.size()] = i;
+            calls.add(call);
+        }
+        if (calls.isEmpty()) {
+            return CompletableFuture.completedFuture(merge(barcode, lookup.answers));
+        }
+
+        // Count every call before any can settle, since some may already be done
+        lookup.pending = calls.size();
+        for (int c = 0; c < calls.size(); c++) {
+            int index = sourceIndexes[c];
+            calls.get(c)
+                .orTimeout(sources.get(index).timeoutNanos, TimeUnit.NANOSECONDS)
+                .whenComplete((product, error) -> lookup.settle(index, product, error));
+        }
+        // Once answered, stop waiting on the sources still running
+        lookup.result.whenComplete((result, error) -> calls.forEach(call -> call.cancel(true)));
+        return lookup.result;
+    }
+
+    /**
+     * Blocking form of lookupAsync
+     */
+    public ProductLookupResult lookup(String barcode) {
+        return lookupAsync(barcode).join();
+    }
+
+    /**
+     * Breaker state and latency percentiles per source, in registration order
+     */
+    public List<SourceStats> getStats() {
+        long now = System.nanoTime();
+        List<SourceStats> stats = new ArrayList<>();
+        for (Source source : sources) {
+            stats.add(new SourceStats(source.api.getName(), source.breaker.state(now), source.latency.count(),
+                source.failures.sum(), source.rejected.sum(), source.latency.percentileMillis(0.50),
+                source.latency.percentileMillis(0.95), source.latency.percentileMillis(0.99)));
+        }
+        return stats;
+    }
+
+    private static boolean isComplete(ProductInfo product) {
+        return product.getProductName() != null && product.getBrand() != null
+            && product.getCategory() != null && product.getNutrition() != null;
+    }
+
+    private ProductLookupResult merge(String barcode, ProductInfo[] answers) {
+        ProductInfo merged = new ProductInfo();
+        merged.setBarcode(barcode);
+        List<String> contributors = new ArrayList<>();
+        for (int i = 0; i < answers.length; i++) {
+            ProductInfo answer = answers[i];
+            if (answer == null) {
+                continue;
+            }
+            boolean used = false;
+            if (merged.getProductName() == null && answer.getProductName() != null) {
+                merged.setProductName(answer.getProductName());
+                used = true;
+            }
+            if (merged.getBrand() == null && answer.getBrand() != null) {
+                merged.setBrand(answer.getBrand());
+                used = true;
+            }
+            if (merged.getCategory() == null && answer.getCategory() != null) {
+                merged.setCategory(answer.getCategory());
+                used = true;
+            }
+            if (merged.getImageUrl() == null && answer.getImageUrl() != null) {
+                merged.setImageUrl(answer.getImageUrl());
+                used = true;
+            }
+            if (merged.getIngredients() == null && answer.getIngredients() != null && !answer.getIngredients().isEmpty()) {
+                merged.setIngredients(answer.getIngredients());
+                used = true;
+            }
+            if (merged.getNutrition() == null && answer.getNutrition() != null) {
+                merged.setNutrition(answer.getNutrition());
+                used = true;
+            }
+            if (merged.getCountry() == null && answer.getCountry() != null) {
+                merged.setCountry(answer.getCountry());
+                used = true;
+            }
+            if (used) {
+                contributors.add(sources.get(i).api.getName());
+            }
+        }
+
+        if (contributors.isEmpty()) {
+            ProductLookupResult result = new ProductLookupResult();
+            result.setBarcode(barcode);
+            result.setSuccess(false);
+            result.setMessage("Product not found in barcode databases");
+            return result;
+        }
+        return found(barcode, merged, String.join(" + ", contributors));
+    }
+
+    private static ProductLookupResult found(String barcode, ProductInfo product, String source) {
+        ProductLookupResult result = new ProductLookupResult();
+        result.setBarcode(barcode);
+        result.setSuccess(true);
+        result.setProduct(product);
+        result.setSource(source);
+        return result;
+    }
+
+    private static final class Source {
+        final BarcodeAPI api;
+        final Function<String, CompletableFuture<ProductInfo>> lookup;
+        final long timeoutNanos;
+        final CircuitBreaker breaker;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Source(BarcodeAPI api, Function<String, CompletableFuture<ProductInfo>> lookup, long timeoutNanos,
+               CircuitBreaker breaker) {
+            this.api = api;
+            this.lookup = lookup;
+            this.timeoutNanos = timeoutNanos;
+            this.breaker = breaker;
+        }
+    }
+
+    /**
+     * One lookup in progress: the answers so far and how many sources are still out
+     */
+    private final class Lookup {
+        final String barcode;
+        final long start;
+        final ProductInfo[] answers = new ProductInfo[sources.size()];
+        final CompletableFuture<ProductLookupResult> result = new CompletableFuture<>();
+        int pending;
+        boolean answered;
+
+        Lookup(String barcode, long start) {
+            this.barcode = barcode;
+            this.start = start;
+        }
+
+        void settle(int index, ProductInfo product, Throwable error) {
+            Source source = sources.get(index);
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                // Another source answered first; this call says nothing about its source
+                source.breaker.onAbandoned();
+                return;
+            }
+            long now = System.nanoTime();
+            source.latency.record(now - start);
+            if (cause == null) {
+                source.breaker.onSuccess();
+            } else {
+                source.failures.increment();
+                source.breaker.onFailure(now);
+                System.err.println(source.api.getName() + " lookup for " + barcode
+                    + (cause instanceof TimeoutException ? " timed out" : " failed: " + cause.getMessage()));
+            }
+
+            ProductLookupResult complete = null;
+            synchronized (this) {
+                if (answered) {
+                    return;
+                }
+                pending--;
+                if (cause == null && product != null) {
+                    if (isComplete(product)) {
+                        complete = found(barcode, product, source.api.getName());
+                    } else {
+                        answers[index] = product;
+                    }
+                }
+                if (complete == null && pending == 0) {
+                    complete = merge(barcode, answers);
+                }
+                answered = complete != null;
+            }
+            if (complete != null) {
+                result.complete(complete);
+            }
+        }
+    }
+
+    /**
+     * Closed while the source works. Opens after consecutive failures and rejects calls
+     * until the open period ends, then lets a single probe through: its success closes
+     * the breaker and its failure opens it again.
+     */
+    static final class CircuitBreaker {
+        private final int failureThreshold;
+        private final long openNanos;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probing;
+
+        CircuitBreaker(int failureThreshold, long openNanos) {
+            this.failureThreshold = failureThreshold;
+            this.openNanos = openNanos;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (consecutiveFailures < failureThreshold) {
+                return true;
+            }
+            if (probing || now - openUntil < 0) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            probing = false;
+        }
+
+        synchronized void onAbandoned() {
+            probing = false;
+        }
+
+        synchronized void onFailure(long now) {
+            consecutiveFailures++;
+            probing = false;
+            if (consecutiveFailures >= failureThreshold) {
+                openUntil = now + openNanos;
+            }
+        }
+
+        synchronized String state(long now) {
+            if (consecutiveFailures < failureThreshold) {
+                return "closed";
+            }
+            return probing || now - openUntil >= 0 ? "half-open" : "open";
+        }
+    }
+
+    /**
+     * Call latencies in fixed buckets, from 1 ms to 10 s
+     */
+    static final class LatencyHistogram {
+        private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+        private final LongAdder[] counts = new LongAdder[BOUNDS_MILLIS.length + 1];
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+        LatencyHistogram() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int bucket = 0;
+            while (bucket < BOUNDS_MILLIS.length && nanos > BOUNDS_MILLIS[bucket] * 1_000_000) {
+                bucket++;
+            }
+            counts[bucket].increment();
+            maxNanos.accumulate(nanos);
+        }
+
+        long count() {
+            long total = 0;
+            for (LongAdder count : counts) {
+                total += count.sum();
+            }
+            return total;
+        }
+
+        /**
+         * Upper bound of the bucket holding the percentile, or the slowest call when
+         * that is past the last bucket; 0 before any call
+         */
+        long percentileMillis(double percentile) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+                seen += counts[i].sum();
+                if (seen >= rank) {
+                    return BOUNDS_MILLIS[i];
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+    }
+
+    public static class SourceStats {
+        private final String source;
+        private final String breakerState;
+        private final long calls;
+        private final long failures;
+        private final long rejected;
+        private final long p50Millis;
+        private final long p95Millis;
+        private final long p99Millis;
+
+        public SourceStats(String source, String breakerState, long calls, long failures, long rejected,
+                           long p50Millis, long p95Millis, long p99Millis) {
+            this.source = source;
+            this.breakerState = breakerState;
+            this.calls = calls;
+            this.failures = failures;
+            this.rejected = rejected;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        public String getSource() { return source; }
+        public String getBreakerState() { return breakerState; }
+        public long getCalls() { return calls; }
+        public long getFailures() { return failures; }
+        public long getRejected() { return rejected; }
+        public long getP50Millis() { return p50Millis; }
+        public long getP95Millis() { return p95Millis; }
+        public long getP99Millis() { return p99Millis; }
+    }
+}
@@ -1,27 +1,125 @@
 package com.groceriesapp.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.groceriesapp.model.BarcodeProduct;
+import com.groceriesapp.repository.BarcodeProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for barcode scanning and product lookup.
  * Integrates with Open Food Facts API for product information.
+ *
+ * Lookups go through a bounded in-memory cache (W-TinyLFU, so a burst of one-off
+ * scans does not evict the products scanned thousands of times a day), then the local
+ * ProductCatalogue imported from the Open Food Facts dumps, and only for barcodes the
+ * catalogue lacks, the barcode_products table and the upstream API. Unknown barcodes
+ * are cached too, for a shorter time, since the upstream may learn about them.
+ * Concurrent scans of the same barcode share one lookup, and upstream failures are
+ * not cached. Upstream requests are non-blocking, so a scan waiting on Open Food Facts
+ * holds no thread; only the table queries run on the lookup threads.
+ *
+ * Only well-formed GTINs are looked up: 8 to 14 digits ending in a valid check digit.
+ * Anything else is answered as invalid without touching the cache, the table or the
+ * upstream.
  */
 @Service
 public class BarcodeService {
     
-    private static final String OPEN_FOOD_FACTS_API = "https://world.openfoodfacts.org/api/v0/product/";
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    public static final String NOT_FOUND_MESSAGE = "Product not found in database";
+    public static final String INVALID_MESSAGE = "Invalid barcode: expected 8 to 14 digits with a valid check digit";
     
-    public BarcodeService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    private final OpenFoodFactsClient openFoodFactsClient;
+    private final ProductCatalogue productCatalogue;
+    private final BarcodeProductRepository barcodeProductRepository;
+    private final Duration productTtl;
+    private final Duration notFoundTtl;
+    private final long lookupTimeoutMillis;
+    private final ExecutorService lookupExecutor;
+    private final AsyncLoadingCache<String, BarcodeProduct> products;
+    
+    public BarcodeService(OpenFoodFactsClient openFoodFactsClient,
+                          ProductCatalogue productCatalogue,
+                          BarcodeProductRepository barcodeProductRepository,
+                          @Value("${barcode.cache.max-entries:50000}") long maxEntries,
+                          @Value("${barcode.cache.ttl-hours:720}") long productTtlHours,
+                          @Value("${barcode.cache.not-found-ttl-minutes:360}") long notFoundTtlMinutes,
+                          @Value("${barcode.lookup-threads:8}") int lookupThreads,
+                          @Value("${barcode.lookup-timeout-ms:10000}") long lookupTimeoutMillis) {
+        this.openFoodFactsClient = openFoodFactsClient;
+        this.productCatalogue = productCatalogue;
+        this.barcodeProductRepository = barcodeProductRepository;
+        this.productTtl = Duration.ofHours(productTtlHours);
+        this.notFoundTtl = Duration.ofMinutes(notFoundTtlMinutes);
+        this.lookupTimeoutMillis = lookupTimeoutMillis;
+        
+        // Table queries block, so keep them off the common pool
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.lookupExecutor = Executors.newFixedThreadPool(lookupThreads, runnable -> {
+            Thread thread = new Thread(runnable, "barcode-lookup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.products = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, BarcodeProduct>() {
+                @Override
+                public long expireAfterCreate(String barcode, BarcodeProduct product, long currentTime) {
+                    return remainingTtl(product).toNanos();
+                }
+                
+                @Override
+                public long expireAfterUpdate(String barcode, BarcodeProduct product, long currentTime,
+                                              long currentDuration) {
+                    return remainingTtl(product).toNanos();
+                }
+                
+                @Override
+                public long expireAfterRead(String barcode, BarcodeProduct product, long currentTime,
+                                            long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .executor(lookupExecutor)
+            .buildAsync((barcode, executor) -> loadProduct(barcode, executor));
+    }
+    
+    /**
+     * Scan barcode and retrieve product information, without blocking the caller.
+     * 
+     * @param barcode The product barcode (UPC, EAN, etc.)
+     * @return Map containing product information; lookup failures complete it with
+     *         success = false rather than exceptionally
+     */
+    public CompletableFuture<Map<String, Object>> scanBarcodeAsync(String barcode) {
+        if (!isValidBarcode(barcode)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", INVALID_MESSAGE);
+            return CompletableFuture.completedFuture(result);
+        }
+        // A copy, so one caller timing out does not fail the lookup other scans share
+        return products.get(barcode).copy()
+            .orTimeout(lookupTimeoutMillis, TimeUnit.MILLISECONDS)
+            .handle((product, error) -> toResult(barcode, product, error));
     }
     
     /**
@@ -31,73 +129,158 @@ public class BarcodeService {
      * @return Map containing product information
      */
     public Map<String, Object> scanBarcode(String barcode) {
+        return scanBarcodeAsync(barcode).join();
+    }
+    
+    /**
+     * Whether a barcode's lookup has finished and is in memory, so scanning it costs nothing
+     */
+    public boolean isCached(String barcode) {
+        CompletableFuture<BarcodeProduct> product = products.getIfPresent(barcode);
+        return product != null && product.isDone() && !product.isCompletedExceptionally();
+    }
+    
+    /**
+     * Whether a barcode is a GTIN (EAN-8, UPC-A, EAN-13 or GTIN-14): 8 to 14 digits, the
+     * last being the check digit of the others
+     */
+    public static boolean isValidBarcode(String barcode) {
+        if (barcode == null || barcode.length() < 8 || barcode.length() > 14) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < barcode.length(); i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            // Weights alternate 3, 1 leftwards from the digit before the check digit
+            int fromRight = barcode.length() - 1 - i;
+            sum += (c - '0') * (fromRight % 2 == 1 ? 3 : 1);
+        }
+        return sum % 10 == 0;
+    }
+    
+    private Map<String, Object> toResult(String barcode, BarcodeProduct product, Throwable error) {
         Map<String, Object> result = new HashMap<>();
         
-        try {
-            // Call Open Food Facts API
-            String url = OPEN_FOOD_FACTS_API + barcode + ".json";
-            String response = restTemplate.getForObject(url, String.class);
-            
-            if (response == null) {
-                result.put("success", false);
-                result.put("message", "Product not found");
-                return result;
-            }
-            
-            // Parse JSON response
-            JsonNode root = objectMapper.readTree(response);
-            
-            // Check if product was found
-            int status = root.path("status").asInt(0);
-            if (status == 0) {
-                result.put("success", false);
-                result.put("message", "Product not found in database");
-                return result;
-            }
-            
-            JsonNode product = root.path("product");
-            
-            // Extract product information
-            String productName = product.path("product_name").asText("");
-            String brand = product.path("brands").asText("");
-            String category = product.path("categories").asText("");
-            String imageUrl = product.path("image_url").asText("");
-            
-            // Determine storage location based on category
-            String storageLocation = determineStorageLocation(category);
-            
-            // Estimate shelf life based on category
-            Integer estimatedShelfLife = estimateShelfLife(category, productName);
-            
-            // Build result
-            result.put("success", true);
-            result.put("barcode", barcode);
-            result.put("name", brand.isEmpty() ? productName : brand + " " + productName);
-            result.put("brand", brand);
-            result.put("category", category);
-            result.put("imageUrl", imageUrl);
-            result.put("storageLocation", storageLocation);
-            result.put("estimatedShelfLifeDays", estimatedShelfLife);
-            
-            // Additional nutritional info (optional)
-            if (product.has("nutriments")) {
-                JsonNode nutriments = product.path("nutriments");
-                Map<String, Object> nutrition = new HashMap<>();
-                nutrition.put("calories", nutriments.path("energy-kcal_100g").asDouble(0));
-                nutrition.put("protein", nutriments.path("proteins_100g").asDouble(0));
-                nutrition.put("carbs", nutriments.path("carbohydrates_100g").asDouble(0));
-                nutrition.put("fat", nutriments.path("fat_100g").asDouble(0));
-                result.put("nutrition", nutrition);
-            }
-            
-        } catch (Exception e) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
             result.put("success", false);
-            result.put("message", "Error scanning barcode: " + e.getMessage());
+            result.put("message", cause instanceof TimeoutException
+                ? "Error scanning barcode: lookup timed out"
+                : "Error scanning barcode: " + cause.getMessage());
+            return result;
+        }
+        
+        if (!product.isFound()) {
+            result.put("success", false);
+            result.put("message", NOT_FOUND_MESSAGE);
+            return result;
+        }
+        
+        String productName = nullToEmpty(product.getProductName());
+        String brand = nullToEmpty(product.getBrand());
+        String category = nullToEmpty(product.getCategory());
+        
+        // Build result
+        result.put("success", true);
+        result.put("barcode", barcode);
+        result.put("name", brand.isEmpty() ? productName : brand + " " + productName);
+        result.put("brand", brand);
+        result.put("category", category);
+        result.put("imageUrl", nullToEmpty(product.getImageUrl()));
+        result.put("storageLocation", determineStorageLocation(category));
+        result.put("estimatedShelfLifeDays", estimateShelfLife(category, productName));
+        
+        // Additional nutritional info (optional)
+        if (product.getCalories() != null) {
+            Map<String, Object> nutrition = new HashMap<>();
+            nutrition.put("calories", product.getCalories());
+            nutrition.put("protein", product.getProtein());
+            nutrition.put("carbs", product.getCarbs());
+            nutrition.put("fat", product.getFat());
+            result.put("nutrition", nutrition);
         }
         
         return result;
     }
     
+    /**
+     * Import the Open Food Facts dumps waiting in the catalogue inbox, then drop the
+     * in-memory cache so scans see the updated products.
+     * Runs daily at 3:30 AM by default.
+     */
+    @Scheduled(cron = "${barcode.catalogue.import-cron:0 30 3 * * *}")
+    public void importCatalogueDumps() {
+        if (productCatalogue.importPending() > 0) {
+            products.synchronous().invalidateAll();
+        }
+    }
+    
+    /**
+     * Delete stored unknown barcodes past their TTL, so scans of junk codes do not pile
+     * up in the table. Runs daily at 4 AM by default.
+     */
+    @Scheduled(cron = "${barcode.cache.purge-cron:0 0 4 * * *}")
+    public void purgeExpiredNotFound() {
+        int deleted = barcodeProductRepository.deleteNotFoundFetchedBefore(LocalDateTime.now().minus(notFoundTtl));
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " expired unknown barcodes");
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+    
+    /**
+     * Load a barcode missing from memory: from the catalogue, else from the table while
+     * it is fresh, else from the upstream. Runs once per barcode however many scans are
+     * waiting for it.
+     */
+    private CompletableFuture<BarcodeProduct> loadProduct(String barcode, Executor executor) {
+        BarcodeProduct catalogued = productCatalogue.getBarcodeProduct(barcode);
+        if (catalogued != null) {
+            return CompletableFuture.completedFuture(catalogued);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> barcodeProductRepository.findById(barcode), executor)
+            .thenCompose(stored -> {
+                if (stored.isPresent() && !remainingTtl(stored.get()).isZero()) {
+                    return CompletableFuture.completedFuture(stored.get());
+                }
+                return openFoodFactsClient.fetchAsync(barcode)
+                    .handleAsync((product, error) -> saveOrFallBack(barcode, product, error, stored), executor);
+            });
+    }
+    
+    private BarcodeProduct saveOrFallBack(String barcode, BarcodeProduct product, Throwable error,
+                                          Optional<BarcodeProduct> stored) {
+        if (error == null) {
+            return barcodeProductRepository.save(product);
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (stored.isPresent() && stored.get().isFound()) {
+            // Upstream is down: a stale product beats no product, but is not kept in memory
+            System.err.println("Open Food Facts lookup for " + barcode + " failed, serving stored product: " + cause.getMessage());
+            return stored.get();
+        }
+        throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+    }
+    
+    private Duration remainingTtl(BarcodeProduct product) {
+        Duration ttl = product.isFound() ? productTtl : notFoundTtl;
+        Duration age = Duration.between(product.getFetchedAt(), LocalDateTime.now());
+        Duration remaining = ttl.minus(age);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+    
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+    
     /**
      * Determine appropriate storage location based on product category.
      */
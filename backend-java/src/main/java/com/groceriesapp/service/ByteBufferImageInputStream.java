@@ -0,0 +1,51 @@
+package com.groceriesapp.service;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * ImageInputStream reading straight from a ByteBuffer. ImageIO's own streams over
+ * an InputStream cache everything they read (in a temp file or on the heap) so they
+ * can seek backwards; the buffer is already random access, so no copy is needed.
+ */
+final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer data;
+
+    ByteBufferImageInputStream(ByteBuffer data) {
+        this.data = data.slice();
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= data.limit()) {
+            return -1;
+        }
+        return data.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (length == 0) {
+            return 0;
+        }
+        int remaining = data.limit() - (int) streamPos;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int count = Math.min(length, remaining);
+        data.get((int) streamPos, bytes, offset, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return data.limit();
+    }
+}
@@ -0,0 +1,177 @@
+package com.groceriesapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of text payloads: a size-bounded Caffeine cache in front of a
+ * directory with one file per key. Entries evicted from memory stay on disk.
+ *
+ * Keys are hex digests, so they are safe file names. Every entry remembers how long
+ * the value took to compute, and each hit adds that to the saved time. Disk errors are
+ * logged and treated as misses; the cache never fails a scan.
+ */
+public class ContentCache {
+
+    private final String name;
+    private final Path directory;
+    private final Cache<String, Entry> memory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    public ContentCache(String name, int maxEntries, Path directory) {
+        this.name = name;
+        this.directory = directory;
+        this.memory = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    /**
+     * Cached value for key, from memory or else from disk, or null on a miss
+     */
+    public String get(String key) {
+        Entry entry = memory.getIfPresent(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            entry = readFromDisk(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            memory.put(key, entry);
+            hits.incrementAndGet();
+            diskHits.incrementAndGet();
+        }
+        savedNanos.addAndGet(entry.computeNanos);
+        return entry.value;
+    }
+
+    /**
+     * Store a value that took computeNanos to produce, in memory and on disk
+     */
+    public void put(String key, String value, long computeNanos) {
+        Entry entry = new Entry(value, computeNanos);
+        memory.put(key, entry);
+        writeToDisk(key, entry);
+    }
+
+    /**
+     * Delete disk entries not written or read since the cutoff. Returns how many were deleted.
+     */
+    public int evictDiskOlderThan(Instant cutoff) {
+        int deleted = 0;
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                            Files.deleteIfExists(file);
+                            deleted++;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to clean " + name + " cache: " + e.getMessage());
+        }
+        return deleted;
+    }
+
+    public Stats getStats() {
+        // Evictions are applied lazily, so settle them before counting
+        memory.cleanUp();
+        return new Stats(name, hits.get(), diskHits.get(), misses.get(), savedNanos.get(),
+            (int) memory.estimatedSize());
+    }
+
+    private Entry readFromDisk(String key) {
+        Path file = fileFor(key);
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            if (newline < 0) {
+                return null;
+            }
+            // Touch the file so the age-based cleanup keeps entries that are still used
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return new Entry(content.substring(newline + 1), Long.parseLong(content.substring(0, newline)));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Failed to read " + name + " cache entry " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(temp, entry.computeNanos + "\n" + entry.value, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write " + name + " cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(String key) {
+        // Two-character shards keep directories small
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static class Entry {
+        private final String value;
+        private final long computeNanos;
+
+        Entry(String value, long computeNanos) {
+            this.value = value;
+            this.computeNanos = computeNanos;
+        }
+    }
+
+    public static class Stats {
+        private final String name;
+        private final long hits;
+        private final long diskHits;
+        private final long misses;
+        private final long savedNanos;
+        private final int size;
+
+        public Stats(String name, long hits, long diskHits, long misses, long savedNanos, int size) {
+            this.name = name;
+            this.hits = hits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.savedNanos = savedNanos;
+            this.size = size;
+        }
+
+        public String getName() { return name; }
+        public long getHits() { return hits; }
+        public long getDiskHits() { return diskHits; }
+        public long getMisses() { return misses; }
+        public int getSize() { return size; }
+        public double getHitRate() { return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses); }
+        public long getSavedCpuMillis() { return savedNanos / 1_000_000; }
+    }
+}
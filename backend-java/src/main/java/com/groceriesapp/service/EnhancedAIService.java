@@ -3,6 +3,7 @@ package com.groceriesapp.service;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -87,6 +88,14 @@ public class EnhancedAIService {
      * Returns freshness score: 0.0 (spoiled) to 1.0 (fresh)
      */
     public double analyzeFreshness(String itemName, byte[] imageData) {
+        return analyzeFreshness(itemName, ByteBuffer.wrap(imageData));
+    }
+    
+    /**
+     * Analyze freshness from an encoded image held in a buffer (binary uploads).
+     * Returns freshness score: 0.0 (spoiled) to 1.0 (fresh)
+     */
+    public double analyzeFreshness(String itemName, ByteBuffer imageData) {
         // In a real implementation, this would use computer vision (DJL + PyTorch)
         // For now, we'll use a statistical model based on item age
         
@@ -0,0 +1,503 @@
+package com.groceriesapp.service;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds expiration dates in OCR text of packaging, without regexes or exceptions.
+ *
+ * The text is tokenized once into numbers, words and separators. Runs of up to three
+ * date fields (numbers or month names, e.g. "12 MAR 25", "2025-03-12", "MAR 2025") are
+ * then read from the tokens and classified by shape; digits are parsed in place and
+ * dates validated against the month length before a LocalDate is built. Each reading
+ * becomes a candidate whose confidence depends on how unambiguous the format is and
+ * on the nearest preceding keyword: "EXP", "BB", "best before" and "use by" raise it,
+ * production markers like "MFG" or "LOT" lower it. Julian codes ("EXP 25071") are only
+ * read after an expiry keyword, since a bare five-digit number is rarely a date.
+ *
+ * Numeric dates such as 03/04/25 are read month first for US-style locales (and bare
+ * "en", matching the old MM/dd default) and day first everywhere else, unless one of
+ * the fields is over 12.
+ */
+public final class ExpirationDateRecognizer {
+
+    // Base confidence by format
+    private static final double ISO = 0.8;
+    private static final double DAY_MONTH_NAME = 0.8;
+    private static final double MONTH_NAME_DAY = 0.75;
+    private static final double NUMERIC = 0.7;
+    private static final double NUMERIC_BY_LOCALE = 0.55;
+    private static final double COMPACT = 0.6;
+    private static final double MONTH_YEAR = 0.6;
+    private static final double NO_YEAR = 0.5;
+    private static final double JULIAN = 0.6;
+
+    private static final double EXPIRY_KEYWORD = 0.2;
+    private static final double PRODUCTION_KEYWORD = -0.4;
+    private static final double PAST = -0.1;
+
+    /** How far back a keyword may be, in words, on the same line */
+    private static final int KEYWORD_LOOKBACK = 4;
+
+    private static final Set<String> MONTH_FIRST_COUNTRIES = Set.of("US", "PH", "FM", "MH", "PW");
+
+    private static final Set<String> EXPIRY_WORDS = Set.of(
+        "exp", "expiry", "expires", "expiration", "exd", "bb", "bbe", "bbd", "before");
+    private static final Set<String> BY_PREFIXES = Set.of("use", "used", "best", "sell");
+    private static final Set<String> PRODUCTION_WORDS = Set.of(
+        "prod", "produced", "production", "mfg", "mfd", "manufactured", "packed", "pkd", "lot", "made");
+
+    private static final String[] MONTHS = {
+        "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"
+    };
+
+    private static final int NUMBER = 0;
+    private static final int WORD = 1;
+    private static final int SEPARATOR = 2;
+    private static final int NEWLINE = 3;
+    private static final int OTHER = 4;
+
+    private ExpirationDateRecognizer() {
+    }
+
+    /**
+     * All dates found in the text, most confident first. Dates more than two years
+     * past or ten years ahead of today are not considered.
+     */
+    public static List<Candidate> recognize(CharSequence text, Locale locale, LocalDate today) {
+        List<Candidate> candidates = new ArrayList<>();
+        if (text == null || text.length() == 0) {
+            return candidates;
+        }
+        Tokens tokens = Tokens.of(text);
+        boolean monthFirst = isMonthFirst(locale);
+        int[] fields = new int[3];
+
+        for (int i = 0; i < tokens.count; i++) {
+            int kind = tokens.kind[i];
+            if (kind != NUMBER && !(kind == WORD && tokens.month(i) > 0)) {
+                continue;
+            }
+            int fieldCount = tokens.readFields(i, fields);
+            int next = i;
+            if (fieldCount == 3 && tokens.separatorBefore(fields[1]) == tokens.separatorBefore(fields[2])) {
+                // A whole date that failed validation (31/02/2025) is not retried from 02/2025
+                next = fields[2];
+            }
+            // Longest reading first, so "12 MAR 25" is not also read as "12 MAR"
+            for (int n = fieldCount; n >= 1; n--) {
+                Candidate candidate = classify(tokens, fields, n, monthFirst, today);
+                if (candidate != null) {
+                    double keyword = keywordAdjustment(tokens, i);
+                    if (candidate.julian && keyword <= 0) {
+                        // Julian codes need an expiry keyword in front of them
+                        break;
+                    }
+                    double confidence = candidate.confidence + keyword;
+                    if (candidate.date.isBefore(today)) {
+                        confidence += PAST;
+                    }
+                    if (confidence > 0) {
+                        candidates.add(new Candidate(candidate.date, Math.min(confidence, 1.0),
+                            text.subSequence(tokens.start[fields[0]], tokens.end[fields[n - 1]]).toString(), false));
+                    }
+                    next = fields[n - 1];
+                    break;
+                }
+            }
+            i = next;
+        }
+
+        candidates.sort(Comparator.comparingDouble(Candidate::getConfidence).reversed());
+        return candidates;
+    }
+
+    /**
+     * The most confident date in the text, or null if there is none
+     */
+    public static LocalDate bestDate(CharSequence text, Locale locale, LocalDate today) {
+        List<Candidate> candidates = recognize(text, locale, today);
+        return candidates.isEmpty() ? null : candidates.get(0).getDate();
+    }
+
+    static boolean isMonthFirst(Locale locale) {
+        if (locale == null) {
+            return true;
+        }
+        String country = locale.getCountry();
+        if (country.isEmpty()) {
+            return locale.getLanguage().isEmpty() || locale.getLanguage().equals("en");
+        }
+        return MONTH_FIRST_COUNTRIES.contains(country);
+    }
+
+    /**
+     * Read the first n fields as a date. Returns a candidate with the base confidence
+     * for its format, or null if the fields are not a valid, plausible date.
+     */
+    private static Candidate classify(Tokens tokens, int[] fields, int n, boolean monthFirst, LocalDate today) {
+        int a = fields[0];
+        if (n == 3) {
+            int b = fields[1];
+            int c = fields[2];
+            char separator = tokens.separatorBefore(b);
+            if (separator != tokens.separatorBefore(c)) {
+                return null;
+            }
+            int aMonth = tokens.month(a);
+            int bMonth = tokens.month(b);
+            if (aMonth == 0 && bMonth == 0 && tokens.kind[c] == NUMBER) {
+                if (tokens.digits[a] == 4) {
+                    // 2025-03-12
+                    return date(today, tokens.value[a], tokens.value[b], tokens.value[c], ISO);
+                }
+                if (!isYear(tokens, c)) {
+                    return null;
+                }
+                return numericDate(today, tokens.value[a], tokens.value[b], year(tokens, c), monthFirst);
+            }
+            if (aMonth == 0 && bMonth > 0 && tokens.digits[a] == 4 && tokens.kind[c] == NUMBER) {
+                // 2025 MAR 12
+                return date(today, tokens.value[a], bMonth, tokens.value[c], DAY_MONTH_NAME);
+            }
+            if (aMonth == 0 && bMonth > 0 && tokens.kind[c] == NUMBER && isYear(tokens, c)) {
+                // 12 MAR 25, 12-MAR-2025
+                return date(today, year(tokens, c), bMonth, tokens.value[a], DAY_MONTH_NAME);
+            }
+            if (aMonth > 0 && tokens.kind[b] == NUMBER && tokens.digits[b] <= 2 && isYear(tokens, c)) {
+                // MAR 12 2025
+                return date(today, year(tokens, c), aMonth, tokens.value[b], MONTH_NAME_DAY);
+            }
+            return null;
+        }
+        if (n == 2) {
+            int b = fields[1];
+            int aMonth = tokens.month(a);
+            int bMonth = tokens.month(b);
+            if (aMonth > 0 && tokens.kind[b] == NUMBER && isYear(tokens, b)) {
+                // MAR 2025, MAR 25: best before the end of the month
+                return endOfMonth(today, year(tokens, b), aMonth);
+            }
+            if (aMonth == 0 && bMonth > 0 && tokens.digits[a] <= 2) {
+                // 12 MAR: the next 12 March, allowing for recently expired items
+                LocalDate thisYear = validDate(today.getYear(), bMonth, tokens.value[a]);
+                if (thisYear == null) {
+                    return null;
+                }
+                LocalDate date = thisYear.isBefore(today.minusMonths(1)) ? validDate(today.getYear() + 1, bMonth, tokens.value[a]) : thisYear;
+                return date == null ? null : new Candidate(date, NO_YEAR, null, false);
+            }
+            if (aMonth == 0 && bMonth == 0 && tokens.kind[b] == NUMBER && tokens.digits[b] == 4
+                    && tokens.digits[a] <= 2 && tokens.separatorBefore(b) != ' ') {
+                // 03/2025
+                return endOfMonth(today, (int) tokens.value[b], tokens.value[a]);
+            }
+            return null;
+        }
+        if (tokens.kind[a] != NUMBER) {
+            return null;
+        }
+        long value = tokens.value[a];
+        switch (tokens.digits[a]) {
+            case 8:
+                // 20250312
+                return date(today, value / 10000, value / 100 % 100, value % 100, COMPACT);
+            case 5:
+                // Julian yyDDD
+                return julian(today, 2000 + value / 1000, value % 1000);
+            case 7:
+                // Julian yyyyDDD
+                return julian(today, value / 1000, value % 1000);
+            default:
+                return null;
+        }
+    }
+
+    private static Candidate numericDate(LocalDate today, long first, long second, long year, boolean monthFirst) {
+        if (first > 12 && second <= 12) {
+            return date(today, year, second, first, NUMERIC);
+        }
+        if (second > 12 && first <= 12) {
+            return date(today, year, first, second, NUMERIC);
+        }
+        if (first == second) {
+            return date(today, year, first, second, NUMERIC);
+        }
+        return monthFirst
+            ? date(today, year, first, second, NUMERIC_BY_LOCALE)
+            : date(today, year, second, first, NUMERIC_BY_LOCALE);
+    }
+
+    private static Candidate date(LocalDate today, long year, long month, long day, double confidence) {
+        LocalDate date = validDate(year, month, day);
+        return date != null && isPlausible(date, today) ? new Candidate(date, confidence, null, false) : null;
+    }
+
+    private static Candidate endOfMonth(LocalDate today, long year, long month) {
+        if (month < 1 || month > 12 || year < 1900 || year > 9999) {
+            return null;
+        }
+        LocalDate date = YearMonth.of((int) year, (int) month).atEndOfMonth();
+        return isPlausible(date, today) ? new Candidate(date, MONTH_YEAR, null, false) : null;
+    }
+
+    private static Candidate julian(LocalDate today, long year, long dayOfYear) {
+        if (year < 1900 || year > 9999 || dayOfYear < 1 || dayOfYear > Year.of((int) year).length()) {
+            return null;
+        }
+        LocalDate date = LocalDate.ofYearDay((int) year, (int) dayOfYear);
+        return isPlausible(date, today) ? new Candidate(date, JULIAN, null, true) : null;
+    }
+
+    private static LocalDate validDate(long year, long month, long day) {
+        if (year < 1900 || year > 9999 || month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+        YearMonth yearMonth = YearMonth.of((int) year, (int) month);
+        return day <= yearMonth.lengthOfMonth() ? yearMonth.atDay((int) day) : null;
+    }
+
+    private static boolean isPlausible(LocalDate date, LocalDate today) {
+        return !date.isBefore(today.minusYears(2)) && !date.isAfter(today.plusYears(10));
+    }
+
+    private static boolean isYear(Tokens tokens, int index) {
+        return tokens.kind[index] == NUMBER && (tokens.digits[index] == 2 || tokens.digits[index] == 4);
+    }
+
+    private static long year(Tokens tokens, int index) {
+        return tokens.digits[index] == 2 ? 2000 + tokens.value[index] : tokens.value[index];
+    }
+
+    /**
+     * Confidence change from the nearest keyword before the date on the same line
+     */
+    private static double keywordAdjustment(Tokens tokens, int dateStart) {
+        int words = 0;
+        for (int i = dateStart - 1; i >= 0 && words < KEYWORD_LOOKBACK; i--) {
+            int kind = tokens.kind[i];
+            if (kind == NEWLINE) {
+                break;
+            }
+            if (kind != WORD) {
+                continue;
+            }
+            words++;
+            String word = tokens.word(i);
+            if (EXPIRY_WORDS.contains(word)) {
+                return EXPIRY_KEYWORD;
+            }
+            if (word.equals("by") && i > 0) {
+                int previous = tokens.previousWord(i);
+                if (previous >= 0 && BY_PREFIXES.contains(tokens.word(previous))) {
+                    return EXPIRY_KEYWORD;
+                }
+            }
+            if (PRODUCTION_WORDS.contains(word)) {
+                return PRODUCTION_KEYWORD;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Tokens of the text in parallel arrays. Spaces, tabs and commas are not tokens;
+     * a token records whether any came before it.
+     */
+    private static class Tokens {
+        private final CharSequence text;
+        private int count;
+        private int[] kind = new int[32];
+        private int[] start = new int[32];
+        private int[] end = new int[32];
+        private long[] value = new long[32];
+        private int[] digits = new int[32];
+        private boolean[] spaceBefore = new boolean[32];
+
+        private Tokens(CharSequence text) {
+            this.text = text;
+        }
+
+        static Tokens of(CharSequence text) {
+            Tokens tokens = new Tokens(text);
+            int length = text.length();
+            int i = 0;
+            boolean space = false;
+            while (i < length) {
+                char c = text.charAt(i);
+                int begin = i;
+                if (c >= '0' && c <= '9') {
+                    long number = 0;
+                    int count = 0;
+                    while (i < length && (c = text.charAt(i)) >= '0' && c <= '9') {
+                        if (count < 18) {
+                            number = number * 10 + (c - '0');
+                        }
+                        count++;
+                        i++;
+                    }
+                    tokens.add(NUMBER, begin, i, number, count, space);
+                } else if (Character.isLetter(c)) {
+                    while (i < length && Character.isLetter(text.charAt(i))) {
+                        i++;
+                    }
+                    tokens.add(WORD, begin, i, 0, 0, space);
+                } else if (c == '\n' || c == '\r') {
+                    tokens.add(NEWLINE, begin, ++i, 0, 0, space);
+                } else if (c == ' ' || c == '\t' || c == ',') {
+                    i++;
+                    space = true;
+                    continue;
+                } else if (c == '/' || c == '-' || c == '.') {
+                    tokens.add(SEPARATOR, begin, ++i, c, 0, space);
+                } else {
+                    tokens.add(OTHER, begin, ++i, 0, 0, space);
+                }
+                space = false;
+            }
+            return tokens;
+        }
+
+        private void add(int kind, int start, int end, long value, int digits, boolean spaceBefore) {
+            if (count == this.kind.length) {
+                int capacity = count * 2;
+                this.kind = Arrays.copyOf(this.kind, capacity);
+                this.start = Arrays.copyOf(this.start, capacity);
+                this.end = Arrays.copyOf(this.end, capacity);
+                this.value = Arrays.copyOf(this.value, capacity);
+                this.digits = Arrays.copyOf(this.digits, capacity);
+                this.spaceBefore = Arrays.copyOf(this.spaceBefore, capacity);
+            }
+            this.kind[count] = kind;
+            this.start[count] = start;
+            this.end[count] = end;
+            this.value[count] = value;
+            this.digits[count] = digits;
+            this.spaceBefore[count] = spaceBefore;
+            count++;
+        }
+
+        /**
+         * Read up to three date fields (numbers or month names) starting at token i,
+         * each separated from the last by one '/', '-' or '.', by spaces, or nothing
+         * between a number and a month name ("12MAR25"). Returns how many were read.
+         */
+        int readFields(int i, int[] fields) {
+            fields[0] = i;
+            int n = 1;
+            int j = i + 1;
+            while (n < fields.length && j < count) {
+                int next = j;
+                if (kind[j] == SEPARATOR && !spaceBefore[j]) {
+                    next = j + 1;
+                    if (next >= count || spaceBefore[next]) {
+                        break;
+                    }
+                } else if (!spaceBefore[j] && !(isMonthOrNumber(j) && kind[j] != kind[fields[n - 1]])) {
+                    break;
+                }
+                if (!isMonthOrNumber(next)) {
+                    break;
+                }
+                fields[n++] = next;
+                j = next + 1;
+            }
+            return n;
+        }
+
+        /**
+         * Separator in front of a field read by readFields: its character, ' ' for
+         * spaces, or 0 when the field directly follows the previous one
+         */
+        char separatorBefore(int field) {
+            if (field > 0 && kind[field - 1] == SEPARATOR) {
+                return (char) value[field - 1];
+            }
+            return spaceBefore[field] ? ' ' : 0;
+        }
+
+        private boolean isMonthOrNumber(int index) {
+            return index < count && (kind[index] == NUMBER || (kind[index] == WORD && month(index) > 0));
+        }
+
+        /**
+         * Month 1-12 for a month name or its three-letter abbreviation, otherwise 0
+         */
+        int month(int index) {
+            if (kind[index] != WORD) {
+                return 0;
+            }
+            int length = end[index] - start[index];
+            if (length < 3) {
+                return 0;
+            }
+            for (int m = 0; m < MONTHS.length; m++) {
+                String prefix = MONTHS[m];
+                if (matchesIgnoreCase(start[index], prefix) && (length == 3 || isMonthName(index, m))) {
+                    return m + 1;
+                }
+            }
+            return 0;
+        }
+
+        private boolean isMonthName(int index, int month) {
+            String name = Month.of(month + 1).name();
+            int length = end[index] - start[index];
+            // Full name, or "Sept"
+            return (length == name.length() && matchesIgnoreCase(start[index], name.toLowerCase(Locale.ROOT)))
+                || (month == 8 && length == 4 && matchesIgnoreCase(start[index], "sept"));
+        }
+
+        private boolean matchesIgnoreCase(int offset, String lowerCase) {
+            for (int k = 0; k < lowerCase.length(); k++) {
+                if (Character.toLowerCase(text.charAt(offset + k)) != lowerCase.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String word(int index) {
+            return text.subSequence(start[index], end[index]).toString().toLowerCase(Locale.ROOT);
+        }
+
+        int previousWord(int index) {
+            for (int i = index - 1; i >= 0; i--) {
+                if (kind[i] == NEWLINE) {
+                    return -1;
+                }
+                if (kind[i] == WORD) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    public static class Candidate {
+        private final LocalDate date;
+        private final double confidence;
+        private final String text;
+        private final boolean julian;
+
+        Candidate(LocalDate date, double confidence, String text, boolean julian) {
+            this.date = date;
+            this.confidence = confidence;
+            this.text = text;
+            this.julian = julian;
+        }
+
+        public LocalDate getDate() { return date; }
+        public double getConfidence() { return confidence; }
+        /** The text the date was read from */
+        public String getText() { return text; }
+    }
+}
@@ -0,0 +1,236 @@
+package com.groceriesapp.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Greenhouse gas emissions embodied in food, from its name and quantity.
+ *
+ * Each category carries its emissions per kilogram, the mean across the global food
+ * supply chain from Poore &amp; Nemecek (2018) as published by Our World in Data, and a
+ * typical weight per unit for items whose weight is unknown. A name is classified by its
+ * words: the rightmost word or two-word phrase that names a food wins, as it is usually
+ * the head of the phrase ("chocolate milk" is milk, "milk chocolate" is chocolate).
+ * Lookups are hash probes per word, so classifying a name costs well under a microsecond.
+ */
+final class FoodEmissionModel {
+
+    enum Category {
+        BEEF(99.5, 0.5),
+        CHOCOLATE(46.7, 0.1),
+        LAMB(39.7, 0.5),
+        COFFEE(28.5, 0.25),
+        SHRIMP(26.9, 0.25),
+        CHEESE(23.9, 0.25),
+        FISH(13.6, 0.3),
+        PORK(12.3, 0.4),
+        POULTRY(9.9, 0.6),
+        OIL(5.4, 0.75),
+        EGGS(4.7, 0.06),
+        RICE(4.5, 1.0),
+        PEANUTS(3.2, 0.35),
+        SUGAR(3.2, 1.0),
+        MILK(3.2, 1.0),
+        TOFU(3.2, 0.4),
+        TOMATOES(2.1, 0.12),
+        LEGUMES(1.8, 0.4),
+        WINE(1.8, 0.75),
+        GRAINS(1.6, 0.5),
+        BERRIES(1.5, 0.25),
+        FRUIT(1.1, 0.15),
+        PLANT_MILK(1.0, 1.0),
+        BANANAS(0.9, 0.12),
+        VEGETABLES(0.5, 0.3),
+        ROOT_VEGETABLES(0.4, 0.15),
+        APPLES(0.4, 0.18),
+        CITRUS(0.4, 0.15),
+        NUTS(0.4, 0.2),
+        // Unrecognised food: near the middle of the table
+        OTHER(2.0, 0.4);
+
+        final double kgCo2PerKg;
+        final double typicalUnitKg;
+
+        Category(double kgCo2PerKg, double typicalUnitKg) {
+            this.kgCo2PerKg = kgCo2PerKg;
+            this.typicalUnitKg = typicalUnitKg;
+        }
+    }
+
+    private static final Map<String, Category> WORDS = new HashMap<>();
+    private static final Map<String, Category> PHRASES = new HashMap<>();
+
+    static {
+        words(Category.BEEF, "beef", "steak", "mince", "burger", "veal", "brisket");
+        words(Category.CHOCOLATE, "chocolate", "cocoa");
+        words(Category.LAMB, "lamb", "mutton");
+        words(Category.COFFEE, "coffee", "espresso");
+        words(Category.SHRIMP, "shrimp", "prawn");
+        // Butter, like cheese, concentrates milk
+        words(Category.CHEESE, "cheese", "cheddar", "mozzarella", "parmesan", "brie", "feta", "halloumi", "butter");
+        words(Category.FISH, "fish", "salmon", "tuna", "cod", "haddock", "trout", "mackerel", "sardine", "anchovy");
+        words(Category.PORK, "pork", "ham", "bacon", "sausage", "chorizo", "salami", "prosciutto");
+        words(Category.POULTRY, "chicken", "turkey", "duck");
+        words(Category.OIL, "oil");
+        words(Category.EGGS, "egg");
+        words(Category.RICE, "rice", "risotto");
+        words(Category.PEANUTS, "peanut");
+        words(Category.SUGAR, "sugar");
+        words(Category.MILK, "milk", "yogurt", "yoghurt", "cream", "kefir");
+        words(Category.TOFU, "tofu");
+        words(Category.TOMATOES, "tomato");
+        words(Category.LEGUMES, "bean", "lentil", "chickpea", "hummus", "pea");
+        words(Category.WINE, "wine");
+        words(Category.GRAINS, "bread", "bagel", "bun", "baguette", "tortilla", "pasta", "spaghetti", "noodle",
+            "flour", "cereal", "oat", "oatmeal", "cracker", "biscuit", "cookie", "croissant");
+        words(Category.BERRIES, "berry", "strawberry", "blueberry", "raspberry", "blackberry", "grape");
+        words(Category.FRUIT, "pear", "peach", "plum", "melon", "watermelon", "mango", "pineapple", "cherry", "kiwi",
+            "apricot", "avocado", "nectarine");
+        words(Category.PLANT_MILK, "soymilk");
+        words(Category.BANANAS, "banana");
+        words(Category.VEGETABLES, "lettuce", "broccoli", "cabbage", "cauliflower", "onion", "leek", "spinach",
+            "cucumber", "pepper", "courgette", "zucchini", "mushroom", "salad", "kale", "celery", "garlic",
+            "asparagus", "aubergine", "eggplant");
+        words(Category.ROOT_VEGETABLES, "potato", "carrot", "beetroot", "beet", "parsnip", "turnip", "radish");
+        words(Category.APPLES, "apple");
+        words(Category.CITRUS, "orange", "lemon", "lime", "grapefruit", "clementine", "mandarin", "satsuma");
+        words(Category.NUTS, "nut", "almond", "walnut", "cashew", "hazelnut", "pistachio", "pecan");
+
+        PHRASES.put("ice cream", Category.MILK);
+        PHRASES.put("sour cream", Category.MILK);
+        PHRASES.put("peanut butter", Category.PEANUTS);
+        PHRASES.put("soy milk", Category.PLANT_MILK);
+        PHRASES.put("oat milk", Category.PLANT_MILK);
+        PHRASES.put("almond milk", Category.PLANT_MILK);
+        PHRASES.put("coconut milk", Category.PLANT_MILK);
+        PHRASES.put("beef tomato", Category.TOMATOES);
+        PHRASES.put("sweet potato", Category.ROOT_VEGETABLES);
+    }
+
+    // A count (optional) times an amount and unit: "500g", "1.5 kg", "6 x 330ml", "2 lb"
+    private static final Pattern WEIGHT = Pattern.compile(
+        "(?:(\\d+)\\s*[x\\u00d7]\\s*)?(\\d+(?:[.,]\\d+)?)\\s*(kg|g|grams?|l|litres?|liters?|ml|cl|lbs?|oz)\\b",
+        Pattern.CASE_INSENSITIVE);
+
+    private FoodEmissionModel() {
+    }
+
+    /**
+     * Kilograms of CO2e embodied in an item
+     *
+     * @param weightGrams total weight if known, otherwise taken from the name or the
+     *                    typical weight of a unit
+     */
+    static double co2Kg(String name, int quantity, Integer weightGrams) {
+        Category category = classify(name);
+        return weightKg(name, quantity, weightGrams, category) * category.kgCo2PerKg;
+    }
+
+    static Category classify(String name) {
+        if (name == null) {
+            return Category.OTHER;
+        }
+        String[] words = words(name);
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (i > 0) {
+                Category phrase = PHRASES.get(words[i - 1] + " " + words[i]);
+                if (phrase != null) {
+                    return phrase;
+                }
+            }
+            Category category = WORDS.get(words[i]);
+            if (category != null) {
+                return category;
+            }
+        }
+        return Category.OTHER;
+    }
+
+    static double weightKg(String name, int quantity, Integer weightGrams, Category category) {
+        if (weightGrams != null && weightGrams > 0) {
+            return weightGrams / 1000.0;
+        }
+        int units = Math.max(1, quantity);
+        if (name != null) {
+            Matcher matcher = WEIGHT.matcher(name);
+            if (matcher.find()) {
+                double count = matcher.group(1) != null ? Integer.parseInt(matcher.group(1)) : 1;
+                double amount = Double.parseDouble(matcher.group(2).replace(',', '.'));
+                // Liquids are taken as 1 kg per litre
+                return units * count * amount * kilograms(matcher.group(3).toLowerCase());
+            }
+        }
+        return units * category.typicalUnitKg;
+    }
+
+    private static double kilograms(String unit) {
+        switch (unit) {
+            case "kg":
+            case "l":
+            case "litre":
+            case "litres":
+            case "liter":
+            case "liters":
+                return 1;
+            case "cl":
+                return 0.01;
+            case "lb":
+            case "lbs":
+                return 0.4536;
+            case "oz":
+                return 0.02835;
+            default:
+                // g, gram, grams, ml
+                return 0.001;
+        }
+    }
+
+    // Lower-case words of letters only, each reduced to its singular form if that is known
+    private static String[] words(String name) {
+        String[] words = new String[8];
+        int count = 0;
+        int length = name.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetter(name.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetter(name.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (count == words.length) {
+                    words = Arrays.copyOf(words, count * 2);
+                }
+                words[count++] = singular(name.substring(start, i).toLowerCase());
+            }
+        }
+        return Arrays.copyOf(words, count);
+    }
+
+    private static String singular(String word) {
+        if (WORDS.containsKey(word) || word.length() < 4) {
+            return word;
+        }
+        if (word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.endsWith("oes") || word.endsWith("ches") || word.endsWith("shes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    private static void words(Category category, String... words) {
+        for (String word : words) {
+            WORDS.put(word, category);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.FridgeSyncState;
+import com.groceriesapp.model.Household;
+import com.groceriesapp.model.Item;
+import com.groceriesapp.model.User;
+import com.groceriesapp.model.ml.ExpirationPrediction;
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.repository.ItemRepository;
+import com.groceriesapp.service.SmartFridgeIntegrationService.FridgeItem;
+import com.groceriesapp.service.ml.ExpirationPredictionService;
+import com.groceriesapp.service.ml.ExpirationPredictionService.PredictionInput;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reconciles the inventory a smart fridge reports with the household's items.
+ *
+ * Fridge items are keyed by normalised name and storage location, and the reported
+ * inventory is fingerprinted with an order-independent hash. A sync whose fingerprint
+ * matches the last applied one returns without touching the items table. Otherwise the
+ * items the sync manages for that fridge are loaded once and only the difference is
+ * written: new items are inserted with expiration dates predicted in one batch from the
+ * fridge's telemetry, items no longer reported are deleted in one statement, and only
+ * items whose quantity changed are updated. When a fridge is linked to another
+ * household, the items it added to the previous one are deleted. Items added by hand
+ * are never touched.
+ */
+@Service
+public class FridgeInventorySyncService {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ItemRepository itemRepository;
+    private final FridgeSyncStateRepository fridgeSyncStateRepository;
+    private final ExpirationPredictionService expirationPredictionService;
+
+    // Last applied fingerprint per device, so an unchanged sync needs no query at all
+    private final Map<String, Fingerprint> applied = new ConcurrentHashMap<>();
+
+    public FridgeInventorySyncService(ItemRepository itemRepository,
+                                      FridgeSyncStateRepository fridgeSyncStateRepository,
+                                      ExpirationPredictionService expirationPredictionService) {
+        this.itemRepository = itemRepository;
+        this.fridgeSyncStateRepository = fridgeSyncStateRepository;
+        this.expirationPredictionService = expirationPredictionService;
+    }
+
+    /**
+     * Apply a fridge's reported inventory to its household's items.
+     *
+     * @param addedBy recorded as the creator of items the fridge adds
+     */
+    @Transactional
+    public SyncDiff sync(String deviceId, Household household, User addedBy, List<FridgeItem> inventory) {
+        Map<String, Entry> reported = aggregate(inventory);
+        Fingerprint fingerprint = new Fingerprint(household.getId(), hash(reported));
+        Fingerprint last = lastApplied(deviceId);
+        if (fingerprint.equals(last)) {
+            return new SyncDiff(true, 0, 0, 0, reported.size());
+        }
+        // Relinked: what the fridge reported is no longer in the old household's kitchen
+        if (last != null && !last.householdId().equals(household.getId())) {
+            itemRepository.deleteFridgeItems(last.householdId(), deviceId);
+        }
+
+        List<Item> stored = itemRepository.findByHouseholdIdAndFridgeDeviceId(household.getId(), deviceId);
+        List<Item> removed = new ArrayList<>();
+        List<Item> changed = new ArrayList<>();
+        Map<String, Entry> added = new HashMap<>(reported);
+        for (Item item : stored) {
+            Entry entry = added.remove(key(item.getName(), item.getStorageLocation()));
+            if (entry == null) {
+                removed.add(item);
+            } else if (entry.quantity != item.getQuantity()) {
+                item.setQuantity(entry.quantity);
+                changed.add(item);
+            }
+        }
+
+        List<Item> created = createItems(deviceId, household, addedBy, new ArrayList<>(added.values()));
+        if (!removed.isEmpty()) {
+            itemRepository.deleteAllInBatch(removed);
+        }
+        changed.addAll(created);
+        if (!changed.isEmpty()) {
+            itemRepository.saveAll(changed);
+        }
+
+        FridgeSyncState state = new FridgeSyncState();
+        state.setDeviceId(deviceId);
+        state.setHouseholdId(household.getId());
+        state.setInventoryHash(fingerprint.hash);
+        state.setItemCount(reported.size());
+        state.setSyncedAt(LocalDateTime.now());
+        fridgeSyncStateRepository.save(state);
+        remember(deviceId, fingerprint);
+
+        return new SyncDiff(false, created.size(), removed.size(), changed.size() - created.size(), reported.size());
+    }
+
+    /**
+     * Forget a device's fingerprint, so its next sync is compared item by item
+     */
+    public void invalidate(String deviceId) {
+        applied.remove(deviceId);
+    }
+
+    private Fingerprint lastApplied(String deviceId) {
+        Fingerprint fingerprint = applied.get(deviceId);
+        if (fingerprint == null) {
+            fingerprint = fridgeSyncStateRepository.findById(deviceId)
+                .map(state -> new Fingerprint(state.getHouseholdId(), state.getInventoryHash()))
+                .orElse(null);
+            if (fingerprint != null) {
+                applied.put(deviceId, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    private void remember(String deviceId, Fingerprint fingerprint) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applied.put(deviceId, fingerprint);
+            return;
+        }
+        // Only once the diff is committed; after a rollback the next sync must diff again
+        applied.remove(deviceId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applied.put(deviceId, fingerprint);
+            }
+        });
+    }
+
+    private List<Item> createItems(String deviceId, Household household, User addedBy, List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        LocalDate today = LocalDate.now();
+        List<PredictionInput> inputs = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            PredictionInput input = new PredictionInput();
+            input.setCategory(expirationPredictionService.categorize(entry.name));
+            input.setStorageLocation(entry.location.toLowerCase(Locale.ROOT).contains("freez") ? "FREEZER" : "FRIDGE");
+            input.setPurchaseDate(today);
+            inputs.add(input);
+        }
+        List<ExpirationPrediction> predictions = expirationPredictionService.predictExpirationDates(inputs, deviceId);
+
+        List<Item> items = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            Item item = new Item();
+            item.setName(entry.name);
+            item.setQuantity(entry.quantity);
+            item.setStorageLocation(entry.location);
+            item.setBarcode(entry.barcode);
+            // The fridge reports no printed dates, so the prediction stands in for one
+            item.setExpirationDate(predictions.get(i).getPredictedExpirationDate());
+            item.setPredictedExpirationDate(predictions.get(i).getPredictedExpirationDate());
+            item.setHousehold(household);
+            item.setAddedBy(addedBy);
+            item.setFridgeDeviceId(deviceId);
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Reported items by key, with the quantities of repeated items added up
+     */
+    static Map<String, Entry> aggregate(List<FridgeItem> inventory) {
+        Map<String, Entry> entries = new TreeMap<>();
+        for (FridgeItem fridgeItem : inventory) {
+            if (fridgeItem.getName() == null || fridgeItem.getName().isBlank()) {
+                continue;
+            }
+            String name = fridgeItem.getName().trim();
+            String location = fridgeItem.getLocation() != null && !fridgeItem.getLocation().isBlank()
+                ? fridgeItem.getLocation().trim() : "Fridge";
+            int quantity = fridgeItem.getQuantity() != null ? fridgeItem.getQuantity() : 1;
+            Entry entry = entries.computeIfAbsent(key(name, location), k -> new Entry(name, location, fridgeItem.getBarcode()));
+            entry.quantity += quantity;
+        }
+        return entries;
+    }
+
+    /**
+     * 64-bit FNV-1a over the keys and quantities in key order
+     */
+    static long hash(Map<String, Entry> entries) {
+        long hash = FNV_OFFSET;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            for (byte b : entry.getKey().getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+            int quantity = entry.getValue().quantity;
+            for (int shift = 0; shift < 32; shift += 8) {
+                hash = (hash ^ ((quantity >>> shift) & 0xff)) * FNV_PRIME;
+            }
+            // Entry separator, so different splits of the same bytes hash differently
+            hash = (hash ^ 0xff) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static String key(String name, String location) {
+        String normalizedLocation = location != null ? location.trim().toLowerCase(Locale.ROOT) : "fridge";
+        return name.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ") + "|" + normalizedLocation;
+    }
+
+    static final class Entry {
+        final String name;
+        final String location;
+        final String barcode;
+        int quantity;
+
+        Entry(String name, String location, String barcode) {
+            this.name = name;
+            this.location = location;
+            this.barcode = barcode;
+        }
+    }
+
+    private record Fingerprint(Long householdId, long hash) {
+    }
+
+    /**
+     * What a sync changed; unchanged when the inventory matched the last applied one
+     */
+    public static class SyncDiff {
+        private final boolean unchanged;
+        private final int added;
+        private final int removed;
+        private final int updated;
+        private final int itemCount;
+
+        public SyncDiff(boolean unchanged, int added, int removed, int updated, int itemCount) {
+            this.unchanged = unchanged;
+            this.added = added;
+            this.removed = removed;
+            this.updated = updated;
+            this.itemCount = itemCount;
+        }
+
+        public boolean isUnchanged() { return unchanged; }
+        public int getAdded() { return added; }
+        public int getRemoved() { return removed; }
+        public int getUpdated() { return updated; }
+        public int getItemCount() { return itemCount; }
+    }
+}
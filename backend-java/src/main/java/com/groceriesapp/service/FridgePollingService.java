@@ -0,0 +1,424 @@
+package com.groceriesapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.groceriesapp.service.FridgeTelemetryService.EventType;
+import com.groceriesapp.service.SmartFridgeIntegrationService.FridgeBrand;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Polls connected smart fridges for telemetry and feeds it to FridgeTelemetryService.
+ *
+ * Every device has its own schedule. Polls are non-blocking requests on the shared
+ * UpstreamHttpClient, so thousands can be in flight while one thread does the
+ * scheduling. Each brand's cloud has a token-bucket rate limit; a poll that finds no
+ * token is deferred until one is due rather than waiting. The interval adapts to the
+ * fridge: it drops to the minimum after door openings and stretches towards the
+ * maximum while the fridge is idle. Failed polls back off exponentially. All delays
+ * are jittered so devices registered together do not poll together.
+ *
+ * Each brand is polled at {@code <fridge.poller.<brand>.url>/devices/<id>/telemetry},
+ * which answers {@code {"temperature": .., "humidity": .., "doorOpenCount": ..}}, the
+ * door count being the device's running total.
+ */
+@Service
+public class FridgePollingService {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final double JITTER = 0.2;
+    private static final double IDLE_GROWTH = 1.5;
+    // Door openings recorded from one poll, in case a device resets its counter oddly
+    private static final int MAX_DOOR_OPENS_PER_POLL = 100;
+
+    private final UpstreamHttpClient http;
+    private final FridgeTelemetryService fridgeTelemetryService;
+    private final long minIntervalMillis;
+    private final long initialIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long maxBackoffMillis;
+    private final Duration timeout;
+    private final Map<FridgeBrand, String> baseUrls = new EnumMap<>(FridgeBrand.class);
+    private final Map<FridgeBrand, TokenBucket> limiters = new EnumMap<>(FridgeBrand.class);
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    private final Map<FridgeBrand, LongAdder> pollsByBrand = new EnumMap<>(FridgeBrand.class);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final PollRate pollRate = new PollRate();
+
+    public FridgePollingService(UpstreamHttpClient http,
+                                FridgeTelemetryService fridgeTelemetryService,
+                                Environment environment,
+                                @Value("${fridge.poller.min-interval-ms:15000}") long minIntervalMillis,
+                                @Value("${fridge.poller.interval-ms:60000}") long initialIntervalMillis,
+                                @Value("${fridge.poller.max-interval-ms:600000}") long maxIntervalMillis,
+                                @Value("${fridge.poller.max-backoff-ms:1800000}") long maxBackoffMillis,
+                                @Value("${fridge.poller.timeout-ms:5000}") long timeoutMillis,
+                                @Value("${fridge.poller.rate-per-second:50}") double ratePerSecond) {
+        this.http = http;
+        this.fridgeTelemetryService = fridgeTelemetryService;
+        this.minIntervalMillis = minIntervalMillis;
+        this.initialIntervalMillis = initialIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        for (FridgeBrand brand : FridgeBrand.values()) {
+            String prefix = "fridge.poller." + brand.name().toLowerCase() + ".";
+            baseUrls.put(brand, environment.getProperty(prefix + "url", brand.getApiEndpoint()));
+            limiters.put(brand, new TokenBucket(environment.getProperty(prefix + "rate-per-second", Double.class, ratePerSecond)));
+            pollsByBrand.put(brand, new LongAdder());
+        }
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "fridge-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+    }
+
+    /**
+     * Start polling a device; its first poll is at a random point within the initial
+     * interval. Registering a device again replaces its credentials and schedule.
+     */
+    public void register(FridgeBrand brand, String deviceId, String apiKey) {
+        if (!fridgeTelemetryService.addDevice(deviceId)) {
+            System.err.println("Fridge telemetry is full, readings of " + deviceId + " will be dropped");
+        }
+        Device device = new Device(deviceId, brand, apiKey, initialIntervalMillis);
+        Device previous = devices.put(deviceId, device);
+        if (previous != null) {
+            previous.stop();
+        }
+        schedule(device, ThreadLocalRandom.current().nextLong(Math.max(1, initialIntervalMillis)));
+    }
+
+    /**
+     * Stop polling a device
+     *
+     * @return false if it was not being polled
+     */
+    public boolean unregister(String deviceId) {
+        Device device = devices.remove(deviceId);
+        if (device == null) {
+            return false;
+        }
+        device.stop();
+        return true;
+    }
+
+    public PollerStats getStats() {
+        long now = System.currentTimeMillis();
+        long[] staleness = devices.values().stream()
+            .mapToLong(device -> now - (device.lastSuccessAt > 0 ? device.lastSuccessAt : device.registeredAt))
+            .sorted()
+            .toArray();
+        Map<String, Long> byBrand = new LinkedHashMap<>();
+        long polls = 0;
+        for (Map.Entry<FridgeBrand, LongAdder> entry : pollsByBrand.entrySet()) {
+            long count = entry.getValue().sum();
+            polls += count;
+            if (count > 0) {
+                byBrand.put(entry.getKey().name(), count);
+            }
+        }
+        return new PollerStats(staleness.length, polls, failures.sum(), deferred.sum(), pollRate.perSecond(now),
+            percentile(staleness, 0.5), percentile(staleness, 0.99),
+            staleness.length > 0 ? staleness[staleness.length - 1] : 0, byBrand);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Poll a device once, outside its schedule, and return the delay its schedule would
+     * use next
+     */
+    CompletableFuture<Long> pollOnce(String deviceId) {
+        Device device = devices.get(deviceId);
+        if (device == null) {
+            return CompletableFuture.failedFuture(new RuntimeException("Device not registered: " + deviceId));
+        }
+        return poll(device);
+    }
+
+    /**
+     * Current (unjittered) interval of a device, or -1 if it is not registered
+     */
+    long getInterval(String deviceId) {
+        Device device = devices.get(deviceId);
+        return device != null ? device.intervalMillis : -1;
+    }
+
+    private void schedule(Device device, long delayMillis) {
+        if (!device.active || scheduler.isShutdown()) {
+            return;
+        }
+        device.next = scheduler.schedule(() -> run(device), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(Device device) {
+        if (!device.active) {
+            return;
+        }
+        long waitNanos = limiters.get(device.brand).tryAcquire(System.nanoTime());
+        if (waitNanos > 0) {
+            deferred.increment();
+            schedule(device, jitter(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos))));
+            return;
+        }
+        poll(device).whenComplete((delay, error) -> schedule(device, delay != null ? delay : device.intervalMillis));
+    }
+
+    private CompletableFuture<Long> poll(Device device) {
+        String url = baseUrls.get(device.brand) + "/devices/"
+            + URLEncoder.encode(device.deviceId, StandardCharsets.UTF_8) + "/telemetry";
+        Map<String, String> headers = device.apiKey != null ? Map.of("Authorization", "Bearer " + device.apiKey) : Map.of();
+        return http.getAsync(url, headers, timeout, FridgePollingService::read)
+            .handle((reading, error) -> error == null ? onSuccess(device, reading) : onFailure(device, error));
+    }
+
+    private long onSuccess(Device device, Reading reading) {
+        long now = System.currentTimeMillis();
+        pollsByBrand.get(device.brand).increment();
+        pollRate.increment(now);
+
+        long timestamp = reading.timestamp > 0 ? reading.timestamp : now;
+        if (reading.temperature != null) {
+            fridgeTelemetryService.record(device.deviceId, EventType.TEMPERATURE, reading.temperature, timestamp);
+        }
+        if (reading.humidity != null) {
+            fridgeTelemetryService.record(device.deviceId, EventType.HUMIDITY, reading.humidity, timestamp);
+        }
+        int doorOpens = 0;
+        if (reading.doorOpenCount != null) {
+            if (device.doorOpenCount >= 0) {
+                // A smaller total means the device restarted its count
+                long delta = reading.doorOpenCount >= device.doorOpenCount
+                    ? reading.doorOpenCount - device.doorOpenCount : reading.doorOpenCount;
+                doorOpens = (int) Math.min(delta, MAX_DOOR_OPENS_PER_POLL);
+            }
+            device.doorOpenCount = reading.doorOpenCount;
+        }
+        for (int i = 0; i < doorOpens; i++) {
+            fridgeTelemetryService.record(device.deviceId, EventType.DOOR_OPEN, 0, timestamp);
+        }
+
+        device.failures = 0;
+        device.lastSuccessAt = now;
+        device.intervalMillis = doorOpens > 0
+            ? minIntervalMillis
+            : Math.min(maxIntervalMillis, Math.max(minIntervalMillis, (long) (device.intervalMillis * IDLE_GROWTH)));
+        return jitter(device.intervalMillis);
+    }
+
+    private long onFailure(Device device, Throwable error) {
+        failures.increment();
+        device.failures++;
+        if (device.failures == 1 || device.failures % 10 == 0) {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            System.err.println("Polling " + device.brand + " fridge " + device.deviceId + " failed ("
+                + device.failures + " in a row): " + cause.getMessage());
+        }
+        long backoff = device.intervalMillis << Math.min(device.failures, 20);
+        return jitter(Math.min(maxBackoffMillis, backoff));
+    }
+
+    private static long jitter(long delayMillis) {
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return Math.max(1, (long) (delayMillis * factor));
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static Reading read(int status, InputStream body) throws IOException {
+        if (status / 100 != 2) {
+            throw new IOException("Fridge API answered HTTP " + status);
+        }
+        Reading reading = new Reading();
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected fridge telemetry response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                boolean number = value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT;
+                switch (field) {
+                    case "temperature" -> reading.temperature = number ? parser.getDoubleValue() : null;
+                    case "humidity" -> reading.humidity = number ? parser.getDoubleValue() : null;
+                    case "doorOpenCount" -> reading.doorOpenCount = number ? parser.getLongValue() : null;
+                    case "timestamp" -> reading.timestamp = number ? parser.getLongValue() : 0;
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return reading;
+    }
+
+    private static final class Reading {
+        Double temperature;
+        Double humidity;
+        Long doorOpenCount;
+        long timestamp;
+    }
+
+    /**
+     * Polling state of one device. Only one poll of a device is in flight at a time, so
+     * its fields are written by one thread at a time.
+     */
+    private static final class Device {
+        final String deviceId;
+        final FridgeBrand brand;
+        final String apiKey;
+        final long registeredAt = System.currentTimeMillis();
+        volatile boolean active = true;
+        volatile long intervalMillis;
+        volatile int failures;
+        volatile long doorOpenCount = -1;
+        volatile long lastSuccessAt;
+        volatile ScheduledFuture<?> next;
+
+        Device(String deviceId, FridgeBrand brand, String apiKey, long intervalMillis) {
+            this.deviceId = deviceId;
+            this.brand = brand;
+            this.apiKey = apiKey;
+            this.intervalMillis = intervalMillis;
+        }
+
+        void stop() {
+            active = false;
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Token bucket holding up to one second of requests
+     */
+    static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(double ratePerSecond) {
+            this.tokensPerNano = ratePerSecond / 1e9;
+            this.capacity = Math.max(1, ratePerSecond);
+            this.tokens = capacity;
+        }
+
+        /**
+         * Take a token: 0 if one was available, else the nanoseconds until one is
+         */
+        synchronized long tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+
+    /**
+     * Successful polls per second over the last minute, in one-second slots
+     */
+    private static final class PollRate {
+        private final long[] seconds = new long[60];
+        private final long[] counts = new long[60];
+        private final long startedAt = System.currentTimeMillis();
+
+        synchronized void increment(long now) {
+            long second = now / 1000;
+            int slot = (int) (second % seconds.length);
+            if (seconds[slot] != second) {
+                seconds[slot] = second;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+        synchronized double perSecond(long now) {
+            long second = now / 1000;
+            long total = 0;
+            for (int slot = 0; slot < seconds.length; slot++) {
+                // Completed seconds only
+                if (seconds[slot] < second && seconds[slot] >= second - seconds.length) {
+                    total += counts[slot];
+                }
+            }
+            long window = Math.min(seconds.length, Math.max(1, second - startedAt / 1000));
+            return (double) total / window;
+        }
+    }
+
+    public static class PollerStats {
+        private final int devices;
+        private final long polls;
+        private final long failures;
+        private final long deferred;
+        private final double pollsPerSecond;
+        private final long stalenessP50Millis;
+        private final long stalenessP99Millis;
+        private final long stalenessMaxMillis;
+        private final Map<String, Long> pollsByBrand;
+
+        public PollerStats(int devices, long polls, long failures, long deferred, double pollsPerSecond,
+                           long stalenessP50Millis, long stalenessP99Millis, long stalenessMaxMillis,
+                           Map<String, Long> pollsByBrand) {
+            this.devices = devices;
+            this.polls = polls;
+            this.failures = failures;
+            this.deferred = deferred;
+            this.pollsPerSecond = pollsPerSecond;
+            this.stalenessP50Millis = stalenessP50Millis;
+            this.stalenessP99Millis = stalenessP99Millis;
+            this.stalenessMaxMillis = stalenessMaxMillis;
+            this.pollsByBrand = pollsByBrand;
+        }
+
+        public int getDevices() { return devices; }
+        public long getPolls() { return polls; }
+        public long getFailures() { return failures; }
+        public long getDeferred() { return deferred; }
+        public double getPollsPerSecond() { return pollsPerSecond; }
+        public long getStalenessP50Millis() { return stalenessP50Millis; }
+        public long getStalenessP99Millis() { return stalenessP99Millis; }
+        public long getStalenessMaxMillis() { return stalenessMaxMillis; }
+        public Map<String, Long> getPollsByBrand() { return pollsByBrand; }
+    }
+}
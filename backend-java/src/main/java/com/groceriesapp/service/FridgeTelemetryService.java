@@ -0,0 +1,604 @@
+package com.groceriesapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.service.ml.ExpirationPredictionService.PredictionInput;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Smart-fridge telemetry: temperature, humidity and door-open events per device.
+ *
+ * Events are queued in a lock-free ring buffer, so devices reporting every few seconds
+ * never wait on aggregation or disk. A drain folds them into per-device 1-minute,
+ * 1-hour and 1-day buckets (min/max/avg, sample and door-open counts) and appends each
+ * bucket to the TelemetryStore once it closes. The last 24 closed hours are also kept
+ * in memory, so the rolling windows the expiration predictions use are answered
+ * without reading the files.
+ *
+ * Buckets are aligned to UTC. An event older than its device's open bucket is counted
+ * in the open bucket rather than reopening a stored one. Device clocks are not trusted:
+ * an event stamped further ahead than the allowed skew, or further back than the allowed
+ * lateness, is taken to have happened when it arrived, so one bad clock cannot hold a
+ * bucket open.
+ *
+ * Only known devices get one of the max-devices slots: those added by the poller and
+ * those linked to a household in fridge_sync_state. Events from any other id are
+ * dropped, so anyone able to post telemetry cannot fill the table with made-up ids.
+ */
+@Service
+public class FridgeTelemetryService {
+
+    private static final int HISTORY_HOURS = 24;
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    private final TelemetryRingBuffer buffer;
+    private final TelemetryStore store;
+    private final FridgeSyncStateRepository fridgeSyncStateRepository;
+    private final int maxDevices;
+    private final Duration predictionWindow;
+    private final long maxClockSkewMillis;
+    private final long maxLatenessMillis;
+
+    private final Map<String, Integer> deviceIndexes = new ConcurrentHashMap<>();
+    // Ids found not to be linked, so repeated events from them do not query each time
+    private final Cache<String, Boolean> unknownDevices = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(Duration.ofMinutes(1))
+        .build();
+    private final List<String> deviceIds = new ArrayList<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final List<TelemetryListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Aggregation state, guarded by this
+    private final Buckets[] buckets = {
+        new Buckets(Resolution.MINUTE), new Buckets(Resolution.HOUR), new Buckets(Resolution.DAY)
+    };
+    private final HourHistory history = new HourHistory();
+    private float[] latestTemperature = new float[0];
+    private float[] latestHumidity = new float[0];
+    private long[] lastEventAt = new long[0];
+    private int trackedDevices;
+    private List<Aggregate> closed = new ArrayList<>();
+
+    public FridgeTelemetryService(FridgeSyncStateRepository fridgeSyncStateRepository,
+                                  @Value("${fridge.telemetry.dir:${java.io.tmpdir}/groceries-fridge-telemetry}") String directory,
+                                  @Value("${fridge.telemetry.buffer-capacity:1048576}") int bufferCapacity,
+                                  @Value("${fridge.telemetry.max-devices:100000}") int maxDevices,
+                                  @Value("${fridge.telemetry.prediction-window-hours:24}") int predictionWindowHours,
+                                  @Value("${fridge.telemetry.max-clock-skew-ms:60000}") long maxClockSkewMillis,
+                                  @Value("${fridge.telemetry.max-lateness-ms:86400000}") long maxLatenessMillis) {
+        this.buffer = new TelemetryRingBuffer(bufferCapacity);
+        this.store = new TelemetryStore(Path.of(directory));
+        this.fridgeSyncStateRepository = fridgeSyncStateRepository;
+        this.maxDevices = maxDevices;
+        this.predictionWindow = Duration.ofHours(Math.min(predictionWindowHours, HISTORY_HOURS));
+        this.maxClockSkewMillis = maxClockSkewMillis;
+        this.maxLatenessMillis = maxLatenessMillis;
+    }
+
+    /**
+     * Queue one event from a device without blocking. The first event from a device not
+     * added yet looks it up in fridge_sync_state.
+     *
+     * @param value degrees Celsius or percent relative humidity; ignored for door openings
+     * @param timestampMillis the device's time of the event; replaced by the arrival time
+     *        if outside the allowed clock skew and lateness
+     * @return false if the event was dropped because the buffer is full, the device is
+     *         unknown or too many devices are reporting
+     */
+    public boolean record(String deviceId, EventType type, double value, long timestampMillis) {
+        long now = System.currentTimeMillis();
+        if (timestampMillis - now > maxClockSkewMillis || now - timestampMillis > maxLatenessMillis) {
+            timestampMillis = now;
+        }
+        int device = deviceIndex(deviceId);
+        if (device < 0 || !buffer.offer(device, (byte) type.ordinal(), (float) value, timestampMillis)) {
+            dropped.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * Fold queued events into the buckets and store the buckets that have closed,
+     * including those whose period ended without further events.
+     */
+    @Scheduled(fixedDelayString = "${fridge.telemetry.drain-interval-ms:1000}")
+    public void drain() {
+        flush(System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Store the buckets still open too, so a restart loses nothing queued
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush(System.currentTimeMillis(), true);
+    }
+
+    void flush(long now, boolean closeAll) {
+        List<Aggregate> toStore;
+        synchronized (this) {
+            buffer.drain(this::apply);
+            for (Buckets bucket : buckets) {
+                for (int device = 0; device < trackedDevices; device++) {
+                    if (!bucket.isEmpty(device) && (closeAll || bucket.start[device] + bucket.resolution.millis <= now)) {
+                        close(bucket, device);
+                    }
+                }
+            }
+            toStore = closed;
+            closed = new ArrayList<>();
+        }
+        if (toStore.isEmpty()) {
+            return;
+        }
+        try {
+            store.append(toStore);
+        } catch (IOException e) {
+            System.err.println("Failed to store " + toStore.size() + " fridge telemetry aggregates: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stored aggregates of a device whose buckets start in [from, to), oldest first.
+     * Buckets still open are not included.
+     */
+    public List<Aggregate> getAggregates(String deviceId, Resolution resolution, Instant from, Instant to) {
+        try {
+            return store.read(deviceId, resolution, from.toEpochMilli(), to.toEpochMilli());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read fridge telemetry for " + deviceId, e);
+        }
+    }
+
+    /**
+     * Averages and door openings of a device over the last hours (at most 24), from the
+     * drained events; the hour in progress counts as a whole hour
+     */
+    public synchronized EnvironmentWindow getWindow(String deviceId, Duration window) {
+        Integer device = deviceIndexes.get(deviceId);
+        if (device == null || device >= trackedDevices) {
+            return new EnvironmentWindow(deviceId);
+        }
+
+        EnvironmentWindow result = new EnvironmentWindow(deviceId);
+        Buckets current = buckets[1];
+        long hours = Math.max(1, Math.min(HISTORY_HOURS, (window.toMinutes() + 59) / 60));
+        long firstHour = Resolution.HOUR.floor(System.currentTimeMillis()) / Resolution.HOUR.millis - hours + 1;
+        if (!current.isEmpty(device) && current.start[device] / Resolution.HOUR.millis >= firstHour) {
+            result.add(current.tSum[device], current.tCount[device], current.hSum[device], current.hCount[device],
+                current.doors[device]);
+        }
+        history.addTo(result, device, firstHour);
+
+        result.latestTemperature = Float.isNaN(latestTemperature[device]) ? null : (double) latestTemperature[device];
+        result.latestHumidity = Float.isNaN(latestHumidity[device]) ? null : (double) latestHumidity[device];
+        result.lastUpdated = lastEventAt[device] > 0 ? new Date(lastEventAt[device]) : null;
+        return result;
+    }
+
+    /**
+     * Fill the environmental inputs of a prediction from the fridge's rolling window.
+     * Inputs the device has no readings for are left as they are.
+     */
+    public void applyEnvironment(PredictionInput input, String deviceId) {
+        EnvironmentWindow window = getWindow(deviceId, predictionWindow);
+        if (window.getTemperatureAvg() != null) {
+            input.setTemperatureAvg(window.getTemperatureAvg());
+        }
+        if (window.getHumidityAvg() != null) {
+            input.setHumidityAvg(window.getHumidityAvg());
+        }
+        if (window.getLastUpdated() != null) {
+            input.setOpenCount(window.getDoorOpens());
+        }
+    }
+
+    public TelemetryStats getStats() {
+        int devices;
+        synchronized (deviceIds) {
+            devices = deviceIds.size();
+        }
+        return new TelemetryStats(accepted.sum(), dropped.sum(), buffer.size(), devices);
+    }
+
+    /**
+     * Have a listener see every temperature reading as it is drained
+     */
+    void addListener(TelemetryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Accept events from a device, e.g. one the poller was asked to poll
+     *
+     * @return false if too many devices are reporting
+     */
+    public boolean addDevice(String deviceId) {
+        return deviceIndexes.computeIfAbsent(deviceId, this::register) != null;
+    }
+
+    private int deviceIndex(String deviceId) {
+        Integer index = deviceIndexes.get(deviceId);
+        if (index == null && isLinked(deviceId)) {
+            index = deviceIndexes.computeIfAbsent(deviceId, this::register);
+        }
+        return index != null ? index : -1;
+    }
+
+    private boolean isLinked(String deviceId) {
+        if (unknownDevices.getIfPresent(deviceId) != null) {
+            return false;
+        }
+        try {
+            if (fridgeSyncStateRepository.existsById(deviceId)) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to look up fridge " + deviceId + ": " + e.getMessage());
+            return false;
+        }
+        unknownDevices.put(deviceId, Boolean.TRUE);
+        return false;
+    }
+
+    private Integer register(String deviceId) {
+        synchronized (deviceIds) {
+            if (deviceIds.size() >= maxDevices) {
+                // Not mapped, so the map cannot grow past the table either
+                return null;
+            }
+            deviceIds.add(deviceId);
+            return deviceIds.size() - 1;
+        }
+    }
+
+    String deviceId(int device) {
+        synchronized (deviceIds) {
+            return deviceIds.get(device);
+        }
+    }
+
+    private void apply(int device, byte type, float value, long timestamp) {
+        if (device >= trackedDevices) {
+            track(device + 1);
+        }
+        EventType eventType = EVENT_TYPES[type];
+        if (eventType == EventType.TEMPERATURE) {
+            latestTemperature[device] = value;
+            for (TelemetryListener listener : listeners) {
+                listener.onTemperature(device, value, timestamp);
+            }
+        } else if (eventType == EventType.HUMIDITY) {
+            latestHumidity[device] = value;
+        }
+        lastEventAt[device] = Math.max(lastEventAt[device], timestamp);
+
+        for (Buckets bucket : buckets) {
+            long start = bucket.resolution.floor(timestamp);
+            if (start > bucket.start[device]) {
+                if (!bucket.isEmpty(device)) {
+                    close(bucket, device);
+                }
+                bucket.start[device] = start;
+            }
+            bucket.add(device, eventType, value);
+        }
+    }
+
+    private void close(Buckets bucket, int device) {
+        closed.add(bucket.toAggregate(device, deviceId(device)));
+        if (bucket.resolution == Resolution.HOUR) {
+            history.put(device, bucket);
+        }
+        bucket.clear(device);
+    }
+
+    private void track(int devices) {
+        int previous = latestTemperature.length;
+        if (devices > previous) {
+            int capacity = Math.max(devices, Math.max(16, previous * 2));
+            for (Buckets bucket : buckets) {
+                bucket.grow(capacity);
+            }
+            history.grow(capacity);
+            latestTemperature = Arrays.copyOf(latestTemperature, capacity);
+            latestHumidity = Arrays.copyOf(latestHumidity, capacity);
+            lastEventAt = Arrays.copyOf(lastEventAt, capacity);
+            Arrays.fill(latestTemperature, previous, capacity, Float.NaN);
+            Arrays.fill(latestHumidity, previous, capacity, Float.NaN);
+        }
+        trackedDevices = devices;
+    }
+
+    /**
+     * Sees readings on the draining thread while the aggregation lock is held, so it
+     * must be quick and must not call back into this service
+     */
+    interface TelemetryListener {
+        void onTemperature(int device, float celsius, long timestampMillis);
+    }
+
+    public enum EventType {
+        TEMPERATURE, HUMIDITY, DOOR_OPEN
+    }
+
+    public enum Resolution {
+        MINUTE(60_000L), HOUR(3_600_000L), DAY(86_400_000L);
+
+        private final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() { return millis; }
+
+        long floor(long timestamp) {
+            return Math.floorDiv(timestamp, millis) * millis;
+        }
+    }
+
+    /**
+     * Open buckets of one resolution, one slot per device
+     */
+    private static final class Buckets {
+        final Resolution resolution;
+        long[] start = new long[0];
+        float[] tMin = new float[0];
+        float[] tMax = new float[0];
+        double[] tSum = new double[0];
+        int[] tCount = new int[0];
+        float[] hMin = new float[0];
+        float[] hMax = new float[0];
+        double[] hSum = new double[0];
+        int[] hCount = new int[0];
+        int[] doors = new int[0];
+
+        Buckets(Resolution resolution) {
+            this.resolution = resolution;
+        }
+
+        void grow(int capacity) {
+            start = Arrays.copyOf(start, capacity);
+            tMin = Arrays.copyOf(tMin, capacity);
+            tMax = Arrays.copyOf(tMax, capacity);
+            tSum = Arrays.copyOf(tSum, capacity);
+            tCount = Arrays.copyOf(tCount, capacity);
+            hMin = Arrays.copyOf(hMin, capacity);
+            hMax = Arrays.copyOf(hMax, capacity);
+            hSum = Arrays.copyOf(hSum, capacity);
+            hCount = Arrays.copyOf(hCount, capacity);
+            doors = Arrays.copyOf(doors, capacity);
+        }
+
+        boolean isEmpty(int device) {
+            return tCount[device] == 0 && hCount[device] == 0 && doors[device] == 0;
+        }
+
+        void add(int device, EventType type, float value) {
+            switch (type) {
+                case TEMPERATURE -> {
+                    tMin[device] = tCount[device] == 0 ? value : Math.min(tMin[device], value);
+                    tMax[device] = tCount[device] == 0 ? value : Math.max(tMax[device], value);
+                    tSum[device] += value;
+                    tCount[device]++;
+                }
+                case HUMIDITY -> {
+                    hMin[device] = hCount[device] == 0 ? value : Math.min(hMin[device], value);
+                    hMax[device] = hCount[device] == 0 ? value : Math.max(hMax[device], value);
+                    hSum[device] += value;
+                    hCount[device]++;
+                }
+                case DOOR_OPEN -> doors[device]++;
+            }
+        }
+
+        Aggregate toAggregate(int device, String deviceId) {
+            return new Aggregate(deviceId, resolution, start[device],
+                tCount[device], tMin[device], tMax[device], tCount[device] > 0 ? tSum[device] / tCount[device] : 0,
+                hCount[device], hMin[device], hMax[device], hCount[device] > 0 ? hSum[device] / hCount[device] : 0,
+                doors[device]);
+        }
+
+        void clear(int device) {
+            tSum[device] = 0;
+            tCount[device] = 0;
+            hSum[device] = 0;
+            hCount[device] = 0;
+            doors[device] = 0;
+        }
+    }
+
+    /**
+     * Sums of the last closed hours of every device, in 24 slots by hour of day
+     */
+    private static final class HourHistory {
+        long[] hour = new long[0];
+        double[] tSum = new double[0];
+        int[] tCount = new int[0];
+        double[] hSum = new double[0];
+        int[] hCount = new int[0];
+        int[] doors = new int[0];
+
+        void grow(int devices) {
+            int capacity = devices * HISTORY_HOURS;
+            hour = Arrays.copyOf(hour, capacity);
+            tSum = Arrays.copyOf(tSum, capacity);
+            tCount = Arrays.copyOf(tCount, capacity);
+            hSum = Arrays.copyOf(hSum, capacity);
+            hCount = Arrays.copyOf(hCount, capacity);
+            doors = Arrays.copyOf(doors, capacity);
+        }
+
+        void put(int device, Buckets bucket) {
+            long epochHour = bucket.start[device] / Resolution.HOUR.millis;
+            int slot = device * HISTORY_HOURS + (int) (epochHour % HISTORY_HOURS);
+            hour[slot] = epochHour;
+            tSum[slot] = bucket.tSum[device];
+            tCount[slot] = bucket.tCount[device];
+            hSum[slot] = bucket.hSum[device];
+            hCount[slot] = bucket.hCount[device];
+            doors[slot] = bucket.doors[device];
+        }
+
+        void addTo(EnvironmentWindow window, int device, long firstHour) {
+            for (int slot = device * HISTORY_HOURS; slot < (device + 1) * HISTORY_HOURS; slot++) {
+                if (hour[slot] >= firstHour) {
+                    window.add(tSum[slot], tCount[slot], hSum[slot], hCount[slot], doors[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * One closed bucket of a device. Min, max and average are null when the bucket had
+     * no readings of that kind.
+     */
+    public static class Aggregate {
+        private final String deviceId;
+        private final Resolution resolution;
+        private final long bucketStart;
+        private final int temperatureSamples;
+        private final float temperatureMin;
+        private final float temperatureMax;
+        private final double temperatureAvg;
+        private final int humiditySamples;
+        private final float humidityMin;
+        private final float humidityMax;
+        private final double humidityAvg;
+        private final int doorOpens;
+
+        public Aggregate(String deviceId, Resolution resolution, long bucketStart,
+                         int temperatureSamples, float temperatureMin, float temperatureMax, double temperatureAvg,
+                         int humiditySamples, float humidityMin, float humidityMax, double humidityAvg,
+                         int doorOpens) {
+            this.deviceId = deviceId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+            this.temperatureSamples = temperatureSamples;
+            this.temperatureMin = temperatureMin;
+            this.temperatureMax = temperatureMax;
+            this.temperatureAvg = temperatureAvg;
+            this.humiditySamples = humiditySamples;
+            this.humidityMin = humidityMin;
+            this.humidityMax = humidityMax;
+            this.humidityAvg = humidityAvg;
+            this.doorOpens = doorOpens;
+        }
+
+        /**
+         * The same bucket stored in two parts, e.g. either side of a restart
+         */
+        Aggregate merge(Aggregate other) {
+            int tSamples = temperatureSamples + other.temperatureSamples;
+            int hSamples = humiditySamples + other.humiditySamples;
+            return new Aggregate(deviceId, resolution, bucketStart,
+                tSamples, minOf(temperatureSamples, temperatureMin, other.temperatureSamples, other.temperatureMin),
+                maxOf(temperatureSamples, temperatureMax, other.temperatureSamples, other.temperatureMax),
+                tSamples > 0 ? (temperatureAvg * temperatureSamples + other.temperatureAvg * other.temperatureSamples) / tSamples : 0,
+                hSamples, minOf(humiditySamples, humidityMin, other.humiditySamples, other.humidityMin),
+                maxOf(humiditySamples, humidityMax, other.humiditySamples, other.humidityMax),
+                hSamples > 0 ? (humidityAvg * humiditySamples + other.humidityAvg * other.humiditySamples) / hSamples : 0,
+                doorOpens + other.doorOpens);
+        }
+
+        private static float minOf(int count, float value, int otherCount, float otherValue) {
+            return count == 0 ? otherValue : otherCount == 0 ? value : Math.min(value, otherValue);
+        }
+
+        private static float maxOf(int count, float value, int otherCount, float otherValue) {
+            return count == 0 ? otherValue : otherCount == 0 ? value : Math.max(value, otherValue);
+        }
+
+        public String getDeviceId() { return deviceId; }
+        public Resolution getResolution() { return resolution; }
+        public Instant getBucketStart() { return Instant.ofEpochMilli(bucketStart); }
+        long getBucketStartMillis() { return bucketStart; }
+        public int getTemperatureSamples() { return temperatureSamples; }
+        public Double getTemperatureMin() { return temperatureSamples > 0 ? (double) temperatureMin : null; }
+        public Double getTemperatureMax() { return temperatureSamples > 0 ? (double) temperatureMax : null; }
+        public Double getTemperatureAvg() { return temperatureSamples > 0 ? temperatureAvg : null; }
+        public int getHumiditySamples() { return humiditySamples; }
+        public Double getHumidityMin() { return humiditySamples > 0 ? (double) humidityMin : null; }
+        public Double getHumidityMax() { return humiditySamples > 0 ? (double) humidityMax : null; }
+        public Double getHumidityAvg() { return humiditySamples > 0 ? humidityAvg : null; }
+        public int getDoorOpens() { return doorOpens; }
+    }
+
+    /**
+     * Rolling window of a device, plus its latest readings
+     */
+    public static class EnvironmentWindow {
+        private final String deviceId;
+        private double temperatureSum;
+        private int temperatureSamples;
+        private double humiditySum;
+        private int humiditySamples;
+        private int doorOpens;
+        private Double latestTemperature;
+        private Double latestHumidity;
+        private Date lastUpdated;
+
+        EnvironmentWindow(String deviceId) {
+            this.deviceId = deviceId;
+        }
+
+        void add(double tSum, int tCount, double hSum, int hCount, int doors) {
+            temperatureSum += tSum;
+            temperatureSamples += tCount;
+            humiditySum += hSum;
+            humiditySamples += hCount;
+            doorOpens += doors;
+        }
+
+        public String getDeviceId() { return deviceId; }
+        public Double getTemperatureAvg() { return temperatureSamples > 0 ? temperatureSum / temperatureSamples : null; }
+        public Double getHumidityAvg() { return humiditySamples > 0 ? humiditySum / humiditySamples : null; }
+        public int getTemperatureSamples() { return temperatureSamples; }
+        public int getHumiditySamples() { return humiditySamples; }
+        public int getDoorOpens() { return doorOpens; }
+        public Double getLatestTemperature() { return latestTemperature; }
+        public Double getLatestHumidity() { return latestHumidity; }
+        public Date getLastUpdated() { return lastUpdated; }
+    }
+
+    public static class TelemetryStats {
+        private final long accepted;
+        private final long dropped;
+        private final int buffered;
+        private final int devices;
+
+        public TelemetryStats(long accepted, long dropped, int buffered, int devices) {
+            this.accepted = accepted;
+            this.dropped = dropped;
+            this.buffered = buffered;
+            this.devices = devices;
+        }
+
+        public long getAccepted() { return accepted; }
+        public long getDropped() { return dropped; }
+        public int getBuffered() { return buffered; }
+        public int getDevices() { return devices; }
+    }
+}
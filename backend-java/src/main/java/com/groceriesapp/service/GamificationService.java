@@ -1,18 +1,22 @@
 package com.groceriesapp.service;
 
 import com.groceriesapp.model.Achievement;
+import com.groceriesapp.model.ExperienceEvent;
 import com.groceriesapp.model.User;
 import com.groceriesapp.model.UserAchievement;
 import com.groceriesapp.repository.AchievementRepository;
+import com.groceriesapp.repository.ExperienceEventRepository;
 import com.groceriesapp.repository.UserAchievementRepository;
 import com.groceriesapp.repository.UserRepository;
+import com.groceriesapp.service.event.Co2SavedEvent;
+import com.groceriesapp.service.event.ItemsSavedEvent;
+import com.groceriesapp.service.event.ItemsScannedEvent;
+import com.groceriesapp.service.event.StreakExtendedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -23,11 +27,18 @@ public class GamificationService {
     private final UserRepository userRepository;
     private final AchievementRepository achievementRepository;
     private final UserAchievementRepository userAchievementRepository;
+    private final ExperienceEventRepository experienceEventRepository;
+    private final LeaderboardService leaderboardService;
+    private final AchievementEngine achievementEngine;
+    private final StreakService streakService;
     
     // XP required for each level (exponential growth)
     private static final int BASE_XP_PER_LEVEL = 100;
     private static final double LEVEL_MULTIPLIER = 1.5;
     
+    // LEVEL_THRESHOLDS[n] is the XP needed for level n + 1, up to the last level an int can reach
+    private static final int[] LEVEL_THRESHOLDS = levelThresholds();
+    
     /**
      * Initialize achievements in the database (call this on startup).
      */
@@ -76,33 +87,34 @@ public class GamificationService {
             "STREAK", "GOLD", 100, 1000, "🔥"));
         
         achievementRepository.saveAll(achievements);
+        achievementEngine.reload();
     }
     
     /**
-     * Award XP to a user and check for level up.
+     * Award XP to a user and check for level up. The award is appended to the XP ledger
+     * and added to the user's total in place, so concurrent awards are never lost; the
+     * level follows from the new total. The user is marked active for the nightly streak job.
      */
     @Transactional
     public Map<String, Object> awardExperience(Long userId, Integer xp, String reason) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         
-        int oldLevel = user.getLevel();
-        int oldXP = user.getExperiencePoints();
-        
-        // Add XP
-        user.setExperiencePoints(oldXP + xp);
+        experienceEventRepository.save(new ExperienceEvent(userId, xp, reason));
+        userRepository.addExperiencePoints(userId, xp);
         
-        // Check for level up
-        int newLevel = calculateLevel(user.getExperiencePoints());
+        // Read back under the row lock the increment took, so this is exactly our total
+        int totalXP = userRepository.findExperiencePointsById(userId);
+        int oldLevel = calculateLevel(totalXP - xp);
+        int newLevel = calculateLevel(totalXP);
         boolean leveledUp = newLevel > oldLevel;
         
-        if (leveledUp) {
-            user.setLevel(newLevel);
-        }
+        // Keep the loaded user in step with the row, so saving it later writes no stale values
+        user.setExperiencePoints(totalXP);
+        user.setLevel(newLevel);
+        leaderboardService.recordAward(userId, user.getHousehold() != null ? user.getHousehold().getId() : null,
+            totalXP, xp);
         
-        userRepository.save(user);
-        
-        // Update streak
         updateStreak(user);
         
         Map<String, Object> result = new HashMap<>();
@@ -110,59 +122,60 @@ public class GamificationService {
         result.put("newLevel", newLevel);
         result.put("leveledUp", leveledUp);
         result.put("xpGained", xp);
-        result.put("totalXP", user.getExperiencePoints());
+        result.put("totalXP", totalXP);
         result.put("reason", reason);
         
         return result;
     }
     
     /**
-     * Track progress towards an achievement.
+     * Track progress towards an achievement. The engine decides what unlocks and records
+     * it; the rewards are awarded together.
      */
     @Transactional
     public List<Map<String, Object>> trackAchievementProgress(User user, String achievementType, Integer progress) {
-        List<Achievement> achievements = achievementRepository.findByIsActiveTrue().stream()
-            .filter(a -> a.getType().equals(achievementType))
-            .sorted(Comparator.comparing(Achievement::getPointsRequired))
-            .collect(Collectors.toList());
-        
-        List<Map<String, Object>> unlockedAchievements = new ArrayList<>();
-        
-        for (Achievement achievement : achievements) {
-            UserAchievement userAchievement = userAchievementRepository
-                .findByUserAndAchievement_Type(user, achievementType)
-                .orElse(new UserAchievement());
-            
-            if (userAchievement.getId() == null) {
-                userAchievement.setUser(user);
-                userAchievement.setAchievement(achievement);
-            }
-            
-            userAchievement.setProgress(progress);
-            
-            // Check if achievement should be unlocked
-            if (!userAchievement.getIsUnlocked() && progress >= achievement.getPointsRequired()) {
-                userAchievement.setIsUnlocked(true);
-                userAchievement.setUnlockedAt(LocalDateTime.now());
-                
-                // Award XP for unlocking achievement
-                awardExperience(user.getId(), achievement.getXpReward(), 
-                    "Unlocked: " + achievement.getName());
-                
-                Map<String, Object> unlocked = new HashMap<>();
-                unlocked.put("achievementId", achievement.getId());
-                unlocked.put("name", achievement.getName());
-                unlocked.put("description", achievement.getDescription());
-                unlocked.put("tier", achievement.getTier());
-                unlocked.put("badgeIcon", achievement.getBadgeIcon());
-                unlocked.put("xpReward", achievement.getXpReward());
-                unlockedAchievements.add(unlocked);
-            }
-            
-            userAchievementRepository.save(userAchievement);
-        }
-        
-        return unlockedAchievements;
+        return trackAchievementProgress(user.getId(), achievementType, progress);
+    }
+    
+    /**
+     * Count items saved from expiring towards Waste Warrior.
+     */
+    @EventListener
+    @Transactional
+    public void onItemsSaved(ItemsSavedEvent event) {
+        userRepository.addItemsSaved(event.getUserId(), event.getCount());
+        trackAchievementProgress(event.getUserId(), "WASTE_WARRIOR",
+            userRepository.findItemsSavedById(event.getUserId()));
+    }
+    
+    /**
+     * Count scanned products towards Scan Master.
+     */
+    @EventListener
+    @Transactional
+    public void onItemsScanned(ItemsScannedEvent event) {
+        userRepository.addItemsScanned(event.getUserId(), event.getCount());
+        trackAchievementProgress(event.getUserId(), "SCAN_MASTER",
+            userRepository.findItemsScannedById(event.getUserId()));
+    }
+    
+    /**
+     * Count whole kilograms of CO2 saved towards Eco Champion; the total is kept by
+     * SustainabilityService.
+     */
+    @EventListener
+    @Transactional
+    public void onCo2Saved(Co2SavedEvent event) {
+        trackAchievementProgress(event.getUserId(), "ECO_CHAMPION", (int) Math.floor(event.getTotalKilograms()));
+    }
+    
+    /**
+     * Check Consistent achievements for a streak the nightly job has extended.
+     */
+    @EventListener
+    @Transactional
+    public void onStreakExtended(StreakExtendedEvent event) {
+        trackAchievementProgress(event.getUserId(), "STREAK", event.getStreak());
     }
     
     /**
@@ -208,57 +221,106 @@ public class GamificationService {
      * Get leaderboard (top users by XP).
      */
     public List<Map<String, Object>> getLeaderboard(Integer limit) {
-        List<User> topUsers = userRepository.findAll().stream()
-            .sorted(Comparator.comparing(User::getExperiencePoints).reversed())
-            .limit(limit != null ? limit : 10)
-            .collect(Collectors.toList());
+        return getLeaderboard(limit, LeaderboardService.Period.ALL_TIME, null);
+    }
+    
+    /**
+     * Get the top of the all-time or weekly leaderboard, overall or within a household.
+     */
+    public List<Map<String, Object>> getLeaderboard(Integer limit, LeaderboardService.Period period, Long householdId) {
+        return toLeaderboardEntries(leaderboardService.getTop(period, householdId, limit != null ? limit : 10));
+    }
+    
+    /**
+     * Get a user's rank on a leaderboard and the users ranked around them, or null if the
+     * user is not on it.
+     */
+    public Map<String, Object> getLeaderboardPosition(Long userId, LeaderboardService.Period period, Long householdId,
+                                                      Integer neighbours) {
+        List<LeaderboardService.Entry> around = leaderboardService.getAround(userId, period, householdId,
+            neighbours != null ? neighbours : 2);
+        LeaderboardService.Entry own = around.stream()
+            .filter(entry -> entry.getUserId() == userId)
+            .findFirst()
+            .orElse(null);
+        if (own == null) {
+            return null;
+        }
         
-        return topUsers.stream()
-            .map(user -> {
-                Map<String, Object> entry = new HashMap<>();
-                entry.put("userId", user.getId());
-                entry.put("name", user.getName());
-                entry.put("level", user.getLevel());
-                entry.put("experiencePoints", user.getExperiencePoints());
-                entry.put("itemsSaved", user.getItemsSaved());
-                entry.put("totalCo2Saved", user.getTotalCo2SavedKg());
-                return entry;
-            })
-            .collect(Collectors.toList());
+        Map<String, Object> position = new HashMap<>();
+        position.put("rank", own.getRank());
+        position.put("score", own.getScore());
+        position.put("size", leaderboardService.getSize(period, householdId));
+        position.put("neighbours", toLeaderboardEntries(around));
+        return position;
+    }
+    
+    private List<Map<String, Object>> toLeaderboardEntries(List<LeaderboardService.Entry> entries) {
+        // Only the users shown are loaded
+        Map<Long, User> users = userRepository.findAllById(entries.stream()
+                .map(LeaderboardService.Entry::getUserId)
+                .collect(Collectors.toList())).stream()
+            .collect(Collectors.toMap(User::getId, user -> user));
+        
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        for (LeaderboardService.Entry ranked : entries) {
+            User user = users.get(ranked.getUserId());
+            if (user == null) {
+                continue;
+            }
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("rank", ranked.getRank());
+            entry.put("score", ranked.getScore());
+            entry.put("userId", user.getId());
+            entry.put("name", user.getName());
+            entry.put("level", user.getLevel());
+            entry.put("experiencePoints", user.getExperiencePoints());
+            entry.put("itemsSaved", user.getItemsSaved());
+            entry.put("totalCo2Saved", user.getTotalCo2SavedKg());
+            result.add(entry);
+        }
+        return result;
     }
     
     /**
-     * Update user's daily streak.
+     * Mark the user active today. Streaks are extended or reset for everyone at once by
+     * the nightly job in StreakService.
      */
-    @Transactional
     public void updateStreak(User user) {
-        LocalDate today = LocalDate.now();
-        LocalDate lastActive = user.getLastActiveDate();
-        
-        if (lastActive == null) {
-            user.setStreak(1);
-            user.setLastActiveDate(today);
-        } else if (lastActive.equals(today)) {
-            // Already active today, no change
-            return;
-        } else if (lastActive.equals(today.minusDays(1))) {
-            // Consecutive day
-            user.setStreak(user.getStreak() + 1);
-            user.setLastActiveDate(today);
+        streakService.touch(user.getId());
+    }
+    
+    // Helper methods
+    
+    private List<Map<String, Object>> trackAchievementProgress(Long userId, String achievementType, Integer progress) {
+        if (progress == null) {
+            return new ArrayList<>();
+        }
+        List<Map<String, Object>> unlockedAchievements = new ArrayList<>();
+        int xpReward = 0;
+        for (Achievement achievement : achievementEngine.evaluate(userId, achievementType, progress)) {
+            xpReward += achievement.getXpReward();
             
-            // Check streak achievements
-            trackAchievementProgress(user, "STREAK", user.getStreak());
-        } else {
-            // Streak broken
-            user.setStreak(1);
-            user.setLastActiveDate(today);
+            Map<String, Object> unlocked = new HashMap<>();
+            unlocked.put("achievementId", achievement.getId());
+            unlocked.put("name", achievement.getName());
+            unlocked.put("description", achievement.getDescription());
+            unlocked.put("tier", achievement.getTier());
+            unlocked.put("badgeIcon", achievement.getBadgeIcon());
+            unlocked.put("xpReward", achievement.getXpReward());
+            unlockedAchievements.add(unlocked);
+        }
+        
+        // One award for everything unlocked
+        if (xpReward > 0) {
+            awardExperience(userId, xpReward, "Unlocked: " + unlockedAchievements.stream()
+                .map(a -> (String) a.get("name"))
+                .collect(Collectors.joining(", ")));
         }
         
-        userRepository.save(user);
+        return unlockedAchievements;
     }
     
-    // Helper methods
-    
     private Achievement createAchievement(String name, String description, String type, 
                                          String tier, Integer pointsRequired, Integer xpReward, String badgeIcon) {
         Achievement achievement = new Achievement();
@@ -274,17 +336,28 @@ public class GamificationService {
     }
     
     private int calculateLevel(int xp) {
-        int level = 1;
-        while (xp >= calculateXPForLevel(level + 1)) {
-            level++;
-        }
-        return level;
+        // Levels reached are the thresholds at or below xp
+        int index = Arrays.binarySearch(LEVEL_THRESHOLDS, xp);
+        return Math.max(1, index >= 0 ? index + 1 : -index - 1);
     }
     
     private int calculateXPForLevel(int level) {
         if (level <= 1) {
             return 0;
         }
-        return (int) (BASE_XP_PER_LEVEL * Math.pow(LEVEL_MULTIPLIER, level - 1));
+        return level <= LEVEL_THRESHOLDS.length ? LEVEL_THRESHOLDS[level - 1] : Integer.MAX_VALUE;
+    }
+    
+    private static int[] levelThresholds() {
+        List<Integer> thresholds = new ArrayList<>();
+        thresholds.add(0);
+        for (int level = 2; ; level++) {
+            double xp = BASE_XP_PER_LEVEL * Math.pow(LEVEL_MULTIPLIER, level - 1);
+            if (xp >= Integer.MAX_VALUE) {
+                break;
+            }
+            thresholds.add((int) xp);
+        }
+        return thresholds.stream().mapToInt(Integer::intValue).toArray();
     }
 }
@@ -0,0 +1,111 @@
+package com.groceriesapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of direct buffers that binary image uploads are streamed into.
+ *
+ * Each buffer holds one maximum-size image, so off-heap memory for uploads is
+ * bounded by poolSize * maxImageBytes and uploads beyond the pool size wait briefly
+ * and are then turned away. Buffers are allocated on first use and reused after.
+ */
+@Service
+public class ImageBufferPool {
+
+    private final int maxImageBytes;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    public ImageBufferPool(@Value("${scan.upload.max-image-bytes:10485760}") int maxImageBytes,
+                           @Value("${scan.upload.buffer-pool-size:8}") int poolSize,
+                           @Value("${scan.upload.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        this.maxImageBytes = maxImageBytes;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(poolSize, true);
+    }
+
+    /**
+     * Stream an upload into a pooled buffer. A declared length over the limit is
+     * rejected before anything is read or a buffer is taken; uploads without a
+     * length (chunked) are cut off as soon as they pass the limit.
+     */
+    public ImageUpload read(InputStream in, long declaredLength) throws IOException {
+        if (declaredLength > maxImageBytes) {
+            throw new UploadTooLargeException(declaredLength, maxImageBytes);
+        }
+
+        ByteBuffer buffer = acquire();
+        ImageUpload upload = new ImageUpload(buffer, () -> release(buffer));
+        try {
+            ReadableByteChannel channel = Channels.newChannel(in);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the stream ends or the buffer is full
+            }
+            if (!buffer.hasRemaining() && in.read() >= 0) {
+                throw new UploadTooLargeException(-1, maxImageBytes);
+            }
+            buffer.flip();
+            if (!buffer.hasRemaining()) {
+                throw new RuntimeException("Image upload is empty");
+            }
+            return upload;
+        } catch (IOException | RuntimeException e) {
+            upload.close();
+            throw e;
+        }
+    }
+
+    public int getMaxImageBytes() {
+        return maxImageBytes;
+    }
+
+    /**
+     * Buffers not currently held by an upload
+     */
+    public int getAvailableCount() {
+        return permits.availablePermits();
+    }
+
+    private ByteBuffer acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PoolExhaustedException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PoolExhaustedException();
+        }
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(maxImageBytes);
+    }
+
+    private void release(ByteBuffer buffer) {
+        buffer.clear();
+        free.offer(buffer);
+        permits.release();
+    }
+
+    public static class UploadTooLargeException extends RuntimeException {
+        public UploadTooLargeException(long size, int maxImageBytes) {
+            super((size >= 0 ? "Image of " + size + " bytes" : "Image") +
+                  " exceeds the " + maxImageBytes + " byte upload limit");
+        }
+    }
+
+    public static class PoolExhaustedException extends RuntimeException {
+        public PoolExhaustedException() {
+            super("Too many image uploads in progress, try again later");
+        }
+    }
+}
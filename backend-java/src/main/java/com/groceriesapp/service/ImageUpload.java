@@ -0,0 +1,47 @@
+package com.groceriesapp.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Encoded image bytes received from a client, usually backed by a pooled direct
+ * buffer from ImageBufferPool. Closing the upload returns the buffer to the pool;
+ * close is idempotent so both the request thread and an OCR worker may call it.
+ */
+public class ImageUpload implements AutoCloseable {
+
+    private final ByteBuffer data;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ImageUpload(ByteBuffer data, Runnable release) {
+        this.data = data;
+        this.release = release;
+    }
+
+    /**
+     * Wrap bytes that are already on the heap (the base64 GraphQL path); nothing to release
+     */
+    public static ImageUpload of(byte[] bytes) {
+        return new ImageUpload(ByteBuffer.wrap(bytes), () -> { });
+    }
+
+    /**
+     * The encoded image, positioned at 0 with the limit at its length.
+     * Callers must read through duplicate() or absolute gets.
+     */
+    public ByteBuffer data() {
+        return data;
+    }
+
+    public int size() {
+        return data.remaining();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.groceriesapp.model.Household;
 import com.groceriesapp.model.Item;
 import com.groceriesapp.model.User;
 import com.groceriesapp.repository.ItemRepository;
+import com.groceriesapp.service.event.ItemsSavedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,13 +21,22 @@ public class ItemService {
     private final AIService aiService;
     private final EnhancedAIService enhancedAIService;
     private final SustainabilityService sustainabilityService;
+    private final ShoppingSuggestionEngine shoppingSuggestionEngine;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public Item createItem(String name, Integer quantity, LocalDate expirationDate, 
                           String storageLocation, Household household, User addedBy) {
+        return createItem(name, quantity, null, expirationDate, storageLocation, household, addedBy);
+    }
+    
+    @Transactional
+    public Item createItem(String name, Integer quantity, Integer weightGrams, LocalDate expirationDate,
+                          String storageLocation, Household household, User addedBy) {
         Item item = new Item();
         item.setName(name);
         item.setQuantity(quantity);
+        item.setWeightGrams(weightGrams);
         item.setExpirationDate(expirationDate);
         item.setStorageLocation(storageLocation);
         item.setHousehold(household);
@@ -74,10 +85,17 @@ public class ItemService {
         
         // Calculate CO2 saved
         double co2Saved = sustainabilityService.calculateCO2Saved(
-            item.getName(), item.getQuantity(), item.getExpirationDate());
+            item.getName(), item.getQuantity(), item.getWeightGrams(), item.getExpirationDate());
+        
+        // Credit the user and the household the item belonged to
+        Long householdId = item.getHousehold() != null ? item.getHousehold().getId() : null;
+        sustainabilityService.updateCO2Saved(user, householdId, co2Saved);
+        shoppingSuggestionEngine.recordUsed(householdId, item.getId(), item.getName());
         
-        // Update user's total CO2 saved
-        sustainabilityService.updateCO2Saved(user, co2Saved);
+        // Used before it expired, so it counts as saved
+        if (item.getExpirationDate() == null || !item.getExpirationDate().isBefore(LocalDate.now())) {
+            eventPublisher.publishEvent(new ItemsSavedEvent(user.getId(), 1));
+        }
         
         // Delete the item (it's been used)
         itemRepository.delete(item);
@@ -0,0 +1,261 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.ExperienceEventRepository;
+import com.groceriesapp.repository.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leaderboards kept in memory: all-time XP and XP gained this week, overall and per
+ * household.
+ *
+ * Each board is a RankedSkipList, so the top N, a user's rank and the users around them
+ * are O(log n) instead of sorting every user. Boards are loaded at startup, the all-time
+ * one from users in XP order and the weekly one from the XP ledger, and then follow each
+ * award once it commits. Users who have never been awarded XP are not ranked. The weekly
+ * board starts empty every Monday.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    private final UserRepository userRepository;
+    private final ExperienceEventRepository experienceEventRepository;
+
+    private final RankedSkipList allTime = new RankedSkipList();
+    private final Map<Long, RankedSkipList> households = new ConcurrentHashMap<>();
+    private final Map<Long, Long> householdByUser = new ConcurrentHashMap<>();
+    private volatile Week week = new Week(weekStart());
+
+    public LeaderboardService(UserRepository userRepository, ExperienceEventRepository experienceEventRepository) {
+        this.userRepository = userRepository;
+        this.experienceEventRepository = experienceEventRepository;
+    }
+
+    public enum Period {
+        ALL_TIME, WEEKLY
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild leaderboards: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load the boards from the database. Awards that commit meanwhile are kept, since
+     * totals only ever grow.
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        int users = 0;
+        Integer afterXp = null;
+        long afterId = 0;
+        while (true) {
+            // Keyset pages down the (experience_points, id) index
+            List<Object[]> page = afterXp == null
+                ? userRepository.findLeaderboardPage(PageRequest.of(0, REBUILD_PAGE_SIZE))
+                : userRepository.findLeaderboardPageAfter(afterXp, afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            for (Object[] row : page) {
+                long userId = (Long) row[0];
+                int xp = (Integer) row[1];
+                track(userId, (Long) row[2], xp);
+                afterXp = xp;
+                afterId = userId;
+            }
+            users += page.size();
+            if (page.size() < REBUILD_PAGE_SIZE) {
+                break;
+            }
+        }
+
+        Week rebuilt = new Week(weekStart());
+        for (Object[] row : experienceEventRepository.sumXpByUserSince(rebuilt.start.atStartOfDay())) {
+            rebuilt.board.add((Long) row[0], ((Number) row[1]).intValue());
+        }
+        week = rebuilt;
+        System.out.println("Rebuilt leaderboards with " + users + " users in "
+            + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    /**
+     * Apply an award to the boards once the transaction making it commits
+     *
+     * @param totalXp the user's total including the award
+     */
+    public void recordAward(Long userId, Long householdId, int totalXp, int xp) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(userId, householdId, totalXp, xp);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(userId, householdId, totalXp, xp);
+            }
+        });
+    }
+
+    /**
+     * The top of a board, overall or within a household
+     */
+    public List<Entry> getTop(Period period, Long householdId, int limit) {
+        if (householdId == null) {
+            return board(period).range(1, limit);
+        }
+        if (period == Period.ALL_TIME) {
+            RankedSkipList household = households.get(householdId);
+            return household != null ? household.range(1, limit) : List.of();
+        }
+        List<Entry> ranked = weeklyHousehold(householdId);
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+
+    /**
+     * A user's entry with up to {@code neighbours} entries either side, or empty if the
+     * user is not on the board
+     */
+    public List<Entry> getAround(Long userId, Period period, Long householdId, int neighbours) {
+        if (householdId == null) {
+            return board(period).around(userId, neighbours);
+        }
+        if (period == Period.ALL_TIME) {
+            RankedSkipList household = households.get(householdId);
+            return household != null ? household.around(userId, neighbours) : List.of();
+        }
+        List<Entry> ranked = weeklyHousehold(householdId);
+        for (int i = 0; i < ranked.size(); i++) {
+            if (ranked.get(i).getUserId() == userId) {
+                return ranked.subList(Math.max(0, i - neighbours), Math.min(ranked.size(), i + neighbours + 1));
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * A user's 1-based rank on a board, or 0 if not on it
+     */
+    public int getRank(Long userId, Period period, Long householdId) {
+        List<Entry> entry = getAround(userId, period, householdId, 0);
+        return entry.isEmpty() ? 0 : entry.get(0).getRank();
+    }
+
+    public int getSize(Period period, Long householdId) {
+        if (householdId == null) {
+            return board(period).size();
+        }
+        RankedSkipList household = households.get(householdId);
+        if (household == null) {
+            return 0;
+        }
+        return period == Period.ALL_TIME ? household.size() : weeklyHousehold(householdId).size();
+    }
+
+    private void apply(Long userId, Long householdId, int totalXp, int xp) {
+        track(userId, householdId, totalXp);
+        currentWeek().board.add(userId, xp);
+    }
+
+    private void track(long userId, Long householdId, int totalXp) {
+        allTime.putIfHigher(userId, totalXp);
+        Long previous = householdId != null ? householdByUser.put(userId, householdId) : householdByUser.remove(userId);
+        if (previous != null && !previous.equals(householdId)) {
+            RankedSkipList old = households.get(previous);
+            if (old != null) {
+                old.remove(userId);
+            }
+        }
+        if (householdId != null) {
+            households.computeIfAbsent(householdId, id -> new RankedSkipList()).putIfHigher(userId, totalXp);
+        }
+    }
+
+    private RankedSkipList board(Period period) {
+        return period == Period.WEEKLY ? currentWeek().board : allTime;
+    }
+
+    // Households are a handful of people, so their weekly board is ranked on demand
+    private List<Entry> weeklyHousehold(Long householdId) {
+        RankedSkipList household = households.get(householdId);
+        if (household == null) {
+            return List.of();
+        }
+        RankedSkipList weekly = currentWeek().board;
+        List<Entry> members = household.range(1, household.size());
+        List<Entry> ranked = new ArrayList<>(members.size());
+        for (Entry member : members) {
+            Integer xp = weekly.score(member.getUserId());
+            if (xp != null) {
+                ranked.add(new Entry(member.getUserId(), xp, 0));
+            }
+        }
+        ranked.sort(Comparator.comparingInt(Entry::getScore).reversed().thenComparingLong(Entry::getUserId));
+        for (int i = 0; i < ranked.size(); i++) {
+            ranked.set(i, new Entry(ranked.get(i).getUserId(), ranked.get(i).getScore(), i + 1));
+        }
+        return ranked;
+    }
+
+    private Week currentWeek() {
+        Week current = week;
+        LocalDate start = weekStart();
+        if (!current.start.equals(start)) {
+            synchronized (this) {
+                if (!week.start.equals(start)) {
+                    week = new Week(start);
+                }
+                current = week;
+            }
+        }
+        return current;
+    }
+
+    private static LocalDate weekStart() {
+        return LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static final class Week {
+        final LocalDate start;
+        final RankedSkipList board = new RankedSkipList();
+
+        Week(LocalDate start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * A user's place on a board; the score is all-time or weekly XP
+     */
+    public static class Entry {
+        private final long userId;
+        private final int score;
+        private final int rank;
+
+        public Entry(long userId, int score, int rank) {
+            this.userId = userId;
+            this.score = score;
+            this.rank = rank;
+        }
+
+        public long getUserId() { return userId; }
+        public int getScore() { return score; }
+        public int getRank() { return rank; }
+    }
+}
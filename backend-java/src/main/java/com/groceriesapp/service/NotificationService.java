@@ -180,6 +180,25 @@ public class NotificationService {
         sendNotificationToUser(userId, title, body, data);
     }
     
+    /**
+     * Send a notification when a fridge warmed up and items now expire sooner.
+     */
+    public void notifyFridgeExcursion(Long userId, double temperature, long minutes, List<Item> items) {
+        String title = "🌡️ Your fridge warmed up";
+        StringBuilder body = new StringBuilder(String.format("%.1f°C for %d minutes. ", temperature, minutes));
+        body.append(items.size() == 1 ? "This item now expires sooner: " : items.size() + " items now expire sooner: ");
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            body.append(i > 0 ? ", " : "").append(item.getName()).append(" (").append(item.getPredictedExpirationDate()).append(")");
+        }
+        
+        Map<String, String> data = new HashMap<>();
+        data.put("type", "temperature_excursion");
+        data.put("count", String.valueOf(items.size()));
+        
+        sendNotificationToUser(userId, title, body.length() > 200 ? body.substring(0, 197) + "..." : body.toString(), data);
+    }
+    
     /**
      * Send a notification when a user achieves a new level or achievement.
      */
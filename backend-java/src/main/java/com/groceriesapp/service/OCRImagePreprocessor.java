@@ -0,0 +1,474 @@
+package com.groceriesapp.service;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+
+/**
+ * Cleans up a photographed label before it is handed to Tesseract.
+ *
+ * The pipeline downscales to roughly 300 DPI while converting to grayscale,
+ * binarizes with a local (Bradley) threshold so uneven lighting does not wash
+ * out text, straightens small rotations with a projection-profile search and
+ * crops to the inked region. All intermediate rasters live in buffers owned by
+ * the instance and are only grown, never reallocated per image, so an instance
+ * must stay confined to one thread (OCRJobService keeps one per worker).
+ */
+public class OCRImagePreprocessor {
+
+    /** DPI Tesseract should assume for the preprocessed image */
+    public static final int TARGET_DPI = 300;
+
+    /** Longest side after downscaling: about 5.3 inches of label at 300 DPI */
+    public static final int DEFAULT_MAX_DIMENSION = 1600;
+
+    private static final byte INK = 0;
+    private static final byte PAPER = (byte) 255;
+
+    // Bradley threshold: a pixel is ink when it is this much darker than its neighbourhood mean
+    private static final int THRESHOLD_PERCENT = 15;
+    // ...and at least this many gray levels darker, so sensor noise on flat paper stays paper
+    private static final int MIN_CONTRAST = 40;
+
+    // Skew search: coarse pass over +/-10 degrees, then a fine pass around the best angle
+    private static final double MAX_SKEW_DEGREES = 10.0;
+    private static final double COARSE_STEP_DEGREES = 0.5;
+    private static final double FINE_STEP_DEGREES = 0.1;
+    private static final double MIN_CORRECTED_SKEW_DEGREES = 0.2;
+    private static final int MAX_SKEW_SAMPLES = 20000;
+
+    private static final int CROP_MARGIN = 10;
+
+    private final int maxDimension;
+
+    // Reusable buffers, grown on demand
+    private int[] rgbRow = new int[0];
+    private int[] lumaRow = new int[0];
+    private int[] columnMap = new int[0];
+    private int[] rowSums = new int[0];
+    private int[] rowCounts = new int[0];
+    private byte[] gray = new byte[0];
+    private byte[] binary = new byte[0];
+    private byte[] rotated = new byte[0];
+    private int[] integral = new int[0];
+    private int[] profile = new int[0];
+    private int[] inkPoints = new int[0];
+    private ByteBuffer output = ByteBuffer.allocateDirect(0);
+
+    public OCRImagePreprocessor() {
+        this(DEFAULT_MAX_DIMENSION);
+    }
+
+    public OCRImagePreprocessor(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Run the full pipeline. The returned buffer is owned by this preprocessor and
+     * is overwritten by the next call.
+     */
+    public PreprocessedImage preprocess(BufferedImage source) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(sourceWidth, sourceHeight));
+        int width = Math.max(1, (int) Math.round(sourceWidth * scale));
+        int height = Math.max(1, (int) Math.round(sourceHeight * scale));
+        int pixels = width * height;
+
+        gray = ensure(gray, pixels);
+        binary = ensure(binary, pixels);
+
+        downscaleToGray(source, sourceWidth, sourceHeight, width, height);
+        binarize(width, height);
+
+        double skew = estimateSkew(width, height);
+        byte[] straightened = binary;
+        if (Math.abs(skew) >= MIN_CORRECTED_SKEW_DEGREES) {
+            rotated = ensure(rotated, pixels);
+            rotate(binary, rotated, width, height, skew);
+            straightened = rotated;
+        }
+
+        Rectangle crop = findTextBounds(straightened, width, height);
+        copyToOutput(straightened, width, crop);
+
+        return new PreprocessedImage(output, crop.width, crop.height, scale, skew, crop);
+    }
+
+    /**
+     * Box-filter downscale and luminance conversion in a single pass over the source rows
+     */
+    private void downscaleToGray(BufferedImage source, int sourceWidth, int sourceHeight, int width, int height) {
+        lumaRow = ensure(lumaRow, sourceWidth);
+        columnMap = ensure(columnMap, sourceWidth);
+        rowSums = ensure(rowSums, width);
+        rowCounts = ensure(rowCounts, width);
+
+        for (int x = 0; x < sourceWidth; x++) {
+            columnMap[x] = (int) ((long) x * width / sourceWidth);
+        }
+
+        RowReader reader = rowReader(source);
+        int currentRow = 0;
+        clear(rowSums, rowCounts, width);
+        for (int y = 0; y < sourceHeight; y++) {
+            int targetRow = (int) ((long) y * height / sourceHeight);
+            if (targetRow != currentRow) {
+                flushRow(currentRow, width);
+                clear(rowSums, rowCounts, width);
+                currentRow = targetRow;
+            }
+
+            reader.read(y, sourceWidth);
+            for (int x = 0; x < sourceWidth; x++) {
+                int column = columnMap[x];
+                rowSums[column] += lumaRow[x];
+                rowCounts[column]++;
+            }
+        }
+        flushRow(currentRow, width);
+    }
+
+    /**
+     * Read luminance rows straight from the backing array for the layouts ImageIO
+     * produces for JPEG and PNG; BufferedImage.getRGB converts pixel by pixel through
+     * the color model and costs several times the rest of the pipeline.
+     */
+    private RowReader rowReader(BufferedImage source) {
+        WritableRaster raster = source.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        ColorModel colorModel = source.getColorModel();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+
+        if (untranslated && raster.getDataBuffer() instanceof DataBufferByte buffer
+                && sampleModel instanceof ComponentSampleModel model
+                && colorModel instanceof ComponentColorModel && buffer.getNumBanks() == 1) {
+            byte[] data = buffer.getData();
+            int base = buffer.getOffset();
+            int pixelStride = model.getPixelStride();
+            int scanlineStride = model.getScanlineStride();
+            int[] bandOffsets = model.getBandOffsets();
+            int colorSpace = colorModel.getColorSpace().getType();
+
+            if (bandOffsets.length == 1 && colorSpace == ColorSpace.TYPE_GRAY) {
+                return (y, sourceWidth) -> {
+                    int offset = base + y * scanlineStride + bandOffsets[0];
+                    for (int x = 0; x < sourceWidth; x++, offset += pixelStride) {
+                        lumaRow[x] = data[offset] & 0xFF;
+                    }
+                };
+            }
+            if (bandOffsets.length >= 3 && colorSpace == ColorSpace.TYPE_RGB) {
+                int red = bandOffsets[0];
+                int green = bandOffsets[1];
+                int blue = bandOffsets[2];
+                return (y, sourceWidth) -> {
+                    int offset = base + y * scanlineStride;
+                    for (int x = 0; x < sourceWidth; x++, offset += pixelStride) {
+                        lumaRow[x] = luminance(data[offset + red] & 0xFF, data[offset + green] & 0xFF,
+                                data[offset + blue] & 0xFF);
+                    }
+                };
+            }
+        }
+
+        if (untranslated && raster.getDataBuffer() instanceof DataBufferInt buffer
+                && sampleModel instanceof SinglePixelPackedSampleModel model
+                && colorModel instanceof DirectColorModel direct
+                && direct.getRedMask() == 0xFF0000 && direct.getGreenMask() == 0xFF00 && direct.getBlueMask() == 0xFF) {
+            int[] data = buffer.getData();
+            int base = buffer.getOffset();
+            int scanlineStride = model.getScanlineStride();
+            return (y, sourceWidth) -> {
+                int offset = base + y * scanlineStride;
+                for (int x = 0; x < sourceWidth; x++) {
+                    int rgb = data[offset + x];
+                    lumaRow[x] = luminance((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                }
+            };
+        }
+
+        // Any other layout (indexed, 16-bit, custom color spaces) goes through the color model
+        return (y, sourceWidth) -> {
+            rgbRow = ensure(rgbRow, sourceWidth);
+            source.getRGB(0, y, sourceWidth, 1, rgbRow, 0, sourceWidth);
+            for (int x = 0; x < sourceWidth; x++) {
+                int rgb = rgbRow[x];
+                lumaRow[x] = luminance((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+            }
+        };
+    }
+
+    private static int luminance(int red, int green, int blue) {
+        return (red * 77 + green * 150 + blue * 29) >> 8;
+    }
+
+    private void flushRow(int row, int width) {
+        int offset = row * width;
+        for (int x = 0; x < width; x++) {
+            gray[offset + x] = (byte) (rowCounts[x] > 0 ? rowSums[x] / rowCounts[x] : 255);
+        }
+    }
+
+    /**
+     * Bradley adaptive threshold over an integral image
+     */
+    private void binarize(int width, int height) {
+        int stride = width + 1;
+        integral = ensure(integral, stride * (height + 1));
+        for (int x = 0; x <= width; x++) {
+            integral[x] = 0;
+        }
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            int in = y * width;
+            int out = (y + 1) * stride;
+            integral[out] = 0;
+            for (int x = 0; x < width; x++) {
+                rowSum += gray[in + x] & 0xFF;
+                integral[out + x + 1] = integral[out - stride + x + 1] + rowSum;
+            }
+        }
+
+        int half = Math.max(7, Math.max(width, height) / 32);
+        for (int y = 0; y < height; y++) {
+            int y0 = Math.max(0, y - half);
+            int y1 = Math.min(height, y + half + 1);
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.max(0, x - half);
+                int x1 = Math.min(width, x + half + 1);
+                int area = (x1 - x0) * (y1 - y0);
+                long sum = (long) integral[y1 * stride + x1] - integral[y0 * stride + x1]
+                        - integral[y1 * stride + x0] + integral[y0 * stride + x0];
+                long value = (gray[y * width + x] & 0xFF) * (long) area;
+                boolean ink = value * 100 <= sum * (100 - THRESHOLD_PERCENT) && sum - value >= (long) MIN_CONTRAST * area;
+                binary[y * width + x] = ink ? INK : PAPER;
+            }
+        }
+    }
+
+    /**
+     * Find the rotation whose horizontal projection of ink pixels is most peaked,
+     * i.e. the angle at which text lines are level
+     */
+    private double estimateSkew(int width, int height) {
+        int inkCount = 0;
+        for (int i = 0, pixels = width * height; i < pixels; i++) {
+            if (binary[i] == INK) {
+                inkCount++;
+            }
+        }
+        if (inkCount == 0) {
+            return 0.0;
+        }
+
+        // Sample ink pixels on a fixed stride so the search cost does not grow with the image
+        int step = Math.max(1, inkCount / MAX_SKEW_SAMPLES);
+        inkPoints = ensure(inkPoints, 2 * (inkCount / step + 1));
+        int samples = 0;
+        int seen = 0;
+        for (int i = 0, pixels = width * height; i < pixels; i++) {
+            if (binary[i] == INK && seen++ % step == 0) {
+                inkPoints[2 * samples] = i % width;
+                inkPoints[2 * samples + 1] = i / width;
+                samples++;
+            }
+        }
+
+        int diagonal = (int) Math.ceil(Math.hypot(width, height));
+        profile = ensure(profile, 2 * diagonal + 1);
+
+        double best = 0.0;
+        long bestScore = projectionScore(samples, diagonal, 0.0);
+        for (double angle = -MAX_SKEW_DEGREES; angle <= MAX_SKEW_DEGREES; angle += COARSE_STEP_DEGREES) {
+            long score = projectionScore(samples, diagonal, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+
+        double coarse = best;
+        for (double angle = coarse - COARSE_STEP_DEGREES; angle <= coarse + COARSE_STEP_DEGREES; angle += FINE_STEP_DEGREES) {
+            long score = projectionScore(samples, diagonal, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        return Math.round(best * 10) / 10.0;
+    }
+
+    private long projectionScore(int samples, int diagonal, double angleDegrees) {
+        double radians = Math.toRadians(angleDegrees);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        int bins = 2 * diagonal + 1;
+        for (int i = 0; i < bins; i++) {
+            profile[i] = 0;
+        }
+        for (int i = 0; i < samples; i++) {
+            int x = inkPoints[2 * i];
+            int y = inkPoints[2 * i + 1];
+            profile[(int) (y * cos - x * sin) + diagonal]++;
+        }
+        long score = 0;
+        for (int i = 0; i < bins; i++) {
+            score += (long) profile[i] * profile[i];
+        }
+        return score;
+    }
+
+    /**
+     * Nearest-neighbour rotation about the centre that levels lines tilted by angleDegrees
+     */
+    private static void rotate(byte[] source, byte[] target, int width, int height, double angleDegrees) {
+        double radians = Math.toRadians(angleDegrees);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        double cx = width / 2.0;
+        double cy = height / 2.0;
+        for (int y = 0; y < height; y++) {
+            double dy = y - cy;
+            for (int x = 0; x < width; x++) {
+                double dx = x - cx;
+                int sx = (int) Math.round(cx + dx * cos - dy * sin);
+                int sy = (int) Math.round(cy + dx * sin + dy * cos);
+                target[y * width + x] = sx >= 0 && sx < width && sy >= 0 && sy < height
+                        ? source[sy * width + sx] : PAPER;
+            }
+        }
+    }
+
+    /**
+     * Bounding box of rows and columns carrying enough ink to be text rather than
+     * speckle, padded by a small margin. Falls back to the whole image.
+     */
+    private Rectangle findTextBounds(byte[] image, int width, int height) {
+        int minRowInk = Math.max(2, width / 200);
+        int top = -1;
+        int bottom = -1;
+        for (int y = 0; y < height; y++) {
+            int ink = 0;
+            for (int x = 0, offset = y * width; x < width; x++) {
+                if (image[offset + x] == INK) {
+                    ink++;
+                }
+            }
+            if (ink >= minRowInk) {
+                if (top < 0) {
+                    top = y;
+                }
+                bottom = y;
+            }
+        }
+        if (top < 0) {
+            return new Rectangle(0, 0, width, height);
+        }
+
+        int minColumnInk = Math.max(2, (bottom - top + 1) / 200);
+        int left = -1;
+        int right = -1;
+        for (int x = 0; x < width; x++) {
+            int ink = 0;
+            for (int y = top; y <= bottom; y++) {
+                if (image[y * width + x] == INK) {
+                    ink++;
+                }
+            }
+            if (ink >= minColumnInk) {
+                if (left < 0) {
+                    left = x;
+                }
+                right = x;
+            }
+        }
+        if (left < 0) {
+            return new Rectangle(0, 0, width, height);
+        }
+
+        int x0 = Math.max(0, left - CROP_MARGIN);
+        int y0 = Math.max(0, top - CROP_MARGIN);
+        int x1 = Math.min(width, right + CROP_MARGIN + 1);
+        int y1 = Math.min(height, bottom + CROP_MARGIN + 1);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    private void copyToOutput(byte[] image, int width, Rectangle crop) {
+        int size = crop.width * crop.height;
+        if (output.capacity() < size) {
+            output = ByteBuffer.allocateDirect(size);
+        }
+        output.clear();
+        for (int y = crop.y; y < crop.y + crop.height; y++) {
+            output.put(image, y * width + crop.x, crop.width);
+        }
+        output.flip();
+    }
+
+    private static void clear(int[] sums, int[] counts, int length) {
+        for (int i = 0; i < length; i++) {
+            sums[i] = 0;
+            counts[i] = 0;
+        }
+    }
+
+    private static byte[] ensure(byte[] buffer, int size) {
+        return buffer.length >= size ? buffer : new byte[size];
+    }
+
+    private static int[] ensure(int[] buffer, int size) {
+        return buffer.length >= size ? buffer : new int[size];
+    }
+
+    private interface RowReader {
+        void read(int y, int sourceWidth);
+    }
+
+    /**
+     * 8-bit grayscale result, cropped, with the parameters that produced it
+     */
+    public static class PreprocessedImage {
+        private final ByteBuffer pixels;
+        private final int width;
+        private final int height;
+        private final double scale;
+        private final double skewDegrees;
+        private final Rectangle crop;
+
+        PreprocessedImage(ByteBuffer pixels, int width, int height, double scale, double skewDegrees, Rectangle crop) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+            this.skewDegrees = skewDegrees;
+            this.crop = crop;
+        }
+
+        public ByteBuffer getPixels() { return pixels; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public double getScale() { return scale; }
+        public double getSkewDegrees() { return skewDegrees; }
+        public Rectangle getCrop() { return crop; }
+
+        /**
+         * Copy into a BufferedImage, for debugging and benchmarks
+         */
+        public BufferedImage toBufferedImage() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            pixels.duplicate().get(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+            return image;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.groceriesapp.service;
+
+import jakarta.annotation.PreDestroy;
+import net.sourceforge.tess4j.Tesseract;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of OCR jobs processed on a fixed pool of worker threads.
+ *
+ * Each worker owns its own Tesseract instance (Tesseract is not thread-safe) and
+ * its own OCRImagePreprocessor buffers, and the pool is sized to the available
+ * cores so concurrent scans spread across CPUs instead of running on GraphQL
+ * request threads. Jobs are kept in memory and can be
+ * polled by id or awaited through the ocrJobCompleted subscription; finished jobs
+ * are evicted after a retention period.
+ */
+@Service
+public class OCRJobService {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final OCRService ocrService;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Tesseract> workerTesseract;
+    private final ThreadLocal<OCRImagePreprocessor> workerPreprocessor =
+        ThreadLocal.withInitial(OCRImagePreprocessor::new);
+    private final Map<String, OCRJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${ocr.job-retention-minutes:30}")
+    private long jobRetentionMinutes = 30;
+
+    @Value("${ocr.sync-timeout-seconds:30}")
+    private long syncTimeoutSeconds = 30;
+
+    public OCRJobService(OCRService ocrService,
+                         @Value("${ocr.workers:0}") int workers,
+                         @Value("${ocr.queue-capacity:64}") int queueCapacity) {
+        this.ocrService = ocrService;
+        this.workerTesseract = ThreadLocal.withInitial(ocrService::newTesseract);
+
+        int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "ocr-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Enqueue a base64 encoded image for OCR and return the queued job.
+     * Throws if the queue is full so callers can retry later instead of piling up work.
+     */
+    public OCRJob submit(String imageBase64) {
+        return submit(ImageUpload.of(decode(imageBase64)));
+    }
+
+    /**
+     * Enqueue an uploaded image for OCR. The upload is closed once the job finishes,
+     * or immediately if the queue is full.
+     */
+    public OCRJob submit(ImageUpload image) {
+        // Workers have no request context; the locale decides how numeric dates are read
+        Locale locale = LocaleContextHolder.getLocale();
+        OCRJob job = new OCRJob(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, image, locale));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            image.close();
+            throw new RuntimeException("OCR queue is full, try again later");
+        }
+        return job;
+    }
+
+    /**
+     * Run OCR on the worker pool and wait for the result.
+     * Used by the synchronous processImageForOCR mutation.
+     */
+    public Map<String, Object> processImage(String imageBase64) {
+        return processImage(ImageUpload.of(decode(imageBase64)));
+    }
+
+    /**
+     * Run OCR on an uploaded image on the worker pool and wait for the result
+     */
+    public Map<String, Object> processImage(ImageUpload image) {
+        OCRJob finished = await(submit(image).getCompletion());
+        if (finished.getStatus() == Status.FAILED) {
+            throw new RuntimeException("OCR failed: " + finished.getError());
+        }
+        return finished.getResult();
+    }
+
+    /**
+     * Raw OCR text of an uploaded image, computed on the worker pool without tracking a job
+     */
+    public String extractText(ImageUpload image) {
+        CompletableFuture<String> text;
+        try {
+            text = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ocrService.extractText(image.data(), workerTesseract.get(), workerPreprocessor.get());
+                } finally {
+                    image.close();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            image.close();
+            throw new RuntimeException("OCR queue is full, try again later");
+        }
+        return await(text);
+    }
+
+    /**
+     * Find a job by id, or null if it is unknown or has been evicted
+     */
+    public OCRJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Emit the job once it has finished (immediately if it already has)
+     */
+    public Mono<OCRJob> awaitCompletion(String jobId) {
+        OCRJob job = jobs.get(jobId);
+        if (job == null) {
+            return Mono.error(new RuntimeException("OCR job not found: " + jobId));
+        }
+        return Mono.fromFuture(job.getCompletion());
+    }
+
+    /**
+     * Number of jobs waiting for a worker
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Drop finished jobs older than the retention period.
+     * Runs every 5 minutes.
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(OCRJob job, ImageUpload image, Locale locale) {
+        job.setStatus(Status.RUNNING);
+        try {
+            job.complete(ocrService.processImage(image.data(), workerTesseract.get(), workerPreprocessor.get(), locale));
+        } catch (RuntimeException | LinkageError e) {
+            // LinkageError covers a missing native Tesseract library on this host
+            System.err.println("OCR job " + job.getId() + " failed: " + e.getMessage());
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            image.close();
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(syncTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("OCR timed out after " + syncTimeoutSeconds + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for OCR");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException("OCR failed", cause);
+        }
+    }
+
+    private static byte[] decode(String imageBase64) {
+        try {
+            return Base64.getDecoder().decode(imageBase64);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Image is not valid base64");
+        }
+    }
+
+    /**
+     * State of one OCR job. Fields are written by a single worker thread and
+     * published through the volatile status and the completion future.
+     */
+    public static class OCRJob {
+        private final String id;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final CompletableFuture<OCRJob> completion = new CompletableFuture<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile Map<String, Object> result;
+        private volatile String error;
+        private volatile LocalDateTime completedAt;
+
+        OCRJob(String id) {
+            this.id = id;
+        }
+
+        void setStatus(Status status) {
+            this.status = status;
+        }
+
+        void complete(Map<String, Object> result) {
+            this.result = result;
+            this.completedAt = LocalDateTime.now();
+            this.status = Status.COMPLETED;
+            completion.complete(this);
+        }
+
+        void fail(String error) {
+            this.error = error;
+            this.completedAt = LocalDateTime.now();
+            this.status = Status.FAILED;
+            completion.complete(this);
+        }
+
+        public String getId() { return id; }
+        public Status getStatus() { return status; }
+        public Map<String, Object> getResult() { return result; }
+        public String getError() { return error; }
+        public LocalDateTime getSubmittedAt() { return submittedAt; }
+        public LocalDateTime getCompletedAt() { return completedAt; }
+        CompletableFuture<OCRJob> getCompletion() { return completion; }
+    }
+}
@@ -5,46 +5,60 @@ import net.sourceforge.tess4j.TesseractException;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.Base64;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class OCRService {
     
-    private final Tesseract tesseract;
+    private static final String TESSDATA_PATH = "/usr/share/tesseract-ocr/4.00/tessdata";
     
-    public OCRService() {
-        this.tesseract = new Tesseract();
+    private final ScanCacheService scanCacheService;
+    
+    public OCRService(ScanCacheService scanCacheService) {
+        this.scanCacheService = scanCacheService;
+    }
+    
+    /**
+     * Create a Tesseract instance for one OCR worker thread.
+     * Tesseract is not thread-safe, so instances must never be shared between threads;
+     * OCRJobService keeps one per worker.
+     */
+    public Tesseract newTesseract() {
+        Tesseract tesseract = new Tesseract();
         // Set the path to tessdata (training data)
         // In production, you would configure this properly
-        this.tesseract.setDatapath("/usr/share/tesseract-ocr/4.00/tessdata");
-        this.tesseract.setLanguage("eng");
+        tesseract.setDatapath(TESSDATA_PATH);
+        tesseract.setLanguage("eng");
+        // Preprocessed images are scaled to this resolution, so skip Tesseract's own DPI guess
+        tesseract.setVariable("user_defined_dpi", String.valueOf(OCRImagePreprocessor.TARGET_DPI));
+        return tesseract;
     }
     
     /**
-     * Process an image (base64 encoded) and extract grocery item information.
-     * Returns a map with extracted data: name, quantity, expirationDate
+     * Process an image and extract grocery item information using the caller's
+     * Tesseract and preprocessor, which must both belong to the calling thread.
+     * Returns a map with extracted data: name, quantity, expirationDate and the ranked
+     * expirationDateCandidates; the locale decides whether 03/04/25 is March or April.
      */
-    public Map<String, Object> processImage(String imageBase64) {
+    public Map<String, Object> processImage(ByteBuffer imageData, Tesseract tesseract,
+                                            OCRImagePreprocessor preprocessor, Locale locale) {
         try {
-            // Decode base64 image
-            byte[] imageBytes = Base64.getDecoder().decode(imageBase64);
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
-            
-            // Perform OCR
-            String extractedText = tesseract.doOCR(image);
-            
             // Parse the extracted text
-            return parseExtractedText(extractedText);
+            return parseExtractedText(recognize(imageData, tesseract, preprocessor), locale);
             
         } catch (IOException | TesseractException e) {
             // Fallback to simulation if OCR fails
@@ -52,10 +66,71 @@ public class OCRService {
         }
     }
     
+    /**
+     * Raw OCR text of an image, for callers that parse it themselves (nutrition labels).
+     * Same threading rules as processImage.
+     */
+    public String extractText(ByteBuffer imageData, Tesseract tesseract, OCRImagePreprocessor preprocessor) {
+        try {
+            return recognize(imageData, tesseract, preprocessor);
+        } catch (IOException | TesseractException e) {
+            throw new RuntimeException("OCR failed: " + e.getMessage());
+        }
+    }
+    
+    private String recognize(ByteBuffer imageData, Tesseract tesseract, OCRImagePreprocessor preprocessor)
+            throws IOException, TesseractException {
+        // The same photo uploaded again reads the same
+        String imageKey = ScanCacheService.imageKey(imageData);
+        String cached = scanCacheService.getOcrText(imageKey);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long start = ScanCacheService.cpuTimeNanos();
+        BufferedImage image = decodeImage(imageData);
+        
+        // Downscale, binarize, deskew and crop before OCR
+        OCRImagePreprocessor.PreprocessedImage prepared = preprocessor.preprocess(image);
+        
+        // Perform OCR on the 8-bit buffer directly, avoiding another image copy
+        String text = tesseract.doOCR(prepared.getWidth(), prepared.getHeight(), prepared.getPixels(), null, 8);
+        scanCacheService.putOcrText(imageKey, text, ScanCacheService.cpuTimeNanos() - start);
+        return text;
+    }
+    
+    /**
+     * Decode an encoded image straight from its buffer. Photos more than twice the
+     * preprocessing size are subsampled while decoding, so the full-resolution raster
+     * (36 MB for a 12 MP photo) is never materialized.
+     */
+    BufferedImage decodeImage(ByteBuffer imageData) throws IOException {
+        try (ImageInputStream input = new ByteBufferImageInputStream(imageData)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = longestSide / OCRImagePreprocessor.DEFAULT_MAX_DIMENSION;
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
     /**
      * Parse extracted text to find item name, quantity, and expiration date.
      */
-    private Map<String, Object> parseExtractedText(String text) {
+    Map<String, Object> parseExtractedText(String text, Locale locale) {
         Map<String, Object> result = new HashMap<>();
         
         // Extract item name (first line or first capitalized word)
@@ -66,10 +141,17 @@ public class OCRService {
         Integer quantity = extractQuantity(text);
         result.put("quantity", quantity != null ? quantity : 1);
         
-        // Extract expiration date
-        LocalDate expirationDate = extractExpirationDate(text);
-        result.put("expirationDate", expirationDate != null ? 
-            expirationDate.toString() : LocalDate.now().plusDays(7).toString());
+        // Extract expiration date, keeping the alternatives for the user to pick from
+        List<ExpirationDateRecognizer.Candidate> candidates =
+            ExpirationDateRecognizer.recognize(text, locale, LocalDate.now());
+        result.put("expirationDate", !candidates.isEmpty() ?
+            candidates.get(0).getDate().toString() : LocalDate.now().plusDays(7).toString());
+        result.put("expirationDateCandidates", candidates.stream()
+            .map(candidate -> Map.<String, Object>of(
+                "date", candidate.getDate().toString(),
+                "confidence", candidate.getConfidence(),
+                "text", candidate.getText()))
+            .collect(Collectors.toList()));
         
         return result;
     }
@@ -135,67 +217,6 @@ public class OCRService {
         return null;
     }
     
-    /**
-     * Extract expiration date from text.
-     */
-    private LocalDate extractExpirationDate(String text) {
-        if (text == null) {
-            return null;
-        }
-        
-        // Common date patterns
-        String[] datePatterns = {
-            "(?i)(exp|expiry|expires|best before|use by)\\s*:?\\s*(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})",
-            "\\b(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})\\b"
-        };
-        
-        for (String patternStr : datePatterns) {
-            Pattern pattern = Pattern.compile(patternStr);
-            Matcher matcher = pattern.matcher(text);
-            
-            if (matcher.find()) {
-                String dateStr = matcher.group(matcher.groupCount());
-                LocalDate date = parseDate(dateStr);
-                if (date != null) {
-                    return date;
-                }
-            }
-        }
-        
-        return null;
-    }
-    
-    /**
-     * Parse a date string into LocalDate.
-     */
-    private LocalDate parseDate(String dateStr) {
-        if (dateStr == null) {
-            return null;
-        }
-        
-        // Try different date formats
-        String[] formats = {
-            "MM/dd/yyyy",
-            "dd/MM/yyyy",
-            "MM-dd-yyyy",
-            "dd-MM-yyyy",
-            "yyyy-MM-dd",
-            "MM/dd/yy",
-            "dd/MM/yy"
-        };
-        
-        for (String format : formats) {
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
-                return LocalDate.parse(dateStr, formatter);
-            } catch (DateTimeParseException e) {
-                // Try next format
-            }
-        }
-        
-        return null;
-    }
-    
     /**
      * Fallback simulation when OCR fails or for testing.
      */
@@ -0,0 +1,142 @@
+package com.groceriesapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.groceriesapp.model.BarcodeProduct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Product lookups against the Open Food Facts API.
+ *
+ * Responses are read as a token stream and only the fields the app uses are kept;
+ * the rest of the product (often tens of KB of ingredients, images and translations)
+ * is skipped without being materialized.
+ */
+@Service
+public class OpenFoodFactsClient {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final UpstreamHttpClient http;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public OpenFoodFactsClient(UpstreamHttpClient http,
+                               @Value("${barcode.open-food-facts.url:https://world.openfoodfacts.org/api/v0/product/}") String baseUrl,
+                               @Value("${barcode.open-food-facts.timeout-ms:3000}") long timeoutMillis) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+    }
+
+    /**
+     * Look up a barcode. Completes with a not-found product when the upstream does not
+     * know it, and fails when the upstream cannot be reached or answers with an error,
+     * so that failures are never mistaken for (and cached as) unknown barcodes.
+     */
+    public CompletableFuture<BarcodeProduct> fetchAsync(String barcode) {
+        return http.getAsync(url(barcode), timeout, (status, body) -> read(barcode, status, body));
+    }
+
+    /**
+     * Blocking form of fetchAsync
+     */
+    public BarcodeProduct fetch(String barcode) {
+        return http.get(url(barcode), timeout, (status, body) -> read(barcode, status, body));
+    }
+
+    private String url(String barcode) {
+        // Escaped so a barcode cannot reach outside the product path
+        return baseUrl + URLEncoder.encode(barcode, StandardCharsets.UTF_8) + ".json";
+    }
+
+    private static BarcodeProduct read(String barcode, int status, InputStream body) throws IOException {
+        if (status == 404) {
+            return BarcodeProduct.notFound(barcode);
+        }
+        if (status / 100 != 2) {
+            throw new IOException("Open Food Facts answered HTTP " + status);
+        }
+        return parse(barcode, body);
+    }
+
+    static BarcodeProduct parse(String barcode, InputStream body) throws IOException {
+        BarcodeProduct product = new BarcodeProduct();
+        product.setBarcode(barcode);
+        int status = 0;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected Open Food Facts response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getValueAsInt(0);
+                } else if ("product".equals(field) && value == JsonToken.START_OBJECT) {
+                    readProduct(parser, product);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (status == 0) {
+            return BarcodeProduct.notFound(barcode);
+        }
+        product.setFound(true);
+        product.setFetchedAt(LocalDateTime.now());
+        return product;
+    }
+
+    private static void readProduct(JsonParser parser, BarcodeProduct product) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "product_name" -> product.setProductName(parser.getValueAsString(""));
+                case "brands" -> product.setBrand(parser.getValueAsString(""));
+                case "categories" -> product.setCategory(parser.getValueAsString(""));
+                case "image_url" -> product.setImageUrl(parser.getValueAsString(""));
+                case "nutriments" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readNutriments(parser, product);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readNutriments(JsonParser parser, BarcodeProduct product) throws IOException {
+        // Like the old tree-based parsing, a product with nutriments reports 0 for missing values
+        product.setCalories(0.0);
+        product.setProtein(0.0);
+        product.setCarbs(0.0);
+        product.setFat(0.0);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "energy-kcal_100g" -> product.setCalories(parser.getValueAsDouble(0));
+                case "proteins_100g" -> product.setProtein(parser.getValueAsDouble(0));
+                case "carbohydrates_100g" -> product.setCarbs(parser.getValueAsDouble(0));
+                case "fat_100g" -> product.setFat(parser.getValueAsDouble(0));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,852 @@
+package com.groceriesapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.groceriesapp.model.BarcodeProduct;
+import com.groceriesapp.service.BarcodeExpansionService.NutritionInfo;
+import com.groceriesapp.service.BarcodeExpansionService.ProductInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local copy of the Open Food Facts catalogue, imported from its bulk JSONL dump so
+ * barcode lookups need no network.
+ *
+ * Only the fields BarcodeService and BarcodeExpansionService.ProductInfo use are kept.
+ * Products are appended to a data file as compact binary records, and a sorted index of
+ * (barcode as a long, record offset) pairs is written next to it. Both files are memory
+ * mapped, so a lookup is a binary search over the index plus one record decode, and the
+ * millions of products that are never scanned cost no heap.
+ *
+ * A delta dump appends its products to the data file and writes a new index merged over
+ * the current one. A full dump starts a new data file, which also drops the records
+ * deltas superseded. The CURRENT file names the live data file and index and is replaced
+ * atomically, so lookups always see a complete index.
+ */
+@Service
+public class ProductCatalogue {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final int MAGIC = 0x4f464643; // "OFFC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 16;
+    private static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / ENTRY_BYTES;
+
+    // The data file is mapped in 1 GB segments that overlap by the largest record,
+    // so every record can be read from the segment it starts in
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    // Per-100g nutriments kept, in record order
+    private static final String[] NUTRIMENTS = {
+        "energy-kcal_100g", "proteins_100g", "carbohydrates_100g", "fat_100g",
+        "fiber_100g", "sugars_100g", "sodium_100g"
+    };
+    private static final int HAS_NUTRIMENTS = 0x80;
+
+    private final Path directory;
+    private volatile Snapshot snapshot;
+
+    public ProductCatalogue(@Value("${barcode.catalogue.dir:${java.io.tmpdir}/groceries-product-catalogue}") String directory) {
+        this.directory = Path.of(directory);
+        this.snapshot = openCurrent();
+    }
+
+    /**
+     * Product for a barcode, or null if the catalogue does not have it
+     */
+    public ProductInfo getProductInfo(String barcode) {
+        Record record = find(barcode);
+        return record != null ? record.toProductInfo(barcode) : null;
+    }
+
+    /**
+     * Product for a barcode in the shape BarcodeService caches, or null if the
+     * catalogue does not have it
+     */
+    public BarcodeProduct getBarcodeProduct(String barcode) {
+        Record record = find(barcode);
+        return record != null ? record.toBarcodeProduct(barcode) : null;
+    }
+
+    /**
+     * Number of products in the catalogue
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.count : 0;
+    }
+
+    /**
+     * Import an Open Food Facts JSONL dump, gzipped if its name ends in .gz. A full dump
+     * replaces the catalogue; a delta adds its products and replaces the ones it repeats.
+     */
+    public synchronized ImportResult importDump(Path dump, boolean delta) throws IOException {
+        long started = System.nanoTime();
+        Snapshot current = snapshot;
+        boolean appending = delta && current != null;
+        long generation = appending ? current.generation : (current != null ? current.generation + 1 : 1);
+        long revision = appending ? current.revision + 1 : 0;
+
+        Files.createDirectories(directory);
+        Path dataFile = directory.resolve(dataFileName(generation));
+        Entries entries = new Entries();
+        int read = 0;
+        int skipped = 0;
+        long dataLength;
+        StandardOpenOption mode = appending ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+             JsonParser parser = JSON.createParser(open(dump))) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            RecordWriter writer = new RecordWriter();
+            long offset = channel.size();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected one product object per line, line " + parser.getCurrentLocation().getLineNr());
+                }
+                read++;
+                Record record = readProduct(parser);
+                long key = key(record.code);
+                int length = key >= 0 ? writer.encode(record) : -1;
+                if (length < 0) {
+                    skipped++;
+                    continue;
+                }
+                out.write(writer.bytes, 0, length);
+                entries.add(key, offset);
+                offset += length;
+            }
+            out.flush();
+            channel.force(false);
+            dataLength = offset;
+        }
+
+        entries.sortKeepingLatest();
+        if (appending) {
+            entries = entries.mergedOver(current);
+        }
+        writeIndex(directory.resolve(indexFileName(generation, revision)), entries, dataLength);
+        writeCurrent(generation, revision);
+        Snapshot next = open(generation, revision);
+        snapshot = next;
+        deleteSuperseded(next);
+
+        ImportResult result = new ImportResult(dump.getFileName().toString(), delta, read, skipped, next.count,
+            (System.nanoTime() - started) / 1_000_000);
+        System.out.println("Imported " + result);
+        return result;
+    }
+
+    /**
+     * Import the dumps waiting in the inbox: the newest full dump in inbox/full, then the
+     * deltas in inbox/delta in name order (Open Food Facts names them by time range).
+     * Imported dumps move to inbox/done and unreadable ones to inbox/failed.
+     *
+     * @return the number of dumps imported
+     */
+    public synchronized int importPending() {
+        Path inbox = directory.resolve("inbox");
+        List<Path> full = list(inbox.resolve("full"));
+        List<Path> deltas = list(inbox.resolve("delta"));
+        int imported = 0;
+
+        if (!full.isEmpty()) {
+            Path newest = full.get(full.size() - 1);
+            for (Path older : full.subList(0, full.size() - 1)) {
+                moveTo(older, inbox.resolve("done"));
+            }
+            imported += importFromInbox(newest, false, inbox);
+        }
+        for (Path delta : deltas) {
+            imported += importFromInbox(delta, true, inbox);
+        }
+        return imported;
+    }
+
+    private int importFromInbox(Path dump, boolean delta, Path inbox) {
+        try {
+            importDump(dump, delta);
+            moveTo(dump, inbox.resolve("done"));
+            return 1;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Product catalogue import of " + dump + " failed: " + e.getMessage());
+            moveTo(dump, inbox.resolve("failed"));
+            return 0;
+        }
+    }
+
+    /**
+     * Barcode as a number: digits only, at most 18 of them. Leading zeros do not count,
+     * so a UPC-A code and the same code zero-padded to EAN-13 are the same product.
+     * Returns -1 for anything else.
+     */
+    static long key(String barcode) {
+        if (barcode == null) {
+            return -1;
+        }
+        String code = barcode.trim();
+        if (code.isEmpty() || code.length() > 18) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    private Record find(String barcode) {
+        long key = key(barcode);
+        Snapshot current = snapshot;
+        if (key < 0 || current == null) {
+            return null;
+        }
+        long offset = current.offsetOf(key);
+        return offset >= 0 ? current.read(offset) : null;
+    }
+
+    // Dump parsing
+
+    static Record readProduct(JsonParser parser) throws IOException {
+        Record record = new Record();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "code" -> record.code = text(parser);
+                case "product_name" -> record.productName = text(parser);
+                case "brands" -> record.brand = text(parser);
+                case "categories" -> record.category = text(parser);
+                case "image_url" -> record.imageUrl = text(parser);
+                case "countries" -> record.country = text(parser);
+                case "ingredients" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        record.ingredients = readIngredients(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "nutriments" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readNutriments(parser, record);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return record;
+    }
+
+    private static List<String> readIngredients(JsonParser parser) throws IOException {
+        // Top-level ingredients only; sub-ingredients are part of their parent's text
+        List<String> ingredients = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                String text = text(parser);
+                if ("text".equals(field) && text != null) {
+                    ingredients.add(text);
+                }
+            }
+        }
+        return ingredients;
+    }
+
+    private static void readNutriments(JsonParser parser, Record record) throws IOException {
+        record.hasNutriments = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            int index = nutrimentIndex(field);
+            if (index >= 0 && value.isScalarValue()) {
+                record.nutriments[index] = parser.getValueAsDouble(Double.NaN);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static int nutrimentIndex(String field) {
+        for (int i = 0; i < NUTRIMENTS.length; i++) {
+            if (NUTRIMENTS[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Scalar value as text, null for null, blanks, objects and arrays (which are skipped)
+    private static String text(JsonParser parser) throws IOException {
+        if (!parser.currentToken().isScalarValue()) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = parser.getValueAsString();
+        return text == null || text.isBlank() ? null : text;
+    }
+
+    private static InputStream open(Path dump) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(dump), 1 << 16);
+        return dump.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    // Files
+
+    private static String dataFileName(long generation) {
+        return "catalogue-" + generation + ".dat";
+    }
+
+    private static String indexFileName(long generation, long revision) {
+        return "catalogue-" + generation + "-" + revision + ".idx";
+    }
+
+    private Snapshot openCurrent() {
+        Path currentFile = directory.resolve("CURRENT");
+        if (!Files.exists(currentFile)) {
+            return null;
+        }
+        try {
+            String[] parts = Files.readString(currentFile).trim().split(" ");
+            return open(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Product catalogue in " + directory + " is unreadable, starting empty: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Snapshot open(long generation, long revision) throws IOException {
+        MappedByteBuffer index;
+        try (FileChannel channel = FileChannel.open(directory.resolve(indexFileName(generation, revision)), StandardOpenOption.READ)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a product catalogue index");
+        }
+        long count = index.getLong(8);
+        long dataLength = index.getLong(16);
+        if (count < 0 || count > MAX_ENTRIES || index.capacity() != HEADER_BYTES + count * ENTRY_BYTES) {
+            throw new IOException("Truncated product catalogue index");
+        }
+
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((dataLength + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+        try (FileChannel channel = FileChannel.open(directory.resolve(dataFileName(generation)), StandardOpenOption.READ)) {
+            if (channel.size() < dataLength) {
+                throw new IOException("Truncated product catalogue data");
+            }
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_BYTES;
+                long length = Math.min(dataLength - start, SEGMENT_BYTES + MAX_RECORD_BYTES);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        }
+        return new Snapshot(generation, revision, index, (int) count, segments);
+    }
+
+    private static void writeIndex(Path file, Entries entries, long dataLength) throws IOException {
+        if (entries.size > MAX_ENTRIES) {
+            throw new IOException("Too many products for one index: " + entries.size);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(entries.size).putLong(dataLength).putLong(0);
+            for (int i = 0; i < entries.size; i++) {
+                if (buffer.remaining() < ENTRY_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(entries.keys[i]).putLong(entries.offsets[i]);
+            }
+            writeFully(channel, buffer);
+            channel.force(false);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeCurrent(long generation, long revision) throws IOException {
+        Path temp = directory.resolve("CURRENT.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.allocate(64).put((generation + " " + revision + "\n").getBytes(StandardCharsets.US_ASCII)));
+            channel.force(false);
+        }
+        Files.move(temp, directory.resolve("CURRENT"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteSuperseded(Snapshot live) {
+        // Lookups still holding the old snapshot keep reading its mappings after the unlink
+        String data = dataFileName(live.generation);
+        String index = indexFileName(live.generation, live.revision);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "catalogue-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(data) && !name.equals(index)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete superseded product catalogue files: " + e.getMessage());
+        }
+    }
+
+    private static List<Path> list(Path dir) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path file : entries) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list " + dir + ": " + e.getMessage());
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static void moveTo(Path file, Path dir) {
+        try {
+            Files.createDirectories(dir);
+            Files.move(file, dir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Could not move " + file + " to " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * One mapped index and data file. Immutable, so lookups need no locking and an
+     * import swaps in a new one.
+     */
+    private static final class Snapshot {
+        final long generation;
+        final long revision;
+        final MappedByteBuffer index;
+        final int count;
+        final MappedByteBuffer[] segments;
+
+        Snapshot(long generation, long revision, MappedByteBuffer index, int count, MappedByteBuffer[] segments) {
+            this.generation = generation;
+            this.revision = revision;
+            this.index = index;
+            this.count = count;
+            this.segments = segments;
+        }
+
+        long keyAt(int i) {
+            return index.getLong(HEADER_BYTES + i * ENTRY_BYTES);
+        }
+
+        long offsetAt(int i) {
+            return index.getLong(HEADER_BYTES + i * ENTRY_BYTES + 8);
+        }
+
+        long offsetOf(long key) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midKey = keyAt(mid);
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    return offsetAt(mid);
+                }
+            }
+            return -1;
+        }
+
+        Record read(long offset) {
+            RecordReader reader = new RecordReader(segments[(int) (offset / SEGMENT_BYTES)], (int) (offset % SEGMENT_BYTES));
+            return reader.decode();
+        }
+    }
+
+    /**
+     * Index entries being built, as parallel arrays of barcode keys and record offsets
+     */
+    private static final class Entries {
+        long[] keys = new long[1024];
+        long[] offsets = new long[1024];
+        int size;
+
+        void add(long key, long offset) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            keys[size] = key;
+            offsets[size] = offset;
+            size++;
+        }
+
+        /**
+         * Sort by key and keep one entry per key. Offsets grow as records are written,
+         * so the largest offset is the product's latest version.
+         */
+        void sortKeepingLatest() {
+            sort(0, size - 1);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && keys[i + 1] == keys[i]) {
+                    continue;
+                }
+                keys[kept] = keys[i];
+                offsets[kept] = offsets[i];
+                kept++;
+            }
+            size = kept;
+        }
+
+        /**
+         * These (sorted) entries merged with a snapshot's index, these winning on equal keys
+         */
+        Entries mergedOver(Snapshot base) {
+            Entries merged = new Entries();
+            merged.keys = new long[base.count + size];
+            merged.offsets = new long[base.count + size];
+            int i = 0;
+            int j = 0;
+            while (i < base.count || j < size) {
+                long baseKey = i < base.count ? base.keyAt(i) : Long.MAX_VALUE;
+                long key = j < size ? keys[j] : Long.MAX_VALUE;
+                if (key <= baseKey) {
+                    merged.add(key, offsets[j++]);
+                    if (key == baseKey) {
+                        i++;
+                    }
+                } else {
+                    merged.add(baseKey, base.offsetAt(i++));
+                }
+            }
+            return merged;
+        }
+
+        // Quicksort on (key, offset) pairs, which are unique since offsets are
+        private void sort(int low, int high) {
+            while (high - low > 16) {
+                int mid = (low + high) >>> 1;
+                if (less(mid, low)) swap(low, mid);
+                if (less(high, low)) swap(low, high);
+                if (less(high, mid)) swap(mid, high);
+                long pivotKey = keys[mid];
+                long pivotOffset = offsets[mid];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (keys[i] < pivotKey || (keys[i] == pivotKey && offsets[i] < pivotOffset)) i++;
+                    while (keys[j] > pivotKey || (keys[j] == pivotKey && offsets[j] > pivotOffset)) j--;
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // Recurse into the smaller side so the stack stays O(log n)
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && less(j, j - 1); j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private boolean less(int a, int b) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && offsets[a] < offsets[b]);
+        }
+
+        private void swap(int a, int b) {
+            long key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+            long offset = offsets[a];
+            offsets[a] = offsets[b];
+            offsets[b] = offset;
+        }
+    }
+
+    /**
+     * The projected fields of one product. On disk: a flags byte (bit 7 set when the
+     * product has nutriments, bits 0-6 for which of NUTRIMENTS are present), the present
+     * nutriments as doubles, then name, brand, categories, image URL and countries as
+     * length-prefixed UTF-8 and the ingredient count followed by the ingredients.
+     * Lengths and counts are unsigned varints; a string length of 0 means null.
+     */
+    static final class Record {
+        String code;
+        String productName;
+        String brand;
+        String category;
+        String imageUrl;
+        String country;
+        List<String> ingredients = List.of();
+        boolean hasNutriments;
+        final double[] nutriments = {Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+
+        ProductInfo toProductInfo(String barcode) {
+            ProductInfo product = new ProductInfo();
+            product.setBarcode(barcode);
+            product.setProductName(productName);
+            product.setBrand(brand);
+            product.setCategory(category);
+            product.setImageUrl(imageUrl);
+            product.setCountry(country);
+            product.setIngredients(ingredients);
+            if (hasNutriments) {
+                NutritionInfo nutrition = new NutritionInfo();
+                nutrition.setCalories(Double.isNaN(nutriments[0]) ? null : (int) Math.round(nutriments[0]));
+                nutrition.setProtein(nutriment(1));
+                nutrition.setCarbs(nutriment(2));
+                nutrition.setFat(nutriment(3));
+                nutrition.setFiber(nutriment(4));
+                nutrition.setSugar(nutriment(5));
+                nutrition.setSodium(nutriment(6));
+                product.setNutrition(nutrition);
+            }
+            return product;
+        }
+
+        BarcodeProduct toBarcodeProduct(String barcode) {
+            BarcodeProduct product = new BarcodeProduct();
+            product.setBarcode(barcode);
+            product.setFound(true);
+            product.setProductName(productName);
+            product.setBrand(brand);
+            product.setCategory(category);
+            product.setImageUrl(imageUrl);
+            if (hasNutriments) {
+                // Like OpenFoodFactsClient, a product with nutriments reports 0 for missing values
+                product.setCalories(orZero(0));
+                product.setProtein(orZero(1));
+                product.setCarbs(orZero(2));
+                product.setFat(orZero(3));
+            }
+            product.setFetchedAt(LocalDateTime.now());
+            return product;
+        }
+
+        private Double nutriment(int index) {
+            return Double.isNaN(nutriments[index]) ? null : nutriments[index];
+        }
+
+        private double orZero(int index) {
+            return Double.isNaN(nutriments[index]) ? 0.0 : nutriments[index];
+        }
+    }
+
+    private static final class RecordWriter {
+        byte[] bytes = new byte[4096];
+        int length;
+
+        /**
+         * Encode a record into bytes, returning its length, or -1 if it is too large
+         * even without its ingredients
+         */
+        int encode(Record record) {
+            if (encode(record, record.ingredients) <= MAX_RECORD_BYTES) {
+                return length;
+            }
+            return encode(record, List.of()) <= MAX_RECORD_BYTES ? length : -1;
+        }
+
+        private int encode(Record record, List<String> ingredients) {
+            length = 0;
+            int flags = record.hasNutriments ? HAS_NUTRIMENTS : 0;
+            for (int i = 0; i < NUTRIMENTS.length; i++) {
+                if (!Double.isNaN(record.nutriments[i])) {
+                    flags |= 1 << i;
+                }
+            }
+            ensure(1 + NUTRIMENTS.length * 8);
+            bytes[length++] = (byte) flags;
+            for (int i = 0; i < NUTRIMENTS.length; i++) {
+                if ((flags & (1 << i)) != 0) {
+                    long bits = Double.doubleToRawLongBits(record.nutriments[i]);
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        bytes[length++] = (byte) (bits >>> shift);
+                    }
+                }
+            }
+            writeString(record.productName);
+            writeString(record.brand);
+            writeString(record.category);
+            writeString(record.imageUrl);
+            writeString(record.country);
+            writeVarint(ingredients.size());
+            for (String ingredient : ingredients) {
+                writeString(ingredient);
+            }
+            return length;
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        private void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    // Reads with absolute gets only, so the shared mapped buffers need no copies or locks
+    private static final class RecordReader {
+        private final ByteBuffer buffer;
+        private int position;
+
+        RecordReader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        Record decode() {
+            Record record = new Record();
+            int flags = buffer.get(position++) & 0xff;
+            record.hasNutriments = (flags & HAS_NUTRIMENTS) != 0;
+            for (int i = 0; i < NUTRIMENTS.length; i++) {
+                if ((flags & (1 << i)) != 0) {
+                    record.nutriments[i] = buffer.getDouble(position);
+                    position += 8;
+                }
+            }
+            record.productName = readString();
+            record.brand = readString();
+            record.category = readString();
+            record.imageUrl = readString();
+            record.country = readString();
+            int ingredientCount = readVarint();
+            List<String> ingredients = new ArrayList<>(ingredientCount);
+            for (int i = 0; i < ingredientCount; i++) {
+                ingredients.add(readString());
+            }
+            record.ingredients = ingredients;
+            return record;
+        }
+
+        private String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            byte[] utf8 = new byte[length];
+            buffer.get(position, utf8);
+            position += length;
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome of one dump import
+     */
+    public static class ImportResult {
+        private final String dump;
+        private final boolean delta;
+        private final int productsRead;
+        private final int productsSkipped;
+        private final int catalogueSize;
+        private final long millis;
+
+        public ImportResult(String dump, boolean delta, int productsRead, int productsSkipped, int catalogueSize, long millis) {
+            this.dump = dump;
+            this.delta = delta;
+            this.productsRead = productsRead;
+            this.productsSkipped = productsSkipped;
+            this.catalogueSize = catalogueSize;
+            this.millis = millis;
+        }
+
+        public String getDump() { return dump; }
+        public boolean isDelta() { return delta; }
+        public int getProductsRead() { return productsRead; }
+        public int getProductsSkipped() { return productsSkipped; }
+        public int getCatalogueSize() { return catalogueSize; }
+        public long getMillis() { return millis; }
+
+        @Override
+        public String toString() {
+            return (delta ? "delta " : "full dump ") + dump + ": " + productsRead + " products read, "
+                + productsSkipped + " skipped, " + catalogueSize + " in catalogue, " + millis + " ms";
+        }
+    }
+}
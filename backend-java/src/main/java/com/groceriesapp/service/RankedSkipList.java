@@ -0,0 +1,285 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.LeaderboardService.Entry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Scores by id, ordered highest score first and then lowest id, with rank lookups.
+ *
+ * An indexable skip list: every link records how many entries it skips, so the rank of
+ * an entry and the entry at a rank are found in O(log n) like any lookup, and a page of
+ * k entries costs O(log n + k). Readers share a read lock; updates take the write lock.
+ */
+final class RankedSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final int LEVEL_ODDS = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node head = new Node(0, 0, MAX_LEVEL);
+    private final Map<Long, Integer> scores = new HashMap<>();
+    private int level = 1;
+
+    /**
+     * Set an id's score
+     */
+    void put(long id, int score) {
+        lock.writeLock().lock();
+        try {
+            Integer current = scores.put(id, score);
+            if (current != null) {
+                if (current == score) {
+                    return;
+                }
+                delete(current, id);
+            }
+            insert(score, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set an id's score unless it already has a higher one, for totals that only grow
+     * but whose updates may arrive out of order
+     */
+    void putIfHigher(long id, int score) {
+        lock.writeLock().lock();
+        try {
+            Integer current = scores.get(id);
+            if (current == null || current < score) {
+                scores.put(id, score);
+                if (current != null) {
+                    delete(current, id);
+                }
+                insert(score, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add to an id's score, starting from zero
+     */
+    int add(long id, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer current = scores.get(id);
+            int score = (current != null ? current : 0) + delta;
+            scores.put(id, score);
+            if (current != null) {
+                delete(current, id);
+            }
+            insert(score, id);
+            return score;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer current = scores.remove(id);
+            if (current != null) {
+                delete(current, id);
+            }
+            return current != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Integer score(long id) {
+        lock.readLock().lock();
+        try {
+            return scores.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return scores.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 1-based rank of an id, or 0 if it has no score
+     */
+    int rank(long id) {
+        lock.readLock().lock();
+        try {
+            Integer score = scores.get(id);
+            return score != null ? rankOf(score, id) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to count entries from a 1-based rank on
+     */
+    List<Entry> range(int fromRank, int count) {
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(count, scores.size() - fromRank + 1)));
+            Node node = fromRank >= 1 ? nodeAt(fromRank) : null;
+            for (int rank = fromRank; node != null && entries.size() < count; rank++, node = node.next[0]) {
+                entries.add(new Entry(node.id, node.score, rank));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * An id's entry with up to {@code neighbours} entries either side, or empty if it
+     * has no score
+     */
+    List<Entry> around(long id, int neighbours) {
+        lock.readLock().lock();
+        try {
+            Integer score = scores.get(id);
+            if (score == null) {
+                return List.of();
+            }
+            int rank = rankOf(score, id);
+            int from = Math.max(1, rank - neighbours);
+            return range(from, rank - from + neighbours + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Whether node sorts before (score, id)
+    private static boolean before(Node node, int score, long id) {
+        return node.score > score || (node.score == score && node.id < id);
+    }
+
+    private void insert(int score, long id) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], score, id)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        int size = scores.size() - 1;
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                // A link to nothing spans the rest of the list
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(score, id, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+    }
+
+    private void delete(int score, long id) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], score, id)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node node = x.next[0];
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+    }
+
+    private int rankOf(int score, long id) {
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && (before(x.next[i], score, id)
+                    || (x.next[i].score == score && x.next[i].id == id))) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.id == id) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    private Node nodeAt(int rank) {
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextInt(LEVEL_ODDS) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static final class Node {
+        final int score;
+        final long id;
+        final Node[] next;
+        final int[] span;
+
+        Node(int score, long id, int level) {
+            this.score = score;
+            this.id = id;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.groceriesapp.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How often one household restocks each item, learned from the days it bought, opened
+ * or used it up.
+ *
+ * Items are numbered by their key in the order this household first saw them, and each
+ * keeps the name the household last gave it, so suggestions read as the household wrote
+ * them. There is one entry per item and source, kept in parallel primitive arrays sorted
+ * by item and source: the last day seen, and the mean and variance of the days between
+ * sightings, about 28 bytes an entry. Sightings on the same day, or of the same item
+ * instance, count once. The mean and variance are exact over the first few gaps and then
+ * weighted towards recent ones, so a household that changes its habits is followed.
+ * Ranking is one pass over the entries, keeping only the top items as it goes.
+ */
+final class RepurchaseStats {
+
+    static final int SOURCES = 4;
+    // Gaps before an item is suggested
+    static final int MIN_GAPS = 2;
+    // Gaps beyond which older ones are forgotten exponentially
+    private static final int MEMORY = 8;
+
+    // Item numbers by key, and the name last seen for each
+    private final Map<String, Integer> items = new HashMap<>();
+    private String[] names = new String[8];
+
+    private int size;
+    private int[] keys = new int[8];
+    private int[] lastDay = new int[8];
+    private long[] lastRef = new long[8];
+    private int[] gaps = new int[8];
+    private float[] mean = new float[8];
+    private float[] variance = new float[8];
+
+    /**
+     * Record a sighting of an item by its key
+     */
+    synchronized void observe(String key, String name, int source, long ref, int day) {
+        observe(item(key, name), source, ref, day);
+    }
+
+    /**
+     * Record a sighting of an item
+     *
+     * @param ref the item or shopping list item it was, or 0 if unknown
+     */
+    synchronized void observe(int item, int source, long ref, int day) {
+        int key = item * SOURCES + source;
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            insert(-i - 1, key, ref, day);
+            return;
+        }
+        if ((ref != 0 && ref == lastRef[i]) || day <= lastDay[i]) {
+            lastRef[i] = ref;
+            return;
+        }
+        int gap = day - lastDay[i];
+        float alpha = 1f / Math.min(gaps[i] + 1, MEMORY);
+        float delta = gap - mean[i];
+        mean[i] += alpha * delta;
+        variance[i] = (1 - alpha) * (variance[i] + alpha * delta * delta);
+        gaps[i]++;
+        lastDay[i] = day;
+        lastRef[i] = ref;
+    }
+
+    /**
+     * The items most likely needed soon, most needed first: those due within the horizon
+     * or overdue, scored by how far past due they are in standard deviations. Items not
+     * seen for over twice their interval, and three deviations more, are taken as no
+     * longer bought.
+     *
+     * @param items receives the items, up to its length
+     * @return how many were written
+     */
+    synchronized int rank(int today, int horizonDays, int[] items) {
+        if (items.length == 0) {
+            return 0;
+        }
+        float[] scores = new float[items.length];
+        int count = 0;
+        int i = 0;
+        while (i < size) {
+            int item = keys[i] / SOURCES;
+            // The source with the most evidence speaks for the item
+            int best = i;
+            for (i++; i < size && keys[i] / SOURCES == item; i++) {
+                if (gaps[i] > gaps[best]) {
+                    best = i;
+                }
+            }
+            if (gaps[best] < MIN_GAPS) {
+                continue;
+            }
+            float interval = mean[best];
+            float deviation = Math.max((float) Math.sqrt(variance[best]), Math.max(0.15f * interval, 0.5f));
+            int elapsed = Math.max(0, today - lastDay[best]);
+            if (interval - elapsed > horizonDays || elapsed > 2 * interval + 3 * deviation) {
+                continue;
+            }
+            float score = (elapsed - interval) / deviation;
+            if (count == items.length && score <= scores[count - 1]) {
+                continue;
+            }
+            // Insert into the top items, dropping the last if full
+            int at = count < items.length ? count++ : count - 1;
+            while (at > 0 && scores[at - 1] < score) {
+                scores[at] = scores[at - 1];
+                items[at] = items[at - 1];
+                at--;
+            }
+            scores[at] = score;
+            items[at] = item;
+        }
+        return count;
+    }
+
+    // Whether an item was last seen from a source as this instance
+    synchronized boolean isLast(String key, int source, long ref) {
+        Integer item = items.get(key);
+        return item != null && isLast(item, source, ref);
+    }
+
+    synchronized boolean isLast(int item, int source, long ref) {
+        int i = Arrays.binarySearch(keys, 0, size, item * SOURCES + source);
+        return i >= 0 && ref != 0 && lastRef[i] == ref;
+    }
+
+    // The names of the first count items
+    synchronized String[] names(int[] items, int count) {
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = names[items[i]];
+        }
+        return result;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private int item(String key, String name) {
+        Integer item = items.get(key);
+        if (item == null) {
+            item = items.size();
+            if (item == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            items.put(key, item);
+        }
+        names[item] = name;
+        return item;
+    }
+
+    private void insert(int at, int key, long ref, int day) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            lastDay = Arrays.copyOf(lastDay, capacity);
+            lastRef = Arrays.copyOf(lastRef, capacity);
+            gaps = Arrays.copyOf(gaps, capacity);
+            mean = Arrays.copyOf(mean, capacity);
+            variance = Arrays.copyOf(variance, capacity);
+        }
+        int moved = size - at;
+        System.arraycopy(keys, at, keys, at + 1, moved);
+        System.arraycopy(lastDay, at, lastDay, at + 1, moved);
+        System.arraycopy(lastRef, at, lastRef, at + 1, moved);
+        System.arraycopy(gaps, at, gaps, at + 1, moved);
+        System.arraycopy(mean, at, mean, at + 1, moved);
+        System.arraycopy(variance, at, variance, at + 1, moved);
+        keys[at] = key;
+        lastDay[at] = day;
+        lastRef[at] = ref;
+        gaps[at] = 0;
+        mean[at] = 0;
+        variance[at] = 0;
+        size++;
+    }
+}
@@ -0,0 +1,183 @@
+package com.groceriesapp.service;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.groceriesapp.model.nutrition.NutritionInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Caches scan results by content, since the same product labels are scanned again
+ * and again across households.
+ *
+ * OCR text is keyed by a hash of the uploaded image, so re-uploads and retries of a
+ * photo skip decoding, preprocessing and Tesseract. Parsed labels (nutrition info plus
+ * ingredient ids) are keyed by a hash of the OCR text, so different photos that read
+ * the same skip parsing and the ingredient lookups.
+ */
+@Service
+public class ScanCacheService {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // Entity timestamps are set on save and are not part of a parse result
+    private static final Gson GSON = new GsonBuilder()
+        .setExclusionStrategies(new ExclusionStrategy() {
+            @Override
+            public boolean shouldSkipField(FieldAttributes field) {
+                return field.getDeclaredClass() == LocalDateTime.class;
+            }
+
+            @Override
+            public boolean shouldSkipClass(Class<?> type) {
+                return false;
+            }
+        })
+        .create();
+
+    private final ContentCache ocrTextCache;
+    private final ContentCache labelCache;
+    private final Duration diskTtl;
+
+    public ScanCacheService(@Value("${scan.cache.dir:${java.io.tmpdir}/groceries-scan-cache}") String directory,
+                            @Value("${scan.cache.max-entries:10000}") int maxEntries,
+                            @Value("${scan.cache.disk-ttl-days:30}") int diskTtlDays) {
+        Path root = Path.of(directory);
+        this.ocrTextCache = new ContentCache("ocrText", maxEntries, root.resolve("ocr-text"));
+        this.labelCache = new ContentCache("parsedLabel", maxEntries, root.resolve("parsed-label"));
+        this.diskTtl = Duration.ofDays(diskTtlDays);
+    }
+
+    /**
+     * Hash of an encoded image upload. Only the exact same file hits: a perceptual
+     * hash of the preprocessed label cannot tell "Sodium 160mg" from "Sodium 180mg",
+     * and serving one label's text for another is worse than running OCR.
+     */
+    public static String imageKey(ByteBuffer encodedImage) {
+        MessageDigest digest = sha256();
+        digest.update(encodedImage.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hash of OCR text with whitespace collapsed and case folded, so line wrapping
+     * differences between OCR runs do not matter
+     */
+    public static String textKey(String ocrText) {
+        StringBuilder normalized = new StringBuilder(ocrText.length());
+        boolean space = false;
+        for (int i = 0; i < ocrText.length(); i++) {
+            char c = ocrText.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+            normalized.append(Character.toLowerCase(c));
+        }
+        return HexFormat.of().formatHex(sha256().digest(normalized.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * CPU time of the calling thread, used to measure the cost of cached work.
+     * Falls back to wall time where the JVM cannot measure thread CPU time.
+     */
+    public static long cpuTimeNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    public String getOcrText(String imageKey) {
+        return ocrTextCache.get(imageKey);
+    }
+
+    public void putOcrText(String imageKey, String text, long computeNanos) {
+        ocrTextCache.put(imageKey, text, computeNanos);
+    }
+
+    /**
+     * Parsed label for OCR text, or null on a miss. Returns a fresh copy each time,
+     * so callers may modify and save the NutritionInfo.
+     */
+    public ParsedLabel getParsedLabel(String textKey) {
+        String json = labelCache.get(textKey);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return GSON.fromJson(json, ParsedLabel.class);
+        } catch (JsonParseException e) {
+            System.err.println("Discarding unreadable parsed label " + textKey + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void putParsedLabel(String textKey, ParsedLabel label, long computeNanos) {
+        labelCache.put(textKey, GSON.toJson(label), computeNanos);
+    }
+
+    public List<ContentCache.Stats> getStats() {
+        return List.of(ocrTextCache.getStats(), labelCache.getStats());
+    }
+
+    /**
+     * Delete disk entries unused for longer than the TTL.
+     * Runs daily at 4 AM.
+     */
+    @Scheduled(cron = "0 0 4 * * *")
+    public void evictStaleEntries() {
+        Instant cutoff = Instant.now().minus(diskTtl);
+        int deleted = ocrTextCache.evictDiskOlderThan(cutoff) + labelCache.evictDiskOlderThan(cutoff);
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " stale scan cache entries");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Result of parsing one label: its nutrition info (null if none was found) and
+     * the ids of its ingredients in label order
+     */
+    public static class ParsedLabel {
+        private NutritionInfo nutritionInfo;
+        private List<Long> ingredientIds = new ArrayList<>();
+
+        public ParsedLabel() {
+        }
+
+        public ParsedLabel(NutritionInfo nutritionInfo, List<Long> ingredientIds) {
+            this.nutritionInfo = nutritionInfo;
+            this.ingredientIds = ingredientIds;
+        }
+
+        public NutritionInfo getNutritionInfo() { return nutritionInfo; }
+        public List<Long> getIngredientIds() { return ingredientIds; }
+    }
+}
@@ -10,8 +10,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +23,11 @@ public class ShoppingListService {
     private final ShoppingListRepository shoppingListRepository;
     private final ShoppingListItemRepository shoppingListItemRepository;
     private final HouseholdRepository householdRepository;
+    private final ShoppingSuggestionEngine shoppingSuggestionEngine;
+    
+    // For households with no history yet
+    private static final List<String> STARTER_SUGGESTIONS = List.of("Milk", "Eggs", "Bread", "Apples", "Chicken");
+    private static final int SUGGESTIONS = 10;
     
     @Transactional
     public ShoppingList getOrCreateShoppingList(Long householdId) {
@@ -55,14 +63,37 @@ public class ShoppingListService {
             .orElseThrow(() -> new RuntimeException("Shopping list item not found"));
         
         item.setIsPurchased(!item.getIsPurchased());
+        if (item.getIsPurchased()) {
+            shoppingSuggestionEngine.recordPurchased(
+                item.getShoppingList().getHousehold().getId(), item.getId(), item.getName());
+        }
         return shoppingListItemRepository.save(item);
     }
     
     /**
-     * Placeholder for smart shopping suggestions based on consumption patterns.
+     * Items the household is likely to need soon, from how often it restocks them, less
+     * those already on its shopping list.
      */
+    @Transactional(readOnly = true)
     public List<String> getSmartSuggestions(Long householdId) {
-        // In a real implementation, this would analyze consumption history
-        return Arrays.asList("Milk", "Eggs", "Bread", "Apples", "Chicken");
+        Set<String> listed = new HashSet<>();
+        shoppingListRepository.findByHouseholdId(householdId).ifPresent(list -> {
+            for (ShoppingListItem item : list.getItems()) {
+                if (!Boolean.TRUE.equals(item.getIsPurchased())) {
+                    listed.add(ShoppingSuggestionEngine.itemKey(item.getName()));
+                }
+            }
+        });
+        
+        List<String> suggestions = new ArrayList<>();
+        for (String name : shoppingSuggestionEngine.suggest(householdId, LocalDate.now(), SUGGESTIONS + listed.size())) {
+            if (suggestions.size() < SUGGESTIONS && !listed.contains(ShoppingSuggestionEngine.itemKey(name))) {
+                suggestions.add(name);
+            }
+        }
+        if (suggestions.isEmpty() && !shoppingSuggestionEngine.hasHistory(householdId)) {
+            return STARTER_SUGGESTIONS;
+        }
+        return suggestions;
     }
 }
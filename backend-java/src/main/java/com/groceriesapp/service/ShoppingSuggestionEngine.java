@@ -0,0 +1,346 @@
+package com.groceriesapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.groceriesapp.model.HouseholdItemEvent;
+import com.groceriesapp.model.HouseholdItemEvent.Source;
+import com.groceriesapp.repository.HouseholdItemEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shopping suggestions from what each household actually buys and uses.
+ *
+ * Buying an item from the shopping list, marking it used and logging the first
+ * consumption of it are appended to household_item_events, and learned from once they
+ * commit. Consumption is only looked at once its log commits, so a serving never waits
+ * on the ledger. Each household's history is folded into RepurchaseStats, held in a bounded
+ * cache and loaded from the ledger on a miss; the stats number the household's own item
+ * keys so they are primitive arrays, and keep its names for them. Ranking a household
+ * reads only its stats.
+ *
+ * Every night the ledger is re-read in slices of household ids on a few threads, which
+ * rebuilds the stats (dropping history past the window) and stores each household's
+ * suggestions for the day. A household with events since then is ranked live instead.
+ */
+@Service
+public class ShoppingSuggestionEngine {
+
+    private static final String HISTORY_SQL = "SELECT household_id, item_key, name, source, item_id, event_date"
+        + " FROM household_item_events WHERE household_id BETWEEN ? AND ? AND event_date >= ?"
+        + " ORDER BY household_id, event_date, id";
+
+    // Sizes and packaging, which do not make a different item
+    private static final Set<String> UNIT_WORDS = Set.of(
+        "kg", "g", "gr", "grams", "ml", "cl", "l", "lb", "lbs", "oz", "x", "pack", "pk", "ct");
+
+    private final HouseholdItemEventRepository householdItemEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    // Writes openings after the consumption log's transaction has committed
+    private final TransactionTemplate newTransaction;
+    private final int historyDays;
+    private final int horizonDays;
+    private final int limit;
+    private final int sliceSize;
+    private final ExecutorService nightlyExecutor;
+    private final Cache<Long, RepurchaseStats> stats;
+
+    private final Map<Long, Precomputed> precomputed = new ConcurrentHashMap<>();
+    // Households with events since the nightly run started
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    public ShoppingSuggestionEngine(HouseholdItemEventRepository householdItemEventRepository,
+                                    JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                    @Value("${suggestions.history-days:365}") int historyDays,
+                                    @Value("${suggestions.horizon-days:3}") int horizonDays,
+                                    @Value("${suggestions.limit:10}") int limit,
+                                    @Value("${suggestions.cache-size:100000}") long cacheSize,
+                                    @Value("${suggestions.nightly-threads:4}") int nightlyThreads,
+                                    @Value("${suggestions.slice-size:5000}") int sliceSize) {
+        this.householdItemEventRepository = householdItemEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.historyDays = historyDays;
+        this.horizonDays = horizonDays;
+        this.limit = limit;
+        this.sliceSize = sliceSize;
+        this.stats = Caffeine.newBuilder().maximumSize(cacheSize).build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.nightlyExecutor = Executors.newFixedThreadPool(nightlyThreads, runnable -> {
+            Thread thread = new Thread(runnable, "suggestions-nightly-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void recordPurchased(Long householdId, Long shoppingListItemId, String name) {
+        record(householdId, name, Source.PURCHASED, shoppingListItemId);
+    }
+
+    public void recordUsed(Long householdId, Long itemId, String name) {
+        record(householdId, name, Source.USED, itemId);
+    }
+
+    /**
+     * Record consumption logged for an item once it commits; only the first for each item
+     * is kept, as the household opening it.
+     */
+    public void recordConsumed(Long householdId, Long itemId, String name) {
+        String key = itemKey(name);
+        if (householdId == null || itemId == null || key.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                recordOpened(householdId, itemId, key, name);
+            } catch (Exception e) {
+                System.err.println("Failed to record item " + itemId + " opened: " + e.getMessage());
+            }
+        });
+    }
+
+    public List<String> suggest(Long householdId) {
+        return suggest(householdId, LocalDate.now(), limit);
+    }
+
+    /**
+     * Items the household is likely to need soon, most needed first.
+     */
+    public List<String> suggest(Long householdId, LocalDate today, int count) {
+        int day = (int) today.toEpochDay();
+        Precomputed stored = precomputed.get(householdId);
+        if (stored != null && stored.day == day && (count <= stored.names.length || stored.complete)) {
+            return List.of(stored.names).subList(0, Math.min(count, stored.names.length));
+        }
+        RepurchaseStats household = statsFor(householdId);
+        int[] items = new int[count];
+        return List.of(household.names(items, household.rank(day, horizonDays, items)));
+    }
+
+    public boolean hasHistory(Long householdId) {
+        return !statsFor(householdId).isEmpty();
+    }
+
+    @Scheduled(cron = "${suggestions.nightly-cron:0 30 1 * * *}")
+    public void precomputeNightly() {
+        try {
+            PrecomputeRun run = precomputeAll(LocalDate.now());
+            System.out.println("Precomputed shopping suggestions for " + run.getHouseholds() + " households from "
+                + run.getEvents() + " events in " + run.getMillis() + " ms"
+                + (run.getFailedSlices() > 0 ? ", " + run.getFailedSlices() + " slices failed" : ""));
+        } catch (Exception e) {
+            System.err.println("Failed to precompute shopping suggestions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild every household's stats from the ledger and store its suggestions for a day,
+     * one slice of household ids per task.
+     */
+    public PrecomputeRun precomputeAll(LocalDate day) throws InterruptedException {
+        long started = System.currentTimeMillis();
+        changed.clear();
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM households", Long.class);
+        List<Future<int[]>> slices = new ArrayList<>();
+        for (long from = 1; maxId != null && from <= maxId; from += sliceSize) {
+            long first = from;
+            slices.add(nightlyExecutor.submit(() -> precomputeSlice(first, first + sliceSize - 1, day)));
+        }
+        int households = 0;
+        long events = 0;
+        int failed = 0;
+        for (Future<int[]> slice : slices) {
+            try {
+                int[] counts = slice.get();
+                households += counts[0];
+                events += counts[1];
+            } catch (ExecutionException e) {
+                failed++;
+                System.err.println("Failed to precompute a slice of shopping suggestions: " + e.getCause().getMessage());
+            }
+        }
+        return new PrecomputeRun(day, households, events, failed, System.currentTimeMillis() - started);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        nightlyExecutor.shutdownNow();
+    }
+
+    /**
+     * The key items are learned by: lower-case words, without sizes and packaging
+     */
+    public static String itemKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (String word : name.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+            if (word.isEmpty() || UNIT_WORDS.contains(word)) {
+                continue;
+            }
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(word);
+        }
+        return key.length() > 100 ? key.substring(0, 100) : key.toString();
+    }
+
+    private int[] precomputeSlice(long from, long to, LocalDate day) {
+        Map<Long, RepurchaseStats> built = new HashMap<>();
+        long[] events = new long[1];
+        jdbcTemplate.query(HISTORY_SQL, (RowCallbackHandler) row -> {
+            RepurchaseStats household = built.computeIfAbsent(row.getLong(1), id -> new RepurchaseStats());
+            observe(household, row.getString(2), row.getString(3), Source.valueOf(row.getString(4)),
+                row.getLong(5), row.getDate(6).toLocalDate());
+            events[0]++;
+        }, from, to, Date.valueOf(day.minusDays(historyDays)));
+
+        int dayNumber = (int) day.toEpochDay();
+        int[] items = new int[limit * 2];
+        for (Map.Entry<Long, RepurchaseStats> household : built.entrySet()) {
+            Long householdId = household.getKey();
+            // Live stats already hold events this read may have missed
+            if (changed.contains(householdId)) {
+                continue;
+            }
+            int count = household.getValue().rank(dayNumber, horizonDays, items);
+            precomputed.put(householdId, new Precomputed(dayNumber, household.getValue().names(items, count),
+                count < items.length));
+            stats.asMap().replace(householdId, household.getValue());
+            if (changed.contains(householdId)) {
+                precomputed.remove(householdId);
+                stats.invalidate(householdId);
+            }
+        }
+        return new int[] {built.size(), (int) events[0]};
+    }
+
+    private void record(Long householdId, String name, Source source, Long ref) {
+        String key = itemKey(name);
+        if (householdId == null || key.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        householdItemEventRepository.save(new HouseholdItemEvent(householdId, key, name, source, ref, today));
+        afterCommit(() -> {
+            changed.add(householdId);
+            precomputed.remove(householdId);
+            RepurchaseStats household = stats.getIfPresent(householdId);
+            if (household != null) {
+                observe(household, key, name, source, ref != null ? ref : 0, today);
+            }
+        });
+    }
+
+    // Consumption is logged per serving; only the first of an item opens it
+    private void recordOpened(Long householdId, Long itemId, String key, String name) {
+        RepurchaseStats household = stats.getIfPresent(householdId);
+        if (household != null && household.isLast(key, Source.OPENED.ordinal(), itemId)) {
+            return;
+        }
+        // Not cached, or another item since: ask the ledger about this item only
+        if (householdItemEventRepository.existsByHouseholdIdAndItemIdAndSource(householdId, itemId, Source.OPENED)) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        newTransaction.executeWithoutResult(status -> householdItemEventRepository.save(
+            new HouseholdItemEvent(householdId, key, name, Source.OPENED, itemId, today)));
+        changed.add(householdId);
+        precomputed.remove(householdId);
+        household = stats.getIfPresent(householdId);
+        if (household != null) {
+            observe(household, key, name, Source.OPENED, itemId, today);
+        }
+    }
+
+    private RepurchaseStats statsFor(Long householdId) {
+        return stats.get(householdId, id -> {
+            RepurchaseStats household = new RepurchaseStats();
+            for (HouseholdItemEvent event : householdItemEventRepository.findHistory(
+                    id, LocalDate.now().minusDays(historyDays))) {
+                observe(household, event.getItemKey(), event.getName(), event.getSource(),
+                    event.getItemId() != null ? event.getItemId() : 0, event.getEventDate());
+            }
+            return household;
+        });
+    }
+
+    private void observe(RepurchaseStats household, String key, String name, Source source, long ref, LocalDate day) {
+        household.observe(key, name, source.ordinal(), ref, (int) day.toEpochDay());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // A household's suggestions for a day; complete if it had fewer than were asked for
+    private static final class Precomputed {
+        final int day;
+        final String[] names;
+        final boolean complete;
+
+        Precomputed(int day, String[] names, boolean complete) {
+            this.day = day;
+            this.names = names;
+            this.complete = complete;
+        }
+    }
+
+    public static class PrecomputeRun {
+        private final LocalDate day;
+        private final int households;
+        private final long events;
+        private final int failedSlices;
+        private final long millis;
+
+        public PrecomputeRun(LocalDate day, int households, long events, int failedSlices, long millis) {
+            this.day = day;
+            this.households = households;
+            this.events = events;
+            this.failedSlices = failedSlices;
+            this.millis = millis;
+        }
+
+        public LocalDate getDay() { return day; }
+        public int getHouseholds() { return households; }
+        public long getEvents() { return events; }
+        public int getFailedSlices() { return failedSlices; }
+        public long getMillis() { return millis; }
+    }
+}
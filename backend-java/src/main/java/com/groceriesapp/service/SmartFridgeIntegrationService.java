@@ -1,12 +1,28 @@
 package com.groceriesapp.service;
 
+import com.groceriesapp.model.Household;
+import com.groceriesapp.model.User;
+import com.groceriesapp.service.FridgeInventorySyncService.SyncDiff;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
 
 @Service
 public class SmartFridgeIntegrationService {
     
+    private final FridgeTelemetryService fridgeTelemetryService;
+    private final FridgeInventorySyncService fridgeInventorySyncService;
+    private final FridgePollingService fridgePollingService;
+    
+    public SmartFridgeIntegrationService(FridgeTelemetryService fridgeTelemetryService,
+                                         FridgeInventorySyncService fridgeInventorySyncService,
+                                         FridgePollingService fridgePollingService) {
+        this.fridgeTelemetryService = fridgeTelemetryService;
+        this.fridgeInventorySyncService = fridgeInventorySyncService;
+        this.fridgePollingService = fridgePollingService;
+    }
+    
     /**
      * Supported smart fridge brands
      */
@@ -77,6 +93,7 @@ public class SmartFridgeIntegrationService {
             
             if (connected) {
                 result.setCapabilities(getFridgeCapabilities(fridgeBrand));
+                fridgePollingService.register(fridgeBrand, deviceId, apiKey);
             }
             
         } catch (IllegalArgumentException e) {
@@ -87,6 +104,13 @@ public class SmartFridgeIntegrationService {
         return result;
     }
     
+    /**
+     * Disconnect a smart fridge: stop polling it for telemetry
+     */
+    public boolean disconnectFridge(String deviceId) {
+        return fridgePollingService.unregister(deviceId);
+    }
+    
     /**
      * Validate connection to smart fridge API
      */
@@ -166,6 +190,38 @@ public class SmartFridgeIntegrationService {
         return result;
     }
     
+    /**
+     * Sync items from smart fridge into the household's items, writing only what changed
+     * since the last sync
+     */
+    public SyncResult syncFridgeItems(String brand, String deviceId, Household household, User user) {
+        SyncResult result = new SyncResult();
+        result.setDeviceId(deviceId);
+        
+        try {
+            FridgeBrand fridgeBrand = FridgeBrand.valueOf(brand.toUpperCase());
+            List<FridgeItem> items = fetchFridgeItems(fridgeBrand, deviceId);
+            SyncDiff diff = fridgeInventorySyncService.sync(deviceId, household, user, items);
+            
+            result.setSuccess(true);
+            result.setItemsFound(items.size());
+            result.setItems(items);
+            result.setItemsAdded(diff.getAdded());
+            result.setItemsRemoved(diff.getRemoved());
+            result.setItemsUpdated(diff.getUpdated());
+            result.setMessage(diff.isUnchanged()
+                ? "No changes in " + fridgeBrand.getDisplayName() + " since the last sync"
+                : "Synced " + fridgeBrand.getDisplayName() + ": " + diff.getAdded() + " added, "
+                    + diff.getRemoved() + " removed, " + diff.getUpdated() + " updated");
+            
+        } catch (Exception e) {
+            result.setSuccess(false);
+            result.setMessage("Failed to sync items: " + e.getMessage());
+        }
+        
+        return result;
+    }
+    
     /**
      * Fetch items from smart fridge API
      */
@@ -176,20 +232,22 @@ public class SmartFridgeIntegrationService {
     }
     
     /**
-     * Get fridge temperature and humidity
+     * Get fridge temperature and humidity: the latest readings, and door openings over
+     * the last 24 hours. Null when the fridge has not reported any.
      */
     public EnvironmentalData getEnvironmentalData(String brand, String deviceId) {
         EnvironmentalData data = new EnvironmentalData();
         data.setDeviceId(deviceId);
         
         try {
-            FridgeBrand fridgeBrand = FridgeBrand.valueOf(brand.toUpperCase());
+            FridgeBrand.valueOf(brand.toUpperCase());
             
-            // In production, fetch actual sensor data from API
-            data.setTemperature(4.0); // Default fridge temp
-            data.setHumidity(65.0); // Default humidity
-            data.setDoorOpenCount(0);
-            data.setLastUpdated(new Date());
+            FridgeTelemetryService.EnvironmentWindow window =
+                fridgeTelemetryService.getWindow(deviceId, Duration.ofHours(24));
+            data.setTemperature(window.getLatestTemperature());
+            data.setHumidity(window.getLatestHumidity());
+            data.setDoorOpenCount(window.getLastUpdated() != null ? window.getDoorOpens() : null);
+            data.setLastUpdated(window.getLastUpdated());
             
         } catch (Exception e) {
             data.setTemperature(null);
@@ -250,6 +308,9 @@ public class SmartFridgeIntegrationService {
         private boolean success;
         private int itemsFound;
         private List<FridgeItem> items;
+        private int itemsAdded;
+        private int itemsRemoved;
+        private int itemsUpdated;
         private String message;
         
         // Getters and Setters
@@ -265,6 +326,15 @@ public class SmartFridgeIntegrationService {
         public List<FridgeItem> getItems() { return items; }
         public void setItems(List<FridgeItem> items) { this.items = items; }
         
+        public int getItemsAdded() { return itemsAdded; }
+        public void setItemsAdded(int itemsAdded) { this.itemsAdded = itemsAdded; }
+        
+        public int getItemsRemoved() { return itemsRemoved; }
+        public void setItemsRemoved(int itemsRemoved) { this.itemsRemoved = itemsRemoved; }
+        
+        public int getItemsUpdated() { return itemsUpdated; }
+        public void setItemsUpdated(int itemsUpdated) { this.itemsUpdated = itemsUpdated; }
+        
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
     }
@@ -272,6 +342,8 @@ public class SmartFridgeIntegrationService {
     public static class FridgeItem {
         private String name;
         private String location;
+        private Integer quantity;
+        private String barcode;
         private Date detectedDate;
         private String imageUrl;
         
@@ -282,6 +354,12 @@ public class SmartFridgeIntegrationService {
         public String getLocation() { return location; }
         public void setLocation(String location) { this.location = location; }
         
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+        
+        public String getBarcode() { return barcode; }
+        public void setBarcode(String barcode) { this.barcode = barcode; }
+        
         public Date getDetectedDate() { return detectedDate; }
         public void setDetectedDate(Date detectedDate) { this.detectedDate = detectedDate; }
         
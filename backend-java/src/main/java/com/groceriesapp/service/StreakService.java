@@ -0,0 +1,267 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.event.StreakExtendedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Daily streaks, computed for every user at once.
+ *
+ * During the day a user being active only sets their bit in a bitmap for the day; the
+ * bits are written to last_active_date in bulk, a few hundred users per statement, and
+ * the day it replaces moves to previous_active_date. Shortly after midnight one
+ * statement per slice of user ids extends the streak of everyone active yesterday and
+ * resets everyone else's, keyed on those dates. Rows the job has already counted are
+ * skipped, so it can safely run again. Users whose streak lands on an achievement
+ * threshold are then published as StreakExtendedEvents.
+ */
+@Service
+public class StreakService {
+
+    private static final String TOUCH_SQL = "UPDATE users SET previous_active_date = last_active_date,"
+        + " last_active_date = ? WHERE (last_active_date IS NULL OR last_active_date < ?) AND id IN (";
+
+    // Assignments apply left to right, so streak_date still holds the previous run's day when streak is computed
+    private static final String STREAK_SQL = "UPDATE users SET"
+        + " streak = CASE WHEN last_active_date = ? OR previous_active_date = ?"
+        + " THEN CASE WHEN streak_date = ? THEN streak + 1 ELSE 1 END ELSE 0 END,"
+        + " streak_date = CASE WHEN last_active_date = ? OR previous_active_date = ? THEN ? ELSE streak_date END"
+        + " WHERE id BETWEEN ? AND ? AND (streak_date IS NULL OR streak_date < ?)"
+        + " AND (streak > 0 OR last_active_date = ? OR previous_active_date = ?)";
+
+    private static final String MILESTONES_SQL = "SELECT id, streak FROM users WHERE streak_date = ? AND streak IN (";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AchievementEngine achievementEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int flushBatchSize;
+    private final int sliceSize;
+    private final String fullBatchSql;
+
+    private volatile Day today = new Day(LocalDate.now());
+    // Days past that may still have activity to write, oldest first
+    private final Queue<Day> earlier = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong touches = new AtomicLong();
+    private final AtomicLong usersWritten = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+
+    public StreakService(JdbcTemplate jdbcTemplate, AchievementEngine achievementEngine,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${streaks.flush-batch-size:500}") int flushBatchSize,
+                         @Value("${streaks.slice-size:50000}") int sliceSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.achievementEngine = achievementEngine;
+        this.eventPublisher = eventPublisher;
+        this.flushBatchSize = flushBatchSize;
+        this.sliceSize = sliceSize;
+        this.fullBatchSql = touchSql(flushBatchSize);
+    }
+
+    /**
+     * Mark a user active today. Not transactional: the user was active whether or not what
+     * they did commits.
+     */
+    public void touch(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        touches.incrementAndGet();
+        if (userId > ActivityBitmap.MAX_ID) {
+            Date date = Date.valueOf(LocalDate.now());
+            jdbcTemplate.update(touchSql(1), date, date, userId);
+            return;
+        }
+        currentDay().touched.set(userId);
+    }
+
+    /**
+     * Write activity not yet written, earlier days first.
+     *
+     * @return the users written
+     */
+    @Scheduled(fixedDelayString = "${streaks.flush-interval-ms:10000}")
+    public synchronized int flush() {
+        Day current = currentDay();
+        int written = 0;
+        try {
+            for (Iterator<Day> days = earlier.iterator(); days.hasNext(); ) {
+                Day day = days.next();
+                long[] ids = day.touched.unwritten();
+                // Dropped a flush after its last write, so a touch racing the rollover is not lost
+                if (ids.length == 0) {
+                    days.remove();
+                    continue;
+                }
+                written += write(day, ids);
+            }
+            written += write(current, current.touched.unwritten());
+        } catch (Exception e) {
+            // A later day written first would hide this one from the nightly job, so stop here
+            System.err.println("Failed to write user activity, will retry: " + e.getMessage());
+        }
+        return written;
+    }
+
+    @Scheduled(cron = "${streaks.nightly-cron:0 5 0 * * *}")
+    public void computeStreaksNightly() {
+        try {
+            StreakRun run = computeStreaks(LocalDate.now().minusDays(1));
+            System.out.println("Computed streaks for " + run.getDay() + ": " + run.getUsersUpdated()
+                + " users updated, " + run.getMilestones() + " milestones, in " + run.getMillis() + " ms");
+        } catch (Exception e) {
+            System.err.println("Failed to compute streaks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Extend the streaks of users active on a day and reset the rest. Run once the day is
+     * over; running it again for the same day changes nothing.
+     */
+    public StreakRun computeStreaks(LocalDate day) {
+        long started = System.currentTimeMillis();
+        flush();
+
+        Date date = Date.valueOf(day);
+        Date dayBefore = Date.valueOf(day.minusDays(1));
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        int updated = 0;
+        // Slices keep each statement's row locks short
+        for (long from = 1; maxId != null && from <= maxId; from += sliceSize) {
+            updated += jdbcTemplate.update(STREAK_SQL, date, date, dayBefore, date, date, date,
+                from, from + sliceSize - 1, date, date, date);
+            statements.incrementAndGet();
+        }
+        return new StreakRun(day, updated, publishMilestones(date), System.currentTimeMillis() - started);
+    }
+
+    public StreakStats getStats() {
+        return new StreakStats(touches.get(), usersWritten.get(), statements.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // A streak grows by one a night, so it passes a threshold exactly when it equals it
+    private int publishMilestones(Date date) {
+        int[] thresholds = achievementEngine.thresholds("STREAK");
+        if (thresholds.length == 0) {
+            return 0;
+        }
+        Object[] args = new Object[thresholds.length + 1];
+        args[0] = date;
+        for (int i = 0; i < thresholds.length; i++) {
+            args[i + 1] = thresholds[i];
+        }
+        List<long[]> milestones = jdbcTemplate.query(
+            MILESTONES_SQL + String.join(", ", Collections.nCopies(thresholds.length, "?")) + ")",
+            (row, rowNum) -> new long[] {row.getLong(1), row.getInt(2)}, args);
+        for (long[] milestone : milestones) {
+            try {
+                eventPublisher.publishEvent(new StreakExtendedEvent(milestone[0], (int) milestone[1]));
+            } catch (Exception e) {
+                System.err.println("Failed to check streak achievements for user " + milestone[0] + ": "
+                    + e.getMessage());
+            }
+        }
+        return milestones.size();
+    }
+
+    private int write(Day day, long[] ids) {
+        Date date = Date.valueOf(day.date);
+        for (int from = 0; from < ids.length; from += flushBatchSize) {
+            int to = Math.min(ids.length, from + flushBatchSize);
+            Object[] args = new Object[to - from + 2];
+            args[0] = date;
+            args[1] = date;
+            for (int i = from; i < to; i++) {
+                args[i - from + 2] = ids[i];
+            }
+            jdbcTemplate.update(to - from == flushBatchSize ? fullBatchSql : touchSql(to - from), args);
+            day.touched.markWritten(ids, from, to);
+            statements.incrementAndGet();
+        }
+        usersWritten.addAndGet(ids.length);
+        return ids.length;
+    }
+
+    private Day currentDay() {
+        Day current = today;
+        if (System.currentTimeMillis() >= current.endMillis) {
+            synchronized (earlier) {
+                if (today == current) {
+                    earlier.add(current);
+                    today = new Day(LocalDate.now());
+                }
+                current = today;
+            }
+        }
+        return current;
+    }
+
+    private static String touchSql(int ids) {
+        return TOUCH_SQL + String.join(", ", Collections.nCopies(ids, "?")) + ")";
+    }
+
+    private static final class Day {
+        final LocalDate date;
+        final long endMillis;
+        final ActivityBitmap touched = new ActivityBitmap();
+
+        Day(LocalDate date) {
+            this.date = date;
+            this.endMillis = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
+    public static class StreakRun {
+        private final LocalDate day;
+        private final int usersUpdated;
+        private final int milestones;
+        private final long millis;
+
+        public StreakRun(LocalDate day, int usersUpdated, int milestones, long millis) {
+            this.day = day;
+            this.usersUpdated = usersUpdated;
+            this.milestones = milestones;
+            this.millis = millis;
+        }
+
+        public LocalDate getDay() { return day; }
+        public int getUsersUpdated() { return usersUpdated; }
+        public int getMilestones() { return milestones; }
+        public long getMillis() { return millis; }
+    }
+
+    public static class StreakStats {
+        private final long touches;
+        private final long usersWritten;
+        private final long statements;
+
+        public StreakStats(long touches, long usersWritten, long statements) {
+            this.touches = touches;
+            this.usersWritten = usersWritten;
+            this.statements = statements;
+        }
+
+        public long getTouches() { return touches; }
+        public long getUsersWritten() { return usersWritten; }
+        public long getStatements() { return statements; }
+    }
+}
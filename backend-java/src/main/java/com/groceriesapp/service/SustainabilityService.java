@@ -1,41 +1,236 @@
 package com.groceriesapp.service;
 
 import com.groceriesapp.model.User;
+import com.groceriesapp.repository.Co2TotalRepository;
 import com.groceriesapp.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.groceriesapp.service.event.Co2SavedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * CO2 saved by using food before it expires, and running totals of it per user, per
+ * household and overall.
+ *
+ * Savings are added to in-memory counters, in grams, once the transaction that saved
+ * them commits, and a scheduled flush adds them to the stored totals in one batch per
+ * scope: users.total_co2_saved_kg for users, co2_totals for households and everyone.
+ * A total is what is stored plus what is not yet written, so reading one is a primary
+ * key lookup at most, and the global total is read from memory. The stored global total
+ * is reloaded on every flush, so savings made on other instances show up within one
+ * flush interval.
+ */
 @Service
-@RequiredArgsConstructor
 public class SustainabilityService {
-    
+
+    static final String HOUSEHOLD = "HOUSEHOLD";
+    static final String GLOBAL = "GLOBAL";
+
+    private static final String ADD_USER_SQL =
+        "UPDATE users SET total_co2_saved_kg = COALESCE(total_co2_saved_kg, 0) + ? WHERE id = ?";
+    private static final String ADD_TOTAL_SQL = "INSERT INTO co2_totals (scope, scope_id, grams, updated_at)"
+        + " VALUES (?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE grams = grams + VALUES(grams), updated_at = NOW()";
+
     private final UserRepository userRepository;
-    
+    private final Co2TotalRepository co2TotalRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Grams saved but not yet written
+    private final Map<Long, Long> unwrittenByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Long> unwrittenByHousehold = new ConcurrentHashMap<>();
+    private final LongAdder unwrittenGlobal = new LongAdder();
+    private volatile Long writtenGlobal;
+
+    // Reads hold the read lock so a flush is seen either entirely before or entirely after it is written
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public SustainabilityService(UserRepository userRepository, Co2TotalRepository co2TotalRepository,
+                                 JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.userRepository = userRepository;
+        this.co2TotalRepository = co2TotalRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
     /**
-     * Calculate CO2 saved by using an item before it expires.
-     * Formula: (daysBeforeExpiration / 7) * quantity * 0.5 kg CO2 per item
+     * Calculate CO2 saved by using an item before it expires: the emissions embodied in
+     * the food, which would have been wasted with it.
      */
     public double calculateCO2Saved(String itemName, int quantity, LocalDate expirationDate) {
-        long daysBeforeExpiration = ChronoUnit.DAYS.between(LocalDate.now(), expirationDate);
-        
-        if (daysBeforeExpiration < 0) {
+        return calculateCO2Saved(itemName, quantity, null, expirationDate);
+    }
+
+    /**
+     * Calculate CO2 saved by using an item before it expires.
+     *
+     * @param weightGrams total weight if known, otherwise estimated from the name
+     */
+    public double calculateCO2Saved(String itemName, int quantity, Integer weightGrams, LocalDate expirationDate) {
+        if (expirationDate != null && expirationDate.isBefore(LocalDate.now())) {
             return 0.0; // Item already expired
         }
-        
-        // Simple formula: more days before expiration = more CO2 saved
-        double co2PerItem = 0.5; // kg
-        double timeFactor = Math.max(0, daysBeforeExpiration / 7.0);
-        
-        return timeFactor * quantity * co2PerItem;
+        return FoodEmissionModel.co2Kg(itemName, quantity, weightGrams);
     }
-    
-    @Transactional
+
     public void updateCO2Saved(User user, double co2Saved) {
-        user.setTotalCo2SavedKg(user.getTotalCo2SavedKg() + co2Saved);
-        userRepository.save(user);
+        updateCO2Saved(user, user.getHousehold() != null ? user.getHousehold().getId() : null, co2Saved);
+    }
+
+    /**
+     * Add CO2 saved to the user's, the household's and the global totals once the current
+     * transaction commits, and publish the user's new total for achievements.
+     */
+    public void updateCO2Saved(User user, Long householdId, double co2Saved) {
+        long grams = Math.round(co2Saved * 1000);
+        if (grams <= 0) {
+            return;
+        }
+        Long userId = user.getId();
+        // Not under the flush lock: the caller's transaction may hold the row the flush is waiting for
+        double totalKg = userCo2SavedKg(userId) + grams / 1000.0;
+        afterCommit(() -> record(userId, householdId, grams));
+        eventPublisher.publishEvent(new Co2SavedEvent(userId, co2Saved, totalKg));
+    }
+
+    public double getUserCo2SavedKg(Long userId) {
+        flushLock.readLock().lock();
+        try {
+            return userCo2SavedKg(userId);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    public double getHouseholdCo2SavedKg(Long householdId) {
+        flushLock.readLock().lock();
+        try {
+            return (writtenGrams(HOUSEHOLD, householdId) + unwrittenByHousehold.getOrDefault(householdId, 0L)) / 1000.0;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    public double getGlobalCo2SavedKg() {
+        flushLock.readLock().lock();
+        try {
+            Long written = writtenGlobal;
+            if (written == null) {
+                written = writtenGrams(GLOBAL, 0L);
+                writtenGlobal = written;
+            }
+            return (written + unwrittenGlobal.sum()) / 1000.0;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write savings not yet written, in one transaction. If it fails they stay in memory
+     * for the next flush.
+     *
+     * @return the rows written
+     */
+    @Scheduled(fixedDelayString = "${sustainability.co2.flush-interval-ms:5000}")
+    public int flush() {
+        flushLock.writeLock().lock();
+        try {
+            List<Object[]> users = new ArrayList<>();
+            List<Object[]> totals = new ArrayList<>();
+            Map<Long, Long> drainedUsers = drain(unwrittenByUser);
+            Map<Long, Long> drainedHouseholds = drain(unwrittenByHousehold);
+            long drainedGlobal = unwrittenGlobal.sumThenReset();
+            drainedUsers.forEach((userId, grams) -> users.add(new Object[] {grams / 1000.0, userId}));
+            drainedHouseholds.forEach((householdId, grams) -> totals.add(new Object[] {HOUSEHOLD, householdId, grams}));
+            if (drainedGlobal != 0) {
+                totals.add(new Object[] {GLOBAL, 0L, drainedGlobal});
+            }
+            try {
+                writtenGlobal = transactionTemplate.execute(status -> {
+                    if (!users.isEmpty()) {
+                        jdbcTemplate.batchUpdate(ADD_USER_SQL, users);
+                    }
+                    if (!totals.isEmpty()) {
+                        jdbcTemplate.batchUpdate(ADD_TOTAL_SQL, totals);
+                    }
+                    return writtenGrams(GLOBAL, 0L);
+                });
+            } catch (Exception e) {
+                drainedUsers.forEach((userId, grams) -> unwrittenByUser.merge(userId, grams, Long::sum));
+                drainedHouseholds.forEach((householdId, grams) -> unwrittenByHousehold.merge(householdId, grams, Long::sum));
+                unwrittenGlobal.add(drainedGlobal);
+                System.err.println("Failed to write CO2 totals, will retry: " + e.getMessage());
+                return 0;
+            }
+            return users.size() + totals.size();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    void record(Long userId, Long householdId, long grams) {
+        unwrittenByUser.merge(userId, grams, Long::sum);
+        if (householdId != null) {
+            unwrittenByHousehold.merge(householdId, grams, Long::sum);
+        }
+        unwrittenGlobal.add(grams);
+    }
+
+    private double userCo2SavedKg(Long userId) {
+        Double written = userRepository.findTotalCo2SavedKgById(userId);
+        return (written != null ? written : 0.0) + unwrittenByUser.getOrDefault(userId, 0L) / 1000.0;
+    }
+
+    private long writtenGrams(String scope, Long scopeId) {
+        Long grams = co2TotalRepository.findGrams(scope, scopeId);
+        return grams != null ? grams : 0L;
+    }
+
+    // Removing each entry atomically leaves anything added meanwhile for the next flush
+    private static Map<Long, Long> drain(Map<Long, Long> unwritten) {
+        Map<Long, Long> drained = new HashMap<>();
+        for (Long key : unwritten.keySet()) {
+            Long grams = unwritten.remove(key);
+            if (grams != null && grams != 0) {
+                drained.put(key, grams);
+            }
+        }
+        return drained;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
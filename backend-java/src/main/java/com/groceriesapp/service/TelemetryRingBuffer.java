@@ -0,0 +1,96 @@
+package com.groceriesapp.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue of fridge telemetry events.
+ *
+ * Events are stored in preallocated primitive arrays, so offering one allocates
+ * nothing. Producers claim a slot by advancing the tail with a CAS and publish it by
+ * writing the slot's sequence number; the consumer reads slots in order up to the first
+ * one not yet published. A full buffer rejects the event instead of blocking the
+ * producer.
+ */
+public class TelemetryRingBuffer {
+
+    private final int mask;
+    private final int[] devices;
+    private final byte[] types;
+    private final float[] values;
+    private final long[] timestamps;
+    // sequences[slot] == position + 1 once the event at that position is written
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public TelemetryRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.devices = new int[capacity];
+        this.types = new byte[capacity];
+        this.values = new float[capacity];
+        this.timestamps = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Queue an event; false if the buffer is full
+     */
+    public boolean offer(int device, byte type, float value, long timestamp) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+
+        int slot = (int) position & mask;
+        devices[slot] = device;
+        types[slot] = type;
+        values[slot] = value;
+        timestamps[slot] = timestamp;
+        sequences.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Hand every published event to the consumer, in order. Only one thread may drain.
+     *
+     * @return number of events drained
+     */
+    public int drain(Consumer consumer) {
+        long position = head.get();
+        int drained = 0;
+        while (true) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            consumer.accept(devices[slot], types[slot], values[slot], timestamps[slot]);
+            position++;
+            drained++;
+            // Free the slot for producers as soon as it is read
+            head.lazySet(position);
+        }
+        return drained;
+    }
+
+    /**
+     * Events queued and not yet drained
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public interface Consumer {
+        void accept(int device, byte type, float value, long timestamp);
+    }
+}
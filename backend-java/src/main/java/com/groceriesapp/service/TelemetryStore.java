@@ -0,0 +1,221 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.FridgeTelemetryService.Aggregate;
+import com.groceriesapp.service.FridgeTelemetryService.Resolution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only files of fridge telemetry aggregates, one per resolution, UTC day and
+ * device shard: {@code <dir>/<resolution>/<yyyy-MM-dd>/<shard>.tsf}. Devices are spread
+ * over 256 shards for minutes and 16 for hours and days, so reading one device decodes
+ * only the aggregates of the few devices sharing its shard rather than the whole fleet.
+ *
+ * Every append writes one member to the end of the file: a header with the member's
+ * length and CRC-32, then the gzipped fixed-layout records. A crash or full disk can
+ * leave the last member cut off. Reads stop at the first member that is incomplete or
+ * fails its checksum, and the next append truncates the file back to the members before
+ * it, so one torn write loses only that write.
+ */
+class TelemetryStore {
+
+    private static final int VERSION = 1;
+    private static final int MAGIC = 0x54534631;
+    private static final int HEADER_BYTES = 12;
+    // Files whose intact length is remembered, beyond which it is looked up again
+    private static final int MAX_VALIDATED_FILES = 4096;
+
+    private final Path directory;
+    // Where the intact members of a file end, as of this instance's last append to it
+    private final Map<Path, Long> validLength = new HashMap<>();
+
+    TelemetryStore(Path directory) {
+        this.directory = directory;
+    }
+
+    synchronized void append(List<Aggregate> aggregates) throws IOException {
+        Map<Path, List<Aggregate>> byFile = new LinkedHashMap<>();
+        for (Aggregate aggregate : aggregates) {
+            byFile.computeIfAbsent(file(aggregate.getResolution(), day(aggregate.getBucketStartMillis()),
+                aggregate.getDeviceId()), path -> new ArrayList<>()).add(aggregate);
+        }
+
+        for (Map.Entry<Path, List<Aggregate>> entry : byFile.entrySet()) {
+            Path path = entry.getKey();
+            byte[] member = member(entry.getValue());
+            CRC32 crc = new CRC32();
+            crc.update(member);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + member.length);
+            buffer.putInt(MAGIC).putInt(member.length).putInt((int) crc.getValue()).put(member).flip();
+
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Unknown until the file is first checked, and again after a failed write
+                Long end = validLength.remove(path);
+                if (end == null || end != channel.size()) {
+                    end = readMembers(path, intact -> { });
+                    if (end < channel.size()) {
+                        System.err.println("Truncating torn telemetry member at byte " + end + " of " + path);
+                        channel.truncate(end);
+                    }
+                }
+                channel.position(end);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (validLength.size() >= MAX_VALIDATED_FILES) {
+                    validLength.clear();
+                }
+                validLength.put(path, end + buffer.limit());
+            }
+        }
+    }
+
+    /**
+     * Aggregates of one device starting in [from, to), oldest first. A bucket stored in
+     * several parts is returned merged.
+     */
+    List<Aggregate> read(String deviceId, Resolution resolution, long from, long to) throws IOException {
+        TreeMap<Long, Aggregate> found = new TreeMap<>();
+        LocalDate last = day(to - 1);
+        for (LocalDate day = day(from); !day.isAfter(last); day = day.plusDays(1)) {
+            Path file = file(resolution, day, deviceId);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            readMembers(file, member -> {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                         new GZIPInputStream(new ByteArrayInputStream(member), 8192), 8192))) {
+                    int version = in.readUnsignedByte();
+                    if (version != VERSION) {
+                        throw new IOException("Unsupported telemetry file version " + version);
+                    }
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        Aggregate aggregate = read(in, resolution);
+                        long start = aggregate.getBucketStartMillis();
+                        if (aggregate.getDeviceId().equals(deviceId) && start >= from && start < to) {
+                            found.merge(start, aggregate, Aggregate::merge);
+                        }
+                    }
+                }
+            });
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * Hand each intact member of a file to the reader, stopping at the first one that is
+     * cut off or corrupt
+     *
+     * @return the length of the file up to that member
+     */
+    private static long readMembers(Path file, MemberReader reader) throws IOException {
+        long size = Files.size(file);
+        long end = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 65536))) {
+            while (size - end >= HEADER_BYTES) {
+                int magic = in.readInt();
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (magic != MAGIC || length < 0 || length > size - end - HEADER_BYTES) {
+                    break;
+                }
+                byte[] member = in.readNBytes(length);
+                CRC32 crc = new CRC32();
+                crc.update(member);
+                if (member.length < length || (int) crc.getValue() != checksum) {
+                    break;
+                }
+                reader.read(member);
+                end += HEADER_BYTES + length;
+            }
+        }
+        return end;
+    }
+
+    private static byte[] member(List<Aggregate> aggregates) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new GZIPOutputStream(bytes, 8192), 8192))) {
+            out.writeByte(VERSION);
+            out.writeInt(aggregates.size());
+            for (Aggregate aggregate : aggregates) {
+                write(out, aggregate);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private Path file(Resolution resolution, LocalDate day, String deviceId) {
+        int shards = resolution == Resolution.MINUTE ? 256 : 16;
+        // String hash codes are fixed by the language, so shards are stable across restarts
+        int shard = Math.floorMod(deviceId.hashCode(), shards);
+        return directory.resolve(resolution.name().toLowerCase()).resolve(day.toString())
+            .resolve(String.format("%02x.tsf", shard));
+    }
+
+    private static LocalDate day(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    private static void write(DataOutputStream out, Aggregate aggregate) throws IOException {
+        out.writeUTF(aggregate.getDeviceId());
+        out.writeLong(aggregate.getBucketStartMillis());
+        out.writeInt(aggregate.getTemperatureSamples());
+        if (aggregate.getTemperatureSamples() > 0) {
+            out.writeFloat(aggregate.getTemperatureMin().floatValue());
+            out.writeFloat(aggregate.getTemperatureMax().floatValue());
+            out.writeDouble(aggregate.getTemperatureAvg());
+        }
+        out.writeInt(aggregate.getHumiditySamples());
+        if (aggregate.getHumiditySamples() > 0) {
+            out.writeFloat(aggregate.getHumidityMin().floatValue());
+            out.writeFloat(aggregate.getHumidityMax().floatValue());
+            out.writeDouble(aggregate.getHumidityAvg());
+        }
+        out.writeInt(aggregate.getDoorOpens());
+    }
+
+    private static Aggregate read(DataInputStream in, Resolution resolution) throws IOException {
+        String deviceId = in.readUTF();
+        long start = in.readLong();
+        int tCount = in.readInt();
+        float tMin = tCount > 0 ? in.readFloat() : 0;
+        float tMax = tCount > 0 ? in.readFloat() : 0;
+        double tAvg = tCount > 0 ? in.readDouble() : 0;
+        int hCount = in.readInt();
+        float hMin = hCount > 0 ? in.readFloat() : 0;
+        float hMax = hCount > 0 ? in.readFloat() : 0;
+        double hAvg = hCount > 0 ? in.readDouble() : 0;
+        int doors = in.readInt();
+        return new Aggregate(deviceId, resolution, start, tCount, tMin, tMax, tAvg, hCount, hMin, hMax, hAvg, doors);
+    }
+
+    private interface MemberReader {
+        void read(byte[] member) throws IOException;
+    }
+}
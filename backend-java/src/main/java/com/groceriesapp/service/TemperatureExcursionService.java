@@ -0,0 +1,339 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.FridgeSyncState;
+import com.groceriesapp.model.Item;
+import com.groceriesapp.model.ml.ExpirationPrediction;
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.repository.ItemRepository;
+import com.groceriesapp.service.ml.ExpirationPredictionService;
+import com.groceriesapp.service.ml.ExpirationPredictionService.PredictionInput;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects fridges that have been too warm for too long and re-predicts what is in them.
+ *
+ * Each rule is a threshold and a duration, e.g. above 8°C for 30 minutes. Readings are
+ * checked as telemetry drains: per device and rule only the start of the current run of
+ * readings above the threshold is kept, so the check is O(1) per reading and the window
+ * slides with every reading. When a run has lasted the rule's duration, the items the
+ * fridge's household keeps in it are re-predicted in one batch on a separate thread, at
+ * the run's mean temperature. A run that goes on triggers again after each further
+ * duration. Spoilage cannot be undone, so a prediction is only ever moved earlier; only
+ * moved items are saved, and their owners get one notification each.
+ *
+ * Detection lags ingestion by at most the drain interval plus the time to drain.
+ */
+@Service
+public class TemperatureExcursionService implements FridgeTelemetryService.TelemetryListener {
+
+    private final FridgeTelemetryService fridgeTelemetryService;
+    private final ItemRepository itemRepository;
+    private final FridgeSyncStateRepository fridgeSyncStateRepository;
+    private final ExpirationPredictionService expirationPredictionService;
+    private final NotificationService notificationService;
+    private final Rule[] rules;
+    private final Executor executor;
+
+    // Detection state, only touched on the draining thread
+    private long[] lastReadingAt = new long[0];
+
+    // Latest excursion per device not yet handled, so a backlog re-predicts each fridge once
+    private final Map<String, Excursion> pending = new ConcurrentHashMap<>();
+    private final LongAdder detections = new LongAdder();
+    private final LongAdder itemsRepredicted = new LongAdder();
+    private final LongAdder itemsMoved = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder lagSum = new LongAdder();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    @Autowired
+    public TemperatureExcursionService(FridgeTelemetryService fridgeTelemetryService,
+                                       ItemRepository itemRepository,
+                                       FridgeSyncStateRepository fridgeSyncStateRepository,
+                                       ExpirationPredictionService expirationPredictionService,
+                                       NotificationService notificationService,
+                                       @Value("${fridge.excursion.rules:8:30}") String rules) {
+        this(fridgeTelemetryService, itemRepository, fridgeSyncStateRepository, expirationPredictionService,
+            notificationService, rules, Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fridge-excursions");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    }
+
+    TemperatureExcursionService(FridgeTelemetryService fridgeTelemetryService,
+                                ItemRepository itemRepository,
+                                FridgeSyncStateRepository fridgeSyncStateRepository,
+                                ExpirationPredictionService expirationPredictionService,
+                                NotificationService notificationService,
+                                String rules,
+                                Executor executor) {
+        this.fridgeTelemetryService = fridgeTelemetryService;
+        this.itemRepository = itemRepository;
+        this.fridgeSyncStateRepository = fridgeSyncStateRepository;
+        this.expirationPredictionService = expirationPredictionService;
+        this.notificationService = notificationService;
+        this.rules = parseRules(rules);
+        this.executor = executor;
+        fridgeTelemetryService.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+            executorService.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void onTemperature(int device, float celsius, long timestampMillis) {
+        if (device >= lastReadingAt.length) {
+            grow(device + 1);
+        }
+        // Late readings would make a run look longer than it was. Timestamps are already
+        // bounded by the server clock, so one from a clock far ahead cannot hold back the rest.
+        if (timestampMillis < lastReadingAt[device]) {
+            return;
+        }
+        lastReadingAt[device] = timestampMillis;
+
+        Excursion worst = null;
+        for (Rule rule : rules) {
+            if (!(celsius > rule.threshold)) {
+                rule.runStart[device] = 0;
+                continue;
+            }
+            if (rule.runStart[device] == 0) {
+                rule.runStart[device] = timestampMillis;
+                rule.triggeredAt[device] = 0;
+                rule.sum[device] = 0;
+                rule.count[device] = 0;
+            }
+            rule.sum[device] += celsius;
+            rule.count[device]++;
+            long since = rule.runStart[device];
+            if (timestampMillis - since >= rule.durationMillis
+                    && timestampMillis - rule.triggeredAt[device] >= rule.durationMillis) {
+                rule.triggeredAt[device] = timestampMillis;
+                double mean = rule.sum[device] / rule.count[device];
+                if (worst == null || mean > worst.meanTemperature) {
+                    worst = new Excursion(fridgeTelemetryService.deviceId(device), rule.threshold, since,
+                        timestampMillis, mean);
+                }
+            }
+        }
+        if (worst != null) {
+            detected(worst);
+        }
+    }
+
+    private void detected(Excursion excursion) {
+        long lag = Math.max(0, System.currentTimeMillis() - excursion.until);
+        detections.increment();
+        lagSum.add(lag);
+        maxLag.accumulateAndGet(lag, Math::max);
+        System.out.println("Temperature excursion on fridge " + excursion.deviceId + ": above "
+            + excursion.thresholdCelsius + "°C for " + excursion.getMinutes() + " minutes");
+
+        Excursion previous = pending.put(excursion.deviceId, excursion);
+        if (previous == null) {
+            executor.execute(() -> {
+                Excursion latest = pending.remove(excursion.deviceId);
+                if (latest != null) {
+                    repredict(latest);
+                }
+            });
+        }
+    }
+
+    /**
+     * Re-predict the items kept in the excursion's fridge and notify owners of moved dates
+     */
+    void repredict(Excursion excursion) {
+        try {
+            FridgeSyncState state = fridgeSyncStateRepository.findById(excursion.deviceId).orElse(null);
+            if (state == null) {
+                // Not linked to a household yet, so there are no items to re-predict
+                return;
+            }
+            List<Item> items = new ArrayList<>();
+            for (Item item : itemRepository.findRefrigeratedItems(state.getHouseholdId(), excursion.deviceId)) {
+                String location = item.getStorageLocation();
+                if (location == null || !location.toLowerCase(Locale.ROOT).contains("freez")) {
+                    items.add(item);
+                }
+            }
+            if (items.isEmpty()) {
+                return;
+            }
+
+            LocalDate today = LocalDate.now();
+            List<PredictionInput> inputs = new ArrayList<>(items.size());
+            for (Item item : items) {
+                PredictionInput input = new PredictionInput();
+                input.setItemId(item.getId());
+                input.setCategory(expirationPredictionService.categorize(item.getName()));
+                input.setStorageLocation("FRIDGE");
+                input.setPurchaseDate(item.getCreatedAt() != null ? item.getCreatedAt().toLocalDate() : today);
+                input.setLabeledExpirationDate(item.getExpirationDate());
+                input.setTemperatureAvg(excursion.meanTemperature);
+                inputs.add(input);
+            }
+            List<ExpirationPrediction> predictions = expirationPredictionService.predictExpirationDates(inputs,
+                excursion.deviceId);
+            itemsRepredicted.add(items.size());
+
+            List<Item> moved = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                LocalDate current = item.getPredictedExpirationDate() != null
+                    ? item.getPredictedExpirationDate() : item.getExpirationDate();
+                LocalDate predicted = predictions.get(i).getPredictedExpirationDate();
+                if (current == null || predicted.isBefore(current)) {
+                    item.setPredictedExpirationDate(predicted);
+                    moved.add(item);
+                }
+            }
+            if (moved.isEmpty()) {
+                return;
+            }
+            itemRepository.saveAll(moved);
+            itemsMoved.add(moved.size());
+
+            Map<Long, List<Item>> byOwner = new LinkedHashMap<>();
+            for (Item item : moved) {
+                byOwner.computeIfAbsent(item.getAddedBy().getId(), id -> new ArrayList<>()).add(item);
+            }
+            for (Map.Entry<Long, List<Item>> owner : byOwner.entrySet()) {
+                notificationService.notifyFridgeExcursion(owner.getKey(), excursion.meanTemperature,
+                    excursion.getMinutes(), owner.getValue());
+                notifications.increment();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to re-predict items of fridge " + excursion.deviceId + ": " + e.getMessage());
+        }
+    }
+
+    public ExcursionStats getStats() {
+        long count = detections.sum();
+        return new ExcursionStats(count, itemsRepredicted.sum(), itemsMoved.sum(), notifications.sum(),
+            count > 0 ? lagSum.sum() / count : 0, maxLag.get());
+    }
+
+    private void grow(int devices) {
+        int capacity = Math.max(devices, Math.max(16, lastReadingAt.length * 2));
+        lastReadingAt = Arrays.copyOf(lastReadingAt, capacity);
+        for (Rule rule : rules) {
+            rule.grow(capacity);
+        }
+    }
+
+    /**
+     * Rules written as {@code <celsius>:<minutes>}, comma separated
+     */
+    static Rule[] parseRules(String rules) {
+        List<Rule> parsed = new ArrayList<>();
+        for (String rule : rules.split(",")) {
+            String[] parts = rule.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Temperature excursion rule must be <celsius>:<minutes>: " + rule);
+            }
+            parsed.add(new Rule(Double.parseDouble(parts[0].trim()),
+                (long) (Double.parseDouble(parts[1].trim()) * 60_000)));
+        }
+        return parsed.toArray(new Rule[0]);
+    }
+
+    /**
+     * A threshold and duration, with the run state of every device
+     */
+    static final class Rule {
+        final double threshold;
+        final long durationMillis;
+        long[] runStart = new long[0];
+        long[] triggeredAt = new long[0];
+        double[] sum = new double[0];
+        int[] count = new int[0];
+
+        Rule(double threshold, long durationMillis) {
+            this.threshold = threshold;
+            this.durationMillis = durationMillis;
+        }
+
+        void grow(int capacity) {
+            runStart = Arrays.copyOf(runStart, capacity);
+            triggeredAt = Arrays.copyOf(triggeredAt, capacity);
+            sum = Arrays.copyOf(sum, capacity);
+            count = Arrays.copyOf(count, capacity);
+        }
+    }
+
+    /**
+     * A fridge above a rule's threshold from {@code since} until the reading at {@code until}
+     */
+    static final class Excursion {
+        final String deviceId;
+        final double thresholdCelsius;
+        final long since;
+        final long until;
+        final double meanTemperature;
+
+        Excursion(String deviceId, double thresholdCelsius, long since, long until, double meanTemperature) {
+            this.deviceId = deviceId;
+            this.thresholdCelsius = thresholdCelsius;
+            this.since = since;
+            this.until = until;
+            this.meanTemperature = meanTemperature;
+        }
+
+        long getMinutes() {
+            return (until - since) / 60_000;
+        }
+    }
+
+    public static class ExcursionStats {
+        private final long detections;
+        private final long itemsRepredicted;
+        private final long itemsMoved;
+        private final long notifications;
+        private final long avgDetectionLagMillis;
+        private final long maxDetectionLagMillis;
+
+        public ExcursionStats(long detections, long itemsRepredicted, long itemsMoved, long notifications,
+                              long avgDetectionLagMillis, long maxDetectionLagMillis) {
+            this.detections = detections;
+            this.itemsRepredicted = itemsRepredicted;
+            this.itemsMoved = itemsMoved;
+            this.notifications = notifications;
+            this.avgDetectionLagMillis = avgDetectionLagMillis;
+            this.maxDetectionLagMillis = maxDetectionLagMillis;
+        }
+
+        public long getDetections() { return detections; }
+        public long getItemsRepredicted() { return itemsRepredicted; }
+        public long getItemsMoved() { return itemsMoved; }
+        public long getNotifications() { return notifications; }
+        /** From the reading that completed an excursion to its detection */
+        public long getAvgDetectionLagMillis() { return avgDetectionLagMillis; }
+        public long getMaxDetectionLagMillis() { return maxDetectionLagMillis; }
+    }
+}
@@ -0,0 +1,131 @@
+package com.groceriesapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.groceriesapp.service.BarcodeExpansionService.ProductInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Product lookups against the UPCitemdb API. Its products carry no nutrition or
+ * ingredients, but it knows many non-food and US-only barcodes Open Food Facts lacks.
+ */
+@Service
+public class UpcItemDbClient {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final UpstreamHttpClient http;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public UpcItemDbClient(UpstreamHttpClient http,
+                           @Value("${barcode.upcitemdb.url:https://api.upcitemdb.com/prod/trial/lookup}") String baseUrl,
+                           @Value("${barcode.upcitemdb.timeout-ms:3000}") long timeoutMillis) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+    }
+
+    /**
+     * Look up a barcode. Completes with null when the upstream does not know it (or
+     * rejects it as invalid), and fails when it cannot be reached or answers with
+     * another error.
+     */
+    public CompletableFuture<ProductInfo> fetchAsync(String barcode) {
+        return http.getAsync(url(barcode), timeout, (status, body) -> read(barcode, status, body));
+    }
+
+    /**
+     * Blocking form of fetchAsync
+     */
+    public ProductInfo fetch(String barcode) {
+        return http.get(url(barcode), timeout, (status, body) -> read(barcode, status, body));
+    }
+
+    private String url(String barcode) {
+        return baseUrl + "?upc=" + URLEncoder.encode(barcode, StandardCharsets.UTF_8);
+    }
+
+    private static ProductInfo read(String barcode, int status, InputStream body) throws IOException {
+        if (status == 404 || status == 400) {
+            return null;
+        }
+        if (status / 100 != 2) {
+            throw new IOException("UPCitemdb answered HTTP " + status);
+        }
+        return parse(barcode, body);
+    }
+
+    static ProductInfo parse(String barcode, InputStream body) throws IOException {
+        ProductInfo product = null;
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected UPCitemdb response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    // Only the first item; the rest are the same product from other listings
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (product == null) {
+                            product = readItem(parser, barcode);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return product != null && product.getProductName() != null ? product : null;
+    }
+
+    private static ProductInfo readItem(JsonParser parser, String barcode) throws IOException {
+        ProductInfo product = new ProductInfo();
+        product.setBarcode(barcode);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "title" -> product.setProductName(text(parser));
+                case "brand" -> product.setBrand(text(parser));
+                case "category" -> product.setCategory(text(parser));
+                case "images" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        JsonToken token;
+                        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                            String url = text(parser);
+                            if (product.getImageUrl() == null) {
+                                product.setImageUrl(url);
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return product;
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        if (!parser.currentToken().isScalarValue()) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = parser.getValueAsString();
+        return text == null || text.isBlank() ? null : text;
+    }
+}
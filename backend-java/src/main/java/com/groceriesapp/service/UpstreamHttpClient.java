@@ -0,0 +1,120 @@
+package com.groceriesapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP client for the product databases (Open Food Facts, UPCitemdb) and the
+ * smart-fridge clouds the FridgePollingService polls.
+ *
+ * Requests are non-blocking: no thread waits while a request is in flight, and the
+ * response body is parsed on the client's own small pool once it has arrived.
+ * Connections are pooled and kept alive across requests, HTTP/2 is used where the
+ * server offers it, and responses are requested gzipped.
+ */
+@Service
+public class UpstreamHttpClient {
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+
+    public UpstreamHttpClient(@Value("${barcode.http.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                              @Value("${barcode.http.threads:4}") int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "upstream-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+    }
+
+    /**
+     * GET a URL and read the response with the given reader. The future fails if the
+     * server cannot be reached, does not answer within the timeout, or the reader
+     * throws.
+     */
+    public <T> CompletableFuture<T> getAsync(String url, Duration timeout, ResponseReader<T> reader) {
+        return getAsync(url, Map.of(), timeout, reader);
+    }
+
+    /**
+     * getAsync with extra request headers, e.g. Authorization
+     */
+    public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, Duration timeout,
+                                             ResponseReader<T> reader) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+            .timeout(timeout)
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "gzip")
+            .header("User-Agent", "GroceriesExpirationTracker/1.0")
+            .GET();
+        headers.forEach(builder::header);
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                try {
+                    return reader.read(response.statusCode(), body(response));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    /**
+     * Blocking form of getAsync
+     */
+    public <T> T get(String url, Duration timeout, ResponseReader<T> reader) {
+        try {
+            return getAsync(url, timeout, reader).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static InputStream body(HttpResponse<byte[]> response) throws IOException {
+        InputStream body = new ByteArrayInputStream(response.body());
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
+        return gzipped ? new GZIPInputStream(body) : body;
+    }
+
+    /**
+     * Reads a response, given its status code and (decompressed) body
+     */
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(int status, InputStream body) throws IOException;
+    }
+}
@@ -0,0 +1,21 @@
+package com.groceriesapp.service.event;
+
+/**
+ * Published with CO2 saved by a user and their total including it.
+ */
+public class Co2SavedEvent {
+
+    private final Long userId;
+    private final double kilograms;
+    private final double totalKilograms;
+
+    public Co2SavedEvent(Long userId, double kilograms, double totalKilograms) {
+        this.userId = userId;
+        this.kilograms = kilograms;
+        this.totalKilograms = totalKilograms;
+    }
+
+    public Long getUserId() { return userId; }
+    public double getKilograms() { return kilograms; }
+    public double getTotalKilograms() { return totalKilograms; }
+}
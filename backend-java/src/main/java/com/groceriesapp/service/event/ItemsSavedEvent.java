@@ -0,0 +1,18 @@
+package com.groceriesapp.service.event;
+
+/**
+ * Published when a user uses up items before they expire.
+ */
+public class ItemsSavedEvent {
+
+    private final Long userId;
+    private final int count;
+
+    public ItemsSavedEvent(Long userId, int count) {
+        this.userId = userId;
+        this.count = count;
+    }
+
+    public Long getUserId() { return userId; }
+    public int getCount() { return count; }
+}
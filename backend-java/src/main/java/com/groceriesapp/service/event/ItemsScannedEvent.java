@@ -0,0 +1,18 @@
+package com.groceriesapp.service.event;
+
+/**
+ * Published when a user scans products that were recognised.
+ */
+public class ItemsScannedEvent {
+
+    private final Long userId;
+    private final int count;
+
+    public ItemsScannedEvent(Long userId, int count) {
+        this.userId = userId;
+        this.count = count;
+    }
+
+    public Long getUserId() { return userId; }
+    public int getCount() { return count; }
+}
@@ -0,0 +1,19 @@
+package com.groceriesapp.service.event;
+
+/**
+ * Published by the nightly streak job for users whose streak reached an achievement
+ * threshold.
+ */
+public class StreakExtendedEvent {
+
+    private final Long userId;
+    private final int streak;
+
+    public StreakExtendedEvent(Long userId, int streak) {
+        this.userId = userId;
+        this.streak = streak;
+    }
+
+    public Long getUserId() { return userId; }
+    public int getStreak() { return streak; }
+}
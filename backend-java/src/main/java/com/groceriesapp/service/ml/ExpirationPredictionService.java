@@ -1,6 +1,7 @@
 package com.groceriesapp.service.ml;
 
 import com.groceriesapp.model.ml.ExpirationPrediction;
+import com.groceriesapp.service.FridgeTelemetryService;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -36,6 +37,38 @@ public class ExpirationPredictionService {
         put("COUNTER", 0.6);
     }};
     
+    // Name keywords for items that arrive without a category, checked in order
+    private static final String[][] CATEGORY_KEYWORDS = {
+        {"FROZEN", "frozen", "ice cream"},
+        {"SEAFOOD", "fish", "salmon", "tuna", "shrimp", "prawn", "cod"},
+        {"MEAT", "chicken", "beef", "pork", "lamb", "turkey", "ham", "bacon", "sausage", "mince"},
+        {"DAIRY", "milk", "cheese", "yogurt", "yoghurt", "butter", "cream"},
+        {"EGGS", "egg"},
+        {"BREAD", "bread", "bagel", "bun", "roll", "tortilla"},
+        {"FRUITS", "apple", "banana", "orange", "berry", "berries", "grape", "lemon", "pear", "melon", "peach"},
+        {"VEGETABLES", "lettuce", "tomato", "carrot", "broccoli", "potato", "onion", "pepper", "spinach",
+            "cucumber", "salad", "cabbage", "mushroom"},
+        {"CONDIMENTS", "ketchup", "mustard", "mayo", "sauce", "jam", "dressing"},
+        {"BEVERAGES", "juice", "soda", "water", "beer", "wine", "coffee", "tea"},
+        {"CANNED", "canned"},
+        {"SNACKS", "chips", "crisps", "cookie", "chocolate", "cracker"}
+    };
+    
+    private final FridgeTelemetryService fridgeTelemetryService;
+    
+    public ExpirationPredictionService(FridgeTelemetryService fridgeTelemetryService) {
+        this.fridgeTelemetryService = fridgeTelemetryService;
+    }
+    
+    /**
+     * Predict expiration date of an item kept in a smart fridge, with temperature,
+     * humidity and door openings taken from the fridge's recent telemetry
+     */
+    public ExpirationPrediction predictExpirationDate(PredictionInput input, String deviceId) {
+        fridgeTelemetryService.applyEnvironment(input, deviceId);
+        return predictExpirationDate(input);
+    }
+    
     /**
      * Predict expiration date using machine learning model
      */
@@ -81,6 +114,40 @@ public class ExpirationPredictionService {
         return prediction;
     }
     
+    /**
+     * Predict expiration dates of several items kept in the same smart fridge. The
+     * fridge's telemetry is read once for the whole batch; inputs that already have
+     * environmental values keep them.
+     */
+    public List<ExpirationPrediction> predictExpirationDates(List<PredictionInput> inputs, String deviceId) {
+        PredictionInput environment = new PredictionInput();
+        fridgeTelemetryService.applyEnvironment(environment, deviceId);
+        
+        List<ExpirationPrediction> predictions = new ArrayList<>(inputs.size());
+        for (PredictionInput input : inputs) {
+            if (input.getTemperatureAvg() == null) input.setTemperatureAvg(environment.getTemperatureAvg());
+            if (input.getHumidityAvg() == null) input.setHumidityAvg(environment.getHumidityAvg());
+            if (input.getOpenCount() == null) input.setOpenCount(environment.getOpenCount());
+            predictions.add(predictExpirationDate(input));
+        }
+        return predictions;
+    }
+    
+    /**
+     * Category of an item from keywords in its name, or OTHER
+     */
+    public String categorize(String itemName) {
+        String name = itemName.toLowerCase();
+        for (String[] category : CATEGORY_KEYWORDS) {
+            for (int i = 1; i < category.length; i++) {
+                if (name.contains(category[i])) {
+                    return category[0];
+                }
+            }
+        }
+        return "OTHER";
+    }
+    
     /**
      * Extract features for ML model
      */
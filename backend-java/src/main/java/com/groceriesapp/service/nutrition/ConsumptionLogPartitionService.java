@@ -0,0 +1,113 @@
+package com.groceriesapp.service.nutrition;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains the monthly RANGE COLUMNS partitions of consumption_log.
+ *
+ * Partition pYYYYMM holds rows consumed before the first day of the following
+ * month; pmax catches anything beyond the last monthly partition. The daily job
+ * splits pmax so that upcoming months always have their own partition, and moves
+ * partitions older than the retention window into the compressed
+ * consumption_log_archive table before dropping them.
+ */
+@Service
+public class ConsumptionLogPartitionService {
+
+    private static final String TABLE = "consumption_log";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String COLUMNS = "id, user_id, item_id, consumed_at, servings_consumed, total_calories, " +
+            "total_protein_mg, total_carbs_mg, total_fat_mg, total_fiber_mg, total_sugar_mg, total_sodium_mg, " +
+            "meal_type, notes, created_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${nutrition.consumption-log.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${nutrition.consumption-log.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    /**
+     * Scheduled partition maintenance.
+     * Runs every day at 3:30 AM; both steps are idempotent.
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void maintainPartitions() {
+        Set<String> partitions = listPartitions();
+        if (partitions.isEmpty()) {
+            // Table is not partitioned (e.g. a schema created by Hibernate in development)
+            return;
+        }
+
+        YearMonth currentMonth = YearMonth.now();
+        createUpcomingPartitions(partitions, currentMonth);
+        archiveExpiredPartitions(partitions, currentMonth.minusMonths(retentionMonths));
+    }
+
+    /**
+     * Split pmax so that every month up to partitionsAhead months out has its own partition
+     */
+    private void createUpcomingPartitions(Set<String> partitions, YearMonth currentMonth) {
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            String name = month.format(PARTITION_NAME);
+            if (partitions.contains(name) || isCoveredByLaterPartition(partitions, name)) {
+                continue;
+            }
+
+            LocalDate upperBound = month.plusMonths(1).atDay(1);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" +
+                    "PARTITION " + name + " VALUES LESS THAN ('" + upperBound + "'), " +
+                    "PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            partitions.add(name);
+            System.out.println("Created consumption_log partition " + name);
+        }
+    }
+
+    /**
+     * Copy every partition for a month before the cutoff into the archive table, then drop it.
+     * INSERT IGNORE keeps a rerun safe if a previous run stopped between the copy and the drop.
+     */
+    private void archiveExpiredPartitions(Set<String> partitions, YearMonth cutoff) {
+        String cutoffName = cutoff.format(PARTITION_NAME);
+        for (String name : partitions) {
+            if (name.equals(MAX_PARTITION) || name.compareTo(cutoffName) >= 0) {
+                continue;
+            }
+
+            int archived = jdbcTemplate.update("INSERT IGNORE INTO consumption_log_archive (" + COLUMNS + ") " +
+                    "SELECT " + COLUMNS + " FROM " + TABLE + " PARTITION (" + name + ")");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + name);
+            System.out.println("Archived consumption_log partition " + name + " (" + archived + " rows)");
+        }
+    }
+
+    private Set<String> listPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM INFORMATION_SCHEMA.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                String.class, TABLE);
+        // pYYYYMM names sort chronologically, and "pmax" sorts after all of them
+        return new TreeSet<>(names);
+    }
+
+    private static boolean isCoveredByLaterPartition(Set<String> partitions, String name) {
+        // REORGANIZE can only split pmax, so a month below an existing monthly partition is already covered
+        return partitions.stream().anyMatch(p -> !p.equals(MAX_PARTITION) && p.compareTo(name) > 0);
+    }
+}
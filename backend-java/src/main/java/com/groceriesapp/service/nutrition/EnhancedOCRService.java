@@ -7,10 +7,7 @@ import com.groceriesapp.repository.nutrition.IngredientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Enhanced OCR Service for Nutrition Label Scanning
@@ -22,34 +19,6 @@ public class EnhancedOCRService {
     @Autowired
     private IngredientRepository ingredientRepository;
     
-    // Nutrition label patterns
-    private static final Pattern CALORIES_PATTERN = Pattern.compile("Calories[:\\s]+([0-9]+)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern SERVING_SIZE_PATTERN = Pattern.compile("Serving Size[:\\s]+([^\\n]+)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern SERVINGS_PER_CONTAINER_PATTERN = Pattern.compile("Servings Per Container[:\\s]+([0-9.]+)", Pattern.CASE_INSENSITIVE);
-    
-    // Nutrient patterns (handles various formats)
-    private static final Map<String, Pattern> NUTRIENT_PATTERNS = new HashMap<>();
-    
-    static {
-        // Total Fat: 8g or Total Fat 8 g or Total Fat 8g
-        NUTRIENT_PATTERNS.put("totalFat", Pattern.compile("Total Fat[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("saturatedFat", Pattern.compile("Saturated Fat[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("transFat", Pattern.compile("Trans Fat[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("cholesterol", Pattern.compile("Cholesterol[:\\s]+([0-9.]+)\\s*mg", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("sodium", Pattern.compile("Sodium[:\\s]+([0-9.]+)\\s*mg", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("totalCarbohydrates", Pattern.compile("Total Carbohydrate[s]?[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("dietaryFiber", Pattern.compile("Dietary Fiber[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("totalSugars", Pattern.compile("Total Sugars[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("addedSugars", Pattern.compile("Added Sugars[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("protein", Pattern.compile("Protein[:\\s]+([0-9.]+)\\s*g", Pattern.CASE_INSENSITIVE));
-        
-        // Vitamins and Minerals
-        NUTRIENT_PATTERNS.put("vitaminD", Pattern.compile("Vitamin D[:\\s]+([0-9.]+)\\s*(mcg|µg)", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("calcium", Pattern.compile("Calcium[:\\s]+([0-9.]+)\\s*mg", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("iron", Pattern.compile("Iron[:\\s]+([0-9.]+)\\s*mg", Pattern.CASE_INSENSITIVE));
-        NUTRIENT_PATTERNS.put("potassium", Pattern.compile("Potassium[:\\s]+([0-9.]+)\\s*mg", Pattern.CASE_INSENSITIVE));
-    }
-    
     /**
      * Parse nutrition label from OCR text with enhanced accuracy
      */
@@ -58,21 +27,8 @@ public class EnhancedOCRService {
             return null;
         }
         
-        NutritionInfo nutritionInfo = new NutritionInfo();
-        
-        // Normalize text (remove extra whitespace, standardize line breaks)
-        String normalizedText = normalizeText(ocrText);
-        
-        // Parse serving information
-        parseServingInfo(normalizedText, nutritionInfo);
-        
-        // Parse calories
-        parseCalories(normalizedText, nutritionInfo);
-        
-        // Parse all nutrients
-        parseNutrients(normalizedText, nutritionInfo);
-        
-        return nutritionInfo;
+        // One pass over the raw text: labels, amounts and units (see NutritionLabelParser)
+        return NutritionLabelParser.parse(ocrText);
     }
     
     /**
@@ -139,134 +95,6 @@ public class EnhancedOCRService {
     
     // Private helper methods
     
-    private String normalizeText(String text) {
-        // Remove multiple spaces
-        text = text.replaceAll("\\s+", " ");
-        
-        // Standardize line breaks
-        text = text.replaceAll("\\r\\n", "\n");
-        text = text.replaceAll("\\r", "\n");
-        
-        // Remove special characters that might interfere with parsing
-        text = text.replaceAll("[*•]", "");
-        
-        return text.trim();
-    }
-    
-    private void parseServingInfo(String text, NutritionInfo nutritionInfo) {
-        // Parse serving size
-        Matcher servingSizeMatcher = SERVING_SIZE_PATTERN.matcher(text);
-        if (servingSizeMatcher.find()) {
-            String servingSize = servingSizeMatcher.group(1).trim();
-            nutritionInfo.setServingSize(servingSize);
-            
-            // Extract unit if possible (e.g., "1 cup (240ml)" -> unit = "cup")
-            String[] parts = servingSize.split("\\s+");
-            if (parts.length >= 2) {
-                nutritionInfo.setServingUnit(parts[1].replaceAll("[()]", ""));
-            }
-        }
-        
-        // Parse servings per container
-        Matcher servingsPerContainerMatcher = SERVINGS_PER_CONTAINER_PATTERN.matcher(text);
-        if (servingsPerContainerMatcher.find()) {
-            try {
-                BigDecimal servingsPerContainer = new BigDecimal(servingsPerContainerMatcher.group(1));
-                nutritionInfo.setServingsPerContainer(servingsPerContainer);
-            } catch (NumberFormatException e) {
-                // Ignore invalid numbers
-            }
-        }
-    }
-    
-    private void parseCalories(String text, NutritionInfo nutritionInfo) {
-        Matcher caloriesMatcher = CALORIES_PATTERN.matcher(text);
-        if (caloriesMatcher.find()) {
-            try {
-                int calories = Integer.parseInt(caloriesMatcher.group(1));
-                nutritionInfo.setCalories(calories);
-            } catch (NumberFormatException e) {
-                // Ignore invalid numbers
-            }
-        }
-        
-        // Try to find calories from fat
-        Pattern caloriesFromFatPattern = Pattern.compile("Calories from Fat[:\\s]+([0-9]+)", Pattern.CASE_INSENSITIVE);
-        Matcher caloriesFromFatMatcher = caloriesFromFatPattern.matcher(text);
-        if (caloriesFromFatMatcher.find()) {
-            try {
-                int caloriesFromFat = Integer.parseInt(caloriesFromFatMatcher.group(1));
-                nutritionInfo.setCaloriesFromFat(caloriesFromFat);
-            } catch (NumberFormatException e) {
-                // Ignore invalid numbers
-            }
-        }
-    }
-    
-    private void parseNutrients(String text, NutritionInfo nutritionInfo) {
-        for (Map.Entry<String, Pattern> entry : NUTRIENT_PATTERNS.entrySet()) {
-            String nutrientName = entry.getKey();
-            Pattern pattern = entry.getValue();
-            
-            Matcher matcher = pattern.matcher(text);
-            if (matcher.find()) {
-                try {
-                    BigDecimal value = new BigDecimal(matcher.group(1));
-                    setNutrientValue(nutritionInfo, nutrientName, value);
-                } catch (NumberFormatException e) {
-                    // Ignore invalid numbers
-                }
-            }
-        }
-    }
-    
-    private void setNutrientValue(NutritionInfo nutritionInfo, String nutrientName, BigDecimal value) {
-        switch (nutrientName) {
-            case "totalFat":
-                nutritionInfo.setTotalFat(value);
-                break;
-            case "saturatedFat":
-                nutritionInfo.setSaturatedFat(value);
-                break;
-            case "transFat":
-                nutritionInfo.setTransFat(value);
-                break;
-            case "cholesterol":
-                nutritionInfo.setCholesterol(value);
-                break;
-            case "sodium":
-                nutritionInfo.setSodium(value);
-                break;
-            case "totalCarbohydrates":
-                nutritionInfo.setTotalCarbohydrates(value);
-                break;
-            case "dietaryFiber":
-                nutritionInfo.setDietaryFiber(value);
-                break;
-            case "totalSugars":
-                nutritionInfo.setTotalSugars(value);
-                break;
-            case "addedSugars":
-                nutritionInfo.setAddedSugars(value);
-                break;
-            case "protein":
-                nutritionInfo.setProtein(value);
-                break;
-            case "vitaminD":
-                nutritionInfo.setVitaminD(value);
-                break;
-            case "calcium":
-                nutritionInfo.setCalcium(value);
-                break;
-            case "iron":
-                nutritionInfo.setIron(value);
-                break;
-            case "potassium":
-                nutritionInfo.setPotassium(value);
-                break;
-        }
-    }
-    
     private String extractIngredientsSection(String text) {
         // Look for "Ingredients:" header
         int startIndex = text.toLowerCase().indexOf("ingredients:");
@@ -0,0 +1,454 @@
+package com.groceriesapp.service.nutrition;
+
+import com.groceriesapp.model.nutrition.NutritionInfo;
+
+import java.math.BigDecimal;
+
+/**
+ * Single-pass parser for nutrition facts text.
+ *
+ * Label names ("Total Fat", "Servings Per Container", ...) are held in a
+ * case-insensitive trie. The text is scanned once: at each word start the trie is
+ * walked for the longest label, then the amount and unit after it are read in place.
+ * A space in a label matches any run of whitespace, and the '*' and '•' marks OCR
+ * leaves around labels are skipped, so the text needs no normalization first.
+ * The first occurrence of each label wins. An amount followed by '%' is a daily
+ * value, not an amount, and a unit that contradicts the label (mg after Total Fat)
+ * rejects the occurrence; a missing unit is accepted.
+ */
+public final class NutritionLabelParser {
+
+    private enum Unit {
+        NONE, GRAMS, MILLIGRAMS, MICROGRAMS
+    }
+
+    private enum Field {
+        SERVING_SIZE(Unit.NONE),
+        SERVINGS_PER_CONTAINER(Unit.NONE),
+        CALORIES(Unit.NONE),
+        CALORIES_FROM_FAT(Unit.NONE),
+        TOTAL_FAT(Unit.GRAMS),
+        SATURATED_FAT(Unit.GRAMS),
+        TRANS_FAT(Unit.GRAMS),
+        CHOLESTEROL(Unit.MILLIGRAMS),
+        SODIUM(Unit.MILLIGRAMS),
+        TOTAL_CARBOHYDRATES(Unit.GRAMS),
+        DIETARY_FIBER(Unit.GRAMS),
+        TOTAL_SUGARS(Unit.GRAMS),
+        ADDED_SUGARS(Unit.GRAMS),
+        PROTEIN(Unit.GRAMS),
+        VITAMIN_D(Unit.MICROGRAMS),
+        CALCIUM(Unit.MILLIGRAMS),
+        IRON(Unit.MILLIGRAMS),
+        POTASSIUM(Unit.MILLIGRAMS);
+
+        private final Unit unit;
+
+        Field(Unit unit) {
+            this.unit = unit;
+        }
+    }
+
+    private static final int SPACE = 26;
+
+    private static final Node ROOT = new Node();
+
+    static {
+        add("serving size", Field.SERVING_SIZE);
+        add("servings per container", Field.SERVINGS_PER_CONTAINER);
+        add("calories", Field.CALORIES);
+        add("calories from fat", Field.CALORIES_FROM_FAT);
+        add("total fat", Field.TOTAL_FAT);
+        add("saturated fat", Field.SATURATED_FAT);
+        add("trans fat", Field.TRANS_FAT);
+        add("cholesterol", Field.CHOLESTEROL);
+        add("sodium", Field.SODIUM);
+        add("total carbohydrate", Field.TOTAL_CARBOHYDRATES);
+        add("total carbohydrates", Field.TOTAL_CARBOHYDRATES);
+        add("dietary fiber", Field.DIETARY_FIBER);
+        add("total sugars", Field.TOTAL_SUGARS);
+        add("added sugars", Field.ADDED_SUGARS);
+        add("protein", Field.PROTEIN);
+        add("vitamin d", Field.VITAMIN_D);
+        add("calcium", Field.CALCIUM);
+        add("iron", Field.IRON);
+        add("potassium", Field.POTASSIUM);
+    }
+
+    private NutritionLabelParser() {
+    }
+
+    /**
+     * Parse every recognized field of a nutrition label into a new NutritionInfo
+     */
+    public static NutritionInfo parse(CharSequence text) {
+        NutritionInfo info = new NutritionInfo();
+        Scan scan = new Scan(text);
+        int length = text.length();
+        int i = 0;
+        boolean previousIsLetter = false;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            int letter = letterIndex(c);
+            if (letter >= 0 && !previousIsLetter && scan.matchLabel(i)) {
+                int next = readValue(scan, scan.matchedField, scan.matchedEnd, info);
+                i = next;
+                previousIsLetter = false;
+                continue;
+            }
+            if (!isMark(c)) {
+                previousIsLetter = letter >= 0;
+            }
+            i++;
+        }
+        return info;
+    }
+
+    /**
+     * Read the value following a label and store it if the field is still unset.
+     * Returns where scanning should resume.
+     */
+    private static int readValue(Scan scan, Field field, int start, NutritionInfo info) {
+        CharSequence text = scan.text;
+        int i = skipSeparators(text, start);
+
+        if (field == Field.SERVING_SIZE) {
+            return readServingSize(scan, i, info);
+        }
+        if (field == Field.SERVINGS_PER_CONTAINER) {
+            i = skipWord(text, i, "about");
+        }
+
+        // Amount: digits with at most one decimal point, kept as an unscaled long
+        int length = text.length();
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        int j = i;
+        for (; j < length; j++) {
+            char c = text.charAt(j);
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    unscaled = unscaled * 10 + (c - '0');
+                    if (scale >= 0) {
+                        scale++;
+                    }
+                }
+                digits++;
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || digits > 18) {
+            return j;
+        }
+
+        // Unit, or '%' for a daily value, on the same line as the amount
+        int k = j;
+        while (k < length && (text.charAt(k) == ' ' || text.charAt(k) == '\t')) {
+            k++;
+        }
+        if (k < length && text.charAt(k) == '%') {
+            return k + 1;
+        }
+        int unitEnd = k;
+        while (unitEnd < length && isUnitChar(text.charAt(unitEnd))) {
+            unitEnd++;
+        }
+        if (unitEnd > k && scan.matchLabel(k)) {
+            // No unit: the next word is already the next label
+            unitEnd = k;
+        }
+        if (!unitMatches(field.unit, text, k, unitEnd)) {
+            return j;
+        }
+
+        BigDecimal amount = BigDecimal.valueOf(unscaled, Math.max(scale, 0));
+        store(info, field, amount, unscaled, scale);
+        return unitEnd;
+    }
+
+    private static void store(NutritionInfo info, Field field, BigDecimal amount, long unscaled, int scale) {
+        switch (field) {
+            case SERVINGS_PER_CONTAINER:
+                if (info.getServingsPerContainer() == null) info.setServingsPerContainer(amount);
+                break;
+            case CALORIES:
+                if (info.getCalories() == null) info.setCalories(wholeNumber(unscaled, scale));
+                break;
+            case CALORIES_FROM_FAT:
+                if (info.getCaloriesFromFat() == null) info.setCaloriesFromFat(wholeNumber(unscaled, scale));
+                break;
+            case TOTAL_FAT:
+                if (info.getTotalFat() == null) info.setTotalFat(amount);
+                break;
+            case SATURATED_FAT:
+                if (info.getSaturatedFat() == null) info.setSaturatedFat(amount);
+                break;
+            case TRANS_FAT:
+                if (info.getTransFat() == null) info.setTransFat(amount);
+                break;
+            case CHOLESTEROL:
+                if (info.getCholesterol() == null) info.setCholesterol(amount);
+                break;
+            case SODIUM:
+                if (info.getSodium() == null) info.setSodium(amount);
+                break;
+            case TOTAL_CARBOHYDRATES:
+                if (info.getTotalCarbohydrates() == null) info.setTotalCarbohydrates(amount);
+                break;
+            case DIETARY_FIBER:
+                if (info.getDietaryFiber() == null) info.setDietaryFiber(amount);
+                break;
+            case TOTAL_SUGARS:
+                if (info.getTotalSugars() == null) info.setTotalSugars(amount);
+                break;
+            case ADDED_SUGARS:
+                if (info.getAddedSugars() == null) info.setAddedSugars(amount);
+                break;
+            case PROTEIN:
+                if (info.getProtein() == null) info.setProtein(amount);
+                break;
+            case VITAMIN_D:
+                if (info.getVitaminD() == null) info.setVitaminD(amount);
+                break;
+            case CALCIUM:
+                if (info.getCalcium() == null) info.setCalcium(amount);
+                break;
+            case IRON:
+                if (info.getIron() == null) info.setIron(amount);
+                break;
+            case POTASSIUM:
+                if (info.getPotassium() == null) info.setPotassium(amount);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Serving size runs to the end of the line or the next label, e.g.
+     * "Serving Size 1 cup (240ml) Servings Per Container 2" on one OCR line
+     */
+    private static int readServingSize(Scan scan, int start, NutritionInfo info) {
+        CharSequence text = scan.text;
+        int length = text.length();
+        int end = start;
+        boolean previousIsLetter = false;
+        while (end < length) {
+            char c = text.charAt(end);
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            int letter = letterIndex(c);
+            if (letter >= 0 && !previousIsLetter && scan.matchLabel(end)) {
+                break;
+            }
+            if (!isMark(c)) {
+                previousIsLetter = letter >= 0;
+            }
+            end++;
+        }
+
+        if (info.getServingSize() == null) {
+            // Collapse whitespace and drop marks; the unit is the second word without parentheses
+            StringBuilder size = new StringBuilder(end - start);
+            int word = 0;
+            int unitStart = -1;
+            int unitEnd = -1;
+            boolean inSpace = true;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (isMark(c)) {
+                    continue;
+                }
+                if (Character.isWhitespace(c)) {
+                    inSpace = true;
+                    continue;
+                }
+                if (inSpace) {
+                    if (size.length() > 0) {
+                        size.append(' ');
+                    }
+                    word++;
+                    inSpace = false;
+                }
+                if (word == 2 && c != '(' && c != ')') {
+                    if (unitStart < 0) {
+                        unitStart = size.length();
+                    }
+                    size.append(c);
+                    unitEnd = size.length();
+                } else {
+                    size.append(c);
+                }
+            }
+            if (size.length() > 0) {
+                info.setServingSize(size.toString());
+                if (unitStart >= 0) {
+                    info.setServingUnit(size.substring(unitStart, unitEnd).replace("(", "").replace(")", ""));
+                }
+            }
+        }
+        return end;
+    }
+
+    private static boolean unitMatches(Unit expected, CharSequence text, int start, int end) {
+        int length = end - start;
+        if (expected == Unit.NONE || length == 0) {
+            return true;
+        }
+        char first = Character.toLowerCase(text.charAt(start));
+        switch (expected) {
+            case GRAMS:
+                // g, gram, grams
+                return first == 'g';
+            case MILLIGRAMS:
+                return length == 2 && first == 'm' && Character.toLowerCase(text.charAt(start + 1)) == 'g';
+            case MICROGRAMS:
+                return (length == 3 && first == 'm'
+                        && Character.toLowerCase(text.charAt(start + 1)) == 'c'
+                        && Character.toLowerCase(text.charAt(start + 2)) == 'g')
+                    || (length == 2 && (first == 'µ' || first == 'μ' || first == 'u')
+                        && Character.toLowerCase(text.charAt(start + 1)) == 'g');
+            default:
+                return true;
+        }
+    }
+
+    private static Integer wholeNumber(long unscaled, int scale) {
+        long whole = unscaled;
+        for (int i = 0; i < scale; i++) {
+            whole /= 10;
+        }
+        return whole <= Integer.MAX_VALUE ? (int) whole : null;
+    }
+
+    private static int skipSeparators(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c != ':' && !isMark(c) && !Character.isWhitespace(c)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWord(CharSequence text, int i, String word) {
+        int length = text.length();
+        int end = i + word.length();
+        if (end > length) {
+            return i;
+        }
+        for (int k = 0; k < word.length(); k++) {
+            if (Character.toLowerCase(text.charAt(i + k)) != word.charAt(k)) {
+                return i;
+            }
+        }
+        if (end < length && letterIndex(text.charAt(end)) >= 0) {
+            return i;
+        }
+        return skipSeparators(text, end);
+    }
+
+    private static boolean isUnitChar(char c) {
+        return letterIndex(c) >= 0 || c == 'µ' || c == 'μ';
+    }
+
+    private static boolean isMark(char c) {
+        return c == '*' || c == '•';
+    }
+
+    private static int letterIndex(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        return -1;
+    }
+
+    private static void add(String label, Field field) {
+        Node node = ROOT;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            int index = c == ' ' ? SPACE : letterIndex(c);
+            if (node.next[index] == null) {
+                node.next[index] = new Node();
+            }
+            node = node.next[index];
+        }
+        node.field = field;
+    }
+
+    private static class Node {
+        private final Node[] next = new Node[SPACE + 1];
+        private Field field;
+    }
+
+    /**
+     * Text being parsed plus the result of the last label match
+     */
+    private static class Scan {
+        private final CharSequence text;
+        private Field matchedField;
+        private int matchedEnd;
+
+        Scan(CharSequence text) {
+            this.text = text;
+        }
+
+        /**
+         * Longest label starting at start that ends on a word boundary
+         */
+        boolean matchLabel(int start) {
+            int length = text.length();
+            Node node = ROOT;
+            Field field = null;
+            int fieldEnd = -1;
+            int i = start;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (isMark(c)) {
+                    i++;
+                    continue;
+                }
+                if (Character.isWhitespace(c)) {
+                    node = node.next[SPACE];
+                    if (node == null) {
+                        break;
+                    }
+                    while (i < length && (Character.isWhitespace(text.charAt(i)) || isMark(text.charAt(i)))) {
+                        i++;
+                    }
+                    continue;
+                }
+                int letter = letterIndex(c);
+                if (letter < 0) {
+                    break;
+                }
+                node = node.next[letter];
+                if (node == null) {
+                    break;
+                }
+                i++;
+                if (node.field != null && (i >= length || letterIndex(text.charAt(i)) < 0)) {
+                    field = node.field;
+                    fieldEnd = i;
+                }
+            }
+            if (field == null) {
+                return false;
+            }
+            matchedField = field;
+            matchedEnd = fieldEnd;
+            return true;
+        }
+    }
+}
@@ -4,14 +4,20 @@ import com.groceriesapp.model.*;
 import com.groceriesapp.model.nutrition.*;
 import com.groceriesapp.repository.*;
 import com.groceriesapp.repository.nutrition.*;
+import com.groceriesapp.service.ScanCacheService;
+import com.groceriesapp.service.ScanCacheService.ParsedLabel;
+import com.groceriesapp.service.ShoppingSuggestionEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,49 +44,117 @@ public class NutritionService {
     @Autowired
     private DailyNutritionSummaryRepository dailyNutritionSummaryRepository;
     
+    @Autowired
+    private NutritionRollupRepository nutritionRollupRepository;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private ItemIngredientRepository itemIngredientRepository;
+    
+    @Autowired
+    private EnhancedOCRService enhancedOCRService;
+    
+    @Autowired
+    private ScanCacheService scanCacheService;
+    
+    @Autowired
+    private ShoppingSuggestionEngine shoppingSuggestionEngine;
+    
+    private final Map<Long, DailyGoals> dailyGoalsCache = new ConcurrentHashMap<>();
+    
     /**
-     * Parse nutrition label text from OCR and create NutritionInfo
+     * Parse OCR text of a nutrition label for an item: save its nutrition info and
+     * ingredients, then check them against the user's allergens and dietary restrictions.
+     * Used by the scanNutritionLabel mutation and the binary label upload endpoint.
      */
-    public NutritionInfo parseNutritionLabel(String ocrText) {
-        NutritionInfo nutritionInfo = new NutritionInfo();
-        
-        // Parse serving size
-        String servingSize = extractValue(ocrText, "Serving Size", ":");
-        if (servingSize != null) {
-            nutritionInfo.setServingSize(servingSize);
-        }
+    public Map<String, Object> scanNutritionLabel(User user, Long itemId, String ocrText) {
+        Map<String, Object> result = new HashMap<>();
         
-        // Parse servings per container
-        String servingsPerContainer = extractNumericValue(ocrText, "Servings Per Container");
-        if (servingsPerContainer != null) {
-            nutritionInfo.setServingsPerContainer(new BigDecimal(servingsPerContainer));
+        try {
+            Item item = itemRepository.findById(itemId)
+                .orElseThrow(() -> new RuntimeException("Item not found"));
+            
+            // Parse nutrition label and ingredients, or reuse the parse of identical text
+            String textKey = ScanCacheService.textKey(ocrText != null ? ocrText : "");
+            ParsedLabel cached = scanCacheService.getParsedLabel(textKey);
+            List<Ingredient> ingredients = cached != null ? findIngredientsInOrder(cached.getIngredientIds()) : null;
+            NutritionInfo nutritionInfo;
+            if (ingredients != null) {
+                nutritionInfo = cached.getNutritionInfo();
+            } else {
+                long start = ScanCacheService.cpuTimeNanos();
+                nutritionInfo = enhancedOCRService.parseNutritionLabel(ocrText);
+                ingredients = enhancedOCRService.parseIngredientsList(ocrText);
+                List<Long> ingredientIds = ingredients.stream().map(Ingredient::getId).collect(Collectors.toList());
+                scanCacheService.putParsedLabel(textKey, new ParsedLabel(nutritionInfo, ingredientIds),
+                    ScanCacheService.cpuTimeNanos() - start);
+            }
+            
+            if (nutritionInfo != null) {
+                nutritionInfo.setItemId(item.getId());
+                nutritionInfo = nutritionInfoRepository.save(nutritionInfo);
+                result.put("nutritionInfo", nutritionInfo);
+            }
+            result.put("ingredients", ingredients);
+            
+            // Save item ingredients
+            int position = 1;
+            for (Ingredient ingredient : ingredients) {
+                ItemIngredient itemIngredient = new ItemIngredient();
+                itemIngredient.setItemId(item.getId());
+                itemIngredient.setIngredientId(ingredient.getId());
+                itemIngredient.setPosition(position++);
+                itemIngredientRepository.save(itemIngredient);
+            }
+            
+            // Check for allergens
+            List<Long> ingredientIds = ingredients.stream().map(Ingredient::getId).collect(Collectors.toList());
+            List<AllergenAlert> alerts = checkForAllergens(user.getId(), item.getId(), ingredientIds);
+            result.put("allergenAlerts", alerts);
+            
+            // Check dietary violations
+            Map<String, Boolean> violations = checkDietaryRestrictions(user.getId(), ingredientIds);
+            List<String> violationList = violations.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+            result.put("dietaryViolations", violationList);
+            
+            result.put("success", true);
+            result.put("message", "Nutrition label scanned successfully");
+            
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "Error scanning nutrition label: " + e.getMessage());
         }
         
-        // Parse calories
-        String calories = extractNumericValue(ocrText, "Calories");
-        if (calories != null) {
-            nutritionInfo.setCalories(Integer.parseInt(calories));
+        return result;
+    }
+    
+    /**
+     * Load cached ingredient ids in label order, or null if any has since been deleted
+     */
+    private List<Ingredient> findIngredientsInOrder(List<Long> ingredientIds) {
+        Map<Long, Ingredient> byId = ingredientRepository.findAllById(ingredientIds).stream()
+            .collect(Collectors.toMap(Ingredient::getId, ingredient -> ingredient, (first, second) -> first));
+        List<Ingredient> ingredients = new ArrayList<>(ingredientIds.size());
+        for (Long id : ingredientIds) {
+            Ingredient ingredient = byId.get(id);
+            if (ingredient == null) {
+                return null;
+            }
+            ingredients.add(ingredient);
         }
-        
-        // Parse macronutrients
-        nutritionInfo.setTotalFat(parseNutrient(ocrText, "Total Fat"));
-        nutritionInfo.setSaturatedFat(parseNutrient(ocrText, "Saturated Fat"));
-        nutritionInfo.setTransFat(parseNutrient(ocrText, "Trans Fat"));
-        nutritionInfo.setCholesterol(parseNutrient(ocrText, "Cholesterol"));
-        nutritionInfo.setSodium(parseNutrient(ocrText, "Sodium"));
-        nutritionInfo.setTotalCarbohydrates(parseNutrient(ocrText, "Total Carbohydrate"));
-        nutritionInfo.setDietaryFiber(parseNutrient(ocrText, "Dietary Fiber"));
-        nutritionInfo.setTotalSugars(parseNutrient(ocrText, "Total Sugars"));
-        nutritionInfo.setAddedSugars(parseNutrient(ocrText, "Added Sugars"));
-        nutritionInfo.setProtein(parseNutrient(ocrText, "Protein"));
-        
-        // Parse vitamins and minerals
-        nutritionInfo.setVitaminD(parseNutrient(ocrText, "Vitamin D"));
-        nutritionInfo.setCalcium(parseNutrient(ocrText, "Calcium"));
-        nutritionInfo.setIron(parseNutrient(ocrText, "Iron"));
-        nutritionInfo.setPotassium(parseNutrient(ocrText, "Potassium"));
-        
-        return nutritionInfo;
+        return ingredients;
+    }
+    
+    /**
+     * Parse nutrition label text from OCR and create NutritionInfo
+     */
+    public NutritionInfo parseNutritionLabel(String ocrText) {
+        return NutritionLabelParser.parse(ocrText != null ? ocrText : "");
     }
     
     /**
@@ -218,11 +292,21 @@ public class NutritionService {
         return violations;
     }
     
+    /**
+     * Save dietary preferences and drop the cached daily goals for the user
+     */
+    public UserDietaryPreferences saveDietaryPreferences(UserDietaryPreferences prefs) {
+        UserDietaryPreferences saved = userDietaryPreferencesRepository.save(prefs);
+        dailyGoalsCache.remove(saved.getUserId());
+        return saved;
+    }
+    
     /**
      * Log consumption of an item
      */
     @Transactional
-    public ConsumptionLog logConsumption(Long userId, Long itemId, BigDecimal servings, ConsumptionLog.MealType mealType) {
+    public ConsumptionLog logConsumption(Long userId, Item item, BigDecimal servings, ConsumptionLog.MealType mealType) {
+        Long itemId = item.getId();
         ConsumptionLog log = new ConsumptionLog();
         log.setUserId(userId);
         log.setItemId(itemId);
@@ -235,33 +319,42 @@ public class NutritionService {
         NutritionInfo nutritionInfo = nutritionInfoOpt.orElse(null);
         
         if (nutritionInfo != null) {
-            // Calculate totals based on servings
+            // Calculate totals based on servings, in fixed-point milligrams
+            long servingsHundredths = Milligrams.servingsToHundredths(servings);
+            
             if (nutritionInfo.getCalories() != null) {
-                log.setTotalCalories((int) (nutritionInfo.getCalories() * servings.doubleValue()));
+                log.setTotalCalories((int) (nutritionInfo.getCalories() * servingsHundredths / 100));
             }
             
             if (nutritionInfo.getProtein() != null) {
-                log.setTotalProtein(nutritionInfo.getProtein().multiply(servings));
+                log.setTotalProteinMg(Milligrams.perServings(
+                    Milligrams.fromGrams(nutritionInfo.getProtein()), servingsHundredths));
             }
             
             if (nutritionInfo.getTotalCarbohydrates() != null) {
-                log.setTotalCarbs(nutritionInfo.getTotalCarbohydrates().multiply(servings));
+                log.setTotalCarbsMg(Milligrams.perServings(
+                    Milligrams.fromGrams(nutritionInfo.getTotalCarbohydrates()), servingsHundredths));
             }
             
             if (nutritionInfo.getTotalFat() != null) {
-                log.setTotalFat(nutritionInfo.getTotalFat().multiply(servings));
+                log.setTotalFatMg(Milligrams.perServings(
+                    Milligrams.fromGrams(nutritionInfo.getTotalFat()), servingsHundredths));
             }
             
             if (nutritionInfo.getDietaryFiber() != null) {
-                log.setTotalFiber(nutritionInfo.getDietaryFiber().multiply(servings));
+                log.setTotalFiberMg(Milligrams.perServings(
+                    Milligrams.fromGrams(nutritionInfo.getDietaryFiber()), servingsHundredths));
             }
             
             if (nutritionInfo.getTotalSugars() != null) {
-                log.setTotalSugar(nutritionInfo.getTotalSugars().multiply(servings));
+                log.setTotalSugarMg(Milligrams.perServings(
+                    Milligrams.fromGrams(nutritionInfo.getTotalSugars()), servingsHundredths));
             }
             
             if (nutritionInfo.getSodium() != null) {
-                log.setTotalSodium(nutritionInfo.getSodium().multiply(servings));
+                // Sodium is labelled in milligrams already
+                log.setTotalSodiumMg(Milligrams.perServings(
+                    Milligrams.fromMilligrams(nutritionInfo.getSodium()), servingsHundredths));
             }
         }
         
@@ -270,6 +363,10 @@ public class NutritionService {
         // Update daily summary
         updateDailySummary(userId, log);
         
+        // The first serving of an item tells shopping suggestions it was opened
+        shoppingSuggestionEngine.recordConsumed(
+            item.getHousehold() != null ? item.getHousehold().getId() : null, itemId, item.getName());
+        
         return log;
     }
     
@@ -282,203 +379,126 @@ public class NutritionService {
     }
     
     /**
-     * Get nutrition insights for a user over a date range
+     * Get nutrition insights for a user over a date range.
+     * Aggregated in SQL over monthly rollups plus the partial months at either end.
      */
-    public Map<String, Object> getNutritionInsights(Long userId, LocalDate startDate, LocalDate endDate) {
-        Map<String, Object> insights = new HashMap<>();
-        
-        List<DailyNutritionSummary> summaries = dailyNutritionSummaryRepository
-                .findByUserIdAndDateBetweenOrderByDateDesc(userId, startDate, endDate);  
-        if (summaries.isEmpty()) {
+    public NutritionInsights getNutritionInsights(Long userId, LocalDate startDate, LocalDate endDate) {
+        NutritionInsights insights = new NutritionInsights();
+        
+        // Whole calendar months inside the range come from monthly rollups
+        LocalDate monthsStart = startDate.getDayOfMonth() == 1
+                ? startDate
+                : startDate.with(TemporalAdjusters.firstDayOfNextMonth());
+        LocalDate monthsEnd = endDate.plusDays(1).withDayOfMonth(1);
+        if (monthsEnd.isBefore(monthsStart)) {
+            monthsEnd = monthsStart;
+        }
+        
+        NutritionRollupRepository.RangeTotals totals = nutritionRollupRepository
+                .sumRange(userId, startDate, endDate, monthsStart, monthsEnd);
+        long days = totals.getDays();
+        if (days == 0) {
             return insights;
         }
         
-        // Calculate averages
-        double avgCalories = summaries.stream()
-                .mapToInt(DailyNutritionSummary::getTotalCalories)
-                .average()
-                .orElse(0);
-        
-        double avgProtein = summaries.stream()
-                .map(DailyNutritionSummary::getTotalProtein)
-                .filter(Objects::nonNull)
-                .mapToDouble(BigDecimal::doubleValue)
-                .average()
-                .orElse(0);
-        
-        double avgCarbs = summaries.stream()
-                .map(DailyNutritionSummary::getTotalCarbs)
-                .filter(Objects::nonNull)
-                .mapToDouble(BigDecimal::doubleValue)
-                .average()
-                .orElse(0);
-        
-        double avgFat = summaries.stream()
-                .map(DailyNutritionSummary::getTotalFat)
-                .filter(Objects::nonNull)
-                .mapToDouble(BigDecimal::doubleValue)
-                .average()
-                .orElse(0);
-        
-        insights.put("avgCalories", avgCalories);
-        insights.put("avgProtein", avgProtein);
-        insights.put("avgCarbs", avgCarbs);
-        insights.put("avgFat", avgFat);
+        insights.setTotalDays((int) days);
+        insights.setAvgCalories((double) totals.getTotalCalories() / days);
+        insights.setAvgProtein(totals.getTotalProteinMg() / 1000.0 / days);
+        insights.setAvgCarbs(totals.getTotalCarbsMg() / 1000.0 / days);
+        insights.setAvgFat(totals.getTotalFatMg() / 1000.0 / days);
         
         // Calculate goal achievement rate
-        Optional<UserDietaryPreferences> prefsOpt = userDietaryPreferencesRepository.findByUserId(userId);
-        if (prefsOpt.isPresent() && prefsOpt.get().getDailyCalorieGoal() != null) {
-            UserDietaryPreferences prefs = prefsOpt.get();
-            long daysMetGoal = summaries.stream()
-                    .filter(DailyNutritionSummary::getCalorieGoalMet)
-                    .count();
-            
-            double goalAchievementRate = (double) daysMetGoal / summaries.size() * 100;
-            insights.put("goalAchievementRate", goalAchievementRate);
+        if (getDailyGoals(userId).getCalorieGoal() != null) {
+            insights.setGoalAchievementRate((double) totals.getCalorieGoalDays() / days * 100);
         }
         
         return insights;
     }
     
+    /**
+     * Get weekly or monthly rollups for a user, for trend charts
+     */
+    public List<NutritionRollup> getNutritionTrend(Long userId, RollupPeriod period, LocalDate startDate, LocalDate endDate) {
+        return nutritionRollupRepository.findByUserIdAndPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(
+                userId, period, periodStart(period, startDate), endDate);
+    }
+    
     // Helper methods
     
     private void updateDailySummary(Long userId, ConsumptionLog log) {
         LocalDate date = log.getConsumedAt().toLocalDate();
-        
-        Optional<DailyNutritionSummary> summaryOpt = dailyNutritionSummaryRepository
-                .findByUserIdAndDate(userId, date);
-        
-        DailyNutritionSummary summary;
-        if (!summaryOpt.isPresent()) {
-            summary = new DailyNutritionSummary();
-            summary.setUserId(userId);
-            summary.setDate(date);
-            summary.setTotalCalories(0);
-            summary.setTotalProtein(BigDecimal.ZERO);
-            summary.setTotalCarbs(BigDecimal.ZERO);
-            summary.setTotalFat(BigDecimal.ZERO);
-            summary.setTotalFiber(BigDecimal.ZERO);
-            summary.setTotalSugar(BigDecimal.ZERO);
-            summary.setTotalSodium(BigDecimal.ZERO);
-        } else {
-            summary = summaryOpt.get();
-        }
-        
-        // Add consumption to totals
-        if (log.getTotalCalories() != null) {
-            summary.setTotalCalories(summary.getTotalCalories() + log.getTotalCalories());
-        }
-        
-        if (log.getTotalProtein() != null) {
-            summary.setTotalProtein(summary.getTotalProtein().add(log.getTotalProtein()));
-        }
-        
-        if (log.getTotalCarbs() != null) {
-            summary.setTotalCarbs(summary.getTotalCarbs().add(log.getTotalCarbs()));
-        }
-        
-        if (log.getTotalFat() != null) {
-            summary.setTotalFat(summary.getTotalFat().add(log.getTotalFat()));
-        }
-        
-        if (log.getTotalFiber() != null) {
-            summary.setTotalFiber(summary.getTotalFiber().add(log.getTotalFiber()));
-        }
-        
-        if (log.getTotalSugar() != null) {
-            summary.setTotalSugar(summary.getTotalSugar().add(log.getTotalSugar()));
-        }
-        
-        if (log.getTotalSodium() != null) {
-            summary.setTotalSodium(summary.getTotalSodium().add(log.getTotalSodium()));
-        }
-        
-        // Update meal breakdown
-        if (log.getMealType() != null && log.getTotalCalories() != null) {
-            ConsumptionLog.MealType mealType = log.getMealType();
-            if (ConsumptionLog.MealType.BREAKFAST.equals(mealType)) {
-                summary.setBreakfastCalories(
-                    (summary.getBreakfastCalories() != null ? summary.getBreakfastCalories() : 0) + 
-                    log.getTotalCalories()
-                );
-            } else if (ConsumptionLog.MealType.LUNCH.equals(mealType)) {
-                summary.setLunchCalories(
-                    (summary.getLunchCalories() != null ? summary.getLunchCalories() : 0) + 
-                    log.getTotalCalories()
-                );
-            } else if (ConsumptionLog.MealType.DINNER.equals(mealType)) {
-                summary.setDinnerCalories(
-                    (summary.getDinnerCalories() != null ? summary.getDinnerCalories() : 0) + 
-                    log.getTotalCalories()
-                );
-            } else if (ConsumptionLog.MealType.SNACK.equals(mealType)) {
-                summary.setSnackCalories(
-                    (summary.getSnackCalories() != null ? summary.getSnackCalories() : 0) + 
-                    log.getTotalCalories()
-                );
-            }
-        }
-        
-        // Check if goals are met
-        Optional<UserDietaryPreferences> prefsOpt = userDietaryPreferencesRepository.findByUserId(userId);
-        if (prefsOpt.isPresent()) {
-            UserDietaryPreferences prefs = prefsOpt.get();
-            if (prefs.getDailyCalorieGoal() != null) {
-                summary.setCalorieGoalMet(
-                    summary.getTotalCalories() >= prefs.getDailyCalorieGoal() * 0.9 &&
-                    summary.getTotalCalories() <= prefs.getDailyCalorieGoal() * 1.1
-                );
-            }
-            
-            if (prefs.getDailyProteinGoal() != null) {
-                summary.setProteinGoalMet(
-                    summary.getTotalProtein().compareTo(prefs.getDailyProteinGoal()) >= 0
-                );
-            }
+        int calories = log.getTotalCalories() != null ? log.getTotalCalories() : 0;
+        ConsumptionLog.MealType mealType = log.getMealType();
+        long proteinMg = orZero(log.getTotalProteinMg());
+        long carbsMg = orZero(log.getTotalCarbsMg());
+        long fatMg = orZero(log.getTotalFatMg());
+        long fiberMg = orZero(log.getTotalFiberMg());
+        long sugarMg = orZero(log.getTotalSugarMg());
+        long sodiumMg = orZero(log.getTotalSodiumMg());
+        DailyGoals goals = getDailyGoals(userId);
+        
+        // Lock this day's row only; the before and after states give the
+        // rollups their day and goal deltas without reading sibling days
+        dailyNutritionSummaryRepository.ensureDailyRow(userId, date);
+        DailyNutritionSummaryRepository.DayState before = dailyNutritionSummaryRepository.lockDailyRow(userId, date);
+        
+        // Atomic increment, so concurrent logs for the same user and day
+        // cannot overwrite each other
+        dailyNutritionSummaryRepository.incrementDailyTotals(
+            userId,
+            date,
+            calories,
+            proteinMg,
+            carbsMg,
+            fatMg,
+            fiberMg,
+            sugarMg,
+            sodiumMg,
+            ConsumptionLog.MealType.BREAKFAST.equals(mealType) ? calories : 0,
+            ConsumptionLog.MealType.LUNCH.equals(mealType) ? calories : 0,
+            ConsumptionLog.MealType.DINNER.equals(mealType) ? calories : 0,
+            ConsumptionLog.MealType.SNACK.equals(mealType) ? calories : 0,
+            goals.getCalorieGoal(),
+            goals.getProteinGoalMg()
+        );
+        
+        DailyNutritionSummaryRepository.DayState after = dailyNutritionSummaryRepository.lockDailyRow(userId, date);
+        
+        // Apply the same deltas to the weekly and monthly rollups
+        int days = before.getLogCount() == 0 ? 1 : 0;
+        int calorieGoalDays = flag(after.getCalorieGoalMet()) - flag(before.getCalorieGoalMet());
+        int proteinGoalDays = flag(after.getProteinGoalMet()) - flag(before.getProteinGoalMet());
+        for (RollupPeriod period : RollupPeriod.values()) {
+            nutritionRollupRepository.incrementRollup(
+                userId, period.name(), periodStart(period, date), days, calories,
+                proteinMg, carbsMg, fatMg, fiberMg, sugarMg, sodiumMg, calorieGoalDays, proteinGoalDays);
         }
-        
-        dailyNutritionSummaryRepository.save(summary);
     }
     
-    private String extractValue(String text, String label, String delimiter) {
-        int startIndex = text.indexOf(label);
-        if (startIndex == -1) {
-            return null;
-        }
-        
-        startIndex = text.indexOf(delimiter, startIndex);
-        if (startIndex == -1) {
-            return null;
-        }
-        
-        int endIndex = text.indexOf("\n", startIndex);
-        if (endIndex == -1) {
-            endIndex = text.length();
-        }
-        
-        return text.substring(startIndex + delimiter.length(), endIndex).trim();
+    private static LocalDate periodStart(RollupPeriod period, LocalDate date) {
+        return period == RollupPeriod.WEEK
+                ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                : date.withDayOfMonth(1);
     }
     
-    private String extractNumericValue(String text, String label) {
-        String value = extractValue(text, label, ":");
-        if (value == null) {
-            return null;
-        }
-        
-        // Extract only numbers
-        return value.replaceAll("[^0-9.]", "");
+    /**
+     * Daily goals for a user, cached so that logging does not hit
+     * user_dietary_preferences on every call
+     */
+    private DailyGoals getDailyGoals(Long userId) {
+        return dailyGoalsCache.computeIfAbsent(userId, id -> userDietaryPreferencesRepository.findByUserId(id)
+                .map(prefs -> new DailyGoals(
+                    prefs.getDailyCalorieGoal(),
+                    prefs.getDailyProteinGoal() != null ? Milligrams.fromGrams(prefs.getDailyProteinGoal()) : null))
+                .orElse(DailyGoals.NONE));
     }
     
-    private BigDecimal parseNutrient(String text, String nutrientName) {
-        String value = extractNumericValue(text, nutrientName);
-        if (value != null && !value.isEmpty()) {
-            try {
-                return new BigDecimal(value);
-            } catch (NumberFormatException e) {
-                return null;
-            }
-        }
-        return null;
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+    
+    private static int flag(Boolean value) {
+        return Boolean.TRUE.equals(value) ? 1 : 0;
     }
     
     private String extractIngredientsSection(String text) {
@@ -507,4 +527,22 @@ public class NutritionService {
         
         return null;
     }
+    
+    /**
+     * Goals relevant to the daily summary flags
+     */
+    private static class DailyGoals {
+        static final DailyGoals NONE = new DailyGoals(null, null);
+        
+        private final Integer calorieGoal;
+        private final Long proteinGoalMg;
+        
+        DailyGoals(Integer calorieGoal, Long proteinGoalMg) {
+            this.calorieGoal = calorieGoal;
+            this.proteinGoalMg = proteinGoalMg;
+        }
+        
+        Integer getCalorieGoal() { return calorieGoal; }
+        Long getProteinGoalMg() { return proteinGoalMg; }
+    }
 }
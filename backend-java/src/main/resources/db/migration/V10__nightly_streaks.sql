@@ -0,0 +1,22 @@
+-- Nightly Streaks
+-- Version 10.0 - Activity is collected in memory during the day and written
+-- in bulk to last_active_date; the day before it is kept in
+-- previous_active_date. A nightly job then extends or resets every user's
+-- streak in id-range slices and records the day the streak counts up to in
+-- streak_date, which makes the job safe to run again.
+
+-- ============================================================================
+-- USERS - STREAK COLUMNS
+-- ============================================================================
+ALTER TABLE users
+    ADD COLUMN previous_active_date DATE NULL AFTER last_active_date,
+    ADD COLUMN streak_date DATE NULL AFTER previous_active_date;
+
+-- Streaks already counted up to each user's last active day
+UPDATE users SET streak_date = last_active_date WHERE streak > 0;
+
+-- ============================================================================
+-- USERS - STREAK MILESTONES
+-- ============================================================================
+-- Users whose streak reached an achievement threshold on a given day
+CREATE INDEX idx_users_streak ON users (streak_date, streak);
@@ -0,0 +1,34 @@
+-- CO2 Totals
+-- Version 11.0 - CO2 saved is added to in-memory counters per user, per
+-- household and overall, and written in batches: users.total_co2_saved_kg for
+-- users, co2_totals for households and the global total. Dashboards read the
+-- counters instead of summing users. Items can record their weight, which the
+-- emission model prefers over a typical weight for the food.
+
+-- ============================================================================
+-- CO2 TOTALS
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS co2_totals (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    scope VARCHAR(16) NOT NULL,
+    scope_id BIGINT NOT NULL,
+    grams BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME NULL,
+    UNIQUE KEY uk_co2_totals_scope (scope, scope_id)
+);
+
+-- Households start from their current members' savings
+INSERT INTO co2_totals (scope, scope_id, grams, updated_at)
+SELECT 'HOUSEHOLD', household_id, ROUND(SUM(total_co2_saved_kg) * 1000), NOW()
+FROM users
+WHERE household_id IS NOT NULL
+GROUP BY household_id;
+
+INSERT INTO co2_totals (scope, scope_id, grams, updated_at)
+SELECT 'GLOBAL', 0, COALESCE(ROUND(SUM(total_co2_saved_kg) * 1000), 0), NOW()
+FROM users;
+
+-- ============================================================================
+-- ITEMS - WEIGHT
+-- ============================================================================
+ALTER TABLE items ADD COLUMN weight_grams INT NULL AFTER quantity;
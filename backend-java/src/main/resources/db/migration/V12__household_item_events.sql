@@ -0,0 +1,23 @@
+-- Household Item Events
+-- Version 12.0 - Shopping suggestions learn how often each household restocks
+-- each item from an append-only ledger of items bought from the shopping list,
+-- marked as used, and opened (first consumption logged). The ledger is read one
+-- household at a time and, nightly, in slices of household ids. Items used
+-- before this version were deleted, so history starts from here.
+
+-- ============================================================================
+-- HOUSEHOLD ITEM EVENTS
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS household_item_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    household_id BIGINT NOT NULL,
+    item_key VARCHAR(100) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    source VARCHAR(16) NOT NULL,
+    item_id BIGINT NULL,
+    event_date DATE NOT NULL,
+    created_at DATETIME NOT NULL,
+    INDEX idx_household_item_events_household_date (household_id, event_date),
+    CONSTRAINT fk_household_item_events_household FOREIGN KEY (household_id) REFERENCES households(id) ON DELETE CASCADE
+);
+
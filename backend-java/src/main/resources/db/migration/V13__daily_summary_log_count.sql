@@ -0,0 +1,23 @@
+-- Daily Summary Log Count
+-- Version 13.0 - Weekly and monthly rollups are now incremented by each logged
+-- consumption instead of being recomputed from every daily row in the period,
+-- which took shared locks on sibling days and deadlocked concurrent loggers.
+-- log_count tells the logger whether it opened a new day, so days_logged in the
+-- rollups can be incremented without counting the period's rows.
+
+-- ============================================================================
+-- DAILY NUTRITION SUMMARY
+-- ============================================================================
+ALTER TABLE daily_nutrition_summary
+    ADD COLUMN log_count INT NOT NULL DEFAULT 0 AFTER snack_calories;
+
+UPDATE daily_nutrition_summary d
+JOIN (
+    SELECT user_id, DATE(consumed_at) AS day, COUNT(*) AS logs
+    FROM consumption_log
+    GROUP BY user_id, DATE(consumed_at)
+) c ON c.user_id = d.user_id AND c.day = d.date
+SET d.log_count = c.logs;
+
+-- Days whose logs were archived still count as logged
+UPDATE daily_nutrition_summary SET log_count = 1 WHERE log_count = 0;
@@ -0,0 +1,6 @@
+-- Household Item Event Item Index
+-- Version 14.0 - Logging a consumption checks whether the household already opened
+-- that item instance. The check runs after the log commits and reads the ledger by
+-- item, instead of loading the household's whole history when its stats are not cached.
+
+CREATE INDEX idx_household_item_events_item ON household_item_events (item_id, source);
@@ -0,0 +1,82 @@
+-- Fixed-point nutrition totals
+-- Version 3.0 - Consumption log and daily summary totals move from DECIMAL grams
+-- to BIGINT milligrams (sodium stays in milligrams), so logging and insights run
+-- on integer arithmetic. Conversion back to grams happens in the GraphQL layer.
+
+-- ============================================================================
+-- CONSUMPTION LOG
+-- ============================================================================
+ALTER TABLE consumption_log
+    ADD COLUMN total_protein_mg BIGINT AFTER total_calories,
+    ADD COLUMN total_carbs_mg BIGINT AFTER total_protein_mg,
+    ADD COLUMN total_fat_mg BIGINT AFTER total_carbs_mg,
+    ADD COLUMN total_fiber_mg BIGINT AFTER total_fat_mg,
+    ADD COLUMN total_sugar_mg BIGINT AFTER total_fiber_mg,
+    ADD COLUMN total_sodium_mg BIGINT AFTER total_sugar_mg;
+
+UPDATE consumption_log SET
+    total_protein_mg = ROUND(total_protein * 1000),
+    total_carbs_mg = ROUND(total_carbs * 1000),
+    total_fat_mg = ROUND(total_fat * 1000),
+    total_fiber_mg = ROUND(total_fiber * 1000),
+    total_sugar_mg = ROUND(total_sugar * 1000),
+    total_sodium_mg = ROUND(total_sodium);
+
+ALTER TABLE consumption_log
+    DROP COLUMN total_protein,
+    DROP COLUMN total_carbs,
+    DROP COLUMN total_fat,
+    DROP COLUMN total_fiber,
+    DROP COLUMN total_sugar,
+    DROP COLUMN total_sodium;
+
+-- ============================================================================
+-- DAILY NUTRITION SUMMARY
+-- ============================================================================
+ALTER TABLE daily_nutrition_summary
+    ADD COLUMN total_protein_mg BIGINT NOT NULL DEFAULT 0 AFTER total_calories,
+    ADD COLUMN total_carbs_mg BIGINT NOT NULL DEFAULT 0 AFTER total_protein_mg,
+    ADD COLUMN total_fat_mg BIGINT NOT NULL DEFAULT 0 AFTER total_carbs_mg,
+    ADD COLUMN total_fiber_mg BIGINT NOT NULL DEFAULT 0 AFTER total_fat_mg,
+    ADD COLUMN total_sugar_mg BIGINT NOT NULL DEFAULT 0 AFTER total_fiber_mg,
+    ADD COLUMN total_sodium_mg BIGINT NOT NULL DEFAULT 0 AFTER total_sugar_mg;
+
+UPDATE daily_nutrition_summary SET
+    total_protein_mg = COALESCE(ROUND(total_protein * 1000), 0),
+    total_carbs_mg = COALESCE(ROUND(total_carbs * 1000), 0),
+    total_fat_mg = COALESCE(ROUND(total_fat * 1000), 0),
+    total_fiber_mg = COALESCE(ROUND(total_fiber * 1000), 0),
+    total_sugar_mg = COALESCE(ROUND(total_sugar * 1000), 0),
+    total_sodium_mg = COALESCE(ROUND(total_sodium), 0);
+
+ALTER TABLE daily_nutrition_summary
+    DROP COLUMN total_protein,
+    DROP COLUMN total_carbs,
+    DROP COLUMN total_fat,
+    DROP COLUMN total_fiber,
+    DROP COLUMN total_sugar,
+    DROP COLUMN total_sodium;
+
+-- ============================================================================
+-- VIEWS FOR COMMON QUERIES
+-- ============================================================================
+
+-- View: Daily nutrition summary with goals (totals reported in grams)
+CREATE OR REPLACE VIEW daily_nutrition_with_goals AS
+SELECT
+    dns.user_id,
+    dns.date,
+    dns.total_calories,
+    dns.total_protein_mg / 1000 AS total_protein,
+    dns.total_carbs_mg / 1000 AS total_carbs,
+    dns.total_fat_mg / 1000 AS total_fat,
+    udp.daily_calorie_goal,
+    udp.daily_protein_goal,
+    udp.daily_carb_goal,
+    udp.daily_fat_goal,
+    ROUND((dns.total_calories / NULLIF(udp.daily_calorie_goal, 0)) * 100, 2) AS calorie_goal_percentage,
+    ROUND((dns.total_protein_mg / 10 / NULLIF(udp.daily_protein_goal, 0)), 2) AS protein_goal_percentage,
+    ROUND((dns.total_carbs_mg / 10 / NULLIF(udp.daily_carb_goal, 0)), 2) AS carb_goal_percentage,
+    ROUND((dns.total_fat_mg / 10 / NULLIF(udp.daily_fat_goal, 0)), 2) AS fat_goal_percentage
+FROM daily_nutrition_summary dns
+LEFT JOIN user_dietary_preferences udp ON dns.user_id = udp.user_id;
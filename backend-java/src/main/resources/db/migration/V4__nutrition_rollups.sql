@@ -0,0 +1,71 @@
+-- Nutrition Rollups
+-- Version 4.0 - Weekly and monthly totals materialized from daily_nutrition_summary.
+-- Rows are refreshed whenever a consumption is logged; insights over long ranges
+-- read monthly rows instead of every daily summary.
+
+-- ============================================================================
+-- NUTRITION ROLLUP
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS nutrition_rollup (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    period VARCHAR(10) NOT NULL, -- WEEK (Monday start) or MONTH
+    period_start DATE NOT NULL,
+
+    days_logged INT NOT NULL DEFAULT 0,
+
+    -- Period totals (nutrients in milligrams)
+    total_calories BIGINT NOT NULL DEFAULT 0,
+    total_protein_mg BIGINT NOT NULL DEFAULT 0,
+    total_carbs_mg BIGINT NOT NULL DEFAULT 0,
+    total_fat_mg BIGINT NOT NULL DEFAULT 0,
+    total_fiber_mg BIGINT NOT NULL DEFAULT 0,
+    total_sugar_mg BIGINT NOT NULL DEFAULT 0,
+    total_sodium_mg BIGINT NOT NULL DEFAULT 0,
+
+    -- Days on which goals were met
+    calorie_goal_days INT NOT NULL DEFAULT 0,
+    protein_goal_days INT NOT NULL DEFAULT 0,
+
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    UNIQUE KEY unique_user_period (user_id, period, period_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- BACKFILL FROM EXISTING DAILY SUMMARIES
+-- ============================================================================
+INSERT INTO nutrition_rollup (
+    user_id, period, period_start, days_logged, total_calories,
+    total_protein_mg, total_carbs_mg, total_fat_mg, total_fiber_mg, total_sugar_mg, total_sodium_mg,
+    calorie_goal_days, protein_goal_days
+)
+SELECT
+    user_id,
+    'WEEK',
+    DATE_SUB(date, INTERVAL WEEKDAY(date) DAY),
+    COUNT(*),
+    COALESCE(SUM(total_calories), 0),
+    SUM(total_protein_mg), SUM(total_carbs_mg), SUM(total_fat_mg),
+    SUM(total_fiber_mg), SUM(total_sugar_mg), SUM(total_sodium_mg),
+    SUM(calorie_goal_met), SUM(protein_goal_met)
+FROM daily_nutrition_summary
+GROUP BY user_id, DATE_SUB(date, INTERVAL WEEKDAY(date) DAY);
+
+INSERT INTO nutrition_rollup (
+    user_id, period, period_start, days_logged, total_calories,
+    total_protein_mg, total_carbs_mg, total_fat_mg, total_fiber_mg, total_sugar_mg, total_sodium_mg,
+    calorie_goal_days, protein_goal_days
+)
+SELECT
+    user_id,
+    'MONTH',
+    DATE_SUB(date, INTERVAL DAYOFMONTH(date) - 1 DAY),
+    COUNT(*),
+    COALESCE(SUM(total_calories), 0),
+    SUM(total_protein_mg), SUM(total_carbs_mg), SUM(total_fat_mg),
+    SUM(total_fiber_mg), SUM(total_sugar_mg), SUM(total_sodium_mg),
+    SUM(calorie_goal_met), SUM(protein_goal_met)
+FROM daily_nutrition_summary
+GROUP BY user_id, DATE_SUB(date, INTERVAL DAYOFMONTH(date) - 1 DAY);
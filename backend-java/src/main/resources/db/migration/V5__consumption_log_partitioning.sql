@@ -0,0 +1,101 @@
+-- Consumption Log Partitioning
+-- Version 5.0 - Range-partitions consumption_log by month on consumed_at so that
+-- time-bounded queries prune to the months they touch, and adds an archive table
+-- for partitions past the retention window.
+--
+-- MySQL requires the partitioning column in every unique key and does not allow
+-- foreign keys on partitioned tables, so the primary key becomes (id, consumed_at)
+-- and the user/item foreign keys are dropped; the database no longer cascades
+-- deletes from users or items into consumption_log.
+
+-- ============================================================================
+-- CONSUMPTION LOG - KEYS AND INDEXES
+-- ============================================================================
+ALTER TABLE consumption_log
+    DROP FOREIGN KEY consumption_log_ibfk_1,
+    DROP FOREIGN KEY consumption_log_ibfk_2;
+
+ALTER TABLE consumption_log
+    MODIFY consumed_at DATETIME NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, consumed_at),
+    DROP INDEX idx_user_id,
+    DROP INDEX idx_consumed_at,
+    DROP INDEX idx_consumption_date,
+    ADD INDEX idx_user_consumed (user_id, consumed_at);
+
+-- ============================================================================
+-- CONSUMPTION LOG - MONTHLY PARTITIONS
+-- ============================================================================
+-- pYYYYMM holds rows consumed before the first day of the following month;
+-- p202312 also holds everything older. ConsumptionLogPartitionService splits
+-- pmax ahead of time and archives partitions past the retention window.
+ALTER TABLE consumption_log
+PARTITION BY RANGE COLUMNS (consumed_at) (
+    PARTITION p202312 VALUES LESS THAN ('2024-01-01'),
+    PARTITION p202401 VALUES LESS THAN ('2024-02-01'),
+    PARTITION p202402 VALUES LESS THAN ('2024-03-01'),
+    PARTITION p202403 VALUES LESS THAN ('2024-04-01'),
+    PARTITION p202404 VALUES LESS THAN ('2024-05-01'),
+    PARTITION p202405 VALUES LESS THAN ('2024-06-01'),
+    PARTITION p202406 VALUES LESS THAN ('2024-07-01'),
+    PARTITION p202407 VALUES LESS THAN ('2024-08-01'),
+    PARTITION p202408 VALUES LESS THAN ('2024-09-01'),
+    PARTITION p202409 VALUES LESS THAN ('2024-10-01'),
+    PARTITION p202410 VALUES LESS THAN ('2024-11-01'),
+    PARTITION p202411 VALUES LESS THAN ('2024-12-01'),
+    PARTITION p202412 VALUES LESS THAN ('2025-01-01'),
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+    PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+    PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+    PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+    PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+    PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+    PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+    PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+    PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
+
+-- ============================================================================
+-- CONSUMPTION LOG ARCHIVE
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS consumption_log_archive (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    item_id BIGINT,
+    consumed_at DATETIME NOT NULL,
+    servings_consumed DECIMAL(10,2),
+    
+    -- Nutritional totals (nutrients in milligrams)
+    total_calories INT,
+    total_protein_mg BIGINT,
+    total_carbs_mg BIGINT,
+    total_fat_mg BIGINT,
+    total_fiber_mg BIGINT,
+    total_sugar_mg BIGINT,
+    total_sodium_mg BIGINT,
+    
+    meal_type ENUM('BREAKFAST', 'LUNCH', 'DINNER', 'SNACK', 'OTHER'),
+    notes TEXT,
+    created_at TIMESTAMP NULL,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    
+    PRIMARY KEY (id, consumed_at),
+    INDEX idx_user_consumed (user_id, consumed_at)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
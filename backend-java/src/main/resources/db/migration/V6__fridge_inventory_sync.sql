@@ -0,0 +1,22 @@
+-- Fridge Inventory Sync
+-- Version 6.0 - Items managed by a smart fridge's inventory sync are tagged with
+-- the device, and each device's last applied inventory is fingerprinted so that
+-- syncing an unchanged fridge reads and writes no items.
+
+-- ============================================================================
+-- ITEMS - SYNCED DEVICE
+-- ============================================================================
+ALTER TABLE items
+    ADD COLUMN fridge_device_id VARCHAR(100) NULL,
+    ADD INDEX idx_items_household_fridge (household_id, fridge_device_id);
+
+-- ============================================================================
+-- FRIDGE SYNC STATE
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS fridge_sync_state (
+    device_id VARCHAR(100) PRIMARY KEY,
+    household_id BIGINT NOT NULL,
+    inventory_hash BIGINT NOT NULL,
+    item_count INT NOT NULL,
+    synced_at DATETIME NOT NULL
+);
@@ -0,0 +1,17 @@
+-- Experience Ledger
+-- Version 7.0 - Every XP award is appended to a ledger, and the user's total is
+-- incremented in place (experience_points = experience_points + ?) instead of
+-- being read, changed and written back, so concurrent awards cannot lose XP.
+
+-- ============================================================================
+-- EXPERIENCE EVENTS
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS experience_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    xp INT NOT NULL,
+    reason VARCHAR(255) NULL,
+    created_at DATETIME NOT NULL,
+    INDEX idx_experience_events_user_created (user_id, created_at),
+    CONSTRAINT fk_experience_events_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
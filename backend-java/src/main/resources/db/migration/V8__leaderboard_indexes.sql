@@ -0,0 +1,14 @@
+-- Leaderboard Indexes
+-- Version 8.0 - Leaderboards are held in memory and loaded at startup: the
+-- all-time board by paging users in XP order, the weekly board by summing the
+-- week's XP ledger. These indexes serve both without sorting or table scans.
+
+-- ============================================================================
+-- USERS - XP ORDER
+-- ============================================================================
+CREATE INDEX idx_users_leaderboard ON users (experience_points DESC, id);
+
+-- ============================================================================
+-- EXPERIENCE EVENTS - BY TIME
+-- ============================================================================
+CREATE INDEX idx_experience_events_created ON experience_events (created_at, user_id, xp);
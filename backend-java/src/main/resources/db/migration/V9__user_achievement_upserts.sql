@@ -0,0 +1,20 @@
+-- User Achievement Upserts
+-- Version 9.0 - The achievement engine writes unlocks and progress in batches
+-- as INSERT ... ON DUPLICATE KEY UPDATE, so each user has at most one row per
+-- achievement. Duplicates left by earlier versions are removed first, keeping
+-- an unlocked row where there is one and otherwise the oldest.
+
+-- ============================================================================
+-- USER ACHIEVEMENTS - REMOVE DUPLICATES
+-- ============================================================================
+DELETE ua FROM user_achievements ua
+JOIN user_achievements keep
+  ON keep.user_id = ua.user_id
+ AND keep.achievement_id = ua.achievement_id
+ AND (keep.is_unlocked > ua.is_unlocked
+      OR (keep.is_unlocked = ua.is_unlocked AND keep.id < ua.id));
+
+-- ============================================================================
+-- USER ACHIEVEMENTS - ONE ROW PER USER AND ACHIEVEMENT
+-- ============================================================================
+CREATE UNIQUE INDEX uk_user_achievements_user_achievement ON user_achievements (user_id, achievement_id);
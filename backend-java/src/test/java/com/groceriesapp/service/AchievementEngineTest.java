@@ -0,0 +1,143 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.Achievement;
+import com.groceriesapp.repository.AchievementRepository;
+import com.groceriesapp.repository.UserAchievementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AchievementEngineTest {
+
+    @Mock
+    private AchievementRepository achievementRepository;
+
+    @Mock
+    private UserAchievementRepository userAchievementRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AchievementEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new AchievementEngine(achievementRepository, userAchievementRepository, jdbcTemplate, 1000, 60);
+        when(achievementRepository.findByIsActiveTrue()).thenReturn(List.of(
+            achievement(3L, "WASTE_WARRIOR", 100), achievement(1L, "WASTE_WARRIOR", 10),
+            achievement(2L, "WASTE_WARRIOR", 50), achievement(4L, "SCAN_MASTER", 10)));
+    }
+
+    @Test
+    void testEvaluate_UnlocksTiersInOrderAndWritesOnlyChanges() {
+        // Bronze was unlocked at 12 before this snapshot
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {1L, 12, true});
+        when(userAchievementRepository.findProgressByUserId(7L)).thenReturn(rows);
+
+        assertTrue(engine.evaluate(7L, "WASTE_WARRIOR", 12).isEmpty());
+        assertTrue(engine.evaluate(7L, "WASTE_WARRIOR", 11).isEmpty());
+        assertEquals(0, engine.flush());
+
+        List<Achievement> unlocked = engine.evaluate(7L, "WASTE_WARRIOR", 120);
+        assertEquals(List.of(2L, 3L), unlocked.stream().map(Achievement::getId).toList());
+        assertTrue(engine.evaluate(7L, "WASTE_WARRIOR", 130).isEmpty());
+        assertTrue(engine.evaluate(7L, "STREAK", 5).isEmpty());
+
+        // Both unlocks in one batch; with every tier unlocked, later progress has no row to go to
+        List<Object[]> written = flushed();
+        assertEquals(2, written.size());
+        for (Object[] row : written) {
+            assertEquals(7L, row[0]);
+            assertEquals(120, row[2]);
+            assertEquals(true, row[3]);
+            assertNotNull(row[4]);
+        }
+        verify(userAchievementRepository, times(1)).findProgressByUserId(7L);
+        verify(achievementRepository, times(1)).findByIsActiveTrue();
+    }
+
+    @Test
+    void testEvaluate_ProgressGoesToNextTierOnlyAfterCommit() {
+        when(userAchievementRepository.findProgressByUserId(anyLong())).thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, engine.evaluate(7L, "SCAN_MASTER", 10).size());
+            assertEquals(List.of(), engine.evaluate(8L, "WASTE_WARRIOR", 4));
+            assertEquals(0, engine.flush());
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        List<Object[]> written = flushed();
+        assertEquals(2, written.size());
+        Object[] progress = written.stream().filter(row -> row[0].equals(8L)).findFirst().orElseThrow();
+        assertEquals(1L, progress[1]);
+        assertEquals(4, progress[2]);
+        assertEquals(false, progress[3]);
+        assertNull(progress[4]);
+    }
+
+    @Test
+    void testRollback_ReloadsSnapshotSoTheUnlockIsNotLost() {
+        when(userAchievementRepository.findProgressByUserId(7L)).thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, engine.evaluate(7L, "SCAN_MASTER", 10).size());
+            TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(0, engine.flush());
+
+        // Unlocked again next time, and a failed write is retried
+        assertEquals(1, engine.evaluate(7L, "SCAN_MASTER", 10).size());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("down"));
+        assertEquals(0, engine.flush());
+        assertEquals(1, engine.getStats().getUsersPending());
+        // A snapshot reloaded before the retry still sees the unlock
+        engine.reload();
+        assertTrue(engine.evaluate(7L, "SCAN_MASTER", 11).isEmpty());
+        verify(userAchievementRepository, times(3)).findProgressByUserId(7L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> flushed() {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        int written = engine.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertEquals(written, rows.getValue().size());
+        return rows.getValue();
+    }
+
+    private static Achievement achievement(Long id, String type, int pointsRequired) {
+        Achievement achievement = new Achievement();
+        achievement.setId(id);
+        achievement.setName(type + " " + pointsRequired);
+        achievement.setType(type);
+        achievement.setPointsRequired(pointsRequired);
+        achievement.setXpReward(pointsRequired * 5);
+        return achievement;
+    }
+}
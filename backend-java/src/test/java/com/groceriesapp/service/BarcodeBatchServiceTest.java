@@ -0,0 +1,111 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.BarcodeBatchService.BatchItem;
+import com.groceriesapp.service.BarcodeBatchService.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BarcodeBatchServiceTest {
+
+    private static final String CACHED = "4006381333931";
+
+    @Mock
+    private BarcodeService barcodeService;
+
+    @Test
+    void testScanBarcodesInOrder_DedupesAndKeepsInputOrder() {
+        when(barcodeService.scanBarcodeAsync("4006381333931")).thenReturn(CompletableFuture.completedFuture(
+            Map.of("success", true, "name", "Milk")));
+        when(barcodeService.scanBarcodeAsync("0012345678905")).thenReturn(CompletableFuture.completedFuture(
+            Map.of("success", false, "message", BarcodeService.NOT_FOUND_MESSAGE)));
+        when(barcodeService.scanBarcodeAsync("96385074")).thenReturn(CompletableFuture.completedFuture(
+            Map.of("success", false, "message", "Error scanning barcode: lookup timed out")));
+        when(barcodeService.isCached(anyString())).thenAnswer(invocation -> invocation.getArgument(0).equals("96385074"));
+
+        List<BatchItem> items = service(4).scanBarcodesInOrder(
+            List.of("0012345678905", "4006381333931", " 4006381333931 ", "", "96385074", "4006381333932", "../x"))
+            .block();
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), items.stream().map(BatchItem::getIndex).toList());
+        assertEquals(List.of(Status.NOT_FOUND, Status.FOUND, Status.FOUND, Status.INVALID, Status.FAILED,
+                Status.INVALID, Status.INVALID),
+            items.stream().map(BatchItem::getStatus).toList());
+        assertEquals(BarcodeService.INVALID_MESSAGE, items.get(5).getResult().get("message"));
+        assertEquals("Milk", items.get(2).getResult().get("name"));
+        assertTrue(items.get(4).isCached());
+        assertFalse(items.get(1).isCached());
+        verify(barcodeService, times(1)).scanBarcodeAsync("4006381333931");
+        verify(barcodeService, never()).scanBarcodeAsync("");
+        verify(barcodeService, never()).scanBarcodeAsync("4006381333932");
+        verify(barcodeService, never()).scanBarcodeAsync("../x");
+    }
+
+    @Test
+    void testScanBarcodes_StreamsCacheHitsFirstAndBoundsConcurrentLookups() {
+        Map<String, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(barcodeService.scanBarcodeAsync(anyString())).thenAnswer(invocation -> {
+            String barcode = invocation.getArgument(0);
+            if (barcode.equals(CACHED)) {
+                return CompletableFuture.completedFuture(Map.<String, Object>of("success", true));
+            }
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+            pending.put(barcode, future);
+            return future;
+        });
+        when(barcodeService.isCached(anyString())).thenAnswer(invocation -> invocation.getArgument(0).equals(CACHED));
+
+        List<String> barcodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // Eleven digits ending in the check digit
+            barcodes.add("000000000" + i + (10 - 3 * i % 10) % 10);
+        }
+        barcodes.add(CACHED);
+        List<BatchItem> emitted = new ArrayList<>();
+        service(3).scanBarcodes(barcodes).subscribe(emitted::add);
+
+        assertEquals(1, emitted.size());
+        assertEquals(CACHED, emitted.get(0).getBarcode());
+        assertEquals(10, emitted.get(0).getIndex());
+        // Finish lookups as they are started, last started first
+        while (emitted.size() < 11) {
+            assertTrue(inFlight.get() > 0);
+            String next = pending.keySet().stream().max(String::compareTo).orElseThrow();
+            inFlight.decrementAndGet();
+            pending.remove(next).complete(Map.of("success", true));
+        }
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    void testScanBarcodes_RejectsOversizedBatches() {
+        BarcodeBatchService service = new BarcodeBatchService(barcodeService, 4, 2);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> service.scanBarcodesInOrder(List.of("1", "2", "3")).block(Duration.ofSeconds(1)));
+
+        assertTrue(error.getMessage().contains("At most 2"));
+        verifyNoInteractions(barcodeService);
+    }
+
+    private BarcodeBatchService service(int maxConcurrency) {
+        return new BarcodeBatchService(barcodeService, maxConcurrency, 100);
+    }
+}
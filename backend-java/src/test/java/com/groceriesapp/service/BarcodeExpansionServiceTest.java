@@ -0,0 +1,177 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.BarcodeExpansionService.ProductLookupResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the parallel barcode lookup against local stubs of Open Food Facts and UPCitemdb
+ */
+class BarcodeExpansionServiceTest {
+
+    private static final String OFF_MILK = "{\"status\":1,\"product\":{\"product_name\":\"Whole Milk\",\"brands\":\"Acme\","
+        + "\"categories\":\"Dairy\",\"nutriments\":{\"energy-kcal_100g\":64,\"fat_100g\":3.6}}}";
+    private static final String OFF_NO_BRAND = "{\"status\":1,\"product\":{\"product_name\":\"Oat Drink\","
+        + "\"nutriments\":{\"energy-kcal_100g\":45}}}";
+    private static final String OFF_UNKNOWN = "{\"status\":0}";
+    private static final String UPC_OAT = "{\"code\":\"OK\",\"total\":1,\"items\":[{\"ean\":\"0002\",\"title\":\"Oatly Oat Drink 64oz\","
+        + "\"brand\":\"Oatly\",\"category\":\"Food > Beverages\",\"images\":[\"http://img/oat.jpg\",\"http://img/oat2.jpg\"],"
+        + "\"offers\":[{\"merchant\":\"x\"}]},{\"title\":\"duplicate listing\"}]}";
+    private static final String UPC_UNKNOWN = "{\"code\":\"OK\",\"total\":0,\"items\":[]}";
+
+    @TempDir
+    Path catalogueDir;
+
+    private HttpServer server;
+    private final UpstreamHttpClient http = new UpstreamHttpClient(2000, 2);
+    private final Map<String, String> offResponses = new ConcurrentHashMap<>();
+    private final Map<String, String> upcResponses = new ConcurrentHashMap<>();
+    private final Map<String, Integer> delaysMillis = new ConcurrentHashMap<>();
+    private final AtomicInteger upcRequests = new AtomicInteger();
+    private volatile int upcStatus = 200;
+    private BarcodeExpansionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/off/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String barcode = path.substring(path.lastIndexOf('/') + 1).replace(".json", "");
+            respond(exchange, "off", 200, offResponses.getOrDefault(barcode, OFF_UNKNOWN));
+        });
+        server.createContext("/upc/lookup", exchange -> {
+            upcRequests.incrementAndGet();
+            String barcode = exchange.getRequestURI().getQuery().replace("upc=", "");
+            respond(exchange, "upc", upcStatus, upcResponses.getOrDefault(barcode, UPC_UNKNOWN));
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        http.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testLookupBarcode_ReturnsCompleteAnswerWithoutWaitingForSlowerSources() {
+        service = newService(3000, 3000, 5);
+        offResponses.put("0001", OFF_MILK);
+        delaysMillis.put("upc", 2000);
+
+        long start = System.nanoTime();
+        ProductLookupResult result = service.lookupBarcode("0001");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(result.isSuccess());
+        assertEquals("Open Food Facts", result.getSource());
+        assertEquals("Acme", result.getProduct().getBrand());
+        assertEquals(64, result.getProduct().getNutrition().getCalories());
+        assertTrue(millis < 1000, "took " + millis + " ms");
+    }
+
+    @Test
+    void testLookupBarcode_MergesPartialAnswersInSourceOrder() {
+        service = newService(3000, 3000, 5);
+        offResponses.put("0002", OFF_NO_BRAND);
+        upcResponses.put("0002", UPC_OAT);
+
+        ProductLookupResult result = service.lookupBarcode("0002");
+
+        assertTrue(result.isSuccess());
+        assertEquals("Open Food Facts + UPC Database", result.getSource());
+        assertEquals("Oat Drink", result.getProduct().getProductName());
+        assertEquals("Oatly", result.getProduct().getBrand());
+        assertEquals("Food > Beverages", result.getProduct().getCategory());
+        assertEquals("http://img/oat.jpg", result.getProduct().getImageUrl());
+        assertEquals(45, result.getProduct().getNutrition().getCalories());
+    }
+
+    @Test
+    void testLookupBarcode_GivesUpOnSourcesPastTheirTimeout() {
+        service = newService(200, 3000, 5);
+        offResponses.put("0002", OFF_MILK);
+        upcResponses.put("0002", UPC_OAT);
+        delaysMillis.put("off", 1500);
+
+        long start = System.nanoTime();
+        ProductLookupResult result = service.lookupBarcode("0002");
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(result.isSuccess());
+        assertEquals("UPC Database", result.getSource());
+        assertEquals("Oatly Oat Drink 64oz", result.getProduct().getProductName());
+        assertTrue(millis < 1000, "took " + millis + " ms");
+        BarcodeLookupEngine.SourceStats off = service.getSourceStatistics().get(0);
+        assertEquals(1, off.getFailures());
+        assertTrue(off.getP50Millis() >= 250);
+    }
+
+    @Test
+    void testLookupBarcode_CircuitBreakerSkipsFailingSource() {
+        service = newService(3000, 3000, 2);
+        upcStatus = 503;
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(service.lookupBarcode("0003").isSuccess());
+        }
+
+        assertEquals(2, upcRequests.get());
+        List<BarcodeLookupEngine.SourceStats> stats = service.getSourceStatistics();
+        assertEquals("closed", stats.get(0).getBreakerState());
+        assertEquals(4, stats.get(0).getCalls());
+        assertEquals("open", stats.get(1).getBreakerState());
+        assertEquals(2, stats.get(1).getFailures());
+        assertEquals(2, stats.get(1).getRejected());
+    }
+
+    @Test
+    void testLookupBarcode_NotFoundAnywhere() {
+        service = newService(3000, 3000, 5);
+
+        ProductLookupResult result = service.lookupBarcode("0004");
+
+        assertFalse(result.isSuccess());
+        assertNull(result.getProduct());
+        assertEquals("Product not found in barcode databases", result.getMessage());
+    }
+
+    private BarcodeExpansionService newService(long offTimeoutMillis, long upcTimeoutMillis, int breakerFailures) {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new BarcodeExpansionService(new ProductCatalogue(catalogueDir.toString()),
+            new OpenFoodFactsClient(http, base + "/off/api/v0/product/", offTimeoutMillis),
+            new UpcItemDbClient(http, base + "/upc/lookup", upcTimeoutMillis),
+            new String[] {"UPC_DATABASE", "OPEN_FOOD_FACTS"}, offTimeoutMillis, upcTimeoutMillis, breakerFailures, 60);
+    }
+
+    private void respond(HttpExchange exchange, String source, int status, String body) throws IOException {
+        try {
+            Thread.sleep(delaysMillis.getOrDefault(source, 0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
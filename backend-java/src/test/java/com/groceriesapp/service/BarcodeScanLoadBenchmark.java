@@ -0,0 +1,145 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.BarcodeProduct;
+import com.groceriesapp.repository.BarcodeProductRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test of concurrent barcode scans against a local Open Food Facts stub that
+ * answers after a fixed delay. Compares the previous loader (a blocking RestTemplate
+ * call on each of the lookup threads) with BarcodeService on the pooled non-blocking
+ * client, both with the same number of lookup threads. Reports scans per second.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.BarcodeScanLoadBenchmark [scans] [delayMillis] [lookupThreads]
+ * </pre>
+ */
+public class BarcodeScanLoadBenchmark {
+
+    private static final String PRODUCT = "{\"status\":1,\"product\":{\"product_name\":\"Whole Milk\",\"brands\":\"Acme\","
+        + "\"categories\":\"Dairy\",\"nutriments\":{\"energy-kcal_100g\":64}}}";
+
+    public static void main(String[] args) throws Exception {
+        int scans = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int delayMillis = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int lookupThreads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/v0/product/", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = PRODUCT.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0/product/";
+
+        try {
+            // Warm both paths up on a different set of barcodes
+            blocking(url, 50, "9", lookupThreads);
+            nonBlocking(url, 50, "9", lookupThreads);
+
+            long blockingNanos = blocking(url, scans, "1", lookupThreads);
+            long nonBlockingNanos = nonBlocking(url, scans, "2", lookupThreads);
+
+            System.out.printf("%d concurrent scans of distinct barcodes, upstream delay %d ms, %d lookup threads%n",
+                scans, delayMillis, lookupThreads);
+            System.out.printf("Blocking RestTemplate loader: %6d ms, %7.1f scans/s%n",
+                blockingNanos / 1_000_000, scans * 1e9 / blockingNanos);
+            System.out.printf("Non-blocking pooled client:   %6d ms, %7.1f scans/s%n",
+                nonBlockingNanos / 1_000_000, scans * 1e9 / nonBlockingNanos);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static long blocking(String url, int scans, String prefix, int lookupThreads) throws Exception {
+        RestTemplate restTemplate = new RestTemplate();
+        ExecutorService lookups = Executors.newFixedThreadPool(lookupThreads);
+        long start = System.nanoTime();
+        List<Future<BarcodeProduct>> results = new ArrayList<>();
+        for (int i = 0; i < scans; i++) {
+            String barcode = barcode(prefix, i);
+            results.add(lookups.submit(() -> restTemplate.execute(url + barcode + ".json", HttpMethod.GET, null,
+                response -> OpenFoodFactsClient.parse(barcode, response.getBody()))));
+        }
+        for (Future<BarcodeProduct> result : results) {
+            check(result.get().isFound());
+        }
+        long nanos = System.nanoTime() - start;
+        lookups.shutdown();
+        return nanos;
+    }
+
+    private static long nonBlocking(String url, int scans, String prefix, int lookupThreads) throws Exception {
+        UpstreamHttpClient http = new UpstreamHttpClient(2000, 4);
+        Path catalogue = Files.createTempDirectory("scan-load");
+        BarcodeService service = new BarcodeService(new OpenFoodFactsClient(http, url, 60000),
+            new ProductCatalogue(catalogue.toString()), repository(), scans * 2L, 24, 60, lookupThreads, 120000);
+        long start = System.nanoTime();
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < scans; i++) {
+            results.add(service.scanBarcodeAsync(barcode(prefix, i)));
+        }
+        for (CompletableFuture<Map<String, Object>> result : results) {
+            check(Boolean.TRUE.equals(result.join().get("success")));
+        }
+        long nanos = System.nanoTime() - start;
+        service.shutdown();
+        http.shutdown();
+        Files.delete(catalogue);
+        return nanos;
+    }
+
+    // A distinct EAN-13 per prefix and number, check digit included
+    private static String barcode(String prefix, int i) {
+        String digits = prefix + String.format("%011d", i);
+        int sum = 0;
+        for (int d = 0; d < digits.length(); d++) {
+            sum += (digits.charAt(d) - '0') * ((digits.length() - d) % 2 == 1 ? 3 : 1);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    // An empty table that accepts saves
+    private static BarcodeProductRepository repository() {
+        return (BarcodeProductRepository) Proxy.newProxyInstance(BarcodeProductRepository.class.getClassLoader(),
+            new Class<?>[] {BarcodeProductRepository.class}, (proxy, method, methodArgs) -> switch (method.getName()) {
+                case "findById" -> Optional.empty();
+                case "save" -> methodArgs[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static void check(boolean ok) {
+        if (!ok) {
+            throw new IllegalStateException("Scan failed");
+        }
+    }
+}
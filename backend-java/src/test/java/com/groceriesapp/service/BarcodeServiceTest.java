@@ -0,0 +1,277 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.BarcodeProduct;
+import com.groceriesapp.repository.BarcodeProductRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs BarcodeService against a local stub of the Open Food Facts API
+ */
+@ExtendWith(MockitoExtension.class)
+class BarcodeServiceTest {
+
+    private static final String MILK = "{\"code\":\"0001000000014\",\"status\":1,\"status_verbose\":\"product found\","
+        + "\"product\":{\"product_name\":\"Whole Milk\",\"brands\":\"Acme\",\"categories\":\"Dairy, Milks\","
+        + "\"image_url\":\"http://img/milk.jpg\",\"ingredients\":[{\"id\":\"en:milk\",\"percent\":100}],"
+        + "\"nutriments\":{\"energy-kcal_100g\":64,\"proteins_100g\":3.3,\"fat_100g\":\"3.6\",\"salt_100g\":0.1}},"
+        + "\"status_verbose_2\":\"ok\"}";
+    private static final String UNKNOWN = "{\"code\":\"0002000000028\",\"status\":0,\"status_verbose\":\"product not found\"}";
+
+    @Mock
+    private BarcodeProductRepository barcodeProductRepository;
+
+    @TempDir
+    Path catalogueDir;
+
+    private HttpServer server;
+    private final UpstreamHttpClient http = new UpstreamHttpClient(2000, 2);
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile int statusCode = 200;
+    private volatile int delayMillis = 0;
+    private volatile boolean gzip = false;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/v0/product/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String barcode = path.substring(path.lastIndexOf('/') + 1).replace(".json", "");
+            requests.computeIfAbsent(barcode, key -> new AtomicInteger()).incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (barcode.startsWith("0001") ? MILK : UNKNOWN).getBytes(StandardCharsets.UTF_8);
+            String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (gzip && encoding != null && encoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        lenient().when(barcodeProductRepository.save(any(BarcodeProduct.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        http.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testScanBarcode_ParsesProductAndServesRepeatScansFromMemory() {
+        BarcodeService service = newService(60);
+
+        Map<String, Object> first = service.scanBarcode("0001000000014");
+        Map<String, Object> second = service.scanBarcode("0001000000014");
+
+        assertEquals(true, first.get("success"));
+        assertEquals("Acme Whole Milk", first.get("name"));
+        assertEquals("Fridge", first.get("storageLocation"));
+        assertEquals(7, first.get("estimatedShelfLifeDays"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> nutrition = (Map<String, Object>) first.get("nutrition");
+        assertEquals(64.0, nutrition.get("calories"));
+        assertEquals(3.6, nutrition.get("fat"));
+        assertEquals(0.0, nutrition.get("carbs"));
+        assertEquals(first, second);
+        assertEquals(1, requests.get("0001000000014").get());
+        verify(barcodeProductRepository, times(1)).save(any(BarcodeProduct.class));
+    }
+
+    @Test
+    void testScanBarcode_CachesNotFoundForItsShorterTtl() {
+        BarcodeService cached = newService(60);
+        assertEquals(false, cached.scanBarcode("0002000000028").get("success"));
+        assertEquals(false, cached.scanBarcode("0002000000028").get("success"));
+        assertEquals(1, requests.get("0002000000028").get());
+
+        // With no not-found TTL, unknown barcodes are looked up every time
+        BarcodeService uncached = newService(0);
+        uncached.scanBarcode("0002000000028");
+        uncached.scanBarcode("0002000000028");
+        assertEquals(3, requests.get("0002000000028").get());
+    }
+
+    @Test
+    void testScanBarcode_CoalescesConcurrentScansIntoOneUpstreamCall() throws Exception {
+        BarcodeService service = newService(60);
+        release = new CountDownLatch(1);
+        ExecutorService scanners = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Object>>> scans = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                scans.add(scanners.submit(() -> service.scanBarcode("0001000000014")));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Map<String, Object>> scan : scans) {
+                assertEquals(true, scan.get(5, TimeUnit.SECONDS).get("success"));
+            }
+        } finally {
+            scanners.shutdownNow();
+        }
+        assertEquals(1, requests.get("0001000000014").get());
+    }
+
+    @Test
+    void testScanBarcode_UsesFreshStoredProductWithoutUpstream() {
+        BarcodeProduct stored = new BarcodeProduct();
+        stored.setBarcode("0003000000032");
+        stored.setFound(true);
+        stored.setProductName("Bananas");
+        stored.setCategory("Fruits");
+        stored.setFetchedAt(LocalDateTime.now().minusHours(1));
+        when(barcodeProductRepository.findById("0003000000032")).thenReturn(Optional.of(stored));
+
+        Map<String, Object> result = newService(60).scanBarcode("0003000000032");
+
+        assertEquals("Bananas", result.get("name"));
+        assertNull(result.get("nutrition"));
+        assertNull(requests.get("0003000000032"));
+    }
+
+    @Test
+    void testScanBarcode_DoesNotCacheUpstreamErrors() {
+        BarcodeService service = newService(60);
+        statusCode = 503;
+
+        assertEquals(false, service.scanBarcode("0001000000014").get("success"));
+        statusCode = 200;
+        assertEquals(true, service.scanBarcode("0001000000014").get("success"));
+
+        assertEquals(2, requests.get("0001000000014").get());
+        verify(barcodeProductRepository, times(1)).save(any(BarcodeProduct.class));
+    }
+
+    @Test
+    void testScanBarcode_ServesCataloguedProductsWithoutTableOrUpstream() throws Exception {
+        BarcodeService service = newService(60);
+        Path delta = Files.createDirectories(catalogueDir.resolve("inbox/delta")).resolve("0001000000014.jsonl");
+        Files.writeString(delta,
+            "{\"code\":\"0001000000014\",\"product_name\":\"Oat Milk\",\"categories\":\"Dairy alternatives\"}\n");
+        assertEquals(true, service.scanBarcode("0001000000014").get("success"));
+
+        service.importCatalogueDumps();
+        Map<String, Object> result = service.scanBarcode("0001000000014");
+
+        assertEquals("Oat Milk", result.get("name"));
+        assertNull(result.get("nutrition"));
+        assertEquals(1, requests.get("0001000000014").get());
+        verify(barcodeProductRepository, times(1)).findById("0001000000014");
+    }
+
+    @Test
+    void testScanBarcode_ReadsGzippedResponses() {
+        gzip = true;
+
+        Map<String, Object> result = newService(60).scanBarcode("0001000000014");
+
+        assertEquals("Acme Whole Milk", result.get("name"));
+    }
+
+    @Test
+    void testScanBarcodeAsync_UpstreamWaitsDoNotHoldLookupThreads() {
+        // One lookup thread, 20 different barcodes, 300 ms upstream: blocking lookups took 6 s
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0/product/";
+        BarcodeService service = new BarcodeService(new OpenFoodFactsClient(http, url, 5000),
+            new ProductCatalogue(catalogueDir.toString()), barcodeProductRepository, 100, 24, 60, 1, 5000);
+        delayMillis = 300;
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Map<String, Object>>> scans = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            scans.add(service.scanBarcodeAsync(gtin("00010000100" + (10 + i))));
+        }
+        for (CompletableFuture<Map<String, Object>> scan : scans) {
+            assertEquals(true, scan.join().get("success"));
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(millis < 2000, "took " + millis + " ms");
+    }
+
+    @Test
+    void testScanBarcode_RejectsMalformedBarcodesWithoutLookingThemUp() {
+        BarcodeService service = newService(60);
+
+        for (String barcode : List.of("0001", "0001000000015", "../../admin?x=0001000000014",
+                "12345678901234567890", "abcdefgh", "")) {
+            Map<String, Object> result = service.scanBarcode(barcode);
+            assertEquals(false, result.get("success"));
+            assertEquals(BarcodeService.INVALID_MESSAGE, result.get("message"));
+            assertFalse(service.isCached(barcode));
+        }
+        assertTrue(BarcodeService.isValidBarcode("4006381333931"));
+        assertTrue(BarcodeService.isValidBarcode("012345678905"));
+        assertTrue(BarcodeService.isValidBarcode("96385074"));
+        assertTrue(requests.isEmpty());
+        verifyNoInteractions(barcodeProductRepository);
+    }
+
+    @Test
+    void testPurgeExpiredNotFound_DeletesUnknownBarcodesPastTheirTtl() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(60);
+
+        newService(60).purgeExpiredNotFound();
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(barcodeProductRepository).deleteNotFoundFetchedBefore(cutoff.capture());
+        assertFalse(cutoff.getValue().isBefore(before));
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusMinutes(59)));
+    }
+
+    // Appends the GTIN check digit
+    private static String gtin(String digits) {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * ((digits.length() - i) % 2 == 1 ? 3 : 1);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    private BarcodeService newService(long notFoundTtlMinutes) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v0/product/";
+        return new BarcodeService(new OpenFoodFactsClient(http, url, 5000), new ProductCatalogue(catalogueDir.toString()),
+            barcodeProductRepository, 100, 24, notFoundTtlMinutes, 4, 5000);
+    }
+}
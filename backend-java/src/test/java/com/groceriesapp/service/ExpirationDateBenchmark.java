@@ -0,0 +1,100 @@
+package com.groceriesapp.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares ExpirationDateRecognizer with the regex and DateTimeFormatter extraction
+ * it replaced in OCRService, on the ExpirationDateSamples corpus. Reports
+ * microseconds per text and how many samples each reads correctly.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.ExpirationDateBenchmark [rounds]
+ * </pre>
+ */
+public class ExpirationDateBenchmark {
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int samples = ExpirationDateSamples.SAMPLES.size();
+
+        int legacyCorrect = 0;
+        int recognizerCorrect = 0;
+        for (ExpirationDateSamples.Sample sample : ExpirationDateSamples.SAMPLES) {
+            if (sample.expected.equals(legacyExtract(sample.text))) {
+                legacyCorrect++;
+            }
+            if (sample.expected.equals(ExpirationDateRecognizer.bestDate(sample.text, sample.locale, ExpirationDateSamples.TODAY))) {
+                recognizerCorrect++;
+            }
+        }
+
+        // Warm up both paths before timing
+        run(rounds / 4, true);
+        run(rounds / 4, false);
+        long legacyNanos = run(rounds, true);
+        long recognizerNanos = run(rounds, false);
+
+        System.out.println("Corpus: " + samples + " packaging texts, " + rounds + " rounds");
+        System.out.printf("Regex + DateTimeFormatter: %.2f us/text, %d/%d correct%n",
+                legacyNanos / 1e3 / rounds / samples, legacyCorrect, samples);
+        System.out.printf("ExpirationDateRecognizer:  %.2f us/text, %d/%d correct%n",
+                recognizerNanos / 1e3 / rounds / samples, recognizerCorrect, samples);
+    }
+
+    private static long run(int rounds, boolean legacy) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (ExpirationDateSamples.Sample sample : ExpirationDateSamples.SAMPLES) {
+                LocalDate date = legacy
+                    ? legacyExtract(sample.text)
+                    : ExpirationDateRecognizer.bestDate(sample.text, sample.locale, ExpirationDateSamples.TODAY);
+                if (date != null) {
+                    found++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return elapsed;
+    }
+
+    // The extraction OCRService used before ExpirationDateRecognizer, kept for comparison
+
+    private static LocalDate legacyExtract(String text) {
+        String[] datePatterns = {
+            "(?i)(exp|expiry|expires|best before|use by)\\s*:?\\s*(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})",
+            "\\b(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})\\b"
+        };
+        for (String patternStr : datePatterns) {
+            Matcher matcher = Pattern.compile(patternStr).matcher(text);
+            if (matcher.find()) {
+                LocalDate date = legacyParse(matcher.group(matcher.groupCount()));
+                if (date != null) {
+                    return date;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate legacyParse(String dateStr) {
+        String[] formats = {"MM/dd/yyyy", "dd/MM/yyyy", "MM-dd-yyyy", "dd-MM-yyyy", "yyyy-MM-dd", "MM/dd/yy", "dd/MM/yy"};
+        for (String format : formats) {
+            try {
+                return LocalDate.parse(dateStr, DateTimeFormatter.ofPattern(format));
+            } catch (DateTimeParseException e) {
+                // Try next format
+            }
+        }
+        return null;
+    }
+}
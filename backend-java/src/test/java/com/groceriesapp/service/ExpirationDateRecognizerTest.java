@@ -0,0 +1,65 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.ExpirationDateRecognizer.Candidate;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.groceriesapp.service.ExpirationDateSamples.TODAY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpirationDateRecognizerTest {
+
+    @Test
+    void testBestDate_ReadsEverySample() {
+        List<String> wrong = new ArrayList<>();
+        for (ExpirationDateSamples.Sample sample : ExpirationDateSamples.SAMPLES) {
+            LocalDate actual = ExpirationDateRecognizer.bestDate(sample.text, sample.locale, TODAY);
+            if (!sample.expected.equals(actual)) {
+                wrong.add(sample.text.replace('\n', '|') + " -> " + actual + ", expected " + sample.expected);
+            }
+        }
+        assertTrue(wrong.isEmpty(), String.join("\n", wrong));
+    }
+
+    @Test
+    void testRecognize_RanksExpiryAboveProductionDate() {
+        List<Candidate> candidates = ExpirationDateRecognizer.recognize(
+            "PROD 2025-01-02\nEXP 2025-02-01", Locale.US, TODAY);
+
+        assertEquals(2, candidates.size());
+        assertEquals(LocalDate.of(2025, 2, 1), candidates.get(0).getDate());
+        assertEquals("2025-02-01", candidates.get(0).getText());
+        assertTrue(candidates.get(0).getConfidence() > candidates.get(1).getConfidence());
+    }
+
+    @Test
+    void testRecognize_UnambiguousDayIgnoresLocaleAndScoresHigher() {
+        Candidate unambiguous = ExpirationDateRecognizer.recognize("25/03/2025", Locale.US, TODAY).get(0);
+        Candidate ambiguous = ExpirationDateRecognizer.recognize("05/03/2025", Locale.US, TODAY).get(0);
+
+        assertEquals(LocalDate.of(2025, 3, 25), unambiguous.getDate());
+        assertEquals(LocalDate.of(2025, 5, 3), ambiguous.getDate());
+        assertTrue(unambiguous.getConfidence() > ambiguous.getConfidence());
+    }
+
+    @Test
+    void testRecognize_IgnoresBareNumbersAndInvalidDates() {
+        assertTrue(ExpirationDateRecognizer.recognize(
+            "ZIP 25071 Item 2025100 Price 3.99 Tel 555-123-4567 31/02/2025 12.5", Locale.US, TODAY).isEmpty());
+        assertTrue(ExpirationDateRecognizer.recognize("EXP 1999-01-01", Locale.US, TODAY).isEmpty());
+        assertTrue(ExpirationDateRecognizer.recognize("", Locale.US, TODAY).isEmpty());
+        assertNull(ExpirationDateRecognizer.bestDate(null, Locale.US, TODAY));
+    }
+
+    @Test
+    void testIsMonthFirst() {
+        assertTrue(ExpirationDateRecognizer.isMonthFirst(Locale.US));
+        assertTrue(ExpirationDateRecognizer.isMonthFirst(Locale.ENGLISH));
+        assertFalse(ExpirationDateRecognizer.isMonthFirst(Locale.UK));
+        assertFalse(ExpirationDateRecognizer.isMonthFirst(Locale.FRENCH));
+    }
+}
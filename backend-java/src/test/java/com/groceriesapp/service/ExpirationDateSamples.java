@@ -0,0 +1,67 @@
+package com.groceriesapp.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * OCR text of packaging with the expiration date a person reads from it, shared by
+ * the recognizer accuracy test and ExpirationDateBenchmark. Dates are relative to
+ * {@link #TODAY}.
+ */
+final class ExpirationDateSamples {
+
+    static final LocalDate TODAY = LocalDate.of(2025, 1, 15);
+
+    static final class Sample {
+        final String text;
+        final Locale locale;
+        final LocalDate expected;
+
+        Sample(String text, Locale locale, String expected) {
+            this.text = text;
+            this.locale = locale;
+            this.expected = LocalDate.parse(expected);
+        }
+    }
+
+    static final List<Sample> SAMPLES = List.of(
+        // Keyword plus numeric, in both orders
+        new Sample("WHOLE MILK\n1 GAL\nEXP 03/12/25", Locale.US, "2025-03-12"),
+        new Sample("LAIT ENTIER\n1 L\nEXP 03/12/25", Locale.FRANCE, "2025-12-03"),
+        new Sample("Greek Yogurt\nUSE BY: 28/02/2025", Locale.UK, "2025-02-28"),
+        new Sample("Greek Yogurt\nUSE BY: 02/28/2025", Locale.US, "2025-02-28"),
+        new Sample("Cheddar\nBest before 14.04.2025\nL2309", Locale.GERMANY, "2025-04-14"),
+        new Sample("SOUR CREAM  SELL BY 4-2-25", Locale.US, "2025-04-02"),
+        new Sample("Bread\nBB 05-02-2025", Locale.UK, "2025-02-05"),
+        // ISO and compact
+        new Sample("EXP 2025-03-12", Locale.US, "2025-03-12"),
+        new Sample("Juice\nexpiry 2025/06/30 LOT 4471", Locale.UK, "2025-06-30"),
+        new Sample("BEST BEFORE 20250415", Locale.US, "2025-04-15"),
+        // Month names
+        new Sample("BB 12 MAR 25", Locale.UK, "2025-03-12"),
+        new Sample("BEST BEFORE 12MAR25", Locale.US, "2025-03-12"),
+        new Sample("Use by 7 February 2025", Locale.UK, "2025-02-07"),
+        new Sample("BEST BY MAR 12 2025", Locale.US, "2025-03-12"),
+        new Sample("Best if used by Sept 3, 2025", Locale.US, "2025-09-03"),
+        new Sample("EXP 12-MAR-2025", Locale.US, "2025-03-12"),
+        new Sample("BBE JUN 2025", Locale.UK, "2025-06-30"),
+        new Sample("Best before end: 11/2025", Locale.UK, "2025-11-30"),
+        new Sample("Use by 22 Jan", Locale.UK, "2025-01-22"),
+        // Julian codes after a keyword
+        new Sample("EXP 25071", Locale.US, "2025-03-12"),
+        new Sample("BB 2025100", Locale.US, "2025-04-10"),
+        // Production dates must not win over the expiry date
+        new Sample("PROD 01/10/25\nEXP 01/31/25", Locale.US, "2025-01-31"),
+        new Sample("MFG 2024-12-01 BB 2025-06-01", Locale.UK, "2025-06-01"),
+        new Sample("PACKED 10.01.2025\nUSE BY 20.01.2025", Locale.GERMANY, "2025-01-20"),
+        // Noise around the date
+        new Sample("ORGANIC EGGS 12 CT\nPrice $3.99\nTel 555-123-4567\nEXP 02/14/25", Locale.US, "2025-02-14"),
+        new Sample("Net Wt 16 oz (454g)\n12:30 L4471\nBEST BY 10/05/2025", Locale.US, "2025-10-05"),
+        new Sample("Batch 20931 Best Before 03/04/25", Locale.UK, "2025-04-03"),
+        new Sample("no keyword at all 01/20/2025", Locale.US, "2025-01-20")
+    );
+
+    private ExpirationDateSamples() {
+    }
+}
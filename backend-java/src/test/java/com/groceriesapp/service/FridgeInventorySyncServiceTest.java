@@ -0,0 +1,178 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.FridgeSyncState;
+import com.groceriesapp.model.Household;
+import com.groceriesapp.model.Item;
+import com.groceriesapp.model.User;
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.repository.ItemRepository;
+import com.groceriesapp.service.FridgeInventorySyncService.SyncDiff;
+import com.groceriesapp.service.SmartFridgeIntegrationService.FridgeItem;
+import com.groceriesapp.service.ml.ExpirationPredictionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FridgeInventorySyncServiceTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private FridgeSyncStateRepository fridgeSyncStateRepository;
+
+    @TempDir
+    Path telemetryDir;
+
+    private FridgeInventorySyncService syncService;
+    private Household household;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ExpirationPredictionService predictions = new ExpirationPredictionService(
+            new FridgeTelemetryService(fridgeSyncStateRepository, telemetryDir.toString(), 1024, 100, 24,
+                60_000, 86_400_000));
+        syncService = new FridgeInventorySyncService(itemRepository, fridgeSyncStateRepository, predictions);
+        household = new Household();
+        household.setId(7L);
+        user = new User();
+        user.setId(1L);
+    }
+
+    @Test
+    void testSync_UnchangedInventoryTouchesNoRows() {
+        List<FridgeItem> inventory = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            inventory.add(fridgeItem("Item " + i, "Shelf " + (i % 4), 1 + i % 3));
+        }
+        when(fridgeSyncStateRepository.findById("fridge-1")).thenReturn(Optional.empty());
+
+        SyncDiff first = syncService.sync("fridge-1", household, user, inventory);
+
+        assertFalse(first.isUnchanged());
+        assertEquals(300, first.getAdded());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Item>> saved = ArgumentCaptor.forClass(List.class);
+        verify(itemRepository).saveAll(saved.capture());
+        assertEquals(300, saved.getValue().size());
+        Item item = saved.getValue().get(0);
+        assertEquals("fridge-1", item.getFridgeDeviceId());
+        assertNotNull(item.getExpirationDate());
+        assertEquals(item.getExpirationDate(), item.getPredictedExpirationDate());
+        verify(fridgeSyncStateRepository).save(any(FridgeSyncState.class));
+
+        clearInvocations(itemRepository, fridgeSyncStateRepository);
+        List<FridgeItem> reordered = new ArrayList<>(inventory);
+        Collections.reverse(reordered);
+        SyncDiff second = syncService.sync("fridge-1", household, user, reordered);
+
+        assertTrue(second.isUnchanged());
+        assertEquals(300, second.getItemCount());
+        verifyNoInteractions(itemRepository, fridgeSyncStateRepository);
+    }
+
+    @Test
+    void testSync_WritesOnlyTheDifference() {
+        Item kept = storedItem(1L, "Milk", "Door", 2);
+        Item changed = storedItem(2L, "Eggs", "Shelf", 12);
+        Item gone = storedItem(3L, "Cheese", "Drawer", 1);
+        when(fridgeSyncStateRepository.findById("fridge-1")).thenReturn(Optional.empty());
+        when(itemRepository.findByHouseholdIdAndFridgeDeviceId(7L, "fridge-1"))
+            .thenReturn(new ArrayList<>(List.of(kept, changed, gone)));
+
+        SyncDiff diff = syncService.sync("fridge-1", household, user, List.of(
+            fridgeItem(" milk ", "door", 2),
+            fridgeItem("Eggs", "Shelf", 6),
+            fridgeItem("Eggs", "Shelf", 4),
+            fridgeItem("Chicken breast", "Drawer", 1)));
+
+        assertEquals(1, diff.getAdded());
+        assertEquals(1, diff.getRemoved());
+        assertEquals(1, diff.getUpdated());
+        verify(itemRepository).deleteAllInBatch(List.of(gone));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Item>> saved = ArgumentCaptor.forClass(List.class);
+        verify(itemRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertSame(changed, saved.getValue().get(0));
+        assertEquals(10, changed.getQuantity());
+        Item added = saved.getValue().get(1);
+        assertEquals("Chicken breast", added.getName());
+        // Meat keeps 3 days in a fridge with no telemetry
+        assertEquals(LocalDate.now().plusDays(3), added.getPredictedExpirationDate());
+    }
+
+    @Test
+    void testSync_UsesStoredFingerprintAfterRestart() {
+        List<FridgeItem> inventory = List.of(fridgeItem("Milk", "Door", 1), fridgeItem("Butter", "Door", 1));
+        FridgeSyncState state = new FridgeSyncState();
+        state.setDeviceId("fridge-1");
+        state.setHouseholdId(7L);
+        state.setInventoryHash(FridgeInventorySyncService.hash(FridgeInventorySyncService.aggregate(inventory)));
+        when(fridgeSyncStateRepository.findById("fridge-1")).thenReturn(Optional.of(state));
+
+        assertTrue(syncService.sync("fridge-1", household, user, inventory).isUnchanged());
+
+        // The same inventory in another household is a change
+        Household other = new Household();
+        other.setId(8L);
+        assertFalse(syncService.sync("fridge-1", other, user, inventory).isUnchanged());
+        verify(itemRepository).findByHouseholdIdAndFridgeDeviceId(8L, "fridge-1");
+    }
+
+    @Test
+    void testSync_RelinkedFridgeLeavesNothingInItsOldHousehold() {
+        FridgeSyncState state = new FridgeSyncState();
+        state.setDeviceId("fridge-1");
+        state.setHouseholdId(3L);
+        state.setInventoryHash(42L);
+        when(fridgeSyncStateRepository.findById("fridge-1")).thenReturn(Optional.of(state));
+
+        SyncDiff diff = syncService.sync("fridge-1", household, user, List.of(fridgeItem("Milk", "Door", 1)));
+
+        assertEquals(1, diff.getAdded());
+        verify(itemRepository).deleteFridgeItems(3L, "fridge-1");
+        verify(itemRepository).findByHouseholdIdAndFridgeDeviceId(7L, "fridge-1");
+
+        // Synced again in the new household: nothing left to clear
+        clearInvocations(itemRepository);
+        syncService.sync("fridge-1", household, user, List.of(fridgeItem("Milk", "Door", 2)));
+        verify(itemRepository, never()).deleteFridgeItems(any(), any());
+    }
+
+    private static FridgeItem fridgeItem(String name, String location, int quantity) {
+        FridgeItem item = new FridgeItem();
+        item.setName(name);
+        item.setLocation(location);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private Item storedItem(Long id, String name, String location, int quantity) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setStorageLocation(location);
+        item.setQuantity(quantity);
+        item.setHousehold(household);
+        item.setFridgeDeviceId("fridge-1");
+        return item;
+    }
+}
@@ -0,0 +1,93 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.service.FridgePollingService.PollerStats;
+import com.groceriesapp.service.SmartFridgeIntegrationService.FridgeBrand;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Polls a fleet of fridges spread over all ten brands, each brand served by its own
+ * local stub that answers after a fixed delay and reports a door opening now and then.
+ * Prints polls per second and staleness every few seconds.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.FridgePollingBenchmark [devices] [seconds] [delayMillis] [ratePerBrand]
+ * </pre>
+ */
+public class FridgePollingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int delayMillis = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int ratePerBrand = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        List<HttpServer> servers = new ArrayList<>();
+        MockEnvironment environment = new MockEnvironment();
+        for (FridgeBrand brand : FridgeBrand.values()) {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/devices/", exchange -> {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                int doors = ThreadLocalRandom.current().nextInt(100) < 5 ? 1 : 0;
+                byte[] body = ("{\"temperature\":4.2,\"humidity\":60,\"doorOpenCount\":"
+                    + (System.currentTimeMillis() / 60_000 + doors) + "}").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            servers.add(server);
+            environment.setProperty("fridge.poller." + brand.name().toLowerCase() + ".url",
+                "http://127.0.0.1:" + server.getAddress().getPort());
+        }
+
+        Path telemetryDir = Files.createTempDirectory("fridge-polling");
+        UpstreamHttpClient http = new UpstreamHttpClient(2000, 4);
+        FridgeTelemetryService telemetry = new FridgeTelemetryService(mock(FridgeSyncStateRepository.class),
+            telemetryDir.toString(), 1 << 20, devices, 24, 60_000, 86_400_000);
+        // Intervals of 2 s after door openings up to 20 s idle
+        FridgePollingService poller = new FridgePollingService(http, telemetry, environment,
+            2000, 5000, 20_000, 60_000, 5000, ratePerBrand);
+        try {
+            FridgeBrand[] brands = FridgeBrand.values();
+            for (int i = 0; i < devices; i++) {
+                poller.register(brands[i % brands.length], "fridge-" + i, "key");
+            }
+            System.out.printf("%d devices over %d brands, stub delay %d ms, %d polls/s per brand%n",
+                devices, brands.length, delayMillis, ratePerBrand);
+            for (int elapsed = 5; elapsed <= seconds; elapsed += 5) {
+                Thread.sleep(5000);
+                telemetry.drain();
+                PollerStats stats = poller.getStats();
+                System.out.printf("%3d s: %,8d polls, %7.1f polls/s, %,d deferred, %,d failed, staleness p50 %,d ms, p99 %,d ms, max %,d ms%n",
+                    elapsed, stats.getPolls(), stats.getPollsPerSecond(), stats.getDeferred(), stats.getFailures(),
+                    stats.getStalenessP50Millis(), stats.getStalenessP99Millis(), stats.getStalenessMaxMillis());
+            }
+        } finally {
+            poller.shutdown();
+            http.shutdown();
+            servers.forEach(server -> server.stop(0));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.service.FridgePollingService.PollerStats;
+import com.groceriesapp.service.FridgeTelemetryService.EnvironmentWindow;
+import com.groceriesapp.service.SmartFridgeIntegrationService.FridgeBrand;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FridgePollingServiceTest {
+
+    @TempDir
+    Path telemetryDir;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private UpstreamHttpClient http;
+    private FridgeTelemetryService telemetry;
+
+    @BeforeEach
+    void setUp() {
+        http = new UpstreamHttpClient(2000, 2);
+        // Devices are known to telemetry once registered with the poller
+        telemetry = new FridgeTelemetryService(mock(FridgeSyncStateRepository.class), telemetryDir.toString(),
+            1 << 16, 1000, 24, 60_000, 86_400_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(server -> server.stop(0));
+        http.shutdown();
+    }
+
+    @Test
+    void testPollOnce_RecordsTelemetryAndAdaptsIntervalToDoorActivity() {
+        AtomicLong doorCount = new AtomicLong(3);
+        String url = stub(new AtomicInteger(), () -> "{\"temperature\":5.5,\"humidity\":61,\"doorOpenCount\":"
+            + doorCount.get() + ",\"model\":{\"name\":\"RF28\"}}", 200);
+        FridgePollingService poller = poller(new MockEnvironment().withProperty("fridge.poller.samsung.url", url));
+        poller.shutdown(); // no scheduled polls; the test polls by hand
+        poller.register(FridgeBrand.SAMSUNG, "fridge-1", "key");
+
+        // First poll only learns the door count; idle, so the interval stretches
+        long delay = poller.pollOnce("fridge-1").join();
+        assertEquals(1500, poller.getInterval("fridge-1"));
+        assertTrue(delay >= 1200 && delay <= 1800, "delay " + delay);
+
+        doorCount.set(5);
+        poller.pollOnce("fridge-1").join();
+        assertEquals(100, poller.getInterval("fridge-1"));
+
+        poller.pollOnce("fridge-1").join();
+        assertEquals(150, poller.getInterval("fridge-1"));
+
+        telemetry.drain();
+        EnvironmentWindow window = telemetry.getWindow("fridge-1", Duration.ofHours(1));
+        assertEquals(5.5, window.getLatestTemperature(), 1e-9);
+        assertEquals(61.0, window.getLatestHumidity(), 1e-9);
+        assertEquals(2, window.getDoorOpens());
+        assertEquals(3, poller.getStats().getPolls());
+    }
+
+    @Test
+    void testPollOnce_BacksOffExponentiallyOnErrors() {
+        String url = stub(new AtomicInteger(), () -> "{}", 503);
+        FridgePollingService poller = poller(new MockEnvironment().withProperty("fridge.poller.lg.url", url));
+        poller.shutdown();
+        poller.register(FridgeBrand.LG, "fridge-1", null);
+
+        long previous = 0;
+        for (int failure = 1; failure <= 4; failure++) {
+            long delay = poller.pollOnce("fridge-1").join();
+            long expected = 1000L << failure;
+            assertTrue(delay >= expected * 0.8 && delay <= expected * 1.2, "delay " + delay + " after " + failure);
+            assertTrue(delay > previous);
+            previous = delay;
+        }
+        // Capped at the maximum backoff
+        for (int failure = 5; failure <= 8; failure++) {
+            poller.pollOnce("fridge-1").join();
+        }
+        assertTrue(poller.pollOnce("fridge-1").join() <= 60_000 * 1.2);
+        assertEquals(9, poller.getStats().getFailures());
+        assertEquals(0, poller.getStats().getPolls());
+    }
+
+    @Test
+    void testScheduledPolling_RespectsPerBrandRateLimits() throws Exception {
+        AtomicInteger samsungRequests = new AtomicInteger();
+        AtomicInteger lgRequests = new AtomicInteger();
+        String samsung = stub(samsungRequests, () -> "{\"temperature\":4.0}", 200);
+        String lg = stub(lgRequests, () -> "{\"temperature\":4.0}", 200);
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("fridge.poller.samsung.url", samsung)
+            .withProperty("fridge.poller.lg.url", lg)
+            .withProperty("fridge.poller.lg.rate-per-second", "5");
+        FridgePollingService poller = new FridgePollingService(http, telemetry, environment,
+            10, 20, 50, 1000, 2000, 1000);
+        try {
+            for (int i = 0; i < 20; i++) {
+                poller.register(FridgeBrand.SAMSUNG, "samsung-" + i, "key");
+                poller.register(FridgeBrand.LG, "lg-" + i, "key");
+            }
+            Thread.sleep(1500);
+
+            PollerStats stats = poller.getStats();
+            assertEquals(40, stats.getDevices());
+            // 5 tokens of burst plus 5 per second
+            assertTrue(lgRequests.get() <= 15, "LG polled " + lgRequests.get() + " times");
+            assertTrue(samsungRequests.get() > 100, "Samsung polled " + samsungRequests.get() + " times");
+            assertTrue(stats.getDeferred() > 0);
+            assertTrue(stats.getPollsByBrand().get("SAMSUNG") > stats.getPollsByBrand().get("LG"));
+        } finally {
+            poller.shutdown();
+        }
+    }
+
+    private FridgePollingService poller(MockEnvironment environment) {
+        return new FridgePollingService(http, telemetry, environment, 100, 1000, 5000, 60_000, 2000, 1000);
+    }
+
+    private String stub(AtomicInteger requests, Supplier<String> body, int status) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+            server.setExecutor(Executors.newFixedThreadPool(4));
+            server.createContext("/devices/", exchange -> {
+                requests.incrementAndGet();
+                byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            server.start();
+            servers.add(server);
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.service.FridgeTelemetryService.Aggregate;
+import com.groceriesapp.service.FridgeTelemetryService.EnvironmentWindow;
+import com.groceriesapp.service.FridgeTelemetryService.EventType;
+import com.groceriesapp.service.FridgeTelemetryService.Resolution;
+import com.groceriesapp.service.ml.ExpirationPredictionService.PredictionInput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FridgeTelemetryServiceTest {
+
+    private static final long T0 = Instant.parse("2024-03-01T10:00:00Z").toEpochMilli();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testFlush_DownsamplesToMinuteHourAndDayAggregates() {
+        FridgeTelemetryService service = service(1024);
+        service.record("fridge-1", EventType.TEMPERATURE, 3.0, T0 + 1_000);
+        service.record("fridge-1", EventType.TEMPERATURE, 5.0, T0 + 20_000);
+        service.record("fridge-1", EventType.HUMIDITY, 60.0, T0 + 30_000);
+        service.record("fridge-1", EventType.DOOR_OPEN, 0, T0 + 40_000);
+        service.record("fridge-1", EventType.TEMPERATURE, 9.0, T0 + 61_000);
+        service.record("fridge-2", EventType.TEMPERATURE, -18.0, T0 + 5_000);
+
+        service.flush(T0 + Duration.ofDays(2).toMillis(), false);
+
+        List<Aggregate> minutes = service.getAggregates("fridge-1", Resolution.MINUTE,
+            Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 3_600_000));
+        assertEquals(2, minutes.size());
+        assertEquals(Instant.ofEpochMilli(T0), minutes.get(0).getBucketStart());
+        assertEquals(3.0, minutes.get(0).getTemperatureMin());
+        assertEquals(5.0, minutes.get(0).getTemperatureMax());
+        assertEquals(4.0, minutes.get(0).getTemperatureAvg());
+        assertEquals(60.0, minutes.get(0).getHumidityAvg());
+        assertEquals(1, minutes.get(0).getDoorOpens());
+        assertNull(minutes.get(1).getHumidityAvg());
+
+        List<Aggregate> hours = service.getAggregates("fridge-1", Resolution.HOUR,
+            Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 3_600_000));
+        assertEquals(1, hours.size());
+        assertEquals(3, hours.get(0).getTemperatureSamples());
+        assertEquals(9.0, hours.get(0).getTemperatureMax());
+        assertEquals(17.0 / 3, hours.get(0).getTemperatureAvg(), 1e-9);
+
+        List<Aggregate> days = service.getAggregates("fridge-2", Resolution.DAY,
+            Instant.parse("2024-03-01T00:00:00Z"), Instant.parse("2024-03-02T00:00:00Z"));
+        assertEquals(1, days.size());
+        assertEquals(-18.0, days.get(0).getTemperatureMin());
+    }
+
+    @Test
+    void testGetAggregates_MergesBucketStoredInParts() {
+        FridgeTelemetryService service = service(1024);
+        service.record("fridge-1", EventType.TEMPERATURE, 2.0, T0 + 1_000);
+        service.flush(T0 + 2_000, true);
+        service.record("fridge-1", EventType.TEMPERATURE, 6.0, T0 + 3_000);
+        service.flush(T0 + 4_000, true);
+
+        // A new instance reads what the previous one appended
+        List<Aggregate> minutes = service(1024).getAggregates("fridge-1", Resolution.MINUTE,
+            Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 60_000));
+
+        assertEquals(1, minutes.size());
+        assertEquals(2, minutes.get(0).getTemperatureSamples());
+        assertEquals(2.0, minutes.get(0).getTemperatureMin());
+        assertEquals(6.0, minutes.get(0).getTemperatureMax());
+        assertEquals(4.0, minutes.get(0).getTemperatureAvg());
+    }
+
+    @Test
+    void testGetAggregates_SkipsMemberCutOffByCrash() throws Exception {
+        FridgeTelemetryService service = service(1024);
+        service.record("fridge-1", EventType.TEMPERATURE, 2.0, T0 + 1_000);
+        service.flush(T0 + 2_000, true);
+        service.record("fridge-1", EventType.TEMPERATURE, 4.0, T0 + 3_000);
+        service.flush(T0 + 4_000, true);
+
+        // Cut the second write short, as a crash mid-append would
+        Path file = minuteFile("fridge-1");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertEquals(1, service(1024).getAggregates("fridge-1", Resolution.MINUTE,
+            Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 60_000)).get(0).getTemperatureSamples());
+
+        // A new instance appends after the last intact member
+        FridgeTelemetryService restarted = service(1024);
+        restarted.record("fridge-1", EventType.TEMPERATURE, 8.0, T0 + 5_000);
+        restarted.flush(T0 + 6_000, true);
+
+        List<Aggregate> minutes = restarted.getAggregates("fridge-1", Resolution.MINUTE,
+            Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 60_000));
+        assertEquals(1, minutes.size());
+        assertEquals(2, minutes.get(0).getTemperatureSamples());
+        assertEquals(2.0, minutes.get(0).getTemperatureMin());
+        assertEquals(8.0, minutes.get(0).getTemperatureMax());
+    }
+
+    @Test
+    void testAppend_SpreadsDevicesOverShardFiles() throws Exception {
+        FridgeTelemetryService service = service(1024);
+        for (int i = 0; i < 64; i++) {
+            service.record("fridge-" + i, EventType.TEMPERATURE, i, T0 + 1_000);
+        }
+        service.flush(T0 + 2_000, true);
+
+        // The day is spread over many files, and one device's lives in just one of them
+        try (Stream<Path> files = Files.list(minuteFile("fridge-1").getParent())) {
+            assertTrue(files.count() > 32);
+        }
+        Files.delete(minuteFile("fridge-2"));
+        List<Aggregate> minutes = service.getAggregates("fridge-1", Resolution.MINUTE,
+            Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 60_000));
+        assertEquals(1, minutes.size());
+        assertEquals(1.0, minutes.get(0).getTemperatureAvg());
+    }
+
+    @Test
+    void testApplyEnvironment_FillsPredictionInputFromRollingWindow() {
+        FridgeTelemetryService service = service(1024);
+        long now = System.currentTimeMillis();
+        // One reading 3 hours ago (a closed hour), one now, one from two days ago outside the window
+        service.record("fridge-1", EventType.TEMPERATURE, 10.0, now - Duration.ofDays(2).toMillis());
+        service.record("fridge-1", EventType.TEMPERATURE, 4.0, now - Duration.ofHours(3).toMillis());
+        service.record("fridge-1", EventType.HUMIDITY, 70.0, now - Duration.ofHours(3).toMillis());
+        service.record("fridge-1", EventType.TEMPERATURE, 6.0, now);
+        service.record("fridge-1", EventType.DOOR_OPEN, 0, now);
+        service.record("fridge-1", EventType.DOOR_OPEN, 0, now);
+        service.drain();
+
+        PredictionInput input = new PredictionInput();
+        service.applyEnvironment(input, "fridge-1");
+
+        assertEquals(5.0, input.getTemperatureAvg(), 1e-9);
+        assertEquals(70.0, input.getHumidityAvg(), 1e-9);
+        assertEquals(2, input.getOpenCount());
+
+        EnvironmentWindow window = service.getWindow("fridge-1", Duration.ofHours(1));
+        assertEquals(6.0, window.getTemperatureAvg(), 1e-9);
+        assertEquals(6.0, window.getLatestTemperature(), 1e-9);
+
+        PredictionInput unknown = new PredictionInput();
+        unknown.setTemperatureAvg(4.0);
+        service.applyEnvironment(unknown, "fridge-unknown");
+        assertEquals(4.0, unknown.getTemperatureAvg());
+        assertNull(unknown.getOpenCount());
+    }
+
+    @Test
+    void testRecord_StampsEventsFromClocksFarOffOnArrival() {
+        FridgeTelemetryService service = new FridgeTelemetryService(linkedFridges(), directory.toString(),
+            1024, 1000, 24, 60_000, Duration.ofDays(1).toMillis());
+        long now = System.currentTimeMillis();
+        service.record("fridge-1", EventType.TEMPERATURE, 3.0, now + Duration.ofDays(365).toMillis());
+        service.record("fridge-1", EventType.TEMPERATURE, 5.0, now - Duration.ofDays(30).toMillis());
+        service.record("fridge-1", EventType.HUMIDITY, 60.0, now + 10_000);
+        service.drain();
+
+        EnvironmentWindow window = service.getWindow("fridge-1", Duration.ofHours(1));
+        assertEquals(2, window.getTemperatureSamples());
+        assertEquals(4.0, window.getTemperatureAvg(), 1e-9);
+        assertTrue(window.getLastUpdated().getTime() <= now + 10_000);
+
+        // The minute bucket closes on time rather than a year from now
+        service.flush(now + Duration.ofMinutes(3).toMillis(), false);
+        List<Aggregate> minutes = service.getAggregates("fridge-1", Resolution.MINUTE,
+            Instant.ofEpochMilli(now - 60_000), Instant.ofEpochMilli(now + 120_000));
+        assertEquals(2, minutes.stream().mapToInt(Aggregate::getTemperatureSamples).sum());
+    }
+
+    @Test
+    void testRecord_DropsWhenBufferFullOrTooManyDevices() {
+        FridgeTelemetryService service = new FridgeTelemetryService(linkedFridges(), directory.toString(),
+            4, 2, 24, Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(service.record("fridge-1", EventType.DOOR_OPEN, 0, T0));
+        }
+        assertFalse(service.record("fridge-2", EventType.DOOR_OPEN, 0, T0));
+        service.drain();
+        assertTrue(service.record("fridge-2", EventType.DOOR_OPEN, 0, T0));
+        assertFalse(service.record("fridge-3", EventType.DOOR_OPEN, 0, T0));
+
+        assertEquals(5, service.getStats().getAccepted());
+        assertEquals(2, service.getStats().getDropped());
+        assertEquals(2, service.getStats().getDevices());
+    }
+
+    @Test
+    void testRecord_DropsEventsFromUnknownDevicesWithoutTakingSlots() {
+        FridgeSyncStateRepository repository = linkedFridges();
+        FridgeTelemetryService service = new FridgeTelemetryService(repository, directory.toString(),
+            1024, 2, 24, Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(service.record("fake-" + i, EventType.DOOR_OPEN, 0, T0));
+            assertFalse(service.record("fake-" + i, EventType.DOOR_OPEN, 0, T0));
+        }
+        // Polled devices are known without being linked
+        assertTrue(service.addDevice("polled-1"));
+        assertTrue(service.record("polled-1", EventType.DOOR_OPEN, 0, T0));
+        assertTrue(service.record("fridge-1", EventType.DOOR_OPEN, 0, T0));
+
+        assertEquals(2, service.getStats().getDevices());
+        assertEquals(200, service.getStats().getDropped());
+        // An unknown id is looked up once, not per event
+        verify(repository, times(101)).existsById(anyString());
+    }
+
+    @Test
+    void testRingBuffer_ConcurrentProducersKeepEveryEventInOrder() throws Exception {
+        TelemetryRingBuffer buffer = new TelemetryRingBuffer(256);
+        int producers = 4;
+        int perProducer = 50_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(producer, (byte) 0, 0f, i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        long[] next = new long[producers];
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        long received = 0;
+        while (received < (long) producers * perProducer) {
+            received += buffer.drain((device, type, value, timestamp) -> {
+                if (timestamp != next[device]++) {
+                    ordered.set(false);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(ordered.get());
+        for (long count : next) {
+            assertEquals(perProducer, count);
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    private Path minuteFile(String deviceId) {
+        return directory.resolve("minute").resolve("2024-03-01")
+            .resolve(String.format("%02x.tsf", Math.floorMod(deviceId.hashCode(), 256)));
+    }
+
+    // Takes device timestamps as they are, for replaying readings from T0
+    private FridgeTelemetryService service(int bufferCapacity) {
+        return new FridgeTelemetryService(linkedFridges(), directory.toString(), bufferCapacity, 1000, 24,
+            Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    // Every "fridge-" id is linked to a household
+    private static FridgeSyncStateRepository linkedFridges() {
+        FridgeSyncStateRepository repository = mock(FridgeSyncStateRepository.class);
+        when(repository.existsById(anyString()))
+            .thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("fridge-"));
+        return repository;
+    }
+}
@@ -0,0 +1,129 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.service.FridgeTelemetryService.EventType;
+import com.groceriesapp.service.FridgeTelemetryService.Resolution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Simulates a fleet of smart fridges reporting into FridgeTelemetryService: every device
+ * sends a temperature and a humidity reading per interval of simulated time and opens
+ * its door now and then. Producer threads send as fast as they can, retrying events the
+ * full buffer rejects, while one thread drains as the scheduled drain would. Reports
+ * events per second through buffer, aggregation and storage, and the size of the stored
+ * aggregates.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.FridgeTelemetrySimulator [devices] [simulatedMinutes] [intervalSeconds] [producers]
+ * </pre>
+ */
+public class FridgeTelemetrySimulator {
+
+    public static void main(String[] args) throws Exception {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int minutes = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+        int intervalSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int producers = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        Path directory = Files.createTempDirectory("fridge-telemetry");
+        // Replays a past day, so its timestamps are taken as they are
+        FridgeTelemetryService service = new FridgeTelemetryService(mock(FridgeSyncStateRepository.class),
+            directory.toString(), 1 << 20, devices, 24, Long.MAX_VALUE, Long.MAX_VALUE);
+        for (int device = 0; device < devices; device++) {
+            service.addDevice("fridge-" + device);
+        }
+        long start = Instant.parse("2024-03-01T00:00:00Z").toEpochMilli();
+        int rounds = minutes * 60 / intervalSeconds;
+
+        AtomicBoolean producing = new AtomicBoolean(true);
+        Thread drainer = new Thread(() -> {
+            while (producing.get()) {
+                // Buckets close as later events arrive; no wall-clock closing of simulated time
+                service.flush(0, false);
+            }
+        });
+        drainer.start();
+
+        long began = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> produce(service, producer, producers, devices, rounds, start, intervalSeconds)));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long produced = System.nanoTime() - began;
+        producing.set(false);
+        drainer.join();
+        service.flush(Long.MAX_VALUE, true);
+        long total = System.nanoTime() - began;
+
+        FridgeTelemetryService.TelemetryStats stats = service.getStats();
+        System.out.printf("%d devices, %d simulated minutes at %d s intervals, %d producer threads%n",
+            devices, minutes, intervalSeconds, producers);
+        System.out.printf("Events: %,d, rejected by the full buffer and retried: %,d%n",
+            stats.getAccepted(), stats.getDropped());
+        System.out.printf("Ingest: %,.0f events/s buffered, %,.0f events/s aggregated and stored%n",
+            stats.getAccepted() * 1e9 / produced, stats.getAccepted() * 1e9 / total);
+        for (Resolution resolution : Resolution.values()) {
+            System.out.printf("%-6s aggregates: %,10d bytes%n", resolution, size(directory.resolve(resolution.name().toLowerCase())));
+        }
+        System.out.printf("Device 0, first hour: %s%n", service.getAggregates("fridge-0", Resolution.HOUR,
+            Instant.ofEpochMilli(start), Instant.ofEpochMilli(start + Resolution.HOUR.getMillis())).stream()
+            .map(a -> String.format("avg %.2f C, min %.2f, max %.2f, %d samples, %d door opens",
+                a.getTemperatureAvg(), a.getTemperatureMin(), a.getTemperatureMax(),
+                a.getTemperatureSamples(), a.getDoorOpens()))
+            .toList());
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void produce(FridgeTelemetryService service, int producer, int producers, int devices,
+                                int rounds, long start, int intervalSeconds) {
+        SplittableRandom random = new SplittableRandom(producer);
+        for (int round = 0; round < rounds; round++) {
+            long timestamp = start + round * intervalSeconds * 1000L;
+            for (int device = producer; device < devices; device += producers) {
+                String deviceId = "fridge-" + device;
+                send(service, deviceId, EventType.TEMPERATURE, 4.0 + random.nextDouble(-1.5, 1.5), timestamp);
+                send(service, deviceId, EventType.HUMIDITY, 60.0 + random.nextDouble(-10, 10), timestamp);
+                if (random.nextInt(100) == 0) {
+                    send(service, deviceId, EventType.DOOR_OPEN, 0, timestamp);
+                }
+            }
+        }
+    }
+
+    private static void send(FridgeTelemetryService service, String deviceId, EventType type, double value,
+                             long timestamp) {
+        while (!service.record(deviceId, type, value, timestamp)) {
+            Thread.yield();
+        }
+    }
+
+    private static long size(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
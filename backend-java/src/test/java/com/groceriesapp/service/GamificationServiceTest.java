@@ -1,11 +1,15 @@
 package com.groceriesapp.service;
 
 import com.groceriesapp.model.Achievement;
+import com.groceriesapp.model.ExperienceEvent;
 import com.groceriesapp.model.User;
 import com.groceriesapp.model.UserAchievement;
 import com.groceriesapp.repository.AchievementRepository;
+import com.groceriesapp.repository.ExperienceEventRepository;
 import com.groceriesapp.repository.UserAchievementRepository;
 import com.groceriesapp.repository.UserRepository;
+import com.groceriesapp.service.event.ItemsSavedEvent;
+import com.groceriesapp.service.event.StreakExtendedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,9 +19,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +44,18 @@ class GamificationServiceTest {
     @Mock
     private UserAchievementRepository userAchievementRepository;
     
+    @Mock
+    private ExperienceEventRepository experienceEventRepository;
+    
+    @Mock
+    private LeaderboardService leaderboardService;
+    
+    @Mock
+    private AchievementEngine achievementEngine;
+    
+    @Mock
+    private StreakService streakService;
+    
     @InjectMocks
     private GamificationService gamificationService;
     
@@ -54,7 +78,7 @@ class GamificationServiceTest {
     @Test
     void testAwardExperience_NoLevelUp() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.findExperiencePointsById(1L)).thenReturn(50);
         
         Map<String, Object> result = gamificationService.awardExperience(1L, 50, "Test reward");
         
@@ -63,26 +87,137 @@ class GamificationServiceTest {
         assertEquals(1, result.get("newLevel"));
         assertEquals(false, result.get("leveledUp"));
         assertEquals(50, result.get("xpGained"));
+        assertEquals(50, result.get("totalXP"));
         assertEquals("Test reward", result.get("reason"));
+        verify(userRepository).addExperiencePoints(1L, 50);
         
-        // awardExperience calls save twice: once for XP update, once for streak update
-        verify(userRepository, atLeast(1)).save(any(User.class));
+        // The XP is added in place and the streak is left to the nightly job
+        verify(streakService).touch(1L);
+        verify(userRepository, never()).save(any(User.class));
     }
     
     @Test
     void testAwardExperience_WithLevelUp() {
-        testUser.setExperiencePoints(90); // Close to level 2
+        testUser.setExperiencePoints(100); // Level 2 starts at 150 XP
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.findExperiencePointsById(1L)).thenReturn(150);
         
         Map<String, Object> result = gamificationService.awardExperience(1L, 50, "Level up test");
         
         assertNotNull(result);
         assertEquals(1, result.get("oldLevel"));
-        // With 90 + 50 = 140 XP, should be at level 1 or higher
-        Integer newLevel = (Integer) result.get("newLevel");
-        assertTrue(newLevel >= 1, "New level should be at least 1, got: " + newLevel);
+        assertEquals(2, result.get("newLevel"));
+        assertEquals(true, result.get("leveledUp"));
         assertEquals(50, result.get("xpGained"));
+        assertEquals(150, result.get("totalXP"));
+        assertEquals(150, testUser.getExperiencePoints());
+        assertEquals(2, testUser.getLevel());
+    }
+    
+    @Test
+    void testAwardExperience_ConcurrentAwardsAreNotLost() throws Exception {
+        // The row: increments are atomic, and a transaction reads back its own increment
+        AtomicInteger row = new AtomicInteger();
+        ThreadLocal<Integer> readBack = new ThreadLocal<>();
+        List<ExperienceEvent> ledger = Collections.synchronizedList(new ArrayList<>());
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            // Every transaction loads its own copy, already active today
+            User copy = new User();
+            copy.setId(1L);
+            copy.setLevel(1);
+            copy.setExperiencePoints(row.get());
+            copy.setStreak(1);
+            copy.setLastActiveDate(LocalDate.now());
+            return Optional.of(copy);
+        });
+        when(userRepository.addExperiencePoints(eq(1L), anyInt())).thenAnswer(invocation -> {
+            readBack.set(row.addAndGet(invocation.getArgument(1)));
+            return 1;
+        });
+        when(userRepository.findExperiencePointsById(1L)).thenAnswer(invocation -> readBack.get());
+        when(experienceEventRepository.save(any(ExperienceEvent.class))).thenAnswer(invocation -> {
+            ledger.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, Object>>> awards = new ArrayList<>();
+        try {
+            for (int i = 0; i < 100; i++) {
+                awards.add(executor.submit(() -> {
+                    start.await();
+                    return gamificationService.awardExperience(1L, 10, "Concurrent award");
+                }));
+            }
+            start.countDown();
+            
+            Set<Integer> totals = new TreeSet<>();
+            int levelUps = 0;
+            int finalLevel = 0;
+            for (Future<Map<String, Object>> award : awards) {
+                Map<String, Object> result = award.get();
+                totals.add((Integer) result.get("totalXP"));
+                levelUps += Boolean.TRUE.equals(result.get("leveledUp")) ? 1 : 0;
+                if ((Integer) result.get("totalXP") == 1000) {
+                    finalLevel = (Integer) result.get("newLevel");
+                }
+            }
+            
+            assertEquals(1000, row.get());
+            assertEquals(100, ledger.size());
+            assertEquals(1000, ledger.stream().mapToInt(ExperienceEvent::getXp).sum());
+            // Every award saw its own total, so each level was reached exactly once
+            assertEquals(100, totals.size());
+            assertEquals(10, totals.iterator().next());
+            // 1000 XP is past 759 (level 6) and short of 1139 (level 7)
+            assertEquals(6, finalLevel);
+            assertEquals(5, levelUps);
+            // Nothing else wrote the XP total back
+            verify(userRepository, never()).save(any(User.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testTrackAchievementProgress_AwardsXPOnceAfterUnlocking() {
+        Achievement bronze = new Achievement();
+        bronze.setName("Consistent I");
+        bronze.setType("STREAK");
+        bronze.setPointsRequired(7);
+        bronze.setXpReward(100);
+        Achievement silver = new Achievement();
+        silver.setName("Consistent II");
+        silver.setType("STREAK");
+        silver.setPointsRequired(30);
+        silver.setXpReward(300);
+        testUser.setLastActiveDate(LocalDate.now());
+        when(achievementEngine.evaluate(1L, "STREAK", 30)).thenReturn(List.of(bronze, silver));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findExperiencePointsById(1L)).thenReturn(400);
+        
+        List<Map<String, Object>> unlocked = gamificationService.trackAchievementProgress(testUser, "STREAK", 30);
+        
+        assertEquals(2, unlocked.size());
+        // Unlocks are recorded by the engine, not row by row here
+        verify(userAchievementRepository, never()).save(any(UserAchievement.class));
+        verify(userRepository).addExperiencePoints(1L, 400);
+        verify(experienceEventRepository).save(argThat(event ->
+            event.getXp() == 400 && event.getReason().equals("Unlocked: Consistent I, Consistent II")));
+        assertEquals(400, testUser.getExperiencePoints());
+        assertEquals(4, testUser.getLevel());
+    }
+    
+    @Test
+    void testOnItemsSaved_CountsTowardsWasteWarrior() {
+        when(userRepository.findItemsSavedById(1L)).thenReturn(9);
+        when(achievementEngine.evaluate(1L, "WASTE_WARRIOR", 9)).thenReturn(List.of());
+        
+        gamificationService.onItemsSaved(new ItemsSavedEvent(1L, 1));
+        
+        verify(userRepository).addItemsSaved(1L, 1);
+        verify(userRepository, never()).addExperiencePoints(anyLong(), anyInt());
     }
     
     @Test
@@ -123,7 +258,11 @@ class GamificationServiceTest {
             users.add(user);
         }
         
-        when(userRepository.findAll()).thenReturn(users);
+        when(leaderboardService.getTop(LeaderboardService.Period.ALL_TIME, null, 3)).thenReturn(List.of(
+            new LeaderboardService.Entry(5, 500, 1),
+            new LeaderboardService.Entry(4, 400, 2),
+            new LeaderboardService.Entry(3, 300, 3)));
+        when(userRepository.findAllById(List.of(5L, 4L, 3L))).thenReturn(List.of(users.get(2), users.get(4), users.get(3)));
         
         List<Map<String, Object>> leaderboard = gamificationService.getLeaderboard(3);
         
@@ -134,57 +273,53 @@ class GamificationServiceTest {
         Integer firstXP = (Integer) leaderboard.get(0).get("experiencePoints");
         Integer secondXP = (Integer) leaderboard.get(1).get("experiencePoints");
         assertTrue(firstXP >= secondXP);
+        assertEquals(5L, leaderboard.get(0).get("userId"));
+        assertEquals(1, leaderboard.get(0).get("rank"));
+        // Only the users shown are loaded
+        verify(userRepository, never()).findAll();
     }
     
     @Test
-    void testUpdateStreak_FirstTime() {
-        testUser.setLastActiveDate(null);
-        testUser.setStreak(0);
-        
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+    void testGetLeaderboardPosition() {
+        User user = new User();
+        user.setId(4L);
+        user.setName("User 4");
+        when(leaderboardService.getAround(4L, LeaderboardService.Period.WEEKLY, 7L, 1)).thenReturn(List.of(
+            new LeaderboardService.Entry(3, 90, 2),
+            new LeaderboardService.Entry(4, 60, 3)));
+        when(leaderboardService.getSize(LeaderboardService.Period.WEEKLY, 7L)).thenReturn(3);
+        when(userRepository.findAllById(List.of(3L, 4L))).thenReturn(List.of(user));
         
-        gamificationService.updateStreak(testUser);
+        Map<String, Object> position = gamificationService.getLeaderboardPosition(4L, LeaderboardService.Period.WEEKLY, 7L, 1);
         
-        assertEquals(1, testUser.getStreak());
-        assertEquals(LocalDate.now(), testUser.getLastActiveDate());
+        assertEquals(3, position.get("rank"));
+        assertEquals(60, position.get("score"));
+        assertEquals(3, position.get("size"));
+        assertEquals(1, ((List<?>) position.get("neighbours")).size());
+        assertNull(gamificationService.getLeaderboardPosition(9L, LeaderboardService.Period.ALL_TIME, null, 1));
     }
     
     @Test
-    void testUpdateStreak_ConsecutiveDay() {
+    void testUpdateStreak_OnlyMarksUserActive() {
         testUser.setLastActiveDate(LocalDate.now().minusDays(1));
         testUser.setStreak(5);
         
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
-        
         gamificationService.updateStreak(testUser);
         
-        assertEquals(6, testUser.getStreak());
-        assertEquals(LocalDate.now(), testUser.getLastActiveDate());
-    }
-    
-    @Test
-    void testUpdateStreak_StreakBroken() {
-        testUser.setLastActiveDate(LocalDate.now().minusDays(3));
-        testUser.setStreak(10);
-        
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
-        
-        gamificationService.updateStreak(testUser);
-        
-        assertEquals(1, testUser.getStreak());
-        assertEquals(LocalDate.now(), testUser.getLastActiveDate());
+        // Streaks move in the nightly job, not per request
+        verify(streakService).touch(1L);
+        assertEquals(5, testUser.getStreak());
+        verify(userRepository, never()).save(any());
     }
     
     @Test
-    void testUpdateStreak_SameDay() {
-        testUser.setLastActiveDate(LocalDate.now());
-        testUser.setStreak(5);
+    void testOnStreakExtended_ChecksStreakAchievements() {
+        when(achievementEngine.evaluate(1L, "STREAK", 7)).thenReturn(List.of());
         
-        gamificationService.updateStreak(testUser);
+        gamificationService.onStreakExtended(new StreakExtendedEvent(1L, 7));
         
-        // Streak should not change
-        assertEquals(5, testUser.getStreak());
-        verify(userRepository, never()).save(any());
+        verify(achievementEngine).evaluate(1L, "STREAK", 7);
+        verify(userRepository, never()).addExperiencePoints(anyLong(), anyInt());
     }
     
     @Test
@@ -0,0 +1,79 @@
+package com.groceriesapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageBufferPoolTest {
+
+    @Test
+    void testRead_StreamsIntoPooledBufferAndReusesIt() throws Exception {
+        ImageBufferPool pool = new ImageBufferPool(1024, 1, 100);
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+
+        ImageUpload first = pool.read(new ByteArrayInputStream(image), image.length);
+        assertTrue(first.data().isDirect());
+        assertEquals(image.length, first.size());
+        assertEquals('N', first.data().get(2));
+        assertEquals(0, pool.getAvailableCount());
+        first.close();
+        first.close();
+
+        ImageUpload second = pool.read(new ByteArrayInputStream(new byte[] {9}), -1);
+        assertSame(unwrap(first), unwrap(second));
+        assertEquals(1, second.size());
+        second.close();
+        assertEquals(1, pool.getAvailableCount());
+    }
+
+    @Test
+    void testRead_RejectsDeclaredOversizeWithoutReading() throws Exception {
+        ImageBufferPool pool = new ImageBufferPool(1024, 1, 100);
+        InputStream in = mock(InputStream.class);
+
+        assertThrows(ImageBufferPool.UploadTooLargeException.class, () -> pool.read(in, 4096));
+
+        verifyNoInteractions(in);
+        assertEquals(1, pool.getAvailableCount());
+    }
+
+    @Test
+    void testRead_CutsOffUndeclaredOversizeAndReleasesBuffer() {
+        ImageBufferPool pool = new ImageBufferPool(1024, 1, 100);
+
+        assertThrows(ImageBufferPool.UploadTooLargeException.class,
+            () -> pool.read(new ByteArrayInputStream(new byte[1025]), -1));
+
+        assertEquals(1, pool.getAvailableCount());
+    }
+
+    @Test
+    void testRead_AcceptsUploadOfExactlyTheLimit() throws Exception {
+        ImageBufferPool pool = new ImageBufferPool(1024, 1, 100);
+
+        try (ImageUpload upload = pool.read(new ByteArrayInputStream(new byte[1024]), -1)) {
+            assertEquals(1024, upload.size());
+        }
+    }
+
+    @Test
+    void testRead_RejectsWhenAllBuffersAreInUse() throws Exception {
+        ImageBufferPool pool = new ImageBufferPool(1024, 1, 50);
+        ImageUpload held = pool.read(new ByteArrayInputStream(new byte[] {1}), 1);
+
+        assertThrows(ImageBufferPool.PoolExhaustedException.class,
+            () -> pool.read(new ByteArrayInputStream(new byte[] {2}), 1));
+
+        held.close();
+        pool.read(new ByteArrayInputStream(new byte[] {2}), 1).close();
+    }
+
+    private static Object unwrap(ImageUpload upload) {
+        return ReflectionTestUtils.getField(upload, "data");
+    }
+}
@@ -0,0 +1,87 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.LeaderboardService.Entry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the in-memory leaderboard against sorting every user for each request, as
+ * getLeaderboard used to. Fills a board with random totals, then measures awards, the
+ * top 10, a user's rank and the users around them.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes com.groceriesapp.service.LeaderboardBenchmark [users]
+ * </pre>
+ */
+public class LeaderboardBenchmark {
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(1);
+        int[] xp = new int[users];
+
+        RankedSkipList board = new RankedSkipList();
+        long start = System.nanoTime();
+        for (int user = 0; user < users; user++) {
+            xp[user] = random.nextInt(100_000);
+            board.put(user, xp[user]);
+        }
+        System.out.printf("Built a board of %,d users in %,d ms%n", users, (System.nanoTime() - start) / 1_000_000);
+
+        for (int round = 0; round < 3; round++) {
+            int operations = 200_000;
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                int user = random.nextInt(users);
+                xp[user] += 10 + random.nextInt(50);
+                board.putIfHigher(user, xp[user]);
+            }
+            report("award", operations, start);
+
+            start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                checksum += board.range(1, 10).get(9).getScore();
+            }
+            report("top 10", operations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                checksum += board.rank(random.nextInt(users));
+            }
+            report("my rank", operations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                checksum += board.around(random.nextInt(users), 5).size();
+            }
+            report("around me (5 either side)", operations, start);
+            if (checksum == 42) {
+                System.out.println();
+            }
+        }
+
+        // What each leaderboard request cost before: every user loaded and sorted
+        List<Entry> everyone = new ArrayList<>(users);
+        for (int user = 0; user < users; user++) {
+            everyone.add(new Entry(user, xp[user], 0));
+        }
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            List<Entry> sorted = new ArrayList<>(everyone);
+            sorted.sort(Comparator.comparingInt(Entry::getScore).reversed());
+            System.out.printf("findAll + sort: %,d ms per request, before loading a single row%n",
+                (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void report(String operation, int operations, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-26s %,12.0f ops/s  %6.2f us each%n", operation, operations / seconds,
+            seconds * 1e6 / operations);
+    }
+}
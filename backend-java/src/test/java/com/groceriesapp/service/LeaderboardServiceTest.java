@@ -0,0 +1,133 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.ExperienceEventRepository;
+import com.groceriesapp.repository.UserRepository;
+import com.groceriesapp.service.LeaderboardService.Entry;
+import com.groceriesapp.service.LeaderboardService.Period;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeaderboardServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ExperienceEventRepository experienceEventRepository;
+
+    @InjectMocks
+    private LeaderboardService leaderboardService;
+
+    @Test
+    void testRankedSkipList_MatchesSortedScores() {
+        RankedSkipList list = new RankedSkipList();
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int op = 0; op < 20_000; op++) {
+            long id = random.nextInt(2_000);
+            int choice = random.nextInt(10);
+            if (choice < 5) {
+                int score = random.nextInt(500);
+                list.put(id, score);
+                reference.put(id, score);
+            } else if (choice < 8) {
+                int delta = random.nextInt(50);
+                assertEquals(reference.merge(id, delta, Integer::sum), list.add(id, delta));
+            } else if (choice < 9) {
+                int score = random.nextInt(500);
+                list.putIfHigher(id, score);
+                reference.merge(id, score, Math::max);
+            } else {
+                assertEquals(reference.remove(id) != null, list.remove(id));
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> sorted = new ArrayList<>(reference.entrySet());
+        sorted.sort(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        assertEquals(sorted.size(), list.size());
+        List<Entry> all = list.range(1, sorted.size() + 10);
+        assertEquals(sorted.size(), all.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            long id = sorted.get(i).getKey();
+            assertEquals(id, all.get(i).getUserId());
+            assertEquals(sorted.get(i).getValue(), all.get(i).getScore());
+            assertEquals(i + 1, all.get(i).getRank());
+            assertEquals(i + 1, list.rank(id));
+        }
+        assertEquals(0, list.rank(99_999));
+
+        List<Entry> page = list.range(101, 20);
+        assertEquals(20, page.size());
+        assertEquals(sorted.get(100).getKey(), page.get(0).getUserId());
+        assertEquals(101, page.get(0).getRank());
+
+        long middle = sorted.get(50).getKey();
+        List<Entry> around = list.around(middle, 3);
+        assertEquals(7, around.size());
+        assertEquals(48, around.get(0).getRank());
+        assertEquals(middle, around.get(3).getUserId());
+        // Clipped at the top
+        assertEquals(3, list.around(sorted.get(0).getKey(), 2).size());
+    }
+
+    @Test
+    void testRebuildThenAwards_UpdateAllBoards() {
+        when(userRepository.findLeaderboardPage(any())).thenReturn(List.of(
+            new Object[] {2L, 500, 7L},
+            new Object[] {1L, 300, 7L},
+            new Object[] {3L, 300, 8L},
+            new Object[] {4L, 100, null}));
+        List<Object[]> weekly = new ArrayList<>();
+        weekly.add(new Object[] {1L, 120L});
+        weekly.add(new Object[] {4L, 40L});
+        when(experienceEventRepository.sumXpByUserSince(any())).thenReturn(weekly);
+
+        leaderboardService.rebuild();
+
+        assertEquals(List.of(2L, 1L, 3L, 4L), ids(leaderboardService.getTop(Period.ALL_TIME, null, 10)));
+        assertEquals(List.of(2L, 1L), ids(leaderboardService.getTop(Period.ALL_TIME, 7L, 10)));
+        assertEquals(List.of(1L, 4L), ids(leaderboardService.getTop(Period.WEEKLY, null, 10)));
+        assertEquals(List.of(1L), ids(leaderboardService.getTop(Period.WEEKLY, 7L, 10)));
+        assertEquals(3, leaderboardService.getRank(3L, Period.ALL_TIME, null));
+
+        // User 3 overtakes everyone; a late award with a lower total changes nothing
+        leaderboardService.recordAward(3L, 8L, 700, 400);
+        leaderboardService.recordAward(3L, 8L, 400, 100);
+        assertEquals(1, leaderboardService.getRank(3L, Period.ALL_TIME, null));
+        assertEquals(700, leaderboardService.getTop(Period.ALL_TIME, null, 1).get(0).getScore());
+        assertEquals(List.of(3L, 1L, 4L), ids(leaderboardService.getTop(Period.WEEKLY, null, 10)));
+        assertEquals(500, leaderboardService.getTop(Period.WEEKLY, null, 1).get(0).getScore());
+
+        // User 2 earns this week and moves to household 8
+        leaderboardService.recordAward(2L, 8L, 550, 50);
+        assertEquals(List.of(1L), ids(leaderboardService.getTop(Period.ALL_TIME, 7L, 10)));
+        assertEquals(List.of(3L, 2L), ids(leaderboardService.getTop(Period.ALL_TIME, 8L, 10)));
+        assertEquals(List.of(3L, 2L), ids(leaderboardService.getAround(2L, Period.WEEKLY, 8L, 1)));
+        assertEquals(2, leaderboardService.getRank(2L, Period.WEEKLY, 8L));
+        assertEquals(2, leaderboardService.getSize(Period.WEEKLY, 8L));
+
+        List<Entry> around = leaderboardService.getAround(1L, Period.ALL_TIME, null, 1);
+        assertEquals(List.of(2L, 1L, 4L), ids(around));
+        assertEquals(3, around.get(1).getRank());
+        assertTrue(leaderboardService.getAround(99L, Period.ALL_TIME, null, 1).isEmpty());
+        verify(userRepository, never()).findLeaderboardPageAfter(anyInt(), anyLong(), any());
+    }
+
+    private static List<Long> ids(List<Entry> entries) {
+        return entries.stream().map(Entry::getUserId).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.OCRImagePreprocessor.PreprocessedImage;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OCRImagePreprocessorTest {
+
+    private final OCRImagePreprocessor preprocessor = new OCRImagePreprocessor();
+
+    @Test
+    void testPreprocess_DownscalesPhotoToMaxDimension() {
+        SyntheticLabels.Label label = SyntheticLabels.generate(1, 3200, 2400, 0);
+
+        PreprocessedImage result = preprocessor.preprocess(label.image);
+
+        assertEquals(0.5, result.getScale(), 1e-9);
+        assertTrue(result.getWidth() <= OCRImagePreprocessor.DEFAULT_MAX_DIMENSION);
+        assertTrue(result.getHeight() <= 1200);
+        assertEquals(result.getWidth() * result.getHeight(), result.getPixels().remaining());
+    }
+
+    @Test
+    void testPreprocess_RecoversSkew() {
+        for (double skew : new double[] {-6.0, -2.5, 0.0, 1.5, 4.0}) {
+            SyntheticLabels.Label label = SyntheticLabels.generate(7, 1600, 1200, skew);
+
+            PreprocessedImage result = preprocessor.preprocess(label.image);
+
+            assertEquals(skew, result.getSkewDegrees(), 0.3, "skew " + skew);
+        }
+    }
+
+    @Test
+    void testPreprocess_CropsToTextAndBinarizes() {
+        SyntheticLabels.Label label = SyntheticLabels.generate(3, 1600, 1200, 0);
+
+        PreprocessedImage result = preprocessor.preprocess(label.image);
+
+        Rectangle crop = result.getCrop();
+        Rectangle text = label.textBounds;
+        assertTrue(crop.width * crop.height < 1600 * 1200 / 2, "crop " + crop);
+        // The crop covers the text block, allowing for glyph bearings and the margin
+        assertTrue(crop.x <= text.x && crop.y <= text.y + 10, "crop " + crop + " text " + text);
+        assertTrue(crop.x + crop.width >= text.x + text.width - 10, "crop " + crop + " text " + text);
+
+        ByteBuffer pixels = result.getPixels();
+        int ink = 0;
+        while (pixels.hasRemaining()) {
+            byte value = pixels.get();
+            assertTrue(value == 0 || value == (byte) 255);
+            if (value == 0) {
+                ink++;
+            }
+        }
+        assertTrue(ink > 0);
+    }
+
+    @Test
+    void testPreprocess_ReusesBuffersAcrossImagesOfDifferentSizes() {
+        SyntheticLabels.Label large = SyntheticLabels.generate(5, 2400, 1800, 2.0);
+        SyntheticLabels.Label small = SyntheticLabels.generate(6, 800, 600, -1.0);
+
+        PreprocessedImage first = preprocessor.preprocess(large.image);
+        ByteBuffer firstBuffer = first.getPixels();
+        byte[] expected = copy(first.getPixels());
+
+        preprocessor.preprocess(small.image);
+        PreprocessedImage again = preprocessor.preprocess(large.image);
+
+        assertSame(firstBuffer, again.getPixels());
+        assertArrayEquals(expected, copy(again.getPixels()));
+    }
+
+    @Test
+    void testPreprocess_SameResultForEveryPixelLayout() {
+        SyntheticLabels.Label label = SyntheticLabels.generate(9, 1200, 900, 3.0);
+        byte[] expected = copy(preprocessor.preprocess(label.image).getPixels());
+
+        // Packed int and 4-byte fast paths, and INT_BGR through the getRGB fallback
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_BGR}) {
+            BufferedImage converted = new BufferedImage(1200, 900, type);
+            Graphics2D g = converted.createGraphics();
+            g.drawImage(label.image, 0, 0, null);
+            g.dispose();
+
+            assertArrayEquals(expected, copy(preprocessor.preprocess(converted).getPixels()), "type " + type);
+        }
+    }
+
+    private static byte[] copy(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,132 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.OCRJobService.OCRJob;
+import com.groceriesapp.service.OCRJobService.Status;
+import net.sourceforge.tess4j.Tesseract;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OCRJobServiceTest {
+
+    private static final String IMAGE = Base64.getEncoder().encodeToString(new byte[] {1, 2, 3});
+
+    @Mock
+    private OCRService ocrService;
+
+    private OCRJobService ocrJobService;
+
+    @AfterEach
+    void tearDown() {
+        if (ocrJobService != null) {
+            ocrJobService.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmit_CompletesJobWithResult() {
+        when(ocrService.newTesseract()).thenReturn(mock(Tesseract.class));
+        when(ocrService.processImage(any(ByteBuffer.class), any(Tesseract.class), any(OCRImagePreprocessor.class), any()))
+            .thenReturn(Map.of("name", "Milk", "quantity", 2));
+        ocrJobService = new OCRJobService(ocrService, 2, 8);
+
+        OCRJob job = ocrJobService.submit(IMAGE);
+        OCRJob finished = ocrJobService.awaitCompletion(job.getId()).block();
+
+        assertSame(job, ocrJobService.getJob(job.getId()));
+        assertEquals(Status.COMPLETED, finished.getStatus());
+        assertEquals("Milk", finished.getResult().get("name"));
+        assertNotNull(finished.getCompletedAt());
+    }
+
+    @Test
+    void testSubmit_EachWorkerUsesItsOwnTesseract() throws Exception {
+        int workers = 4;
+        Set<Tesseract> created = ConcurrentHashMap.newKeySet();
+        Map<Thread, Tesseract> usedBy = new ConcurrentHashMap<>();
+        List<String> errors = new ArrayList<>();
+        when(ocrService.newTesseract()).thenAnswer(invocation -> {
+            Tesseract tesseract = mock(Tesseract.class);
+            created.add(tesseract);
+            return tesseract;
+        });
+        when(ocrService.processImage(any(ByteBuffer.class), any(Tesseract.class), any(OCRImagePreprocessor.class), any()))
+            .thenAnswer(invocation -> {
+                Tesseract previous = usedBy.putIfAbsent(Thread.currentThread(), invocation.getArgument(1));
+                if (previous != null && previous != invocation.getArgument(1)) {
+                    synchronized (errors) {
+                        errors.add("worker switched Tesseract instance");
+                    }
+                }
+                return Map.of("name", "Eggs");
+            });
+        ocrJobService = new OCRJobService(ocrService, workers, 64);
+
+        List<OCRJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            jobs.add(ocrJobService.submit(IMAGE));
+        }
+        for (OCRJob job : jobs) {
+            assertEquals(Status.COMPLETED, ocrJobService.awaitCompletion(job.getId()).block().getStatus());
+        }
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertTrue(created.size() <= workers, "one Tesseract per worker, got " + created.size());
+        assertEquals(created.size(), Set.copyOf(usedBy.values()).size());
+    }
+
+    @Test
+    void testSubmit_RejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ocrService.newTesseract()).thenReturn(mock(Tesseract.class));
+        when(ocrService.processImage(any(ByteBuffer.class), any(Tesseract.class), any(OCRImagePreprocessor.class), any()))
+            .thenAnswer(invocation -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return Map.of("name", "Bread");
+            });
+        ocrJobService = new OCRJobService(ocrService, 1, 1);
+
+        ocrJobService.submit(IMAGE);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        OCRJob queued = ocrJobService.submit(IMAGE);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ocrJobService.submit(IMAGE));
+        assertTrue(e.getMessage().contains("queue is full"));
+        assertEquals(Status.QUEUED, queued.getStatus());
+        assertEquals(1, ocrJobService.getQueuedCount());
+
+        release.countDown();
+        assertEquals(Status.COMPLETED, ocrJobService.awaitCompletion(queued.getId()).block().getStatus());
+    }
+
+    @Test
+    void testProcessImage_ReportsWorkerFailure() {
+        when(ocrService.newTesseract()).thenReturn(mock(Tesseract.class));
+        when(ocrService.processImage(any(ByteBuffer.class), any(Tesseract.class), any(OCRImagePreprocessor.class), any()))
+            .thenThrow(new UnsatisfiedLinkError("libtesseract not found"));
+        ocrJobService = new OCRJobService(ocrService, 1, 4);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> ocrJobService.processImage(IMAGE));
+
+        assertTrue(e.getMessage().contains("libtesseract not found"));
+    }
+}
@@ -0,0 +1,122 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.OCRImagePreprocessor.PreprocessedImage;
+import net.sourceforge.tess4j.Tesseract;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares OCR on raw label photos against OCR after OCRImagePreprocessor, over a
+ * corpus of synthetic labels with known text. Reports ms/image and character
+ * accuracy (1 - edit distance / text length) for both paths.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.OCRPreprocessingBenchmark [labels] [tessdataPath]
+ * </pre>
+ * Without a tessdata directory only the preprocessing cost is measured.
+ */
+public class OCRPreprocessingBenchmark {
+
+    private static final String DEFAULT_TESSDATA = "/usr/share/tesseract-ocr/4.00/tessdata";
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        String tessdata = args.length > 1 ? args[1] : DEFAULT_TESSDATA;
+
+        Random random = new Random(42);
+        List<SyntheticLabels.Label> corpus = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double skew = Math.round((random.nextDouble() * 10 - 5) * 10) / 10.0;
+            corpus.add(SyntheticLabels.generate(i, 3000, 2250, skew));
+        }
+        System.out.println("Corpus: " + count + " labels, 3000x2250, skew -5..5 degrees");
+
+        OCRImagePreprocessor preprocessor = new OCRImagePreprocessor();
+        // Warm up the JIT before timing
+        for (int i = 0; i < Math.min(10, count); i++) {
+            preprocessor.preprocess(corpus.get(i).image);
+        }
+
+        double skewError = 0;
+        long outputPixels = 0;
+        long start = System.nanoTime();
+        for (SyntheticLabels.Label label : corpus) {
+            PreprocessedImage prepared = preprocessor.preprocess(label.image);
+            skewError += Math.abs(prepared.getSkewDegrees() - label.skewDegrees);
+            outputPixels += (long) prepared.getWidth() * prepared.getHeight();
+        }
+        double preprocessMs = (System.nanoTime() - start) / 1e6 / count;
+        System.out.printf("Preprocessing: %.1f ms/image, mean skew error %.2f degrees%n", preprocessMs, skewError / count);
+        System.out.printf("Pixels handed to Tesseract: %.1f%% of the raw photo%n",
+                100.0 * outputPixels / count / (3000 * 2250));
+
+        if (!new File(tessdata).isDirectory()) {
+            System.out.println("No tessdata at " + tessdata + ", skipping OCR comparison");
+            return;
+        }
+
+        Tesseract raw = new Tesseract();
+        raw.setDatapath(tessdata);
+        raw.setLanguage("eng");
+        Tesseract tuned = new Tesseract();
+        tuned.setDatapath(tessdata);
+        tuned.setLanguage("eng");
+        tuned.setVariable("user_defined_dpi", String.valueOf(OCRImagePreprocessor.TARGET_DPI));
+
+        double rawAccuracy = 0;
+        long rawNanos = 0;
+        double preparedAccuracy = 0;
+        long preparedNanos = 0;
+        for (SyntheticLabels.Label label : corpus) {
+            long t0 = System.nanoTime();
+            String rawText = raw.doOCR(label.image);
+            long t1 = System.nanoTime();
+            PreprocessedImage prepared = preprocessor.preprocess(label.image);
+            String preparedText = tuned.doOCR(prepared.getWidth(), prepared.getHeight(), prepared.getPixels(), null, 8);
+            long t2 = System.nanoTime();
+
+            rawNanos += t1 - t0;
+            preparedNanos += t2 - t1;
+            rawAccuracy += accuracy(label.text, rawText);
+            preparedAccuracy += accuracy(label.text, preparedText);
+        }
+        System.out.printf("Raw:          %.1f ms/image, %.1f%% character accuracy%n",
+                rawNanos / 1e6 / count, 100 * rawAccuracy / count);
+        System.out.printf("Preprocessed: %.1f ms/image, %.1f%% character accuracy%n",
+                preparedNanos / 1e6 / count, 100 * preparedAccuracy / count);
+    }
+
+    private static double accuracy(String expected, String actual) {
+        String a = normalize(expected);
+        String b = normalize(actual);
+        return Math.max(0.0, 1.0 - (double) editDistance(a, b) / a.length());
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+
+    private static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
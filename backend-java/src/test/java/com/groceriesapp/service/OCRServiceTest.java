@@ -0,0 +1,52 @@
+package com.groceriesapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OCRServiceTest {
+
+    private final OCRService ocrService = new OCRService(null);
+
+    @Test
+    void testDecodeImage_SubsamplesLargePhotosWhileDecoding() throws Exception {
+        ByteBuffer jpeg = encode(SyntheticLabels.generate(1, 4000, 3000, 0).image, "jpg");
+
+        BufferedImage decoded = ocrService.decodeImage(jpeg);
+
+        assertEquals(2000, decoded.getWidth());
+        assertEquals(1500, decoded.getHeight());
+        assertEquals(0, jpeg.position());
+    }
+
+    @Test
+    void testDecodeImage_KeepsSmallImagesAtFullResolution() throws Exception {
+        ByteBuffer png = encode(SyntheticLabels.generate(2, 1200, 900, 0).image, "png");
+
+        BufferedImage decoded = ocrService.decodeImage(png);
+
+        assertEquals(1200, decoded.getWidth());
+        assertEquals(900, decoded.getHeight());
+    }
+
+    @Test
+    void testDecodeImage_RejectsUnknownFormat() {
+        ByteBuffer garbage = ByteBuffer.wrap(new byte[] {1, 2, 3, 4});
+
+        assertThrows(IOException.class, () -> ocrService.decodeImage(garbage));
+    }
+
+    private static ByteBuffer encode(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        ByteBuffer direct = ByteBuffer.allocateDirect(out.size());
+        direct.put(out.toByteArray()).flip();
+        return direct;
+    }
+}
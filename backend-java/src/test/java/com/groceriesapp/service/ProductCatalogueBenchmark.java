@@ -0,0 +1,90 @@
+package com.groceriesapp.service;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Imports a synthetic Open Food Facts dump into a ProductCatalogue, then times
+ * lookups of random barcodes (half of them unknown). Reports import throughput,
+ * catalogue size on disk and nanoseconds per lookup.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.ProductCatalogueBenchmark [products] [lookups]
+ * </pre>
+ */
+public class ProductCatalogueBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        Path dir = Files.createTempDirectory("catalogue-bench");
+
+        Path dump = dir.resolve("products.jsonl");
+        long dumpBytes = writeDump(dump, products);
+        ProductCatalogue catalogue = new ProductCatalogue(dir.resolve("catalogue").toString());
+        ProductCatalogue.ImportResult result = catalogue.importDump(dump, false);
+        long catalogueBytes = 0;
+        try (var files = Files.list(dir.resolve("catalogue"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                catalogueBytes += Files.size(file);
+            }
+        }
+
+        String[] barcodes = new String[4096];
+        Random random = new Random(7);
+        for (int i = 0; i < barcodes.length; i++) {
+            barcodes[i] = barcode(random.nextInt(products * 2));
+        }
+        // Warm up, then time
+        lookup(catalogue, barcodes, lookups / 4);
+        long start = System.nanoTime();
+        int found = lookup(catalogue, barcodes, lookups);
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("Dump: %d products, %.1f MB JSONL%n", products, dumpBytes / 1e6);
+        System.out.printf("Import: %d ms (%.0f products/s), catalogue %.1f MB on disk%n",
+            result.getMillis(), products * 1000.0 / Math.max(1, result.getMillis()), catalogueBytes / 1e6);
+        System.out.printf("Lookup: %.0f ns/lookup, %d of %d found%n", (double) nanos / lookups, found, lookups);
+
+        try (var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static int lookup(ProductCatalogue catalogue, String[] barcodes, int lookups) {
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            if (catalogue.getBarcodeProduct(barcodes[i & (barcodes.length - 1)]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Products 0..n-1 get even barcodes, so odd ones are misses
+    private static String barcode(int i) {
+        return String.format("%013d", 3_000_000_000_000L + i * 2L);
+    }
+
+    private static long writeDump(Path dump, int products) throws Exception {
+        try (BufferedWriter out = Files.newBufferedWriter(dump)) {
+            for (int i = 0; i < products; i++) {
+                // Shuffle the order like a real dump, which is not sorted by barcode
+                int id = (int) ((i * 2654435761L) % products);
+                out.write("{\"code\":\"" + barcode(id) + "\",\"product_name\":\"Product " + id
+                    + "\",\"brands\":\"Brand " + (id % 500) + "\",\"categories\":\"Snacks, Sweet snacks, Biscuits\","
+                    + "\"image_url\":\"https://images.openfoodfacts.org/images/products/" + id + "/front_en.jpg\","
+                    + "\"countries\":\"France\",\"ingredients\":[{\"id\":\"en:wheat-flour\",\"text\":\"wheat flour\"},"
+                    + "{\"id\":\"en:sugar\",\"text\":\"sugar\"}],\"nutriments\":{\"energy-kcal_100g\":" + (id % 600)
+                    + ",\"fat_100g\":12.5,\"proteins_100g\":6,\"salt_100g\":0.3},"
+                    + "\"images\":{\"front\":{\"sizes\":{\"100\":{\"h\":100,\"w\":75}}}},\"editors_tags\":[\"a\",\"b\"]}\n");
+            }
+        }
+        return Files.size(dump);
+    }
+}
@@ -0,0 +1,138 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.BarcodeProduct;
+import com.groceriesapp.service.BarcodeExpansionService.ProductInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogueTest {
+
+    private static final String MILK = "{\"code\":\"0012345678905\",\"product_name\":\"Whole Milk\",\"brands\":\"Acme\","
+        + "\"categories\":\"Dairy, Milks\",\"countries\":\"United States\",\"image_url\":\"http://img/milk.jpg\","
+        + "\"ingredients\":[{\"id\":\"en:milk\",\"text\":\"milk\",\"ingredients\":[{\"text\":\"cream\"}]},{\"text\":\"vitamin D3\"}],"
+        + "\"nutriments\":{\"energy-kcal_100g\":64.4,\"proteins_100g\":3.3,\"fat_100g\":\"3.6\",\"sodium_100g\":0.04,"
+        + "\"nova-group\":{\"x\":1}},\"images\":{\"front\":{\"sizes\":[100,200]}}}";
+    private static final String BREAD = "{\"code\":\"4006381333931\",\"product_name\":\"Rye Bread\",\"categories\":null}";
+    private static final String NO_CODE = "{\"product_name\":\"Loose Apples\"}";
+    private static final String BAD_CODE = "{\"code\":\"not-a-barcode\",\"product_name\":\"Mystery\"}";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testImportDump_ProjectsProductFieldsAndFindsByBarcode() throws Exception {
+        ProductCatalogue catalogue = new ProductCatalogue(dir.resolve("catalogue").toString());
+        ProductCatalogue.ImportResult result = catalogue.importDump(gzip("products.jsonl.gz", MILK, BREAD, NO_CODE, BAD_CODE), false);
+
+        assertEquals(4, result.getProductsRead());
+        assertEquals(2, result.getProductsSkipped());
+        assertEquals(2, catalogue.size());
+
+        // UPC-A and its EAN-13 form are the same product
+        ProductInfo milk = catalogue.getProductInfo("012345678905");
+        assertEquals("012345678905", milk.getBarcode());
+        assertEquals("Whole Milk", milk.getProductName());
+        assertEquals("Acme", milk.getBrand());
+        assertEquals("United States", milk.getCountry());
+        assertEquals(List.of("milk", "vitamin D3"), milk.getIngredients());
+        assertEquals(64, milk.getNutrition().getCalories());
+        assertEquals(3.6, milk.getNutrition().getFat());
+        assertEquals(0.04, milk.getNutrition().getSodium());
+        assertNull(milk.getNutrition().getCarbs());
+
+        BarcodeProduct bread = catalogue.getBarcodeProduct("4006381333931");
+        assertTrue(bread.isFound());
+        assertEquals("Rye Bread", bread.getProductName());
+        assertNull(bread.getCategory());
+        assertNull(bread.getCalories());
+
+        assertNull(catalogue.getProductInfo("4006381333932"));
+        assertNull(catalogue.getProductInfo("abc"));
+    }
+
+    @Test
+    void testImportDump_DeltaReplacesAndAddsProductsAndSurvivesReopen() throws Exception {
+        Path store = dir.resolve("catalogue");
+        ProductCatalogue catalogue = new ProductCatalogue(store.toString());
+        catalogue.importDump(write("full.jsonl", MILK, BREAD), false);
+
+        String newMilk = "{\"code\":\"12345678905\",\"product_name\":\"Whole Milk 2L\"}";
+        String eggs = "{\"code\":\"5000000000001\",\"product_name\":\"Eggs\"}";
+        catalogue.importDump(write("delta.jsonl", eggs, newMilk), true);
+
+        for (ProductCatalogue reader : List.of(catalogue, new ProductCatalogue(store.toString()))) {
+            assertEquals(3, reader.size());
+            assertEquals("Whole Milk 2L", reader.getProductInfo("0012345678905").getProductName());
+            assertNull(reader.getProductInfo("0012345678905").getNutrition());
+            assertEquals("Rye Bread", reader.getProductInfo("4006381333931").getProductName());
+            assertEquals("Eggs", reader.getProductInfo("5000000000001").getProductName());
+        }
+    }
+
+    @Test
+    void testImportDump_FullDumpReplacesCatalogueAndLaterDuplicatesWin() throws Exception {
+        Path store = dir.resolve("catalogue");
+        ProductCatalogue catalogue = new ProductCatalogue(store.toString());
+        catalogue.importDump(write("first.jsonl", MILK, BREAD), false);
+
+        String renamed = "{\"code\":\"4006381333931\",\"product_name\":\"Dark Rye Bread\"}";
+        catalogue.importDump(write("second.jsonl", BREAD, renamed), false);
+
+        assertEquals(1, catalogue.size());
+        assertNull(catalogue.getProductInfo("0012345678905"));
+        assertEquals("Dark Rye Bread", catalogue.getProductInfo("4006381333931").getProductName());
+        try (var files = Files.list(store)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void testImportPending_ImportsInboxAndKeepsServingOnBadDump() throws Exception {
+        Path store = dir.resolve("catalogue");
+        Path inbox = store.resolve("inbox");
+        Files.createDirectories(inbox.resolve("full"));
+        Files.createDirectories(inbox.resolve("delta"));
+        Files.writeString(inbox.resolve("full/products.jsonl"), MILK + "\n");
+        Files.writeString(inbox.resolve("delta/1.jsonl"), BREAD + "\n");
+        Files.writeString(inbox.resolve("delta/2.jsonl"), "[\"not a product\"]\n");
+        ProductCatalogue catalogue = new ProductCatalogue(store.toString());
+
+        assertEquals(2, catalogue.importPending());
+
+        assertEquals(2, catalogue.size());
+        assertTrue(Files.exists(inbox.resolve("done/products.jsonl")));
+        assertTrue(Files.exists(inbox.resolve("done/1.jsonl")));
+        assertTrue(Files.exists(inbox.resolve("failed/2.jsonl")));
+        assertEquals(0, catalogue.importPending());
+    }
+
+    @Test
+    void testKey_IgnoresLeadingZerosAndRejectsNonDigits() {
+        assertEquals(12345678905L, ProductCatalogue.key("0012345678905"));
+        assertEquals(12345678905L, ProductCatalogue.key(" 012345678905 "));
+        assertEquals(-1, ProductCatalogue.key("12-345"));
+        assertEquals(-1, ProductCatalogue.key(""));
+        assertEquals(-1, ProductCatalogue.key("1234567890123456789"));
+    }
+
+    private Path write(String name, String... lines) throws Exception {
+        return Files.writeString(dir.resolve(name), String.join("\n", lines) + "\n");
+    }
+
+    private Path gzip(String name, String... lines) throws Exception {
+        Path file = dir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,93 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.nutrition.NutritionInfo;
+import com.groceriesapp.service.ScanCacheService.ParsedLabel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanCacheServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testImageKey_HashesRemainingBytesWithoutConsumingThem() {
+        ByteBuffer upload = ByteBuffer.allocateDirect(4);
+        upload.put(new byte[] {1, 2, 3, 4}).flip();
+
+        String key = ScanCacheService.imageKey(upload);
+
+        assertEquals(0, upload.position());
+        assertEquals(key, ScanCacheService.imageKey(ByteBuffer.wrap(new byte[] {1, 2, 3, 4})));
+        assertNotEquals(key, ScanCacheService.imageKey(ByteBuffer.wrap(new byte[] {1, 2, 3, 5})));
+    }
+
+    @Test
+    void testTextKey_IgnoresWhitespaceAndCase() {
+        assertEquals(ScanCacheService.textKey("Total Fat 8g\nSodium 160mg"),
+                     ScanCacheService.textKey("  TOTAL FAT 8g  Sodium\t160mg\n"));
+        assertNotEquals(ScanCacheService.textKey("Total Fat 8g"), ScanCacheService.textKey("Total Fat 9g"));
+    }
+
+    @Test
+    void testParsedLabel_ReturnsFreshCopyAndSurvivesRestart() {
+        ScanCacheService cache = new ScanCacheService(directory.toString(), 10, 30);
+        NutritionInfo info = new NutritionInfo();
+        info.setCalories(230);
+        info.setTotalFat(new BigDecimal("8.5"));
+        cache.putParsedLabel("ab12", new ParsedLabel(info, List.of(3L, 1L, 2L)), 5_000_000);
+
+        ParsedLabel first = cache.getParsedLabel("ab12");
+        first.getNutritionInfo().setItemId(99L);
+        ParsedLabel second = cache.getParsedLabel("ab12");
+        assertNull(second.getNutritionInfo().getItemId());
+        assertEquals(new BigDecimal("8.5"), second.getNutritionInfo().getTotalFat());
+        assertEquals(List.of(3L, 1L, 2L), second.getIngredientIds());
+
+        ScanCacheService restarted = new ScanCacheService(directory.toString(), 10, 30);
+        assertEquals(230, restarted.getParsedLabel("ab12").getNutritionInfo().getCalories());
+        assertNull(restarted.getParsedLabel("cd34"));
+
+        ContentCache.Stats stats = restarted.getStats().get(1);
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getDiskHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate(), 1e-9);
+        assertEquals(5, stats.getSavedCpuMillis());
+    }
+
+    @Test
+    void testContentCache_EvictsFromMemoryOnly() {
+        ContentCache cache = new ContentCache("test", 2, directory);
+        cache.put("aa01", "one", 1);
+        cache.put("aa02", "two", 1);
+        cache.put("aa03", "three", 1);
+
+        assertEquals(2, cache.getStats().getSize());
+        // Whichever entry was evicted from memory is still on disk
+        assertEquals("one", cache.get("aa01"));
+        assertEquals("two", cache.get("aa02"));
+        assertEquals("three", cache.get("aa03"));
+        assertEquals(3, cache.getStats().getHits());
+        assertTrue(cache.getStats().getDiskHits() >= 1);
+    }
+
+    @Test
+    void testContentCache_DeletesStaleDiskEntries() {
+        ContentCache cache = new ContentCache("test", 1, directory);
+        cache.put("aa01", "one", 1);
+        cache.put("bb01", "two", 1);
+
+        assertEquals(0, cache.evictDiskOlderThan(Instant.now().minusSeconds(60)));
+        assertEquals(2, cache.evictDiskOlderThan(Instant.now().plusSeconds(60)));
+        assertNull(new ContentCache("test", 1, directory).get("aa01"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.HouseholdItemEvent.Source;
+import com.groceriesapp.repository.HouseholdItemEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A year of history for many households, each restocking tens of items from a catalogue
+ * of a few hundred at its own interval with some jitter. Measures ranking one household
+ * from its stats, and the nightly run over every household with the ledger rows
+ * generated in memory, so the figures exclude the database.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.ShoppingSuggestionBenchmark [households] [itemsPerHousehold] [threads]
+ * </pre>
+ */
+public class ShoppingSuggestionBenchmark {
+
+    private static final int CATALOGUE = 400;
+    private static final int DAYS = 365;
+    // Item keys are letters only: "item aa", "item ab", ...
+    private static final String[] KEYS = new String[CATALOGUE];
+
+    static {
+        for (int i = 0; i < CATALOGUE; i++) {
+            KEYS[i] = "item " + (char) ('a' + i / 26) + (char) ('a' + i % 26);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int households = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int itemsPerHousehold = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        LocalDate today = LocalDate.now();
+        int day = (int) today.toEpochDay();
+
+        // Ranking from stats in memory
+        RepurchaseStats[] stats = new RepurchaseStats[1000];
+        long events = 0;
+        for (int h = 0; h < stats.length; h++) {
+            stats[h] = new RepurchaseStats();
+            SplittableRandom random = new SplittableRandom(h);
+            for (int[] event : history(random, itemsPerHousehold, day)) {
+                stats[h].observe(event[0], event[1], 0, event[2]);
+                events++;
+            }
+        }
+        int[] items = new int[10];
+        long found = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                for (RepurchaseStats household : stats) {
+                    found += household.rank(day, 3, items);
+                }
+            }
+            double micros = (System.nanoTime() - start) / 1e3 / (200.0 * stats.length);
+            System.out.printf("Rank: %.2f us per household (%d entries, %,d events each on average)%n",
+                micros, stats[0].size(), events / stats.length);
+        }
+        System.out.printf("%.1f suggestions per household on average%n", found / (5.0 * 200 * stats.length));
+
+        // Nightly run over every household
+        GeneratingJdbcTemplate jdbc = new GeneratingJdbcTemplate(households, itemsPerHousehold, day);
+        ShoppingSuggestionEngine engine = new ShoppingSuggestionEngine(mock(HouseholdItemEventRepository.class),
+            jdbc, new TransactionTemplate(mock(PlatformTransactionManager.class)), DAYS, 3, 10, 1000, threads, 5000);
+        ShoppingSuggestionEngine.PrecomputeRun run = engine.precomputeAll(today);
+        System.out.printf("Nightly: %,d households, %,d events on %d threads in %,d ms (%.1f us per household)%n",
+            run.getHouseholds(), run.getEvents(), threads, run.getMillis(),
+            run.getMillis() * 1e3 / run.getHouseholds());
+        long start = System.nanoTime();
+        for (long h = 1; h <= households; h++) {
+            engine.suggest(h, today, 10);
+        }
+        System.out.printf("Serving precomputed suggestions: %.2f us per household%n",
+            (System.nanoTime() - start) / 1e3 / households);
+        engine.shutdown();
+    }
+
+    // [item, source, day] over a year, oldest first
+    private static int[][] history(SplittableRandom random, int itemsPerHousehold, int today) {
+        int[][] events = new int[itemsPerHousehold * DAYS][];
+        int count = 0;
+        int[] next = new int[itemsPerHousehold];
+        int[] item = new int[itemsPerHousehold];
+        int[] interval = new int[itemsPerHousehold];
+        for (int i = 0; i < itemsPerHousehold; i++) {
+            item[i] = random.nextInt(CATALOGUE);
+            interval[i] = 2 + random.nextInt(28);
+            next[i] = today - DAYS + random.nextInt(interval[i]);
+        }
+        for (int d = today - DAYS; d <= today; d++) {
+            for (int i = 0; i < itemsPerHousehold; i++) {
+                if (next[i] == d) {
+                    events[count++] = new int[] {item[i], Source.PURCHASED.ordinal(), d};
+                    next[i] = d + Math.max(1, interval[i] + random.nextInt(5) - 2);
+                }
+            }
+        }
+        int[][] result = new int[count][];
+        System.arraycopy(events, 0, result, 0, count);
+        return result;
+    }
+
+    private static class GeneratingJdbcTemplate extends JdbcTemplate {
+        final int households;
+        final int itemsPerHousehold;
+        final int today;
+
+        GeneratingJdbcTemplate(int households, int itemsPerHousehold, int today) {
+            this.households = households;
+            this.itemsPerHousehold = itemsPerHousehold;
+            this.today = today;
+        }
+
+        @Override
+        public <T> T queryForObject(String statement, Class<T> requiredType) {
+            return requiredType.cast((long) households);
+        }
+
+        @Override
+        public void query(String statement, RowCallbackHandler handler, Object... args) {
+            long from = (Long) args[0];
+            long to = Math.min((Long) args[1], households);
+            Object[] row = new Object[6];
+            ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, columns) -> row[(Integer) columns[0] - 1]);
+            String[] sources = {"PURCHASED", "USED", "OPENED"};
+            try {
+                for (long h = from; h <= to; h++) {
+                    row[0] = h;
+                    for (int[] event : history(new SplittableRandom(h), itemsPerHousehold, today)) {
+                        row[1] = KEYS[event[0]];
+                        row[2] = KEYS[event[0]];
+                        row[3] = sources[event[1]];
+                        row[4] = 0L;
+                        row[5] = Date.valueOf(LocalDate.ofEpochDay(event[2]));
+                        handler.processRow(resultSet);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.HouseholdItemEvent;
+import com.groceriesapp.model.HouseholdItemEvent.Source;
+import com.groceriesapp.repository.HouseholdItemEventRepository;
+import com.groceriesapp.service.ShoppingSuggestionEngine.PrecomputeRun;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShoppingSuggestionEngineTest {
+
+    @Mock
+    private HouseholdItemEventRepository householdItemEventRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RecordingJdbcTemplate jdbc;
+    private ShoppingSuggestionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new RecordingJdbcTemplate();
+        engine = new ShoppingSuggestionEngine(householdItemEventRepository, jdbc,
+            new TransactionTemplate(transactionManager), 365, 3, 10, 1000, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testRepurchaseStats_RanksItemsDueSoonByHowOverdueTheyAre() {
+        RepurchaseStats stats = new RepurchaseStats();
+        int purchased = Source.PURCHASED.ordinal();
+        int used = Source.USED.ordinal();
+        int opened = Source.OPENED.ordinal();
+        // Milk weekly, and once marked used, which is less evidence
+        observe(stats, 0, purchased, 100, 107, 114, 121);
+        stats.observe(0, used, 1, 104);
+        // Bread every three days, two days overdue
+        observe(stats, 1, used, 110, 113, 116, 119, 122);
+        // Eggs seen twice: too little to go on
+        observe(stats, 2, purchased, 100, 114);
+        // Rice not bought for over a month: lapsed
+        observe(stats, 3, purchased, 60, 70, 80);
+        // Cheese opened weekly; more servings of the same pack count once
+        stats.observe(4, opened, 11, 105);
+        stats.observe(4, opened, 12, 112);
+        stats.observe(4, opened, 12, 113);
+        stats.observe(4, opened, 13, 119);
+        // Coffee due tomorrow, yogurt not for four days
+        observe(stats, 5, purchased, 116, 120, 124);
+        observe(stats, 6, purchased, 110, 117, 124);
+
+        int[] items = new int[3];
+        assertEquals(3, stats.rank(127, 3, items));
+        assertArrayEquals(new int[] {1, 4, 0}, items);
+
+        items = new int[10];
+        int count = stats.rank(127, 3, items);
+        assertArrayEquals(new int[] {1, 4, 0, 5}, Arrays.copyOf(items, count));
+        assertTrue(stats.isLast(4, opened, 13));
+        assertEquals(8, stats.size());
+    }
+
+    @Test
+    void testRecord_LearnsFromEventsAsTheyHappen() {
+        LocalDate today = LocalDate.now();
+        when(householdItemEventRepository.findHistory(eq(5L), any())).thenReturn(List.of(
+            event(5L, "Milk 2L", Source.PURCHASED, 1L, today.minusDays(21)),
+            event(5L, "milk", Source.PURCHASED, 2L, today.minusDays(14)),
+            event(5L, "Milk 2 L", Source.PURCHASED, 3L, today.minusDays(7))));
+
+        assertEquals(List.of("Milk 2 L"), engine.suggest(5L));
+
+        // Bought today, so not needed for a week
+        engine.recordPurchased(5L, 4L, "Milk 2L");
+        assertEquals(List.of(), engine.suggest(5L));
+
+        // Further servings of the same cheese are answered by the cached stats
+        engine.recordConsumed(5L, 40L, "Cheddar 400g");
+        engine.recordConsumed(5L, 40L, "Cheddar 400g");
+        ArgumentCaptor<HouseholdItemEvent> saved = ArgumentCaptor.forClass(HouseholdItemEvent.class);
+        verify(householdItemEventRepository, times(2)).save(saved.capture());
+        assertEquals("milk", saved.getAllValues().get(0).getItemKey());
+        assertEquals(Source.OPENED, saved.getAllValues().get(1).getSource());
+        assertEquals("cheddar", saved.getAllValues().get(1).getItemKey());
+        verify(householdItemEventRepository, times(1)).existsByHouseholdIdAndItemIdAndSource(5L, 40L, Source.OPENED);
+        verify(householdItemEventRepository, times(1)).findHistory(eq(5L), any());
+    }
+
+    @Test
+    void testSuggest_ShowsEachHouseholdItsOwnNameForAnItem() {
+        LocalDate today = LocalDate.now();
+        when(householdItemEventRepository.findHistory(eq(5L), any())).thenReturn(List.of(
+            event(5L, "Milk 2L", Source.PURCHASED, 1L, today.minusDays(21)),
+            event(5L, "Milk 2L", Source.PURCHASED, 2L, today.minusDays(14)),
+            event(5L, "Milk 2L", Source.PURCHASED, 3L, today.minusDays(7))));
+        when(householdItemEventRepository.findHistory(eq(6L), any())).thenReturn(List.of(
+            event(6L, "MILK 1l", Source.PURCHASED, 4L, today.minusDays(21)),
+            event(6L, "MILK 1l", Source.PURCHASED, 5L, today.minusDays(14)),
+            event(6L, "Lait milk", Source.PURCHASED, 6L, today.minusDays(10)),
+            event(6L, "milk", Source.PURCHASED, 7L, today.minusDays(7))));
+
+        assertEquals(List.of("Milk 2L"), engine.suggest(5L));
+        // The same item key, named as this household last wrote it
+        assertEquals(List.of("milk"), engine.suggest(6L));
+    }
+
+    @Test
+    void testRecordConsumed_UncachedHouseholdAsksTheLedgerAboutTheItemOnly() {
+        when(householdItemEventRepository.existsByHouseholdIdAndItemIdAndSource(6L, 41L, Source.OPENED))
+            .thenReturn(true);
+
+        engine.recordConsumed(6L, 41L, "Butter");
+        engine.recordConsumed(6L, 42L, "Jam");
+
+        ArgumentCaptor<HouseholdItemEvent> saved = ArgumentCaptor.forClass(HouseholdItemEvent.class);
+        verify(householdItemEventRepository).save(saved.capture());
+        assertEquals(42L, saved.getValue().getItemId());
+        assertEquals(Source.OPENED, saved.getValue().getSource());
+        verify(householdItemEventRepository, never()).findHistory(any(), any());
+        // Written in a transaction of its own, as the log's has already committed
+        verify(transactionManager).getTransaction(argThat(definition ->
+            definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void testPrecomputeAll_RanksEveryHouseholdInSlices() throws Exception {
+        LocalDate day = LocalDate.of(2026, 3, 20);
+        jdbc.maxId = 3L;
+        for (int week = 3; week >= 1; week--) {
+            jdbc.rows.add(new Object[] {1L, "milk", "Milk", "PURCHASED", 0L, day.minusDays(7L * week)});
+            jdbc.rows.add(new Object[] {3L, "bread", "Bread", "USED", 0L, day.minusDays(3L * week)});
+        }
+        jdbc.rows.add(new Object[] {2L, "eggs", "Eggs", "PURCHASED", 0L, day.minusDays(2)});
+
+        PrecomputeRun run = engine.precomputeAll(day);
+
+        assertEquals(3, run.getHouseholds());
+        assertEquals(7, run.getEvents());
+        assertEquals(0, run.getFailedSlices());
+        assertEquals(2, jdbc.slices.size());
+        assertEquals(List.of("Milk"), engine.suggest(1L, day, 10));
+        assertEquals(List.of("Bread"), engine.suggest(3L, day, 10));
+        assertEquals(List.of(), engine.suggest(2L, day, 10));
+        // Served from what was precomputed
+        verify(householdItemEventRepository, never()).findHistory(any(), any());
+    }
+
+    private static void observe(RepurchaseStats stats, int item, int source, int... days) {
+        for (int day : days) {
+            stats.observe(item, source, 0, day);
+        }
+    }
+
+    private static HouseholdItemEvent event(Long householdId, String name, Source source, Long itemId, LocalDate day) {
+        return new HouseholdItemEvent(householdId, ShoppingSuggestionEngine.itemKey(name), name, source, itemId, day);
+    }
+
+    // Serves ledger rows for the household ids asked for instead of querying
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<Object[]> rows = new ArrayList<>();
+        final List<Object[]> slices = new ArrayList<>();
+        Long maxId;
+
+        @Override
+        public <T> T queryForObject(String statement, Class<T> requiredType) {
+            return requiredType.cast(maxId);
+        }
+
+        @Override
+        public void query(String statement, RowCallbackHandler handler, Object... args) {
+            synchronized (slices) {
+                slices.add(args);
+            }
+            long from = (Long) args[0];
+            long to = (Long) args[1];
+            for (Object[] row : rows) {
+                long householdId = (Long) row[0];
+                if (householdId < from || householdId > to) {
+                    continue;
+                }
+                try {
+                    handler.processRow(resultSet(row));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private static ResultSet resultSet(Object[] row) throws SQLException {
+            ResultSet resultSet = mock(ResultSet.class);
+            lenient().when(resultSet.getLong(1)).thenReturn((Long) row[0]);
+            lenient().when(resultSet.getString(2)).thenReturn((String) row[1]);
+            lenient().when(resultSet.getString(3)).thenReturn((String) row[2]);
+            lenient().when(resultSet.getString(4)).thenReturn((String) row[3]);
+            lenient().when(resultSet.getLong(5)).thenReturn((Long) row[4]);
+            lenient().when(resultSet.getDate(6)).thenReturn(Date.valueOf((LocalDate) row[5]));
+            return resultSet;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.groceriesapp.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A day of activity from 10 million users. A share of them are active and earn XP a few
+ * times each; every award marks the user active from several threads. Then today's
+ * activity is flushed and the nightly job runs. Statements are counted, not executed, so
+ * the figures are the in-memory cost plus how many statements reach the database, next
+ * to the one UPDATE per active user per day that updateStreak used to issue on the
+ * request path.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.StreakBenchmark [users] [activePercent] [awardsPerActiveUser] [threads]
+ * </pre>
+ */
+public class StreakBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int activePercent = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int awardsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        CountingJdbcTemplate jdbc = new CountingJdbcTemplate(users);
+        AchievementEngine engine = mock(AchievementEngine.class);
+        when(engine.thresholds("STREAK")).thenReturn(new int[] {7, 30, 100});
+        StreakService streaks = new StreakService(jdbc, engine, mock(ApplicationEventPublisher.class), 500, 50_000);
+
+        // Each thread awards a slice of users, a few awards each, in random order
+        long awards = (long) users * activePercent / 100 * awardsPerUser;
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long share = awards / threads;
+            int seed = t;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (long i = 0; i < share; i++) {
+                    // Only ids below the active share are ever touched
+                    streaks.touch(1 + (long) random.nextInt(users / 100 * activePercent));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long touches = streaks.getStats().getTouches();
+        System.out.printf("%,d users, %,d touches on %d threads: %.2f s, %,.0f touches/s, %.0f ns each%n",
+            users, touches, threads, seconds, touches / seconds, seconds * 1e9 / touches);
+
+        start = System.nanoTime();
+        int written = streaks.flush();
+        System.out.printf("Flush: %,d active users in %,d statements, %,d ms%n",
+            written, jdbc.statements.get(), (System.nanoTime() - start) / 1_000_000);
+        start = System.nanoTime();
+        streaks.flush();
+        System.out.printf("Flush with nothing new: %.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+        long before = jdbc.statements.get();
+        StreakService.StreakRun run = streaks.computeStreaks(LocalDate.now().minusDays(1));
+        System.out.printf("Nightly job: %,d UPDATE statements over %,d users, %,d ms excluding the database%n",
+            jdbc.statements.get() - before, users, run.getMillis());
+        System.out.printf("Statements for the day: %,d, against %,d with an UPDATE per active user in updateStreak%n",
+            jdbc.statements.get(), written);
+    }
+
+    private static class CountingJdbcTemplate extends JdbcTemplate {
+        final AtomicLong statements = new AtomicLong();
+        final long maxId;
+
+        CountingJdbcTemplate(long maxId) {
+            this.maxId = maxId;
+        }
+
+        @Override
+        public int update(String statement, Object... args) {
+            statements.incrementAndGet();
+            return 0;
+        }
+
+        @Override
+        public <T> T queryForObject(String statement, Class<T> requiredType) {
+            return requiredType.cast(maxId);
+        }
+
+        @Override
+        public <T> List<T> query(String statement, RowMapper<T> rowMapper, Object... args) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.service.StreakService.StreakRun;
+import com.groceriesapp.service.event.StreakExtendedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreakServiceTest {
+
+    @Mock
+    private AchievementEngine achievementEngine;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void testActivityBitmap_ListsEachUnwrittenIdOnce() {
+        ActivityBitmap bitmap = new ActivityBitmap();
+        TreeSet<Long> reference = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long id = i % 1000 == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(1_000_000);
+            assertEquals(reference.add(id), bitmap.set(id));
+        }
+        assertTrue(bitmap.contains(reference.first()));
+        assertFalse(bitmap.contains(ActivityBitmap.MAX_ID + 1));
+
+        long[] unwritten = bitmap.unwritten();
+        assertArrayEquals(reference.stream().mapToLong(Long::longValue).toArray(), unwritten);
+
+        // Half written; a new id and the other half remain
+        bitmap.markWritten(unwritten, 0, unwritten.length / 2);
+        bitmap.set(Integer.MAX_VALUE);
+        reference.add((long) Integer.MAX_VALUE);
+        long[] rest = bitmap.unwritten();
+        assertEquals(reference.size() - unwritten.length / 2, rest.length);
+        assertEquals(unwritten[unwritten.length / 2], rest[0]);
+        assertEquals(Integer.MAX_VALUE, rest[rest.length - 1]);
+        assertThrows(IllegalArgumentException.class, () -> bitmap.set(-1));
+    }
+
+    @Test
+    void testFlush_WritesEachActiveUserOnceInBatches() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        StreakService streaks = new StreakService(jdbc, achievementEngine, eventPublisher, 3, 50_000);
+        for (long id : new long[] {4, 1, 2, 4, 3, 2}) {
+            streaks.touch(id);
+        }
+
+        assertEquals(4, streaks.flush());
+        assertEquals(2, jdbc.updates.size());
+        Date today = Date.valueOf(LocalDate.now());
+        assertArrayEquals(new Object[] {today, today, 1L, 2L, 3L}, jdbc.updates.get(0));
+        assertArrayEquals(new Object[] {today, today, 4L}, jdbc.updates.get(1));
+        assertTrue(jdbc.sql.get(0).endsWith("id IN (?, ?, ?)"));
+
+        // Already written today
+        streaks.touch(2L);
+        assertEquals(0, streaks.flush());
+        streaks.touch(9L);
+        assertEquals(1, streaks.flush());
+        assertEquals(3, jdbc.updates.size());
+        assertEquals(8, streaks.getStats().getTouches());
+    }
+
+    @Test
+    void testComputeStreaks_UpdatesEverySliceThenPublishesMilestones() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        jdbc.maxId = 120_000L;
+        jdbc.milestones.add(new long[] {5L, 7});
+        jdbc.milestones.add(new long[] {8L, 30});
+        when(achievementEngine.thresholds("STREAK")).thenReturn(new int[] {7, 30, 100});
+        StreakService streaks = new StreakService(jdbc, achievementEngine, eventPublisher, 500, 50_000);
+        LocalDate day = LocalDate.of(2026, 3, 9);
+
+        StreakRun run = streaks.computeStreaks(day);
+
+        assertEquals(3, jdbc.updates.size());
+        Date date = Date.valueOf(day);
+        Object[] last = jdbc.updates.get(2);
+        assertEquals(Date.valueOf(day.minusDays(1)), last[2]);
+        assertEquals(100_001L, last[6]);
+        assertEquals(150_000L, last[7]);
+        assertEquals(date, last[10]);
+        assertEquals(3 * RecordingJdbcTemplate.ROWS_PER_UPDATE, run.getUsersUpdated());
+        assertArrayEquals(new Object[] {date, 7, 30, 100}, jdbc.queryArgs);
+
+        ArgumentCaptor<StreakExtendedEvent> events = ArgumentCaptor.forClass(StreakExtendedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(8L, events.getAllValues().get(1).getUserId());
+        assertEquals(30, events.getAllValues().get(1).getStreak());
+        assertEquals(2, run.getMilestones());
+    }
+
+    // Records statements instead of running them
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        static final int ROWS_PER_UPDATE = 10;
+
+        final List<String> sql = new ArrayList<>();
+        final List<Object[]> updates = new ArrayList<>();
+        final List<long[]> milestones = new ArrayList<>();
+        Long maxId;
+        Object[] queryArgs;
+
+        @Override
+        public int update(String statement, Object... args) {
+            sql.add(statement);
+            updates.add(Arrays.copyOf(args, args.length));
+            return ROWS_PER_UPDATE;
+        }
+
+        @Override
+        public <T> T queryForObject(String statement, Class<T> requiredType) {
+            return requiredType.cast(maxId);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String statement, RowMapper<T> rowMapper, Object... args) {
+            queryArgs = args;
+            return (List<T>) milestones;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.User;
+import com.groceriesapp.repository.Co2TotalRepository;
+import com.groceriesapp.repository.UserRepository;
+import com.groceriesapp.service.FoodEmissionModel.Category;
+import com.groceriesapp.service.event.Co2SavedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SustainabilityServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private Co2TotalRepository co2TotalRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private RecordingJdbcTemplate jdbc;
+    private SustainabilityService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new RecordingJdbcTemplate();
+        service = new SustainabilityService(userRepository, co2TotalRepository, jdbc,
+            new TransactionTemplate(transactionManager), eventPublisher);
+        user = new User();
+        user.setId(7L);
+    }
+
+    @Test
+    void testClassify_RightmostFoodWins() {
+        assertEquals(Category.MILK, FoodEmissionModel.classify("Chocolate Milk 1L"));
+        assertEquals(Category.CHOCOLATE, FoodEmissionModel.classify("Milk Chocolate Bar"));
+        assertEquals(Category.PEANUTS, FoodEmissionModel.classify("Crunchy Peanut Butter"));
+        assertEquals(Category.ROOT_VEGETABLES, FoodEmissionModel.classify("Sweet Potatoes"));
+        assertEquals(Category.BERRIES, FoodEmissionModel.classify("strawberries"));
+        assertEquals(Category.BEEF, FoodEmissionModel.classify("Organic Ground Beef"));
+        assertEquals(Category.OTHER, FoodEmissionModel.classify("Cola 6 x 330ml"));
+        assertEquals(Category.OTHER, FoodEmissionModel.classify(null));
+    }
+
+    @Test
+    void testCalculateCO2Saved_UsesWeightFromItemThenNameThenTypicalUnit() {
+        LocalDate nextWeek = LocalDate.now().plusDays(7);
+
+        assertEquals(0.5 * 99.5, service.calculateCO2Saved("Ground Beef 500g", 1, nextWeek), 1e-9);
+        assertEquals(0.25 * 99.5, service.calculateCO2Saved("Ground Beef", 1, 250, nextWeek), 1e-9);
+        assertEquals(6 * 0.33 * 2.0, service.calculateCO2Saved("Cola 6 x 330ml", 1, nextWeek), 1e-9);
+        assertEquals(12 * 0.06 * 4.7, service.calculateCO2Saved("Eggs", 12, nextWeek), 1e-9);
+        assertEquals(0.0, service.calculateCO2Saved("Ground Beef 500g", 1, LocalDate.now().minusDays(1)));
+    }
+
+    @Test
+    void testUpdateCO2Saved_CountsUntilWrittenThenReadsStoredTotals() {
+        when(userRepository.findTotalCo2SavedKgById(7L)).thenReturn(1.0, 1.0, 3.5);
+        when(co2TotalRepository.findGrams(SustainabilityService.HOUSEHOLD, 3L)).thenReturn(10_000L, 12_500L);
+        when(co2TotalRepository.findGrams(SustainabilityService.GLOBAL, 0L)).thenReturn(100_000L, 102_500L);
+
+        service.updateCO2Saved(user, 3L, 2.0);
+        service.updateCO2Saved(user, null, 0.5);
+        service.updateCO2Saved(user, 3L, 0.0);
+
+        ArgumentCaptor<Co2SavedEvent> event = ArgumentCaptor.forClass(Co2SavedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(event.capture());
+        assertEquals(3.0, event.getAllValues().get(0).getTotalKilograms(), 1e-9);
+        assertEquals(3.5, event.getAllValues().get(1).getTotalKilograms(), 1e-9);
+        assertEquals(12.0, service.getHouseholdCo2SavedKg(3L), 1e-9);
+        assertEquals(102.5, service.getGlobalCo2SavedKg(), 1e-9);
+
+        assertEquals(3, service.flush());
+        assertArrayEquals(new Object[] {2.5, 7L}, jdbc.batches.get(0).get(0));
+        List<Object[]> totals = jdbc.batches.get(1);
+        assertArrayEquals(new Object[] {SustainabilityService.GLOBAL, 0L, 2500L}, totals.get(0));
+        assertArrayEquals(new Object[] {SustainabilityService.HOUSEHOLD, 3L, 2000L}, totals.get(1));
+
+        // Now stored, and not counted twice
+        assertEquals(3.5, service.getUserCo2SavedKg(7L), 1e-9);
+        assertEquals(12.5, service.getHouseholdCo2SavedKg(3L), 1e-9);
+        assertEquals(102.5, service.getGlobalCo2SavedKg(), 1e-9);
+        assertEquals(0, service.flush());
+    }
+
+    @Test
+    void testFlush_KeepsSavingsWhenTheWriteFails() {
+        when(co2TotalRepository.findGrams(SustainabilityService.GLOBAL, 0L)).thenReturn(500L);
+        service.updateCO2Saved(user, 3L, 1.25);
+        jdbc.failures = 1;
+
+        assertEquals(0, service.flush());
+        verify(transactionManager).rollback(any());
+        assertEquals(1.75, service.getGlobalCo2SavedKg(), 1e-9);
+
+        service.updateCO2Saved(user, 3L, 0.25);
+        assertEquals(3, service.flush());
+        assertArrayEquals(new Object[] {1.5, 7L}, jdbc.batches.get(0).get(0));
+    }
+
+    // Records batches instead of running them
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<List<Object[]>> batches = new ArrayList<>();
+        int failures;
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Connection reset");
+            }
+            List<Object[]> batch = new ArrayList<>(batchArgs);
+            batch.sort(Comparator.comparing(args -> args[0].toString()));
+            batches.add(batch);
+            return new int[batchArgs.size()];
+        }
+    }
+}
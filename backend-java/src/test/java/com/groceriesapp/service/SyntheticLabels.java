@@ -0,0 +1,112 @@
+package com.groceriesapp.service;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Generates photographed-looking grocery labels with known text, for the OCR
+ * preprocessing tests and OCRPreprocessingBenchmark. Labels are dark text on a
+ * lit paper gradient, rotated by a known angle, with sensor noise, at phone
+ * camera resolution.
+ */
+final class SyntheticLabels {
+
+    private static final String[] PRODUCTS = {
+        "WHOLE MILK", "GREEK YOGURT", "CHEDDAR CHEESE", "ORANGE JUICE", "SLICED BREAD",
+        "FREE RANGE EGGS", "BABY SPINACH", "CHICKEN BREAST", "BUTTER UNSALTED", "HUMMUS CLASSIC"
+    };
+
+    private static final String[] MONTHS = {
+        "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+    };
+
+    private SyntheticLabels() {
+    }
+
+    static class Label {
+        final BufferedImage image;
+        final String text;
+        final double skewDegrees;
+        final Rectangle textBounds;
+
+        Label(BufferedImage image, String text, double skewDegrees, Rectangle textBounds) {
+            this.image = image;
+            this.text = text;
+            this.skewDegrees = skewDegrees;
+            this.textBounds = textBounds;
+        }
+    }
+
+    /**
+     * One label photo, fully determined by the seed
+     */
+    static Label generate(long seed, int width, int height, double skewDegrees) {
+        Random random = new Random(seed);
+        int month = random.nextInt(12);
+        int day = 1 + random.nextInt(28);
+        int year = 25 + random.nextInt(3);
+        String[] lines = {
+            PRODUCTS[random.nextInt(PRODUCTS.length)],
+            "Qty: " + (1 + random.nextInt(6)),
+            String.format("EXP %02d/%02d/20%d", month + 1, day, year),
+            String.format("BEST BEFORE %d %s %d", day, MONTHS[month], year),
+            "LOT " + (1000 + random.nextInt(9000))
+        };
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Uneven lighting across the paper
+        g.setPaint(new GradientPaint(0, 0, new Color(250, 248, 240), width, height, new Color(150, 145, 135)));
+        g.fillRect(0, 0, width, height);
+
+        int fontSize = height / 18;
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, fontSize));
+        g.setColor(new Color(25, 25, 30));
+        g.rotate(Math.toRadians(skewDegrees), width / 2.0, height / 2.0);
+
+        int lineHeight = (int) (fontSize * 1.6);
+        int x = width / 5;
+        int y = height / 4;
+        int maxLineWidth = 0;
+        for (String line : lines) {
+            g.drawString(line, x, y);
+            maxLineWidth = Math.max(maxLineWidth, g.getFontMetrics().stringWidth(line));
+            y += lineHeight;
+        }
+        g.dispose();
+
+        addNoise(image, random);
+
+        Rectangle bounds = new Rectangle(x, height / 4 - fontSize, maxLineWidth, lineHeight * (lines.length - 1) + fontSize);
+        return new Label(image, String.join("\n", lines), skewDegrees, bounds);
+    }
+
+    private static void addNoise(BufferedImage image, Random random) {
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int noise = (int) (random.nextGaussian() * 12);
+                int r = clamp(((row[x] >> 16) & 0xFF) + noise);
+                int gr = clamp(((row[x] >> 8) & 0xFF) + noise);
+                int b = clamp((row[x] & 0xFF) + noise);
+                row[x] = (r << 16) | (gr << 8) | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
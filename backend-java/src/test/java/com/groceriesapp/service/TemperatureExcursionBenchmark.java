@@ -0,0 +1,101 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.repository.ItemRepository;
+import com.groceriesapp.service.FridgeTelemetryService.EventType;
+import com.groceriesapp.service.TemperatureExcursionService.ExcursionStats;
+import com.groceriesapp.service.ml.ExpirationPredictionService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Streams live temperature readings from a fleet of fridges and reports how long after
+ * the reading that completes an excursion it is detected. Every fridge reports once a
+ * second. One in a hundred is warm, its first reading stamped up to 30 minutes ago,
+ * so the default rule of 8°C for 30 minutes fires on a live reading some seconds into
+ * the run. Telemetry drains on its own thread at the configured interval, as the
+ * scheduler would.
+ *
+ * Not run by surefire. After {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.groceriesapp.service.TemperatureExcursionBenchmark [devices] [seconds] [drainIntervalMillis]
+ * </pre>
+ */
+public class TemperatureExcursionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long drainInterval = args.length > 2 ? Long.parseLong(args[2]) : 250;
+
+        Path directory = Files.createTempDirectory("fridge-excursions");
+        FridgeSyncStateRepository fridgeSyncStateRepository = mock(FridgeSyncStateRepository.class);
+        FridgeTelemetryService telemetry = new FridgeTelemetryService(fridgeSyncStateRepository, directory.toString(),
+            1 << 20, devices, 24, 60_000, 86_400_000);
+        for (int device = 0; device < devices; device++) {
+            telemetry.addDevice("fridge-" + device);
+        }
+        // No fridge is linked to a household, so detections stop short of the database
+        TemperatureExcursionService excursions = new TemperatureExcursionService(telemetry,
+            mock(ItemRepository.class), fridgeSyncStateRepository,
+            new ExpirationPredictionService(telemetry), mock(NotificationService.class), "8:30");
+
+        Thread drainer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                telemetry.drain();
+                try {
+                    Thread.sleep(drainInterval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        boolean[] warming = new boolean[devices];
+        int warmed = 0;
+        long readings = 0;
+        long start = System.currentTimeMillis();
+        for (int device = 0; device < devices; device += 100) {
+            warming[device] = true;
+            warmed++;
+            long warmSince = start - 30 * 60_000L + ThreadLocalRandom.current().nextLong(1000, seconds * 1000L);
+            record(telemetry, "fridge-" + device, 9.5, warmSince);
+        }
+        for (int second = 0; second < seconds; second++) {
+            long secondStart = start + second * 1000L;
+            for (int device = 0; device < devices; device++) {
+                // Spread each second's readings over the second, like independent devices
+                long due = secondStart + device * 1000L / devices;
+                while (System.currentTimeMillis() < due) {
+                    Thread.onSpinWait();
+                }
+                double celsius = warming[device] ? 9.5 + ThreadLocalRandom.current().nextDouble() : 4.0;
+                record(telemetry, "fridge-" + device, celsius, System.currentTimeMillis());
+                readings++;
+            }
+        }
+        Thread.sleep(drainInterval * 2);
+        drainer.interrupt();
+        excursions.shutdown();
+
+        ExcursionStats stats = excursions.getStats();
+        System.out.printf("%,d devices, %,d readings over %d s, drain every %d ms, %d fridges warmed%n",
+            devices, readings, seconds, drainInterval, warmed);
+        System.out.printf("%d excursions detected, lag avg %d ms, max %d ms, %,d readings dropped%n",
+            stats.getDetections(), stats.getAvgDetectionLagMillis(), stats.getMaxDetectionLagMillis(),
+            telemetry.getStats().getDropped());
+    }
+
+    private static void record(FridgeTelemetryService telemetry, String deviceId, double celsius, long timestamp) {
+        while (!telemetry.record(deviceId, EventType.TEMPERATURE, celsius, timestamp)) {
+            Thread.yield();
+        }
+    }
+}
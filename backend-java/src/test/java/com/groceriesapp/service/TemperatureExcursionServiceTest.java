@@ -0,0 +1,178 @@
+package com.groceriesapp.service;
+
+import com.groceriesapp.model.FridgeSyncState;
+import com.groceriesapp.model.Household;
+import com.groceriesapp.model.Item;
+import com.groceriesapp.model.User;
+import com.groceriesapp.repository.FridgeSyncStateRepository;
+import com.groceriesapp.repository.ItemRepository;
+import com.groceriesapp.service.FridgeTelemetryService.EventType;
+import com.groceriesapp.service.ml.ExpirationPredictionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TemperatureExcursionServiceTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private FridgeSyncStateRepository fridgeSyncStateRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @TempDir
+    Path telemetryDir;
+
+    private FridgeTelemetryService telemetry;
+    private TemperatureExcursionService excursions;
+    private long t0;
+
+    @BeforeEach
+    void setUp() {
+        telemetry = new FridgeTelemetryService(fridgeSyncStateRepository, telemetryDir.toString(), 1024, 100, 24,
+            60_000, 86_400_000);
+        telemetry.addDevice("fridge-1");
+        telemetry.addDevice("fridge-2");
+        ExpirationPredictionService predictions = new ExpirationPredictionService(telemetry);
+        // Re-predictions run on the draining thread, so the tests see them at once
+        excursions = new TemperatureExcursionService(telemetry, itemRepository, fridgeSyncStateRepository,
+            predictions, notificationService, "8:30, 15:10", Runnable::run);
+        t0 = System.currentTimeMillis() - 60 * MINUTE;
+    }
+
+    @Test
+    void testDetectsOnlyRunsAboveThresholdForTheWholeDuration() {
+        // 25 warm minutes, a dip, then 29 warm minutes: never 30 in a row
+        for (int minute = 0; minute <= 25; minute++) {
+            telemetry.record("fridge-1", EventType.TEMPERATURE, 9.0, t0 + minute * MINUTE);
+        }
+        telemetry.record("fridge-1", EventType.TEMPERATURE, 6.0, t0 + 26 * MINUTE);
+        for (int minute = 27; minute <= 56; minute++) {
+            telemetry.record("fridge-1", EventType.TEMPERATURE, 9.0, t0 + minute * MINUTE);
+        }
+        // A reading arriving late is not counted towards the run
+        telemetry.record("fridge-1", EventType.TEMPERATURE, 9.0, t0 + 26 * MINUTE + 1);
+        telemetry.record("fridge-2", EventType.TEMPERATURE, 4.0, t0);
+        telemetry.drain();
+        assertEquals(0, excursions.getStats().getDetections());
+
+        telemetry.record("fridge-1", EventType.TEMPERATURE, 9.0, t0 + 57 * MINUTE);
+        telemetry.drain();
+        assertEquals(1, excursions.getStats().getDetections());
+        verify(fridgeSyncStateRepository).findById("fridge-1");
+        verifyNoInteractions(itemRepository);
+    }
+
+    @Test
+    void testReadingFromClockFarAheadDoesNotHoldBackLaterReadings() {
+        // Allows an hour of skew so the run can be stamped ahead of the test's clock
+        FridgeTelemetryService skewed = new FridgeTelemetryService(fridgeSyncStateRepository, telemetryDir.toString(),
+            1024, 100, 24, 60 * MINUTE, 86_400_000);
+        skewed.addDevice("fridge-1");
+        TemperatureExcursionService detector = new TemperatureExcursionService(skewed, itemRepository,
+            fridgeSyncStateRepository, new ExpirationPredictionService(skewed), notificationService, "8:30",
+            Runnable::run);
+        long start = System.currentTimeMillis() + 5 * MINUTE;
+
+        skewed.record("fridge-1", EventType.TEMPERATURE, 4.0, start + 365L * 24 * 60 * MINUTE);
+        for (int minute = 0; minute <= 30; minute++) {
+            skewed.record("fridge-1", EventType.TEMPERATURE, 9.0, start + minute * MINUTE);
+        }
+        skewed.drain();
+
+        assertEquals(1, detector.getStats().getDetections());
+    }
+
+    @Test
+    void testRepredictsHouseholdItemsAndNotifiesOnlyMovedDates() {
+        FridgeSyncState state = new FridgeSyncState();
+        state.setDeviceId("fridge-1");
+        state.setHouseholdId(7L);
+        when(fridgeSyncStateRepository.findById("fridge-1")).thenReturn(Optional.of(state));
+        User alice = user(1L);
+        User bob = user(2L);
+        Item milk = item(1L, "Milk", "Fridge", alice, LocalDate.now().plusDays(7));
+        Item chicken = item(2L, "Chicken breast", "Fridge", bob, LocalDate.now().plusDays(3));
+        Item jam = item(3L, "Jam", "Fridge door", alice, LocalDate.now().plusDays(1));
+        Item peas = item(4L, "Frozen peas", "Freezer drawer", alice, LocalDate.now().plusDays(90));
+        when(itemRepository.findRefrigeratedItems(7L, "fridge-1")).thenReturn(List.of(milk, chicken, jam, peas));
+
+        for (int minute = 0; minute <= 30; minute++) {
+            telemetry.record("fridge-1", EventType.TEMPERATURE, 12.0, t0 + minute * MINUTE);
+        }
+        telemetry.drain();
+
+        TemperatureExcursionService.ExcursionStats stats = excursions.getStats();
+        assertEquals(1, stats.getDetections());
+        assertEquals(3, stats.getItemsRepredicted());
+        // Milk and chicken at 12°C expire sooner; jam was already due tomorrow
+        assertEquals(2, stats.getItemsMoved());
+        assertTrue(milk.getPredictedExpirationDate().isBefore(LocalDate.now().plusDays(7)));
+        assertEquals(LocalDate.now().plusDays(1), jam.getPredictedExpirationDate());
+        assertEquals(LocalDate.now().plusDays(90), peas.getPredictedExpirationDate());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Item>> saved = ArgumentCaptor.forClass(List.class);
+        verify(itemRepository).saveAll(saved.capture());
+        assertEquals(List.of(milk, chicken), saved.getValue());
+        verify(notificationService).notifyFridgeExcursion(eq(1L), eq(12.0), eq(30L), eq(List.of(milk)));
+        verify(notificationService).notifyFridgeExcursion(eq(2L), eq(12.0), eq(30L), eq(List.of(chicken)));
+
+        // The same excursion going on moves nothing further until the next 30 minutes
+        clearInvocations(itemRepository, notificationService);
+        telemetry.record("fridge-1", EventType.TEMPERATURE, 12.0, t0 + 40 * MINUTE);
+        telemetry.drain();
+        verifyNoInteractions(itemRepository, notificationService);
+    }
+
+    @Test
+    void testParseRules_RejectsMalformedRules() {
+        TemperatureExcursionService.Rule[] rules = TemperatureExcursionService.parseRules("8:30, 15:7.5");
+        assertEquals(2, rules.length);
+        assertEquals(15.0, rules[1].threshold);
+        assertEquals(450_000L, rules[1].durationMillis);
+        assertThrows(IllegalArgumentException.class, () -> TemperatureExcursionService.parseRules("8"));
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static Item item(Long id, String name, String location, User owner, LocalDate predicted) {
+        Household household = new Household();
+        household.setId(7L);
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setQuantity(1);
+        item.setStorageLocation(location);
+        item.setExpirationDate(predicted);
+        item.setPredictedExpirationDate(predicted);
+        item.setCreatedAt(LocalDateTime.now());
+        item.setHousehold(household);
+        item.setAddedBy(owner);
+        return item;
+    }
+}
@@ -0,0 +1,90 @@
+package com.groceriesapp.service.nutrition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumptionLogPartitionServiceTest {
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ConsumptionLogPartitionService partitionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(partitionService, "retentionMonths", 24);
+        ReflectionTestUtils.setField(partitionService, "partitionsAhead", 3);
+    }
+
+    @Test
+    void testMaintainPartitions_SkipsUnpartitionedTable() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("consumption_log")))
+            .thenReturn(List.of());
+
+        partitionService.maintainPartitions();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void testMaintainPartitions_CreatesMissingUpcomingMonthsInOrder() {
+        YearMonth now = YearMonth.now();
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("consumption_log")))
+            .thenReturn(List.of(now.minusMonths(1).format(NAME), now.format(NAME), "pmax"));
+
+        partitionService.maintainPartitions();
+
+        for (int i = 1; i <= 3; i++) {
+            YearMonth month = now.plusMonths(i);
+            verify(jdbcTemplate).execute("ALTER TABLE consumption_log REORGANIZE PARTITION pmax INTO (" +
+                    "PARTITION " + month.format(NAME) + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "'), " +
+                    "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        }
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+
+    @Test
+    void testMaintainPartitions_ArchivesThenDropsExpiredMonths() {
+        YearMonth now = YearMonth.now();
+        List<String> partitions = new ArrayList<>();
+        for (int i = 26; i >= 0; i--) {
+            partitions.add(now.minusMonths(i).format(NAME));
+        }
+        for (int i = 1; i <= 3; i++) {
+            partitions.add(now.plusMonths(i).format(NAME));
+        }
+        partitions.add("pmax");
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("consumption_log")))
+            .thenReturn(partitions);
+
+        partitionService.maintainPartitions();
+
+        // Months 26 and 25 back fall outside the 24-month window; 24 back is kept
+        for (int i : new int[] {26, 25}) {
+            String name = now.minusMonths(i).format(NAME);
+            verify(jdbcTemplate).update(contains("FROM consumption_log PARTITION (" + name + ")"));
+            verify(jdbcTemplate).execute("ALTER TABLE consumption_log DROP PARTITION " + name);
+        }
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT IGNORE INTO consumption_log_archive"));
+        verify(jdbcTemplate, never()).execute(contains("REORGANIZE"));
+    }
+}
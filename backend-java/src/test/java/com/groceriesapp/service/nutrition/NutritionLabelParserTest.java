@@ -0,0 +1,101 @@
+package com.groceriesapp.service.nutrition;
+
+import com.groceriesapp.model.nutrition.NutritionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NutritionLabelParserTest {
+
+    private static final String FDA_LABEL =
+            "Nutrition Facts\n" +
+            "Serving Size 2/3 cup (55g)\n" +
+            "Servings Per Container About 8\n" +
+            "Amount Per Serving\n" +
+            "Calories 230    Calories from Fat 72\n" +
+            "% Daily Value*\n" +
+            "Total Fat 8g 12%\n" +
+            "  Saturated Fat 1g 5%\n" +
+            "  Trans Fat 0g\n" +
+            "Cholesterol 0mg 0%\n" +
+            "Sodium 160mg 7%\n" +
+            "Total Carbohydrate 37g 12%\n" +
+            "  Dietary Fiber 4g 16%\n" +
+            "  Total Sugars 12g\n" +
+            "    Includes 10g Added Sugars 20%\n" +
+            "Protein 3g\n" +
+            "Vitamin D 2mcg 10%\n" +
+            "Calcium 260mg 20%\n" +
+            "Iron 8mg 45%\n" +
+            "Potassium 235mg 6%\n";
+
+    @Test
+    void testParse_StandardLabel() {
+        NutritionInfo info = NutritionLabelParser.parse(FDA_LABEL);
+
+        assertEquals("2/3 cup (55g)", info.getServingSize());
+        assertEquals("cup", info.getServingUnit());
+        assertEquals(new BigDecimal("8"), info.getServingsPerContainer());
+        assertEquals(230, info.getCalories());
+        assertEquals(72, info.getCaloriesFromFat());
+        assertEquals(new BigDecimal("8"), info.getTotalFat());
+        assertEquals(new BigDecimal("1"), info.getSaturatedFat());
+        assertEquals(new BigDecimal("0"), info.getTransFat());
+        assertEquals(new BigDecimal("0"), info.getCholesterol());
+        assertEquals(new BigDecimal("160"), info.getSodium());
+        assertEquals(new BigDecimal("37"), info.getTotalCarbohydrates());
+        assertEquals(new BigDecimal("4"), info.getDietaryFiber());
+        assertEquals(new BigDecimal("12"), info.getTotalSugars());
+        assertEquals(new BigDecimal("3"), info.getProtein());
+        assertEquals(new BigDecimal("2"), info.getVitaminD());
+        assertEquals(new BigDecimal("260"), info.getCalcium());
+        assertEquals(new BigDecimal("8"), info.getIron());
+        assertEquals(new BigDecimal("235"), info.getPotassium());
+    }
+
+    @Test
+    void testParse_SingleLineOcrOutput() {
+        NutritionInfo info = NutritionLabelParser.parse(
+                "Serving Size 1 cup (240ml) Servings Per Container about 2 Calories 110 Total Fat 2.5g Sodium 95mg Protein 8g");
+
+        assertEquals("1 cup (240ml)", info.getServingSize());
+        assertEquals(new BigDecimal("2"), info.getServingsPerContainer());
+        assertEquals(110, info.getCalories());
+        assertEquals(new BigDecimal("2.5"), info.getTotalFat());
+        assertEquals(new BigDecimal("95"), info.getSodium());
+        assertEquals(new BigDecimal("8"), info.getProtein());
+    }
+
+    @Test
+    void testParse_IgnoresDailyValuesAndMismatchedUnits() {
+        NutritionInfo info = NutritionLabelParser.parse(
+                "Total Fat 12% Total Fat 5g\nSodium 2g Sodium 140mg\nIron 4% 1.2mg");
+
+        assertEquals(new BigDecimal("5"), info.getTotalFat());
+        assertEquals(new BigDecimal("140"), info.getSodium());
+        assertNull(info.getIron());
+    }
+
+    @Test
+    void testParse_MarksWhitespaceAndCase() {
+        NutritionInfo info = NutritionLabelParser.parse(
+                "• TOTAL   FAT: 3 g\n*Saturated\tfat 0.5g\nsodium* 10 MG\nProtein 4 Calcium 20mg\nProteinaceous 9g");
+
+        assertEquals(new BigDecimal("3"), info.getTotalFat());
+        assertEquals(new BigDecimal("0.5"), info.getSaturatedFat());
+        assertEquals(new BigDecimal("10"), info.getSodium());
+        // Missing unit is accepted, and "Proteinaceous" is not a label
+        assertEquals(new BigDecimal("4"), info.getProtein());
+        assertEquals(new BigDecimal("20"), info.getCalcium());
+    }
+
+    @Test
+    void testParse_EmptyText() {
+        NutritionInfo info = NutritionLabelParser.parse("");
+
+        assertNull(info.getCalories());
+        assertNull(info.getServingSize());
+    }
+}
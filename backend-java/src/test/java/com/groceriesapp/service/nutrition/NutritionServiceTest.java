@@ -0,0 +1,352 @@
+package com.groceriesapp.service.nutrition;
+
+import com.groceriesapp.model.Household;
+import com.groceriesapp.model.Item;
+import com.groceriesapp.model.nutrition.ConsumptionLog;
+import com.groceriesapp.model.nutrition.NutritionInsights;
+import com.groceriesapp.model.nutrition.NutritionInfo;
+import com.groceriesapp.model.nutrition.UserDietaryPreferences;
+import com.groceriesapp.repository.nutrition.ConsumptionLogRepository;
+import com.groceriesapp.repository.nutrition.DailyNutritionSummaryRepository;
+import com.groceriesapp.repository.nutrition.NutritionInfoRepository;
+import com.groceriesapp.repository.nutrition.NutritionRollupRepository;
+import com.groceriesapp.repository.nutrition.UserDietaryPreferencesRepository;
+import com.groceriesapp.service.ShoppingSuggestionEngine;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NutritionServiceTest {
+
+    private static final int LOGGERS = 8;
+    private static final int LOGS_PER_LOGGER = 25;
+
+    // daily_nutrition_summary as of V13, for the native upserts
+    private static final String DAILY_SUMMARY_TABLE = "CREATE TABLE daily_nutrition_summary (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, date DATE NOT NULL, " +
+            "total_calories INT DEFAULT 0, total_protein_mg BIGINT NOT NULL DEFAULT 0, " +
+            "total_carbs_mg BIGINT NOT NULL DEFAULT 0, total_fat_mg BIGINT NOT NULL DEFAULT 0, " +
+            "total_fiber_mg BIGINT NOT NULL DEFAULT 0, total_sugar_mg BIGINT NOT NULL DEFAULT 0, " +
+            "total_sodium_mg BIGINT NOT NULL DEFAULT 0, breakfast_calories INT DEFAULT 0, " +
+            "lunch_calories INT DEFAULT 0, dinner_calories INT DEFAULT 0, snack_calories INT DEFAULT 0, " +
+            "log_count INT NOT NULL DEFAULT 0, calorie_goal_met BOOLEAN DEFAULT FALSE, " +
+            "protein_goal_met BOOLEAN DEFAULT FALSE, carb_goal_met BOOLEAN DEFAULT FALSE, " +
+            "fat_goal_met BOOLEAN DEFAULT FALSE, created_at TIMESTAMP, updated_at TIMESTAMP, " +
+            "UNIQUE KEY unique_user_date (user_id, date))";
+
+    private static JdbcConnectionPool database;
+
+    @Mock
+    private NutritionInfoRepository nutritionInfoRepository;
+
+    @Mock
+    private UserDietaryPreferencesRepository userDietaryPreferencesRepository;
+
+    @Mock
+    private ConsumptionLogRepository consumptionLogRepository;
+
+    @Mock
+    private DailyNutritionSummaryRepository dailyNutritionSummaryRepository;
+
+    @Mock
+    private NutritionRollupRepository nutritionRollupRepository;
+
+    @Mock
+    private ShoppingSuggestionEngine shoppingSuggestionEngine;
+
+    @InjectMocks
+    private NutritionService nutritionService;
+
+    private NutritionInfo nutritionInfo;
+
+    private Item item;
+
+    @BeforeAll
+    static void createDatabase() {
+        database = JdbcConnectionPool.create(
+                "jdbc:h2:mem:nutrition;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        database.setMaxConnections(LOGGERS);
+        new JdbcTemplate(database).execute(DAILY_SUMMARY_TABLE);
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        new JdbcTemplate(database).execute("DROP ALL OBJECTS");
+        database.dispose();
+    }
+
+    @BeforeEach
+    void setUp() {
+        Household household = new Household();
+        household.setId(7L);
+        item = new Item();
+        item.setId(10L);
+        item.setName("Greek Yogurt");
+        item.setHousehold(household);
+
+        nutritionInfo = new NutritionInfo();
+        nutritionInfo.setItemId(10L);
+        nutritionInfo.setCalories(100);
+        nutritionInfo.setProtein(new BigDecimal("2.50"));
+        nutritionInfo.setTotalCarbohydrates(new BigDecimal("12.25"));
+        nutritionInfo.setTotalFat(new BigDecimal("3.10"));
+        nutritionInfo.setDietaryFiber(new BigDecimal("1.00"));
+        nutritionInfo.setTotalSugars(new BigDecimal("4.00"));
+        nutritionInfo.setSodium(new BigDecimal("95.00"));
+    }
+
+    @Test
+    void testLogConsumption_ConcurrentLoggersKeepExactTotals() throws Exception {
+        when(nutritionInfoRepository.findByItemId(10L)).thenReturn(Optional.of(nutritionInfo));
+        when(consumptionLogRepository.save(any(ConsumptionLog.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userDietaryPreferencesRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        DailyNutritionSummaryRepository.DayState state = dayState(1, false, false);
+        when(dailyNutritionSummaryRepository.lockDailyRow(eq(1L), any(LocalDate.class))).thenReturn(state);
+        when(dailyNutritionSummaryRepository.incrementDailyTotals(
+                eq(1L), any(LocalDate.class), anyInt(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), anyInt(), anyInt(), anyInt(), anyInt(), any(), any()))
+            .thenAnswer(inv -> execute(inv.getMethod(), inv.getArguments()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(LOGGERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        ConsumptionLog.MealType[] mealTypes = ConsumptionLog.MealType.values();
+
+        for (int i = 0; i < LOGGERS; i++) {
+            ConsumptionLog.MealType mealType = mealTypes[i % 4];
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < LOGS_PER_LOGGER; j++) {
+                    nutritionService.logConsumption(1L, item, BigDecimal.ONE, mealType);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int logs = LOGGERS * LOGS_PER_LOGGER;
+        Map<String, Object> row = new JdbcTemplate(database).queryForMap(
+                "SELECT * FROM daily_nutrition_summary WHERE user_id = 1");
+        assertEquals(logs * 100, ((Number) row.get("total_calories")).intValue());
+        assertEquals(logs * 2_500L, ((Number) row.get("total_protein_mg")).longValue());
+        assertEquals(logs * 12_250L, ((Number) row.get("total_carbs_mg")).longValue());
+        assertEquals(logs * 3_100L, ((Number) row.get("total_fat_mg")).longValue());
+        assertEquals(logs * 95L, ((Number) row.get("total_sodium_mg")).longValue());
+        assertEquals(logs / 4 * 100, ((Number) row.get("breakfast_calories")).intValue());
+        assertEquals(logs / 4 * 100, ((Number) row.get("lunch_calories")).intValue());
+        assertEquals(logs / 4 * 100, ((Number) row.get("dinner_calories")).intValue());
+        assertEquals(logs / 4 * 100, ((Number) row.get("snack_calories")).intValue());
+        assertEquals(logs, ((Number) row.get("log_count")).intValue());
+
+        // No read-modify-write of the summary row, and preferences are read once
+        verify(dailyNutritionSummaryRepository, never()).findByUserIdAndDate(anyLong(), any());
+        verify(dailyNutritionSummaryRepository, never()).save(any());
+        verify(userDietaryPreferencesRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void testLogConsumption_PassesCachedGoalsToUpsert() {
+        UserDietaryPreferences prefs = new UserDietaryPreferences();
+        prefs.setUserId(1L);
+        prefs.setDailyCalorieGoal(2000);
+        prefs.setDailyProteinGoal(new BigDecimal("50.00"));
+        when(nutritionInfoRepository.findByItemId(10L)).thenReturn(Optional.of(nutritionInfo));
+        when(consumptionLogRepository.save(any(ConsumptionLog.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userDietaryPreferencesRepository.findByUserId(1L)).thenReturn(Optional.of(prefs));
+        DailyNutritionSummaryRepository.DayState state = dayState(1, false, false);
+        when(dailyNutritionSummaryRepository.lockDailyRow(eq(1L), any(LocalDate.class))).thenReturn(state);
+
+        nutritionService.logConsumption(1L, item, new BigDecimal("2"), ConsumptionLog.MealType.LUNCH);
+        nutritionService.logConsumption(1L, item, BigDecimal.ONE, ConsumptionLog.MealType.OTHER);
+
+        verify(dailyNutritionSummaryRepository).incrementDailyTotals(
+                eq(1L), eq(LocalDate.now()), eq(200), eq(5_000L), eq(24_500L), eq(6_200L), eq(2_000L),
+                eq(8_000L), eq(190L), eq(0), eq(200), eq(0), eq(0), eq(2000), eq(50_000L));
+        verify(dailyNutritionSummaryRepository).incrementDailyTotals(
+                eq(1L), eq(LocalDate.now()), eq(100), eq(2_500L), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), eq(0), eq(0), eq(0), eq(0), eq(2000), eq(50_000L));
+        verify(userDietaryPreferencesRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void testSaveDietaryPreferences_EvictsCachedGoals() {
+        UserDietaryPreferences prefs = new UserDietaryPreferences();
+        prefs.setUserId(1L);
+        prefs.setDailyCalorieGoal(1800);
+        when(nutritionInfoRepository.findByItemId(10L)).thenReturn(Optional.of(nutritionInfo));
+        when(consumptionLogRepository.save(any(ConsumptionLog.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userDietaryPreferencesRepository.findByUserId(1L)).thenReturn(Optional.empty(), Optional.of(prefs));
+        when(userDietaryPreferencesRepository.save(prefs)).thenReturn(prefs);
+        DailyNutritionSummaryRepository.DayState state = dayState(1, false, false);
+        when(dailyNutritionSummaryRepository.lockDailyRow(eq(1L), any(LocalDate.class))).thenReturn(state);
+
+        nutritionService.logConsumption(1L, item, BigDecimal.ONE, ConsumptionLog.MealType.SNACK);
+        nutritionService.saveDietaryPreferences(prefs);
+        nutritionService.logConsumption(1L, item, BigDecimal.ONE, ConsumptionLog.MealType.SNACK);
+
+        verify(dailyNutritionSummaryRepository).incrementDailyTotals(
+                eq(1L), any(LocalDate.class), eq(100), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), eq(0), eq(0), eq(0), eq(100), isNull(), isNull());
+        verify(dailyNutritionSummaryRepository).incrementDailyTotals(
+                eq(1L), any(LocalDate.class), eq(100), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), eq(0), eq(0), eq(0), eq(100), eq(1800), isNull());
+    }
+
+    @Test
+    void testLogConsumption_FirstLogOfDayOpensDayInWeekAndMonthRollups() {
+        UserDietaryPreferences prefs = new UserDietaryPreferences();
+        prefs.setUserId(1L);
+        prefs.setDailyCalorieGoal(100);
+        when(nutritionInfoRepository.findByItemId(10L)).thenReturn(Optional.of(nutritionInfo));
+        when(consumptionLogRepository.save(any(ConsumptionLog.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userDietaryPreferencesRepository.findByUserId(1L)).thenReturn(Optional.of(prefs));
+        DailyNutritionSummaryRepository.DayState before = dayState(0, false, false);
+        DailyNutritionSummaryRepository.DayState after = dayState(1, true, false);
+        LocalDate today = LocalDate.now();
+        when(dailyNutritionSummaryRepository.lockDailyRow(1L, today)).thenReturn(before, after);
+
+        nutritionService.logConsumption(1L, item, BigDecimal.ONE, ConsumptionLog.MealType.DINNER);
+
+        LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate monthStart = today.withDayOfMonth(1);
+        InOrder inOrder = inOrder(dailyNutritionSummaryRepository, nutritionRollupRepository);
+        inOrder.verify(dailyNutritionSummaryRepository).ensureDailyRow(1L, today);
+        inOrder.verify(dailyNutritionSummaryRepository).lockDailyRow(1L, today);
+        inOrder.verify(dailyNutritionSummaryRepository).incrementDailyTotals(
+                eq(1L), eq(today), eq(100), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), anyInt(), anyInt(), anyInt(), anyInt(), eq(100), isNull());
+        inOrder.verify(dailyNutritionSummaryRepository).lockDailyRow(1L, today);
+        verify(nutritionRollupRepository).incrementRollup(1L, "WEEK", weekStart, 1, 100,
+                2_500L, 12_250L, 3_100L, 1_000L, 4_000L, 95L, 1, 0);
+        verify(nutritionRollupRepository).incrementRollup(1L, "MONTH", monthStart, 1, 100,
+                2_500L, 12_250L, 3_100L, 1_000L, 4_000L, 95L, 1, 0);
+
+        // The loaded item goes to shopping suggestions as is, with no second lookup
+        verify(shoppingSuggestionEngine).recordConsumed(7L, 10L, "Greek Yogurt");
+    }
+
+    @Test
+    void testLogConsumption_LaterLogOfDayOnlyMovesTotalsAndGoalFlips() {
+        UserDietaryPreferences prefs = new UserDietaryPreferences();
+        prefs.setUserId(1L);
+        prefs.setDailyCalorieGoal(100);
+        when(nutritionInfoRepository.findByItemId(10L)).thenReturn(Optional.of(nutritionInfo));
+        when(consumptionLogRepository.save(any(ConsumptionLog.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userDietaryPreferencesRepository.findByUserId(1L)).thenReturn(Optional.of(prefs));
+        DailyNutritionSummaryRepository.DayState before = dayState(3, true, true);
+        DailyNutritionSummaryRepository.DayState after = dayState(4, false, true);
+        LocalDate today = LocalDate.now();
+        when(dailyNutritionSummaryRepository.lockDailyRow(1L, today)).thenReturn(before, after);
+
+        nutritionService.logConsumption(1L, item, BigDecimal.ONE, ConsumptionLog.MealType.SNACK);
+
+        LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate monthStart = today.withDayOfMonth(1);
+        verify(nutritionRollupRepository).incrementRollup(1L, "WEEK", weekStart, 0, 100,
+                2_500L, 12_250L, 3_100L, 1_000L, 4_000L, 95L, -1, 0);
+        verify(nutritionRollupRepository).incrementRollup(1L, "MONTH", monthStart, 0, 100,
+                2_500L, 12_250L, 3_100L, 1_000L, 4_000L, 95L, -1, 0);
+        verifyNoMoreInteractions(nutritionRollupRepository);
+    }
+
+    @Test
+    void testGetNutritionInsights_ReadsWholeMonthsFromRollups() {
+        UserDietaryPreferences prefs = new UserDietaryPreferences();
+        prefs.setUserId(1L);
+        prefs.setDailyCalorieGoal(2000);
+        NutritionRollupRepository.RangeTotals totals = totals(2, 4400, 100_500L, 1);
+        when(userDietaryPreferencesRepository.findByUserId(1L)).thenReturn(Optional.of(prefs));
+        when(nutritionRollupRepository.sumRange(1L, LocalDate.of(2023, 1, 15), LocalDate.of(2025, 6, 10),
+                LocalDate.of(2023, 2, 1), LocalDate.of(2025, 6, 1)))
+            .thenReturn(totals);
+
+        NutritionInsights insights = nutritionService.getNutritionInsights(
+                1L, LocalDate.of(2023, 1, 15), LocalDate.of(2025, 6, 10));
+
+        assertEquals(2, insights.getTotalDays());
+        assertEquals(2200.0, insights.getAvgCalories());
+        assertEquals(50.25, insights.getAvgProtein());
+        assertEquals(50.0, insights.getGoalAchievementRate());
+    }
+
+    @Test
+    void testGetNutritionInsights_ShortRangeUsesDailySummariesOnly() {
+        NutritionRollupRepository.RangeTotals totals = totals(0, 0, 0L, 0);
+        when(nutritionRollupRepository.sumRange(1L, LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 9),
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 1)))
+            .thenReturn(totals);
+
+        NutritionInsights insights = nutritionService.getNutritionInsights(
+                1L, LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 9));
+
+        assertEquals(0, insights.getTotalDays());
+        assertNull(insights.getGoalAchievementRate());
+        verifyNoInteractions(userDietaryPreferencesRepository);
+    }
+
+    private static DailyNutritionSummaryRepository.DayState dayState(
+            int logCount, boolean calorieGoalMet, boolean proteinGoalMet) {
+        DailyNutritionSummaryRepository.DayState state = mock(DailyNutritionSummaryRepository.DayState.class);
+        lenient().when(state.getLogCount()).thenReturn(logCount);
+        lenient().when(state.getCalorieGoalMet()).thenReturn(calorieGoalMet);
+        lenient().when(state.getProteinGoalMet()).thenReturn(proteinGoalMet);
+        return state;
+    }
+
+    private static NutritionRollupRepository.RangeTotals totals(long days, long calories, long proteinMg, long goalDays) {
+        NutritionRollupRepository.RangeTotals totals = mock(NutritionRollupRepository.RangeTotals.class);
+        lenient().when(totals.getDays()).thenReturn(days);
+        lenient().when(totals.getTotalCalories()).thenReturn(calories);
+        lenient().when(totals.getTotalProteinMg()).thenReturn(proteinMg);
+        lenient().when(totals.getTotalCarbsMg()).thenReturn(0L);
+        lenient().when(totals.getTotalFatMg()).thenReturn(0L);
+        lenient().when(totals.getCalorieGoalDays()).thenReturn(goalDays);
+        return totals;
+    }
+
+    /**
+     * Run a repository method's native query against the H2 database, binding
+     * the call's arguments to the query's named parameters
+     */
+    private static int execute(Method method, Object[] args) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < args.length; i++) {
+            params.addValue(((Param) annotations[i][0]).value(), args[i]);
+        }
+        return new NamedParameterJdbcTemplate(database).update(method.getAnnotation(Query.class).value(), params);
+    }
+}